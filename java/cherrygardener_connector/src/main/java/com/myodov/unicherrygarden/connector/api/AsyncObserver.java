@@ -0,0 +1,96 @@
+package com.myodov.unicherrygarden.connector.api;
+
+import com.myodov.unicherrygarden.messages.cherrypicker.*;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The client connector part that observes the Ethereum ETH/ERC20 payments; non-blocking version of {@link Observer}.
+ * <p>
+ * Every method returns immediately, with the {@link CompletionStage} of the same response
+ * the matching {@link Observer} method returns; no caller thread is blocked while the request is in flight,
+ * so lots of requests may be executed concurrently even from a small thread pool.
+ * <p>
+ * The invalid arguments are still reported immediately, by throwing the same exceptions as {@link Observer} does.
+ * Any network problems (like, the timeouts) are not reported as the exceptional completion of the stage;
+ * the stage is completed with the failure response instead (check it with <code>isFailure()</code>).
+ */
+public interface AsyncObserver {
+    /**
+     * Start tracking the Ethereum addresses.
+     *
+     * @see Observer#startTrackingAddresses(Collection, AddTrackedAddresses.StartTrackingAddressMode, Integer, String)
+     */
+    @SuppressWarnings("unused")
+    @NonNull
+    CompletionStage<AddTrackedAddresses.@NonNull Response> startTrackingAddresses(
+            @NonNull Collection<String> addresses,
+            AddTrackedAddresses.@NonNull StartTrackingAddressMode mode,
+            @Nullable Integer blockNumber,
+            @Nullable String comment);
+
+    /**
+     * Get the list of addresses that are tracked by UniCherryGarden,
+     * probably filtered by `filterAddresses`.
+     *
+     * @see Observer#getTrackedAddresses(Set)
+     */
+    @SuppressWarnings("unused")
+    @NonNull
+    CompletionStage<GetTrackedAddresses.@NonNull Response> getTrackedAddresses(@Nullable Set<String> filterAddresses);
+
+    /**
+     * Get the details about any Ethereum address, tracked or not.
+     *
+     * @see Observer#getAddressDetails(String)
+     */
+    @SuppressWarnings("unused")
+    @NonNull
+    CompletionStage<GetAddressDetails.@NonNull Response> getAddressDetails(@NonNull String address);
+
+    /**
+     * Get the balances of some Ethereum address.
+     *
+     * @see Observer#getAddressBalances(int, String, Set)
+     */
+    @SuppressWarnings("unused")
+    @NonNull
+    CompletionStage<GetBalances.@NonNull Response> getAddressBalances(
+            int confirmations,
+            @NonNull String address,
+            @Nullable Set<String> filterCurrencyKeys);
+
+    /**
+     * Get the balances of multiple Ethereum addresses at once, all calculated at the same block.
+     *
+     * @see Observer#getAddressesBalances(int, Set, Set)
+     */
+    @SuppressWarnings("unused")
+    @NonNull
+    CompletionStage<GetBalances.@NonNull Response> getAddressesBalances(
+            int confirmations,
+            @NonNull Set<String> addresses,
+            @Nullable Set<String> filterCurrencyKeys);
+
+    /**
+     * Get transfers (optionally filtered by currency, sender, receiver, start-block number, end-block number).
+     *
+     * @see Observer#getTransfers(int, String, String, Integer, Integer, Set, boolean, GetTransfers.TransfersCursor, Integer)
+     */
+    @SuppressWarnings("unused")
+    @NonNull
+    CompletionStage<GetTransfers.@NonNull Response> getTransfers(
+            int confirmations,
+            @Nullable String sender,
+            @Nullable String receiver,
+            @Nullable Integer startBlock,
+            @Nullable Integer endBlock,
+            @Nullable Set<String> filterCurrencyKeys,
+            boolean includeBalances,
+            GetTransfers.@Nullable TransfersCursor cursor,
+            @Nullable Integer limit);
+}
@@ -0,0 +1,33 @@
+package com.myodov.unicherrygarden.connector.api;
+
+import com.myodov.unicherrygarden.api.types.planted.transactions.SignedOutgoingTransfer;
+import com.myodov.unicherrygarden.messages.cherryplanter.PlantTransaction;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The client connector part that ensures sending of the Ethereum ETH/ERC20 payments;
+ * non-blocking version of the network operations of {@link Sender}.
+ * <p>
+ * Creating and signing the transactions is done in the memory space of the process anyway,
+ * so use {@link Sender} for them.
+ * <p>
+ * Any network problems (like, the timeouts) are not reported as the exceptional completion of the stage;
+ * the stage is completed with the failure response instead (check it with <code>isFailure()</code>).
+ */
+public interface AsyncSender {
+    /**
+     * Enqueue the transaction for sending (try to send it to the blockchain, etc).
+     *
+     * @param comment optional comment (may be null if omitted).
+     * @see Sender#sendTransaction(SignedOutgoingTransfer, String)
+     */
+    @SuppressWarnings("unused")
+    @NonNull
+    CompletionStage<PlantTransaction.@NonNull Response> sendTransaction(
+            @NonNull SignedOutgoingTransfer tx,
+            @Nullable String comment
+    );
+}
@@ -8,6 +8,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 
 /**
  * The general interface for creating “cherry gardeners”, i.e. connectors
@@ -20,6 +21,15 @@ public interface ClientConnector extends AutoCloseable {
     @SuppressWarnings("unused")
     Ping.@NonNull Response ping();
 
+    /**
+     * Ping the system, without blocking the caller.
+     *
+     * @see #ping()
+     */
+    @SuppressWarnings("unused")
+    @NonNull
+    CompletionStage<Ping.@NonNull Response> pingAsync();
+
     /**
      * Get the Ethereum Network Chain ID (as per EIP-155) as used by this connector.
      * If during creating the connector instance, the Chain ID hasn’t been provided and requested to autodiscover –
@@ -33,6 +43,9 @@ public interface ClientConnector extends AutoCloseable {
      * also may select some currencies by their keys, or select all the currencies possible.
      * <p>
      * If you want just a single currency, use the similar {@link #getCurrency(String, boolean, boolean)}.
+     * <p>
+     * As the currencies change very rarely, the implementation may reuse the responses for a short time;
+     * so the <code>systemStatus</code> in the response may be somewhat out of date.
      *
      * @param filterCurrencyKeys if present, contains the currency keys that we are looking for;
      *                           if absent, all currencies should be retrieved.
@@ -45,6 +58,20 @@ public interface ClientConnector extends AutoCloseable {
             boolean getVerified,
             boolean getUnverified);
 
+    /**
+     * Get all the supported currencies, or some subset of them, without blocking the caller.
+     * Any network problems are not reported as the exceptional completion of the stage;
+     * the stage is completed with the failure response instead.
+     *
+     * @see #getCurrencies(Set, boolean, boolean)
+     */
+    @SuppressWarnings("unused")
+    @NonNull
+    CompletionStage<GetCurrencies.@NonNull Response> getCurrenciesAsync(
+            @Nullable Set<String> filterCurrencyKeys,
+            boolean getVerified,
+            boolean getUnverified);
+
     /**
      * Get all the supported currencies. Only the currencies pre-validated (“verified”) are returned.
      * <p>
@@ -119,6 +146,16 @@ public interface ClientConnector extends AutoCloseable {
     @SuppressWarnings("unused")
     Observer getObserver();
 
+    /**
+     * Returns the non-blocking version of {@link #getObserver()} engine/subsystem;
+     * every its method returns the {@link CompletionStage} of the response rather than waiting for it.
+     *
+     * @return <code>null</code> if the client connector is created in “offline mode”.
+     */
+    @Nullable
+    @SuppressWarnings("unused")
+    AsyncObserver getAsyncObserver();
+
 
     /**
      * Returns the engine/subsystem that allows you to create and send the Ethereum transactions (typically transfers).
@@ -129,4 +166,13 @@ public interface ClientConnector extends AutoCloseable {
     @Nullable
     @SuppressWarnings("unused")
     Sender getSender();
+
+    /**
+     * Returns the non-blocking version of the network operations of {@link #getSender()} engine/subsystem.
+     *
+     * @return <code>null</code> if the client connector is created in “offline mode”.
+     */
+    @Nullable
+    @SuppressWarnings("unused")
+    AsyncSender getAsyncSender();
 }
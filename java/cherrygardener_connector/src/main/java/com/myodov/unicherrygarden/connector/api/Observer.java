@@ -1,5 +1,7 @@
 package com.myodov.unicherrygarden.connector.api;
 
+import com.myodov.unicherrygarden.api.types.MinedTransfer;
+import com.myodov.unicherrygarden.api.types.UniCherryGardenError;
 import com.myodov.unicherrygarden.messages.cherrypicker.*;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -8,6 +10,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * The client connector part that observes the Ethereum ETH/ERC20 payments.
@@ -167,6 +170,29 @@ public interface Observer {
             @NonNull String address,
             @Nullable Set<String> filterCurrencyKeys);
 
+    /**
+     * Get the balances of multiple Ethereum addresses at once, all calculated at the same block.
+     * The balances are returned in <code>balancesByAddress</code> of the result (with an entry for every address).
+     * <p>
+     * Much cheaper than calling {@link #getAddressBalances(int, String, Set)} for each address in turn;
+     * still, for the really large sets of addresses, split them into chunks of several thousands,
+     * to keep each response within the reasonable message size.
+     *
+     * @param addresses          The Ethereum addresses to get the balances for.
+     * @param filterCurrencyKeys (optional) the set of the currency keys, for which to get the balances.
+     *                           If <code>null</code>, gets the balances for all the supported currencies.
+     *                           (Note if the set is empty, it will return the empty balances).
+     * @param confirmations      The number of extra confirmations required, i.e. the offset from the latest data.
+     *                           Should be 0 or higher. Normally it is 6–12 confirmations,
+     *                           20 confirmations on large crypto exchanges.
+     *                           Each confirmation roughly takes 15 seconds, i.e. 4 confirmations per minute.
+     */
+    @SuppressWarnings("unused")
+    GetBalances.@NonNull Response getAddressesBalances(
+            int confirmations,
+            @NonNull Set<String> addresses,
+            @Nullable Set<String> filterCurrencyKeys);
+
     /**
      * Get transfers (optionally filtered by currency, sender, receiver, start-block number, end-block number).
      * Optionally, the balances of mentioned addresses (whether `sender` or `receiver` are mentioned) are requested.
@@ -196,6 +222,11 @@ public interface Observer {
      *                           (Note if the set is empty, it will return the empty balances).
      * @param includeBalances    Should the final balances be returned in the <code>transfers</code> part of the result.
      *                           If <code>false</code>, <code>result.transfers</code> will be empty.
+     * @param cursor             (optional) if not <code>null</code>, only the transfers after this cursor
+     *                           are returned; use the <code>nextCursor</code> of the previous page here.
+     * @param limit              (optional) if not <code>null</code>, at most this number of transfers is returned;
+     *                           if there are more, the result contains the <code>nextCursor</code> to request them.
+     *                           If <code>null</code>, all the transfers are returned at once.
      */
     @SuppressWarnings("unused")
     GetTransfers.@NonNull Response getTransfers(
@@ -205,7 +236,37 @@ public interface Observer {
             @Nullable Integer startBlock,
             @Nullable Integer endBlock,
             @Nullable Set<String> filterCurrencyKeys,
-            boolean includeBalances);
+            boolean includeBalances,
+            GetTransfers.@Nullable TransfersCursor cursor,
+            @Nullable Integer limit);
+
+    /**
+     * Get transfers (optionally filtered by currency, sender, receiver, start-block number, end-block number).
+     * Optionally, the balances of mentioned addresses (whether `sender` or `receiver` are mentioned) are requested.
+     * All the transfers are returned at once.
+     *
+     * @see #getTransfers(int, String, String, Integer, Integer, Set, boolean, GetTransfers.TransfersCursor, Integer)
+     */
+    @SuppressWarnings("unused")
+    default GetTransfers.@NonNull Response getTransfers(
+            int confirmations,
+            @Nullable String sender,
+            @Nullable String receiver,
+            @Nullable Integer startBlock,
+            @Nullable Integer endBlock,
+            @Nullable Set<String> filterCurrencyKeys,
+            boolean includeBalances) {
+        return getTransfers(
+                confirmations,
+                sender,
+                receiver,
+                startBlock,
+                endBlock,
+                filterCurrencyKeys,
+                includeBalances,
+                null,
+                null);
+    }
 
     /**
      * Get transfers (optionally filtered by currency, sender, receiver, start-block number, end-block number).
@@ -253,4 +314,60 @@ public interface Observer {
                 filterCurrencyKeys,
                 false);
     }
+
+    /**
+     * Go through all the transfers (optionally filtered by currency, sender, receiver, start-block number,
+     * end-block number), requesting them page by page; so any number of transfers is handled in constant memory.
+     * <p>
+     * The transfers are passed to <code>consumer</code> in the blockchain order (by block number, transaction index
+     * and log index); all the pages are requested up to the same end block.
+     *
+     * @param pageSize how many transfers to request at once; should be 1 or higher.
+     * @param consumer called for every transfer.
+     * @return the response for the last requested page. If it {@link GetTransfers.Response#isFailure()},
+     * the iteration has been stopped because of this failure (and not all transfers were passed to the consumer).
+     * @throws UniCherryGardenError.ArgumentError if <code>pageSize</code> or <code>consumer</code> is invalid.
+     * @see #getTransfers(int, String, String, Integer, Integer, Set, boolean, GetTransfers.TransfersCursor, Integer)
+     */
+    @SuppressWarnings("unused")
+    default GetTransfers.@NonNull Response forEachTransfer(
+            int confirmations,
+            @Nullable String sender,
+            @Nullable String receiver,
+            @Nullable Integer startBlock,
+            @Nullable Integer endBlock,
+            @Nullable Set<String> filterCurrencyKeys,
+            int pageSize,
+            @NonNull Consumer<MinedTransfer> consumer) {
+        if (pageSize < 1) {
+            throw new UniCherryGardenError.ArgumentError(String.format("pageSize (%d) must be positive!", pageSize));
+        }
+        if (consumer == null) {
+            throw new UniCherryGardenError.ArgumentError("consumer must be specified!");
+        }
+
+        GetTransfers.TransfersCursor cursor = null;
+        while (true) {
+            final GetTransfers.Response response = getTransfers(
+                    confirmations,
+                    sender,
+                    receiver,
+                    startBlock,
+                    endBlock,
+                    filterCurrencyKeys,
+                    false,
+                    cursor,
+                    pageSize);
+            if (response.isFailure()) {
+                return response;
+            }
+
+            final GetTransfers.TransfersRequestResultPayload page = response.getPayloadAsSuccessful();
+            page.transfers.forEach(consumer);
+            if (page.nextCursor == null) {
+                return response;
+            }
+            cursor = page.nextCursor;
+        }
+    }
 }
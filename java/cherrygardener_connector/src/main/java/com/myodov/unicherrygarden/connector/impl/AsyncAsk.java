@@ -0,0 +1,66 @@
+package com.myodov.unicherrygarden.connector.impl;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.javadsl.AskPattern;
+import akka.japi.function.Function;
+import com.myodov.unicherrygarden.api.types.responseresult.FailurePayload;
+import com.myodov.unicherrygarden.connector.impl.actors.ConnectorActor;
+import com.myodov.unicherrygarden.connector.impl.actors.ConnectorActorCommandImpl;
+import com.myodov.unicherrygarden.connector.impl.actors.ConnectorActorMessage;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.slf4j.Logger;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The helper to ask {@link ConnectorActor} for some command, without blocking the caller.
+ */
+final class AsyncAsk {
+    private AsyncAsk() {
+    }
+
+    /**
+     * Send the command to {@link ConnectorActor} and get the stage of its response.
+     * <p>
+     * The returned stage never completes exceptionally: if the command could not be completed
+     * (e.g. because of the timeout), it completes with the response created by <code>onFailure</code>
+     * from {@link FailurePayload#CANCELLATION_COMPLETION_FAILURE}.
+     *
+     * @param replier     the function that creates the command for the <code>replyTo</code> actor;
+     *                    typically, one of <code>createReplier</code> methods of the commands.
+     * @param onFailure   the function that creates the failure response;
+     *                    typically, <code>fromCommonFailure</code> of the response class.
+     * @param commandName the name of the command, to be logged if it fails.
+     * @param logger      the logger of the caller, to log the failures to.
+     */
+    @NonNull
+    static <Res extends ConnectorActorCommandImpl.ResultImpl<Resp>, Resp> CompletionStage<Resp> ask(
+            @NonNull ActorSystem<ConnectorActorMessage> actorSystem,
+            @NonNull Function<ActorRef<Res>, ConnectorActorMessage> replier,
+            java.util.function.@NonNull Function<FailurePayload.@NonNull CommonFailurePayload, Resp> onFailure,
+            @NonNull String commandName,
+            @NonNull Logger logger) {
+        assert actorSystem != null;
+        assert replier != null;
+        assert onFailure != null;
+        assert commandName != null;
+        assert logger != null;
+
+        final CompletionStage<Res> stage =
+                AskPattern.ask(
+                        actorSystem,
+                        replier,
+                        ConnectorActor.DEFAULT_CALL_TIMEOUT,
+                        actorSystem.scheduler());
+
+        return stage.handle((result, exc) -> {
+            if (exc == null) {
+                return result.response;
+            } else {
+                logger.error(String.format("Could not complete %s command", commandName), exc);
+                return onFailure.apply(FailurePayload.CANCELLATION_COMPLETION_FAILURE);
+            }
+        });
+    }
+}
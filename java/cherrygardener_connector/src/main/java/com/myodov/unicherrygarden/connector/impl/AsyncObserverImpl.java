@@ -0,0 +1,206 @@
+package com.myodov.unicherrygarden.connector.impl;
+
+import akka.actor.typed.ActorSystem;
+import com.myodov.unicherrygarden.api.Validators;
+import com.myodov.unicherrygarden.api.types.UniCherryGardenError;
+import com.myodov.unicherrygarden.connector.api.AsyncObserver;
+import com.myodov.unicherrygarden.connector.impl.actors.ConnectorActorMessage;
+import com.myodov.unicherrygarden.connector.impl.actors.messages.*;
+import com.myodov.unicherrygarden.ethereum.EthUtils;
+import com.myodov.unicherrygarden.messages.cherrypicker.*;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
+
+/**
+ * The default implementation for {@link AsyncObserver} interface.
+ */
+public final class AsyncObserverImpl implements AsyncObserver {
+    final Logger logger = LoggerFactory.getLogger(AsyncObserverImpl.class);
+
+    @NonNull
+    private final ActorSystem<ConnectorActorMessage> actorSystem;
+
+    protected final int mandatoryConfirmations;
+
+
+    /**
+     * Constructor.
+     */
+    public AsyncObserverImpl(@NonNull ActorSystem<ConnectorActorMessage> actorSystem,
+                             int mandatoryConfirmations) {
+        assert actorSystem != null;
+        assert mandatoryConfirmations >= 0 : mandatoryConfirmations;
+        this.actorSystem = actorSystem;
+        this.mandatoryConfirmations = mandatoryConfirmations;
+    }
+
+    @Override
+    @NonNull
+    public CompletionStage<AddTrackedAddresses.@NonNull Response> startTrackingAddresses(
+            @NonNull Collection<String> addresses,
+            AddTrackedAddresses.@NonNull StartTrackingAddressMode mode,
+            @Nullable Integer blockNumber,
+            @Nullable String comment) {
+        Validators.requireValidLowercasedEthereumAddresses(addresses);
+        if ((mode == AddTrackedAddresses.StartTrackingAddressMode.FROM_BLOCK) != (blockNumber != null)) {
+            throw new UniCherryGardenError.ArgumentError(String.format(
+                    "Tracking mode (%s) should be FROM_BLOCK if and only if blockNumber (%s) is not null!",
+                    mode, blockNumber));
+        }
+
+        return AsyncAsk.ask(
+                actorSystem,
+                AddTrackedAddressesCommand.createReplier(
+                        mode,
+                        new ArrayList<AddTrackedAddresses.AddressDataToTrack>(addresses.size()) {{
+                            addAll(
+                                    addresses
+                                            .stream()
+                                            .map(address -> new AddTrackedAddresses.AddressDataToTrack(address, comment))
+                                            .collect(Collectors.toList()));
+                        }},
+                        blockNumber
+                ),
+                AddTrackedAddresses.Response::fromCommonFailure,
+                "AddTrackedAddressesCommand",
+                logger);
+    }
+
+    @Override
+    @NonNull
+    public CompletionStage<GetTrackedAddresses.@NonNull Response> getTrackedAddresses(
+            @Nullable Set<String> filterAddresses) {
+        assert filterAddresses == null ||
+                filterAddresses
+                        .stream()
+                        .allMatch(addr -> (addr != null) && EthUtils.Addresses.isValidLowercasedAddress(addr))
+                :
+                filterAddresses;
+
+        return AsyncAsk.ask(
+                actorSystem,
+                GetTrackedAddressesCommand.createReplier(
+                        filterAddresses,
+                        false,
+                        false
+                ),
+                GetTrackedAddresses.Response::fromCommonFailure,
+                "GetTrackedAddressesCommand",
+                logger);
+    }
+
+    @Override
+    @NonNull
+    public CompletionStage<GetAddressDetails.@NonNull Response> getAddressDetails(@NonNull String address) {
+        return AsyncAsk.ask(
+                actorSystem,
+                GetAddressDetailsCommand.createReplier(address),
+                GetAddressDetails.Response::fromCommonFailure,
+                "GetAddressDetailsCommand",
+                logger);
+    }
+
+    @Override
+    @NonNull
+    public CompletionStage<GetBalances.@NonNull Response> getAddressBalances(
+            int confirmations,
+            @NonNull String address,
+            @Nullable Set<String> filterCurrencyKeys) {
+        assert confirmations >= 0 && confirmations + mandatoryConfirmations >= 0 :
+                String.format("%s/%s", confirmations, mandatoryConfirmations);
+        assert address != null : address;
+        Validators.requireValidLowercasedEthereumAddresses(address);
+        Validators.requireValidBlockNumber(confirmations);
+
+        return AsyncAsk.ask(
+                actorSystem,
+                GetBalancesCommand.createReplier(
+                        confirmations + mandatoryConfirmations,
+                        address,
+                        filterCurrencyKeys),
+                GetBalances.Response::fromCommonFailure,
+                "GetBalances",
+                logger);
+    }
+
+    @Override
+    @NonNull
+    public CompletionStage<GetBalances.@NonNull Response> getAddressesBalances(
+            int confirmations,
+            @NonNull Set<String> addresses,
+            @Nullable Set<String> filterCurrencyKeys) {
+        assert confirmations >= 0 && confirmations + mandatoryConfirmations >= 0 :
+                String.format("%s/%s", confirmations, mandatoryConfirmations);
+        assert addresses != null : addresses;
+        Validators.requireValidLowercasedEthereumAddresses(addresses);
+        Validators.requireValidBlockNumber(confirmations);
+
+        return AsyncAsk.ask(
+                actorSystem,
+                GetBalancesCommand.createReplier(
+                        confirmations + mandatoryConfirmations,
+                        addresses,
+                        filterCurrencyKeys),
+                GetBalances.Response::fromCommonFailure,
+                "GetBalances",
+                logger);
+    }
+
+    @Override
+    @NonNull
+    public CompletionStage<GetTransfers.@NonNull Response> getTransfers(
+            int confirmations,
+            @Nullable String sender,
+            @Nullable String receiver,
+            @Nullable Integer startBlock,
+            @Nullable Integer endBlock,
+            @Nullable Set<String> filterCurrencyKeys,
+            boolean includeBalances,
+            GetTransfers.@Nullable TransfersCursor cursor,
+            @Nullable Integer limit
+    ) {
+        // Validations
+        assert confirmations >= 0 && confirmations + mandatoryConfirmations >= 0 :
+                String.format("%s/%s", confirmations, mandatoryConfirmations);
+
+        if (sender != null) Validators.requireValidLowercasedEthereumAddresses(sender);
+        if (receiver != null) Validators.requireValidLowercasedEthereumAddresses(receiver);
+        if (sender == null && receiver == null) {
+            throw new UniCherryGardenError.ArgumentError("At least sender or receiver must be specified!");
+        }
+
+        if (startBlock != null) Validators.requireValidBlockNumber(startBlock);
+        if (endBlock != null) Validators.requireValidBlockNumber(endBlock);
+        if (startBlock != null && endBlock != null && startBlock > endBlock) {
+            throw new UniCherryGardenError.ArgumentError(String.format(
+                    "If both are defined, startBlock (%d) must be <= endBlock (%d)!", startBlock, endBlock));
+        }
+        if (limit != null && limit < 1) {
+            throw new UniCherryGardenError.ArgumentError(String.format("limit (%d) must be positive!", limit));
+        }
+
+        return AsyncAsk.ask(
+                actorSystem,
+                GetTransfersCommand.createReplier(
+                        confirmations + mandatoryConfirmations,
+                        sender,
+                        receiver,
+                        startBlock,
+                        endBlock,
+                        filterCurrencyKeys,
+                        includeBalances,
+                        cursor,
+                        limit),
+                GetTransfers.Response::fromCommonFailure,
+                "GetTransfers",
+                logger);
+    }
+}
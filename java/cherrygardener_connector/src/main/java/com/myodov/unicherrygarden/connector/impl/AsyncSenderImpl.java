@@ -0,0 +1,48 @@
+package com.myodov.unicherrygarden.connector.impl;
+
+import akka.actor.typed.ActorSystem;
+import com.myodov.unicherrygarden.api.types.planted.transactions.SignedOutgoingTransfer;
+import com.myodov.unicherrygarden.connector.api.AsyncSender;
+import com.myodov.unicherrygarden.connector.impl.actors.ConnectorActorMessage;
+import com.myodov.unicherrygarden.connector.impl.actors.messages.PlantTransactionCommand;
+import com.myodov.unicherrygarden.messages.cherryplanter.PlantTransaction;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The default implementation for {@link AsyncSender} interface.
+ */
+public final class AsyncSenderImpl implements AsyncSender {
+    final Logger logger = LoggerFactory.getLogger(AsyncSenderImpl.class);
+
+    @NonNull
+    private final ActorSystem<ConnectorActorMessage> actorSystem;
+
+
+    /**
+     * Constructor.
+     */
+    public AsyncSenderImpl(@NonNull ActorSystem<ConnectorActorMessage> actorSystem) {
+        assert actorSystem != null;
+        this.actorSystem = actorSystem;
+    }
+
+    @Override
+    @NonNull
+    public CompletionStage<PlantTransaction.@NonNull Response> sendTransaction(
+            @NonNull SignedOutgoingTransfer tx,
+            @Nullable String comment) {
+        assert tx != null;
+
+        return AsyncAsk.ask(
+                actorSystem,
+                PlantTransactionCommand.createReplier(tx, comment),
+                PlantTransaction.Response::fromCommonFailure,
+                "PlantTransactionCommand",
+                logger);
+    }
+}
@@ -10,7 +10,6 @@ import akka.cluster.typed.ClusterCommand;
 import akka.cluster.typed.JoinSeedNodes;
 import com.myodov.unicherrygarden.api.Validators;
 import com.myodov.unicherrygarden.api.types.UniCherryGardenError;
-import com.myodov.unicherrygarden.api.types.responseresult.FailurePayload;
 import com.myodov.unicherrygarden.connector.api.*;
 import com.myodov.unicherrygarden.connector.impl.actors.ConnectorActor;
 import com.myodov.unicherrygarden.connector.impl.actors.ConnectorActorMessage;
@@ -48,12 +47,25 @@ public final class ClientConnectorImpl implements ClientConnector {
     @NonNull
     protected static final Keygen keygen = new KeygenImpl();
     @Nullable
+    protected final AsyncObserver asyncObserver;
+    @Nullable
     protected final Observer observer;
     @Nullable
+    protected final AsyncSender asyncSender;
+    @Nullable
     protected final Sender sender;
 
     public static final Duration LAUNCH_TIMEOUT = Duration.ofSeconds(10);
 
+    /**
+     * How long the successful {@link GetCurrencies} responses are reused.
+     * <p>
+     * The {@link com.myodov.unicherrygarden.api.types.SystemStatus} coming with the cached response
+     * is never older than this (by the local clock), so {@link SenderImpl} may estimate the fees from it;
+     * that’s why it is not longer than that.
+     */
+    public static final Duration CURRENCIES_CACHE_TTL = Duration.ofSeconds(15);
+
     final Logger logger = LoggerFactory.getLogger(ClientConnectorImpl.class);
 
 
@@ -75,6 +87,9 @@ public final class ClientConnectorImpl implements ClientConnector {
 
     protected final int mandatoryConfirmations;
 
+    @NonNull
+    private final CurrenciesCache currenciesCache = new CurrenciesCache(CURRENCIES_CACHE_TTL);
+
     /**
      * Primary and most detailed constructor of CherryGardener client connector.
      *
@@ -177,7 +192,9 @@ public final class ClientConnectorImpl implements ClientConnector {
             assert chainIdOpt != null;
             this.chainId = chainIdOpt;
 
+            this.asyncObserver = null;
             this.observer = null;
+            this.asyncSender = null;
             this.sender = new SenderImpl();
 
             logger.warn("Creating Connector in offline mode!");
@@ -227,7 +244,9 @@ public final class ClientConnectorImpl implements ClientConnector {
 
             // Setting up the remaining subsystems.
             // Note that Sender needs us to have chainId discovered already.
-            this.observer = new ObserverImpl(actorSystem, mandatoryConfirmations);
+            this.asyncObserver = new AsyncObserverImpl(actorSystem, mandatoryConfirmations);
+            this.observer = new ObserverImpl(asyncObserver);
+            this.asyncSender = new AsyncSenderImpl(actorSystem);
             this.sender = new SenderImpl(this);
         }
     }
@@ -379,6 +398,24 @@ public final class ClientConnectorImpl implements ClientConnector {
         return observer;
     }
 
+    @Override
+    @Nullable
+    public AsyncObserver getAsyncObserver() {
+        // “AsyncObserver is null/not initialized” if and only if “offlineMode is enabled”.
+        assert offlineMode == (asyncObserver == null) :
+                String.format("%s, %s", offlineMode, asyncObserver);
+        return asyncObserver;
+    }
+
+    @Override
+    @Nullable
+    public AsyncSender getAsyncSender() {
+        // “AsyncSender is null/not initialized” if and only if “offlineMode is enabled”.
+        assert offlineMode == (asyncSender == null) :
+                String.format("%s, %s", offlineMode, asyncSender);
+        return asyncSender;
+    }
+
     @Override
     @Nullable
     public Sender getSender() {
@@ -399,22 +436,21 @@ public final class ClientConnectorImpl implements ClientConnector {
 
     @Override
     public Ping.@NonNull Response ping() {
+        return pingAsync().toCompletableFuture().join();
+    }
+
+    @Override
+    @NonNull
+    public CompletionStage<Ping.@NonNull Response> pingAsync() {
         if (offlineMode) {
             throw new UniCherryGardenError.NotAvailableInOfflineModeError("cannot ping!");
         } else {
-            final CompletionStage<PingCommand.Result> stage =
-                    AskPattern.ask(
-                            actorSystem,
-                            PingCommand.createReplier(),
-                            ConnectorActor.DEFAULT_CALL_TIMEOUT,
-                            actorSystem.scheduler());
-
-            try {
-                return stage.toCompletableFuture().join().response;
-            } catch (CancellationException | CompletionException exc) {
-                logger.error("Could not complete PingCommand command", exc);
-                return Ping.Response.fromCommonFailure(FailurePayload.CANCELLATION_COMPLETION_FAILURE);
-            }
+            return AsyncAsk.ask(
+                    actorSystem,
+                    PingCommand.createReplier(),
+                    Ping.Response::fromCommonFailure,
+                    "PingCommand",
+                    logger);
         }
     }
 
@@ -423,6 +459,16 @@ public final class ClientConnectorImpl implements ClientConnector {
             @Nullable Set<String> filterCurrencyKeys,
             boolean getVerified,
             boolean getUnverified
+    ) {
+        return getCurrenciesAsync(filterCurrencyKeys, getVerified, getUnverified).toCompletableFuture().join();
+    }
+
+    @Override
+    @NonNull
+    public CompletionStage<GetCurrencies.@NonNull Response> getCurrenciesAsync(
+            @Nullable Set<String> filterCurrencyKeys,
+            boolean getVerified,
+            boolean getUnverified
     ) {
         if (filterCurrencyKeys != null) {
             filterCurrencyKeys.forEach(ck -> Validators.requireValidCurrencyKey(ck));
@@ -431,19 +477,27 @@ public final class ClientConnectorImpl implements ClientConnector {
         if (offlineMode) {
             throw new UniCherryGardenError.NotAvailableInOfflineModeError("cannot get currencies!");
         } else {
-            final CompletionStage<GetCurrenciesCommand.Result> stage =
-                    AskPattern.ask(
+            return currenciesCache.get(
+                    new CurrenciesCache.Query(filterCurrencyKeys, getVerified, getUnverified),
+                    (query) -> AsyncAsk.ask(
                             actorSystem,
-                            GetCurrenciesCommand.createReplier(filterCurrencyKeys, getVerified, getUnverified),
-                            ConnectorActor.DEFAULT_CALL_TIMEOUT,
-                            actorSystem.scheduler());
-
-            try {
-                return stage.toCompletableFuture().join().response;
-            } catch (CancellationException | CompletionException exc) {
-                logger.error("Could not complete GetCurrenciesCommand command", exc);
-                return GetCurrencies.Response.fromCommonFailure(FailurePayload.CANCELLATION_COMPLETION_FAILURE);
-            }
+                            GetCurrenciesCommand.createReplier(
+                                    query.filterCurrencyKeys, query.getVerified, query.getUnverified),
+                            GetCurrencies.Response::fromCommonFailure,
+                            "GetCurrenciesCommand",
+                            logger));
         }
     }
+
+    /**
+     * Forget all the cached currencies details, so the next {@link #getCurrencies(Set, boolean, boolean)}
+     * calls request them from UniCherryGarden.
+     * <p>
+     * The currencies are cached for {@link #CURRENCIES_CACHE_TTL} anyway; call this if you know they have
+     * been changed in UniCherryGarden and you need the changes immediately.
+     */
+    @SuppressWarnings("unused")
+    public void invalidateCurrenciesCache() {
+        currenciesCache.invalidate();
+    }
 }
@@ -0,0 +1,202 @@
+package com.myodov.unicherrygarden.connector.impl;
+
+import com.myodov.unicherrygarden.messages.cherrygardener.GetCurrencies;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * The short-living cache of {@link GetCurrencies} responses, used by {@link ClientConnectorImpl}.
+ * <p>
+ * The currencies details change very rarely, while they may be needed for every outgoing transfer;
+ * so every successful response is reused for the same query during the <code>ttl</code>.
+ * If the same query is requested while it is being loaded already, the callers share the same load
+ * (so any number of concurrent misses cause a single network request).
+ * The failure responses are never cached.
+ * <p>
+ * The cache may be invalidated explicitly by {@link #invalidate()}; this increases the cache version,
+ * so even the loads which were in flight during the invalidation don’t get stored.
+ */
+final class CurrenciesCache {
+    /**
+     * The query to get the currencies; the key of the cache.
+     */
+    static final class Query {
+        @Nullable
+        final Set<String> filterCurrencyKeys;
+
+        final boolean getVerified;
+
+        final boolean getUnverified;
+
+        Query(@Nullable Set<String> filterCurrencyKeys,
+              boolean getVerified,
+              boolean getUnverified) {
+            // Copy the set, so that the key stays unchanged even if the caller modifies the original set
+            this.filterCurrencyKeys = (filterCurrencyKeys == null)
+                    ? null
+                    : Collections.unmodifiableSet(new HashSet<>(filterCurrencyKeys));
+            this.getVerified = getVerified;
+            this.getUnverified = getUnverified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Query that = (Query) o;
+            return getVerified == that.getVerified &&
+                    getUnverified == that.getUnverified &&
+                    Objects.equals(filterCurrencyKeys, that.filterCurrencyKeys);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(filterCurrencyKeys, getVerified, getUnverified);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s(%s, %s, %s)",
+                    getClass().getSimpleName(),
+                    filterCurrencyKeys, getVerified, getUnverified);
+        }
+    }
+
+    private static final class Entry {
+        /**
+         * The cache version at the moment when the load has been started.
+         */
+        final long version;
+
+        /**
+         * When the load has been started (in {@link System#nanoTime()} terms).
+         */
+        final long loadStartedAtNanos;
+
+        @NonNull
+        final CompletableFuture<GetCurrencies.@NonNull Response> future;
+
+        Entry(long version,
+              long loadStartedAtNanos,
+              @NonNull CompletableFuture<GetCurrencies.@NonNull Response> future) {
+            assert future != null;
+            this.version = version;
+            this.loadStartedAtNanos = loadStartedAtNanos;
+            this.future = future;
+        }
+    }
+
+
+    @NonNull
+    private final Duration ttl;
+
+    @NonNull
+    private final LongSupplier nanoClock;
+
+    private final ConcurrentHashMap<Query, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong version = new AtomicLong(0);
+
+
+    /**
+     * Constructor.
+     *
+     * @param ttl       how long the successful response is reused.
+     * @param nanoClock the source of time, like {@link System#nanoTime()}.
+     */
+    CurrenciesCache(@NonNull Duration ttl, @NonNull LongSupplier nanoClock) {
+        assert ttl != null && !ttl.isNegative() : ttl;
+        assert nanoClock != null;
+        this.ttl = ttl;
+        this.nanoClock = nanoClock;
+    }
+
+    CurrenciesCache(@NonNull Duration ttl) {
+        this(ttl, System::nanoTime);
+    }
+
+    /**
+     * Whether the entry may still be used, at the moment <code>nowNanos</code>, when the cache has the version
+     * <code>currentVersion</code>.
+     * The entries being loaded are always usable (unless invalidated), so that the concurrent callers
+     * share the same load.
+     */
+    private boolean isUsable(@NonNull Entry entry, long currentVersion, long nowNanos) {
+        return entry.version == currentVersion &&
+                (!entry.future.isDone() || nowNanos - entry.loadStartedAtNanos < ttl.toNanos());
+    }
+
+    /**
+     * Get the response for the <code>query</code>, either from the cache, or (if it is missing or expired)
+     * using the <code>loader</code>.
+     *
+     * @param loader the function that actually requests the currencies; called at most once per cache miss.
+     */
+    @NonNull
+    CompletionStage<GetCurrencies.@NonNull Response> get(
+            @NonNull Query query,
+            @NonNull Function<Query, CompletionStage<GetCurrencies.@NonNull Response>> loader) {
+        assert query != null;
+        assert loader != null;
+
+        final long currentVersion = version.get();
+        final long nowNanos = nanoClock.getAsLong();
+        final CompletableFuture<GetCurrencies.Response> newFuture = new CompletableFuture<>();
+
+        final Entry entry = entries.compute(query, (q, existing) ->
+                (existing != null && isUsable(existing, currentVersion, nowNanos))
+                        ? existing
+                        : new Entry(currentVersion, nowNanos, newFuture));
+
+        if (entry.future == newFuture) {
+            // This is a miss, and we are the ones to load the data.
+            // Also, a good moment to forget the expired entries for any other queries.
+            entries.values().removeIf(e -> e != entry && !isUsable(e, currentVersion, nowNanos));
+
+            final CompletionStage<GetCurrencies.Response> loaded;
+            try {
+                loaded = loader.apply(query);
+            } catch (RuntimeException exc) {
+                entries.remove(query, entry);
+                newFuture.completeExceptionally(exc);
+                throw exc;
+            }
+
+            loaded.whenComplete((response, exc) -> {
+                // Never keep the failures; the callers waiting for this load still receive them, though
+                if (exc != null || response.isFailure()) {
+                    entries.remove(query, entry);
+                }
+                if (exc != null) {
+                    newFuture.completeExceptionally(exc);
+                } else {
+                    newFuture.complete(response);
+                }
+            });
+        }
+
+        // Every caller gets its own stage, so that one caller cancelling/completing it
+        // doesn’t affect the others sharing the same cached response.
+        return entry.future.thenApply(Function.identity());
+    }
+
+    /**
+     * Forget all the cached responses; the loads being in flight at the moment won’t be reused either.
+     */
+    void invalidate() {
+        version.incrementAndGet();
+        entries.clear();
+    }
+}
@@ -1,19 +1,14 @@
 package com.myodov.unicherrygarden.connector.impl;
 
-import akka.actor.typed.ActorSystem;
-import akka.actor.typed.javadsl.AskPattern;
 import com.myodov.unicherrygarden.api.Validators;
 import com.myodov.unicherrygarden.api.types.SystemStatus;
 import com.myodov.unicherrygarden.api.types.UniCherryGardenError;
 import com.myodov.unicherrygarden.api.types.dlt.Currency;
 import com.myodov.unicherrygarden.api.types.planted.transactions.SignedOutgoingTransfer;
 import com.myodov.unicherrygarden.api.types.planted.transactions.UnsignedOutgoingTransfer;
-import com.myodov.unicherrygarden.api.types.responseresult.FailurePayload;
+import com.myodov.unicherrygarden.connector.api.AsyncSender;
 import com.myodov.unicherrygarden.connector.api.ClientConnector;
 import com.myodov.unicherrygarden.connector.api.Sender;
-import com.myodov.unicherrygarden.connector.impl.actors.ConnectorActor;
-import com.myodov.unicherrygarden.connector.impl.actors.ConnectorActorMessage;
-import com.myodov.unicherrygarden.connector.impl.actors.messages.PlantTransactionCommand;
 import com.myodov.unicherrygarden.ethereum.EthUtils;
 import com.myodov.unicherrygarden.impl.types.PrivateKeyImpl;
 import com.myodov.unicherrygarden.messages.cherrygardener.GetCurrencies;
@@ -29,9 +24,6 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.CancellationException;
-import java.util.concurrent.CompletionException;
-import java.util.concurrent.CompletionStage;
 
 import static com.myodov.unicherrygarden.NullTools.coalesce;
 
@@ -112,7 +104,7 @@ public final class SenderImpl implements Sender {
      * Null only if created in “offline mode”.
      */
     @Nullable
-    private final ActorSystem<ConnectorActorMessage> actorSystem;
+    private final AsyncSender asyncSender;
 
     /**
      * Null only if created in “offline mode”.
@@ -136,7 +128,7 @@ public final class SenderImpl implements Sender {
     @SuppressWarnings("unused")
     public SenderImpl(@Nullable ClientConnectorImpl clientConnector) {
         this.clientConnector = clientConnector;
-        this.actorSystem = (clientConnector == null) ? null : clientConnector.getActorSystem();
+        this.asyncSender = (clientConnector == null) ? null : clientConnector.getAsyncSender();
         this.offlineMode = clientConnector == null;
 
         logger.debug("Starting sender; will use client connector {}", clientConnector);
@@ -266,6 +258,9 @@ public final class SenderImpl implements Sender {
                     decimals = (guessDecimals != null) ? guessDecimals : currencyDetails.getDecimals();
                     gasLimit = (forceGasLimit != null) ? forceGasLimit : currencyDetails.getTransferGasLimit();
                     assert currencyPayload.systemStatus != null : currencyPayload;
+                    // The currency details may be cached, but not longer than
+                    // ClientConnectorImpl.CURRENCIES_CACHE_TTL (measured by the local clock),
+                    // so their system status is still fresh enough to estimate the fees from it.
                     collateralSystemStatus = Optional.of(currencyPayload.systemStatus);
                 }
             }
@@ -353,14 +348,8 @@ public final class SenderImpl implements Sender {
         if (offlineMode) {
             throw new UniCherryGardenError.NotAvailableInOfflineModeError("Cannot execute sendTransaction!");
         }
+        assert asyncSender != null;
 
-        final CompletionStage<PlantTransactionCommand.Result> stage = AskPattern.ask(actorSystem, PlantTransactionCommand.createReplier(tx, comment), ConnectorActor.DEFAULT_CALL_TIMEOUT, actorSystem.scheduler());
-
-        try {
-            return stage.toCompletableFuture().join().response;
-        } catch (CancellationException | CompletionException exc) {
-            logger.error("Could not complete GetAddressDetailsCommand command", exc);
-            return PlantTransaction.Response.fromCommonFailure(FailurePayload.CANCELLATION_COMPLETION_FAILURE);
-        }
+        return asyncSender.sendTransaction(tx, comment).toCompletableFuture().join();
     }
 }
@@ -22,10 +22,7 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Constructor;
 import java.time.Duration;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
  * Primary Akka actor to handle all the operations for {@link ClientConnectorImpl}.
@@ -38,9 +35,32 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
      */
     public static final Duration DEFAULT_CALL_TIMEOUT = Duration.ofSeconds(15);
 
+    /**
+     * The setting containing the {@link InstanceRouter.Strategy} used for the read requests.
+     */
+    static final String ROUTING_STRATEGY_SETTING = "unicherrygarden.connector.routing.strategy";
 
+
+    /**
+     * The single adapter for all the listings received by the subscriptions to Receptionist.
+     * Note Akka keeps only one message adapter per message class, so any other one for
+     * {@link Receptionist.Listing} would replace it.
+     */
     @NonNull
-    private final ActorRef<Receptionist.Listing> receptionistSubscribeCherryGardenResponseAdapter;
+    private final ActorRef<Receptionist.Listing> receptionistSubscribeServiceResponseAdapter;
+
+    /**
+     * The latest listings of the service instances, per each service key, as received by the subscriptions
+     * to Receptionist. Used only from within the actor, so doesn’t need any synchronization.
+     */
+    private final Map<ServiceKey<?>, Receptionist.Listing> cachedListings = new HashMap<>();
+
+    /**
+     * Choose the instance for the read requests (GetCurrencies, GetTrackedAddresses, GetBalances, GetTransfers),
+     * if multiple instances are reachable; track the in-flight requests per each instance.
+     * A separate router per each service key, as the different services are provided by different actors.
+     */
+    private final Map<ServiceKey<?>, InstanceRouter<ActorRef<?>>> readRouters = new HashMap<>();
 
     @NonNull
     private final String realm;
@@ -83,10 +103,13 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
         assert realm != null;
 
         this.realm = realm;
-        logger.debug("Launching ConnectorActor in realm \"{}\"", realm);
-        receptionistSubscribeCherryGardenResponseAdapter = context.messageAdapter(
+        final InstanceRouter.Strategy routingStrategy = InstanceRouter.Strategy.fromConfigValue(
+                context.getSystem().settings().config().getString(ROUTING_STRATEGY_SETTING));
+        logger.debug("Launching ConnectorActor in realm \"{}\", routing the read requests by {}",
+                realm, routingStrategy);
+        receptionistSubscribeServiceResponseAdapter = context.messageAdapter(
                 Receptionist.Listing.class,
-                ReceptionistSubscribeCherryGardenResponse::new);
+                ReceptionistSubscribeServiceResponse::new);
 
         // Let's cache the service keys:
         // 1. CherryGardener service keys
@@ -101,16 +124,36 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
         // 3. CherryPlanter service keys
         skPlantTransaction = PlantTransaction.makeServiceKey(realm);
 
+        for (final ServiceKey<?> serviceKey : Arrays.asList(
+                skGetCurrencies,
+                skGetTrackedAddresses,
+                skGetBalances,
+                skGetTransfers)) {
+            readRouters.put(serviceKey, new InstanceRouter<>(routingStrategy));
+        }
 
-        // On launch, we want to subscribe to Receptionist’s changes in CherryGardener (clustered) availability.
-        // Each time when CherryGardener availability (by Ping.SERVICE_KEY) changes,
-        // the message ReceptionistSubscribeCherryGardenResponse is emitted.
-        context.getSystem().receptionist().tell(
-                Receptionist.subscribe(
-                        skPing,
-                        receptionistSubscribeCherryGardenResponseAdapter
-                )
-        );
+
+        // On launch, we want to subscribe to Receptionist’s changes in availability of every service we call,
+        // so the commands may be routed using the cached listings, without asking the Receptionist every time.
+        // Each time when the availability of some service changes,
+        // the message ReceptionistSubscribeServiceResponse is emitted.
+        // The availability of CherryGardener (by Ping.SERVICE_KEY) also means the connector has booted.
+        for (final ServiceKey<?> serviceKey : Arrays.asList(
+                skPing,
+                skGetCurrencies,
+                skAddTrackedAddresses,
+                skGetBalances,
+                skGetTrackedAddresses,
+                skGetAddressDetails,
+                skGetTransfers,
+                skPlantTransaction)) {
+            context.getSystem().receptionist().tell(
+                    Receptionist.subscribe(
+                            serviceKey,
+                            receptionistSubscribeServiceResponseAdapter
+                    )
+            );
+        }
     }
 
     public static Behavior<ConnectorActorMessage> create(@NonNull String realm) {
@@ -121,7 +164,7 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
     @Override
     public Receive<ConnectorActorMessage> createReceive() {
         return newReceiveBuilder()
-                .onMessage(ReceptionistSubscribeCherryGardenResponse.class, this::onReceptionistSubscribeCherryGardenResponse)
+                .onMessage(ReceptionistSubscribeServiceResponse.class, this::onReceptionistSubscribeServiceResponse)
                 .onMessage(WaitForBootCommand.class, this::onWaitForBoot)
                 // Ping
                 .onMessage(PingCommand.class, this::onPing)
@@ -190,14 +233,33 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
                 .build();
     }
 
-    private Behavior<ConnectorActorMessage> onReceptionistSubscribeCherryGardenResponse(
-            @NonNull ReceptionistSubscribeCherryGardenResponse msg) {
+    private Behavior<ConnectorActorMessage> onReceptionistSubscribeServiceResponse(
+            @NonNull ReceptionistSubscribeServiceResponse msg) {
         assert msg != null;
 
+        logger.debug("Received onReceptionistSubscribeServiceResponse for {} with reachable instances {}",
+                msg.listing.getKey(), msg.listing.getServiceInstances(msg.listing.getKey()));
+        cachedListings.put(msg.listing.getKey(), msg.listing);
+
+        final InstanceRouter<ActorRef<?>> readRouter = readRouters.get(msg.listing.getKey());
+        if (readRouter != null) {
+            readRouter.retainInstances(msg.listing.getServiceInstances(msg.listing.getKey()));
+        }
+
+        if (msg.listing.isForKey(skPing)) {
+            onCherryGardenListing(msg.listing);
+        }
+        return this;
+    }
+
+    /**
+     * Handle the change in CherryGardener availability.
+     */
+    private void onCherryGardenListing(Receptionist.@NonNull Listing listing) {
+        assert listing != null;
+
         final Set<ActorRef<Ping.Request>> reachableInstances =
-                msg.listing.getServiceInstances(skPing);
-        logger.debug("Received onReceptionistSubscribeCherryGardenResponse with reachable instances {}",
-                reachableInstances);
+                listing.getServiceInstances(skPing);
 
         // If we received at least one CherryGarden instance, we call all those who wait for CherryGarden to boot,
         // and those are stored in `waitForBootCallersToCallback`.
@@ -220,13 +282,19 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
                 waitForBootCallersToCallback.forEach(actor -> actor.tell(new WaitForBootCommand.BootCompleted()));
             }
         }
-        return this;
     }
 
     private Behavior<ConnectorActorMessage> onWaitForBoot(WaitForBootCommand msg) {
         assert msg != null;
-        synchronized (this) {
-            waitForBootCallers.add(msg.replyTo);
+
+        final Receptionist.Listing cherryGardenListing = cachedListings.get(skPing);
+        if (cherryGardenListing != null && !cherryGardenListing.getServiceInstances(skPing).isEmpty()) {
+            // CherryGardener is available already; nothing to wait for
+            msg.replyTo.tell(new WaitForBootCommand.BootCompleted());
+        } else {
+            synchronized (this) {
+                waitForBootCallers.add(msg.replyTo);
+            }
         }
         return this;
     }
@@ -243,6 +311,13 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
         final ActorRef<Receptionist.Command> receptionist = context.getSystem().receptionist();
         final ServiceKey<Ping.Request> serviceKey = skPing;
 
+        final Receptionist.Listing cachedListing = cachedListings.get(serviceKey);
+        if (cachedListing != null) {
+            // The service instances are already known from the subscription; no need to ask the Receptionist
+            return onPingReceptionistResponse(
+                    new PingCommand.ReceptionistResponse(cachedListing, msg.payload, msg.replyTo));
+        }
+
         context.ask(
                 Receptionist.Listing.class,
                 receptionist,
@@ -276,6 +351,13 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
         final ActorRef<Receptionist.Command> receptionist = context.getSystem().receptionist();
         final ServiceKey<GetCurrencies.Request> serviceKey = skGetCurrencies;
 
+        final Receptionist.Listing cachedListing = cachedListings.get(serviceKey);
+        if (cachedListing != null) {
+            // The service instances are already known from the subscription; no need to ask the Receptionist
+            return onGetCurrenciesReceptionistResponse(
+                    new GetCurrenciesCommand.ReceptionistResponse(cachedListing, msg.payload, msg.replyTo));
+        }
+
         context.ask(
                 Receptionist.Listing.class,
                 receptionist,
@@ -309,6 +391,13 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
         final ActorRef<Receptionist.Command> receptionist = context.getSystem().receptionist();
         final ServiceKey<GetTrackedAddresses.Request> serviceKey = skGetTrackedAddresses;
 
+        final Receptionist.Listing cachedListing = cachedListings.get(serviceKey);
+        if (cachedListing != null) {
+            // The service instances are already known from the subscription; no need to ask the Receptionist
+            return onGetTrackedAddressesReceptionistResponse(
+                    new GetTrackedAddressesCommand.ReceptionistResponse(cachedListing, msg.payload, msg.replyTo));
+        }
+
         context.ask(
                 Receptionist.Listing.class,
                 receptionist,
@@ -341,6 +430,13 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
         final ActorRef<Receptionist.Command> receptionist = context.getSystem().receptionist();
         final ServiceKey<AddTrackedAddresses.Request> serviceKey = skAddTrackedAddresses;
 
+        final Receptionist.Listing cachedListing = cachedListings.get(serviceKey);
+        if (cachedListing != null) {
+            // The service instances are already known from the subscription; no need to ask the Receptionist
+            return onAddTrackedAddressesReceptionistResponse(
+                    new AddTrackedAddressesCommand.ReceptionistResponse(cachedListing, msg.payload, msg.replyTo));
+        }
+
         context.ask(
                 Receptionist.Listing.class,
                 receptionist,
@@ -373,6 +469,13 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
         final ActorRef<Receptionist.Command> receptionist = context.getSystem().receptionist();
         final ServiceKey<GetAddressDetails.Request> serviceKey = skGetAddressDetails;
 
+        final Receptionist.Listing cachedListing = cachedListings.get(serviceKey);
+        if (cachedListing != null) {
+            // The service instances are already known from the subscription; no need to ask the Receptionist
+            return onGetAddressDetailsReceptionistResponse(
+                    new GetAddressDetailsCommand.ReceptionistResponse(cachedListing, msg.payload, msg.replyTo));
+        }
+
         context.ask(
                 Receptionist.Listing.class,
                 receptionist,
@@ -405,6 +508,13 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
         final ActorRef<Receptionist.Command> receptionist = context.getSystem().receptionist();
         final ServiceKey<GetBalances.Request> serviceKey = skGetBalances;
 
+        final Receptionist.Listing cachedListing = cachedListings.get(serviceKey);
+        if (cachedListing != null) {
+            // The service instances are already known from the subscription; no need to ask the Receptionist
+            return onGetBalancesReceptionistResponse(
+                    new GetBalancesCommand.ReceptionistResponse(cachedListing, msg.payload, msg.replyTo));
+        }
+
         context.ask(
                 Receptionist.Listing.class,
                 receptionist,
@@ -437,6 +547,13 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
         final ActorRef<Receptionist.Command> receptionist = context.getSystem().receptionist();
         final ServiceKey<GetTransfers.Request> serviceKey = skGetTransfers;
 
+        final Receptionist.Listing cachedListing = cachedListings.get(serviceKey);
+        if (cachedListing != null) {
+            // The service instances are already known from the subscription; no need to ask the Receptionist
+            return onGetTransfersReceptionistResponse(
+                    new GetTransfersCommand.ReceptionistResponse(cachedListing, msg.payload, msg.replyTo));
+        }
+
         context.ask(
                 Receptionist.Listing.class,
                 receptionist,
@@ -469,6 +586,13 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
         final ActorRef<Receptionist.Command> receptionist = context.getSystem().receptionist();
         final ServiceKey<PlantTransaction.Request> serviceKey = skPlantTransaction;
 
+        final Receptionist.Listing cachedListing = cachedListings.get(serviceKey);
+        if (cachedListing != null) {
+            // The service instances are already known from the subscription; no need to ask the Receptionist
+            return onPlantTransactionReceptionistResponse(
+                    new PlantTransactionCommand.ReceptionistResponse(cachedListing, msg.payload, msg.replyTo));
+        }
+
         context.ask(
                 Receptionist.Listing.class,
                 receptionist,
@@ -533,8 +657,11 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
         logger.debug("Received onGetCurrenciesReceptionistResponse with reachable instances {}",
                 reachableInstances);
         if (!reachableInstances.isEmpty()) {
-            // There may be multiple instance, but we take only one, on random
-            final ActorRef<GetCurrencies.Request> gclProvider = reachableInstances.iterator().next();
+            // There may be multiple instances; choose one by the routing strategy
+            final InstanceRouter<ActorRef<?>> readRouter = readRouters.get(skGetCurrencies);
+            final ActorRef<GetCurrencies.Request> gclProvider = readRouter.select(reachableInstances);
+            readRouter.onRequestStarted(gclProvider);
+            final long startNanos = System.nanoTime();
 
             context.ask(
                     GetCurrencies.Response.class,
@@ -545,6 +672,7 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
                             new GetCurrencies.Request(replyTo, msg.payload),
                     // Adapt the incoming response
                     (GetCurrencies.Response response, Throwable throwable) -> {
+                        readRouter.onRequestCompleted(gclProvider, System.nanoTime() - startNanos);
                         logger.debug("Returned GetCurrencies response: {}", response);
                         return new GetCurrenciesCommand.InternalResult(response, msg.replyTo);
                     }
@@ -565,8 +693,11 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
         logger.debug("Received onGetTrackedAddressesReceptionistResponse with reachable instances {}",
                 reachableInstances);
         if (!reachableInstances.isEmpty()) {
-            // There may be multiple instance, but we take only one, on random
-            final ActorRef<GetTrackedAddresses.Request> gclProvider = reachableInstances.iterator().next();
+            // There may be multiple instances; choose one by the routing strategy
+            final InstanceRouter<ActorRef<?>> readRouter = readRouters.get(skGetTrackedAddresses);
+            final ActorRef<GetTrackedAddresses.Request> gclProvider = readRouter.select(reachableInstances);
+            readRouter.onRequestStarted(gclProvider);
+            final long startNanos = System.nanoTime();
 
             context.ask(
                     GetTrackedAddresses.Response.class,
@@ -578,6 +709,7 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
                             new GetTrackedAddresses.Request(replyTo, msg.payload),
                     // Adapt the incoming response
                     (GetTrackedAddresses.Response response, Throwable throwable) -> {
+                        readRouter.onRequestCompleted(gclProvider, System.nanoTime() - startNanos);
                         logger.debug("Returned GetTrackedAddresses response: {}", response);
                         return new GetTrackedAddressesCommand.InternalResult(response, msg.replyTo);
                     }
@@ -662,8 +794,11 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
         logger.debug("Received onGetBalancesReceptionistResponse with reachable instances {}",
                 reachableInstances);
         if (!reachableInstances.isEmpty()) {
-            // There may be multiple instance, but we take only one, on random
-            final ActorRef<GetBalances.Request> gclProvider = reachableInstances.iterator().next();
+            // There may be multiple instances; choose one by the routing strategy
+            final InstanceRouter<ActorRef<?>> readRouter = readRouters.get(skGetBalances);
+            final ActorRef<GetBalances.Request> gclProvider = readRouter.select(reachableInstances);
+            readRouter.onRequestStarted(gclProvider);
+            final long startNanos = System.nanoTime();
 
             context.ask(
                     GetBalances.Response.class,
@@ -673,6 +808,7 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
                     (replyTo) -> new GetBalances.Request(replyTo, msg.payload),
                     // Adapt the incoming response
                     (GetBalances.Response response, Throwable throwable) -> {
+                        readRouter.onRequestCompleted(gclProvider, System.nanoTime() - startNanos);
                         logger.debug("Returned GetBalances response: {}", response);
                         return new GetBalancesCommand.InternalResult(response, msg.replyTo);
                     }
@@ -693,8 +829,11 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
         logger.debug("Received onGetTransfersReceptionistResponse with reachable instances {}",
                 reachableInstances);
         if (!reachableInstances.isEmpty()) {
-            // There may be multiple instance, but we take only one, on random
-            final ActorRef<GetTransfers.Request> gclProvider = reachableInstances.iterator().next();
+            // There may be multiple instances; choose one by the routing strategy
+            final InstanceRouter<ActorRef<?>> readRouter = readRouters.get(skGetTransfers);
+            final ActorRef<GetTransfers.Request> gclProvider = readRouter.select(reachableInstances);
+            readRouter.onRequestStarted(gclProvider);
+            final long startNanos = System.nanoTime();
 
             context.ask(
                     GetTransfers.Response.class,
@@ -704,6 +843,7 @@ public class ConnectorActor extends AbstractBehavior<ConnectorActorMessage> {
                     (replyTo) -> new GetTransfers.Request(replyTo, msg.payload),
                     // Adapt the incoming response
                     (GetTransfers.Response response, Throwable throwable) -> {
+                        readRouter.onRequestCompleted(gclProvider, System.nanoTime() - startNanos);
                         logger.debug("Returned GetTransfers response: {}", response);
                         return new GetTransfersCommand.InternalResult(response, msg.replyTo);
                     }
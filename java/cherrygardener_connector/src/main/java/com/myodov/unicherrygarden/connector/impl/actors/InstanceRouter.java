@@ -0,0 +1,182 @@
+package com.myodov.unicherrygarden.connector.impl.actors;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.*;
+
+/**
+ * Chooses which of the multiple reachable instances of some service should handle the next request,
+ * according to the {@link Strategy}.
+ * <p>
+ * Tracks the number of in-flight requests and the average latency per each instance;
+ * so it must be notified about every request start ({@link #onRequestStarted(Object)})
+ * and completion ({@link #onRequestCompleted(Object, long)}).
+ * Use a separate router for each service, and notify it when the set of the service instances changes
+ * ({@link #retainInstances(Set)}), so it can forget the instances which are gone.
+ * <p>
+ * Not thread-safe; supposed to be used only from within {@link ConnectorActor}.
+ *
+ * @param <I> the type of instance (typically, an <code>ActorRef</code> of the service).
+ */
+public final class InstanceRouter<I> {
+    /**
+     * How the instance is chosen for the next request.
+     */
+    public enum Strategy {
+        /**
+         * Each next request goes to the next instance, in turn.
+         */
+        ROUND_ROBIN,
+        /**
+         * The request goes to the instance with the least number of in-flight requests.
+         */
+        LEAST_OUTSTANDING,
+        /**
+         * The request goes to the instance with the least expected latency:
+         * the exponentially weighted moving average of its latency, multiplied by the number of in-flight requests
+         * (including the new one). The instances without the latency data yet are tried first.
+         */
+        LATENCY_EWMA;
+
+        /**
+         * Parse the strategy from the configuration value, like <code>"least_outstanding"</code>.
+         *
+         * @throws IllegalArgumentException if the value is not a known strategy.
+         */
+        @NonNull
+        public static Strategy fromConfigValue(@NonNull String value) {
+            assert value != null;
+            return Strategy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * The weight of the latest latency sample in the moving average.
+     */
+    static final double EWMA_WEIGHT = 0.3;
+
+
+    private static final class InstanceStats {
+        int outstanding = 0;
+        /**
+         * {@link Double#NaN} until the first request to the instance is completed.
+         */
+        double latencyEwmaNanos = Double.NaN;
+    }
+
+    @NonNull
+    private final Strategy strategy;
+
+    private final Map<I, InstanceStats> stats = new HashMap<>();
+
+    /**
+     * Increased on every choice; used to rotate the instances (or the equally good ones).
+     */
+    private int turn = 0;
+
+
+    public InstanceRouter(@NonNull Strategy strategy) {
+        assert strategy != null;
+        this.strategy = strategy;
+    }
+
+    @NonNull
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Choose the instance for the next request.
+     *
+     * @param instances all the currently reachable instances; must be non-empty.
+     */
+    @NonNull
+    public <T extends I> T select(@NonNull Set<T> instances) {
+        assert instances != null && !instances.isEmpty() : instances;
+
+        final List<T> candidates = new ArrayList<>(instances);
+        final int size = candidates.size();
+        final int start = Math.floorMod(turn++, size);
+        if (size == 1 || strategy == Strategy.ROUND_ROBIN) {
+            return candidates.get(start);
+        }
+
+        // Look through all the candidates, starting from a different one each time,
+        // so that the equally good ones get the requests in turn.
+        T best = null;
+        double bestScore = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            final T candidate = candidates.get((start + i) % size);
+            final double score = score(stats.get(candidate));
+            if (best == null || score < bestScore) {
+                best = candidate;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    private double score(InstanceStats instanceStats) {
+        if (instanceStats == null) {
+            return 0;
+        }
+        switch (strategy) {
+            case LEAST_OUTSTANDING:
+                return instanceStats.outstanding;
+            case LATENCY_EWMA:
+                return Double.isNaN(instanceStats.latencyEwmaNanos)
+                        ? 0
+                        : instanceStats.latencyEwmaNanos * (instanceStats.outstanding + 1);
+            default:
+                throw new IllegalStateException(String.format("Unsupported strategy %s", strategy));
+        }
+    }
+
+    /**
+     * Notify that the set of the reachable instances has changed; forget everything about the instances
+     * which are not reachable anymore.
+     */
+    public void retainInstances(@NonNull Set<? extends I> instances) {
+        assert instances != null;
+        stats.keySet().retainAll(instances);
+    }
+
+    /**
+     * Notify that the request is sent to the <code>instance</code>.
+     */
+    public void onRequestStarted(@NonNull I instance) {
+        assert instance != null;
+        stats.computeIfAbsent(instance, i -> new InstanceStats()).outstanding++;
+    }
+
+    /**
+     * Notify that the request to the <code>instance</code> is completed (successfully or not).
+     *
+     * @param elapsedNanos how long the request took; for the failed (e.g. timed out) requests,
+     *                     use the time till the failure too, so the failing instances are chosen less.
+     */
+    public void onRequestCompleted(@NonNull I instance, long elapsedNanos) {
+        assert instance != null;
+        assert elapsedNanos >= 0 : elapsedNanos;
+
+        final InstanceStats instanceStats = stats.get(instance);
+        // The stats may be missing if the instance has become unreachable while the request was in flight
+        if (instanceStats != null) {
+            if (instanceStats.outstanding > 0) {
+                instanceStats.outstanding--;
+            }
+            instanceStats.latencyEwmaNanos = Double.isNaN(instanceStats.latencyEwmaNanos)
+                    ? elapsedNanos
+                    : EWMA_WEIGHT * elapsedNanos + (1 - EWMA_WEIGHT) * instanceStats.latencyEwmaNanos;
+        }
+    }
+
+    /**
+     * Get the number of in-flight requests to the <code>instance</code>.
+     */
+    public int getOutstanding(@NonNull I instance) {
+        assert instance != null;
+        final InstanceStats instanceStats = stats.get(instance);
+        return (instanceStats == null) ? 0 : instanceStats.outstanding;
+    }
+}
@@ -75,6 +75,23 @@ public class GetBalancesCommand
                 new GetBalances.GBRequestPayload(confirmations, address, filterCurrencyKeys));
     }
 
+    /**
+     * Simplified constructor with payload details, for multiple addresses at once.
+     *
+     * @return a function (in Akka style, not just the pure Java Functional interface)
+     * that turns the incoming `replyTo` ActorRef into a Command handling this `replyTo` with the payload
+     * containing the incoming arguments.
+     */
+    public static Function<ActorRef<Result>, ConnectorActorMessage> createReplier(
+            int confirmations,
+            @NonNull Set<String> addresses,
+            @Nullable Set<String> filterCurrencyKeys) {
+        assert addresses != null;
+        return (replyTo) -> new GetBalancesCommand(
+                replyTo,
+                new GetBalances.GBRequestPayload(confirmations, null, addresses, filterCurrencyKeys));
+    }
+
     @NonNull
     @Override
     public final ServiceKey<GetBalances.Request> makeServiceKey(@NonNull String realm) {
@@ -73,9 +73,31 @@ public class GetTransfersCommand
             @Nullable Integer endBlock,
             @Nullable Set<String> filterCurrencyKeys,
             boolean getTransfers) {
+        return createReplier(confirmations, sender, receiver, startBlock, endBlock, filterCurrencyKeys, getTransfers,
+                null, null);
+    }
+
+    /**
+     * Simplified constructor with payload details, for a single page of transfers.
+     *
+     * @return a function (in Akka style, not just the pure Java Functional interface)
+     * that turns the incoming `replyTo` ActorRef into a Command handling this `replyTo` with the payload
+     * containing the incoming arguments.
+     */
+    public static Function<ActorRef<Result>, ConnectorActorMessage> createReplier(
+            int confirmations,
+            @Nullable String sender,
+            @Nullable String receiver,
+            @Nullable Integer startBlock,
+            @Nullable Integer endBlock,
+            @Nullable Set<String> filterCurrencyKeys,
+            boolean getTransfers,
+            GetTransfers.@Nullable TransfersCursor cursor,
+            @Nullable Integer limit) {
         return (replyTo) -> new GetTransfersCommand(
                 replyTo,
-                new GetTransfers.GTRequestPayload(confirmations, sender, receiver, startBlock, endBlock, filterCurrencyKeys, getTransfers));
+                new GetTransfers.GTRequestPayload(confirmations, sender, receiver, startBlock, endBlock, filterCurrencyKeys, getTransfers,
+                        cursor, limit));
     }
 
     @NonNull
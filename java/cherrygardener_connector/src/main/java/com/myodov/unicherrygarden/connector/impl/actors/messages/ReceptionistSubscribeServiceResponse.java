@@ -4,10 +4,14 @@ import akka.actor.typed.receptionist.Receptionist;
 import com.myodov.unicherrygarden.connector.impl.actors.ConnectorActorNotification;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
-public class ReceptionistSubscribeCherryGardenResponse implements ConnectorActorNotification {
+/**
+ * The change in the availability of some service (any service key the connector may call),
+ * as received by the subscription to Receptionist.
+ */
+public class ReceptionistSubscribeServiceResponse implements ConnectorActorNotification {
     public final Receptionist.@NonNull Listing listing;
 
-     public ReceptionistSubscribeCherryGardenResponse(Receptionist.@NonNull Listing listing) {
+    public ReceptionistSubscribeServiceResponse(Receptionist.@NonNull Listing listing) {
         assert listing != null;
         this.listing = listing;
     }
@@ -0,0 +1,184 @@
+package com.myodov.unicherrygarden.connector.impl;
+
+import com.myodov.unicherrygarden.api.types.SystemStatus;
+import com.myodov.unicherrygarden.api.types.dlt.Currency;
+import com.myodov.unicherrygarden.api.types.responseresult.FailurePayload;
+import com.myodov.unicherrygarden.messages.cherrygardener.GetCurrencies;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class CurrenciesCacheTest {
+    private static final GetCurrencies.Response SUCCESS = new GetCurrencies.Response(
+            new GetCurrencies.CurrenciesRequestResultPayload(
+                    new SystemStatus(
+                            Instant.ofEpochSecond(1644936903L),
+                            SystemStatus.Blockchain.create(
+                                    SystemStatus.Blockchain.SyncingData.create(14205560, 14205570),
+                                    SystemStatus.Blockchain.LatestBlock.create(
+                                            14205590,
+                                            30029295L,
+                                            3063440L,
+                                            BigInteger.valueOf(0x15d3c1b812L),
+                                            BigInteger.valueOf(0x15d3c1b813L),
+                                            Instant.ofEpochSecond(0x620a9050L)
+                                    ),
+                                    BigInteger.valueOf(0x3b9aca00L)
+                            ),
+                            SystemStatus.CherryPicker.create(19, 15, 13)
+                    ),
+                    new ArrayList<Currency>() {{
+                        add(Currency.newEthCurrency());
+                    }}));
+
+    private static final GetCurrencies.Response FAILURE =
+            GetCurrencies.Response.fromCommonFailure(FailurePayload.CANCELLATION_COMPLETION_FAILURE);
+
+    private static final CurrenciesCache.Query ETH_QUERY = new CurrenciesCache.Query(
+            new HashSet<String>() {{
+                add("");
+            }},
+            true,
+            false);
+
+    private final AtomicLong nanoTime = new AtomicLong(0);
+
+    private final CurrenciesCache cache = new CurrenciesCache(Duration.ofSeconds(30), nanoTime::get);
+
+    @Test
+    public void testQueryEquality() {
+        assertEquals(
+                ETH_QUERY,
+                new CurrenciesCache.Query(
+                        new HashSet<String>() {{
+                            add("");
+                        }},
+                        true,
+                        false));
+        assertEquals(ETH_QUERY.hashCode(), new CurrenciesCache.Query(new HashSet<String>() {{
+            add("");
+        }}, true, false).hashCode());
+        assertNotEquals(ETH_QUERY, new CurrenciesCache.Query(null, true, false));
+        assertNotEquals(ETH_QUERY, new CurrenciesCache.Query(ETH_QUERY.filterCurrencyKeys, true, true));
+    }
+
+    @Test
+    public void testConcurrentMissesCoalesced() {
+        final AtomicInteger loads = new AtomicInteger(0);
+        final CompletableFuture<GetCurrencies.Response> networkResponse = new CompletableFuture<>();
+
+        final CompletionStage<GetCurrencies.Response> first = cache.get(ETH_QUERY, q -> {
+            loads.incrementAndGet();
+            return networkResponse;
+        });
+        final CompletionStage<GetCurrencies.Response> second = cache.get(ETH_QUERY, q -> {
+            loads.incrementAndGet();
+            return networkResponse;
+        });
+        assertEquals("Only one load while the first one is in flight", 1, loads.get());
+        assertFalse(first.toCompletableFuture().isDone());
+
+        networkResponse.complete(SUCCESS);
+        assertSame(SUCCESS, first.toCompletableFuture().join());
+        assertSame(SUCCESS, second.toCompletableFuture().join());
+    }
+
+    @Test
+    public void testCallerCancellationIsolated() {
+        final AtomicInteger loads = new AtomicInteger(0);
+        final CompletableFuture<GetCurrencies.Response> networkResponse = new CompletableFuture<>();
+
+        final CompletionStage<GetCurrencies.Response> first = cache.get(ETH_QUERY, q -> {
+            loads.incrementAndGet();
+            return networkResponse;
+        });
+        final CompletionStage<GetCurrencies.Response> second = cache.get(ETH_QUERY, q -> {
+            loads.incrementAndGet();
+            return networkResponse;
+        });
+        assertNotSame("Every caller gets its own stage", first, second);
+
+        // One caller gives up waiting, another one tampers with its result
+        first.toCompletableFuture().cancel(false);
+        second.toCompletableFuture().obtrudeValue(FAILURE);
+
+        networkResponse.complete(SUCCESS);
+        assertTrue(first.toCompletableFuture().isCancelled());
+        assertSame(
+                "Other callers are not affected",
+                SUCCESS,
+                cache.get(ETH_QUERY, q -> {
+                    loads.incrementAndGet();
+                    return CompletableFuture.completedFuture(FAILURE);
+                }).toCompletableFuture().join());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testTtl() {
+        final AtomicInteger loads = new AtomicInteger(0);
+
+        cache.get(ETH_QUERY, q -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(SUCCESS);
+        });
+        nanoTime.addAndGet(Duration.ofSeconds(29).toNanos());
+        assertSame(SUCCESS, cache.get(ETH_QUERY, q -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(SUCCESS);
+        }).toCompletableFuture().join());
+        assertEquals("Reused within TTL", 1, loads.get());
+
+        nanoTime.addAndGet(Duration.ofSeconds(2).toNanos());
+        cache.get(ETH_QUERY, q -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(SUCCESS);
+        });
+        assertEquals("Reloaded after TTL", 2, loads.get());
+    }
+
+    @Test
+    public void testFailuresNotCached() {
+        final AtomicInteger loads = new AtomicInteger(0);
+
+        assertSame(FAILURE, cache.get(ETH_QUERY, q -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(FAILURE);
+        }).toCompletableFuture().join());
+        assertSame(SUCCESS, cache.get(ETH_QUERY, q -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(SUCCESS);
+        }).toCompletableFuture().join());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testInvalidate() {
+        final AtomicInteger loads = new AtomicInteger(0);
+        final CompletableFuture<GetCurrencies.Response> networkResponse = new CompletableFuture<>();
+
+        final CompletionStage<GetCurrencies.Response> inFlight = cache.get(ETH_QUERY, q -> {
+            loads.incrementAndGet();
+            return networkResponse;
+        });
+        cache.invalidate();
+        networkResponse.complete(SUCCESS);
+        assertSame("The callers waiting for the load still get it", SUCCESS, inFlight.toCompletableFuture().join());
+
+        cache.get(ETH_QUERY, q -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(SUCCESS);
+        });
+        assertEquals("The load in flight during the invalidation is not reused", 2, loads.get());
+    }
+}
@@ -0,0 +1,49 @@
+package com.myodov.unicherrygarden.connector.impl.actors;
+
+import akka.actor.testkit.typed.javadsl.TestKitJunitResource;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.receptionist.Receptionist;
+import com.myodov.unicherrygarden.connector.impl.actors.messages.WaitForBootCommand;
+import com.myodov.unicherrygarden.messages.cherrygardener.GetCurrencies;
+import com.myodov.unicherrygarden.messages.cherrygardener.Ping;
+import com.typesafe.config.ConfigFactory;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.time.Duration;
+
+public class ConnectorActorTest {
+    @ClassRule
+    public static final TestKitJunitResource testKit = new TestKitJunitResource(
+            // No need in the cluster for the tests; the local Receptionist is enough
+            ConfigFactory.parseString("akka.actor.provider = local").withFallback(ConfigFactory.load()));
+
+    @Test
+    public void testBootCompletedWhenCherryGardenerAppears() {
+        final String realm = "test-boot";
+        final ActorRef<ConnectorActorMessage> connectorActor = testKit.spawn(ConnectorActor.create(realm));
+        final TestProbe<WaitForBootCommand.BootCompleted> probe = testKit.createTestProbe();
+
+        connectorActor.tell(new WaitForBootCommand(probe.getRef()));
+
+        // Some other service appearing is not the boot yet
+        final ActorRef<GetCurrencies.Request> getCurrenciesService =
+                testKit.spawn(Behaviors.<GetCurrencies.Request>ignore());
+        testKit.system().receptionist().tell(
+                Receptionist.register(GetCurrencies.makeServiceKey(realm), getCurrenciesService));
+        probe.expectNoMessage(Duration.ofMillis(500));
+
+        // But CherryGardener appearing is
+        final ActorRef<Ping.Request> pingService = testKit.spawn(Behaviors.<Ping.Request>ignore());
+        testKit.system().receptionist().tell(
+                Receptionist.register(Ping.makeServiceKey(realm), pingService));
+        probe.expectMessageClass(WaitForBootCommand.BootCompleted.class, Duration.ofSeconds(5));
+
+        // Whoever waits for the boot after it, is notified immediately
+        final TestProbe<WaitForBootCommand.BootCompleted> lateProbe = testKit.createTestProbe();
+        connectorActor.tell(new WaitForBootCommand(lateProbe.getRef()));
+        lateProbe.expectMessageClass(WaitForBootCommand.BootCompleted.class, Duration.ofSeconds(5));
+    }
+}
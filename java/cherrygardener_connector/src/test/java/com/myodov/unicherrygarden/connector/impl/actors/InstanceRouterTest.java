@@ -0,0 +1,116 @@
+package com.myodov.unicherrygarden.connector.impl.actors;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class InstanceRouterTest {
+    private static final Set<String> INSTANCES = new LinkedHashSet<String>() {{
+        add("a");
+        add("b");
+    }};
+
+    @Test
+    public void testStrategyFromConfigValue() {
+        assertEquals(
+                InstanceRouter.Strategy.ROUND_ROBIN,
+                InstanceRouter.Strategy.fromConfigValue("round_robin"));
+        assertEquals(
+                InstanceRouter.Strategy.LEAST_OUTSTANDING,
+                InstanceRouter.Strategy.fromConfigValue("least_outstanding"));
+        assertEquals(
+                InstanceRouter.Strategy.LATENCY_EWMA,
+                InstanceRouter.Strategy.fromConfigValue("latency_ewma"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStrategyFromBadConfigValue() {
+        InstanceRouter.Strategy.fromConfigValue("random");
+    }
+
+    @Test
+    public void testRoundRobin() {
+        final InstanceRouter<String> router = new InstanceRouter<>(InstanceRouter.Strategy.ROUND_ROBIN);
+        final Set<String> chosen = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            chosen.add(router.select(INSTANCES));
+        }
+        assertEquals("Both instances get the requests", INSTANCES, chosen);
+    }
+
+    @Test
+    public void testLeastOutstanding() {
+        final InstanceRouter<String> router = new InstanceRouter<>(InstanceRouter.Strategy.LEAST_OUTSTANDING);
+
+        final String first = router.select(INSTANCES);
+        router.onRequestStarted(first);
+        assertEquals(1, router.getOutstanding(first));
+
+        // While the first request is in flight, the other instance is chosen, always
+        for (int i = 0; i < 3; i++) {
+            assertNotEquals(first, router.select(INSTANCES));
+        }
+
+        router.onRequestCompleted(first, 1_000_000);
+        assertEquals(0, router.getOutstanding(first));
+    }
+
+    @Test
+    public void testLatencyEwma() {
+        final InstanceRouter<String> router = new InstanceRouter<>(InstanceRouter.Strategy.LATENCY_EWMA);
+
+        router.onRequestStarted("a");
+        router.onRequestCompleted("a", 500_000_000);
+        router.onRequestStarted("b");
+        router.onRequestCompleted("b", 10_000_000);
+
+        // The faster instance is chosen, always
+        for (int i = 0; i < 3; i++) {
+            assertEquals("b", router.select(INSTANCES));
+        }
+    }
+
+    @Test
+    public void testUnreachableInstancesForgotten() {
+        final InstanceRouter<String> router = new InstanceRouter<>(InstanceRouter.Strategy.LEAST_OUTSTANDING);
+
+        router.onRequestStarted("a");
+        assertEquals("b", router.select(INSTANCES));
+
+        // "a" is not reachable anymore
+        router.retainInstances(new HashSet<String>() {{
+            add("b");
+        }});
+        assertEquals(0, router.getOutstanding("a"));
+        // Completing the request to the forgotten instance is harmless
+        router.onRequestCompleted("a", 1_000_000);
+        assertEquals(0, router.getOutstanding("a"));
+    }
+
+    @Test
+    public void testInterleavedDisjointInstanceSets() {
+        final InstanceRouter<String> router = new InstanceRouter<>(InstanceRouter.Strategy.LEAST_OUTSTANDING);
+        final Set<String> otherInstances = new LinkedHashSet<String>() {{
+            add("x");
+            add("y");
+        }};
+
+        final String first = router.select(INSTANCES);
+        router.onRequestStarted(first);
+        final String otherFirst = router.select(otherInstances);
+        router.onRequestStarted(otherFirst);
+
+        // Selecting over one set doesn't make the router forget the requests in flight to the other one
+        for (int i = 0; i < 3; i++) {
+            assertNotEquals(first, router.select(INSTANCES));
+            assertNotEquals(otherFirst, router.select(otherInstances));
+        }
+        assertEquals(1, router.getOutstanding(first));
+        assertEquals(1, router.getOutstanding(otherFirst));
+    }
+}
@@ -3,6 +3,7 @@ package com.myodov.unicherrygarden.messages.cherrypicker;
 import akka.actor.typed.ActorRef;
 import akka.actor.typed.receptionist.ServiceKey;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.myodov.unicherrygarden.api.types.SystemStatus;
 import com.myodov.unicherrygarden.api.types.dlt.Currency;
 import com.myodov.unicherrygarden.api.types.responseresult.FailurePayload.CommonFailurePayload;
@@ -20,8 +21,10 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 
 public class GetBalances {
@@ -38,19 +41,39 @@ public class GetBalances {
         @NonNull
         public final int confirmations;
 
-        @NonNull
+        /**
+         * The address to get the balances for;
+         * <code>null</code> if the balances for multiple <code>addresses</code> are requested.
+         */
+        @Nullable
         public final String address;
 
+        /**
+         * The addresses to get the balances for (all at the same block);
+         * <code>null</code> if the balances for a single <code>address</code> are requested.
+         */
+        @Nullable
+        public final Set<String> addresses;
+
         @Nullable
         public final Set<String> filterCurrencyKeys;
 
 
         @JsonCreator
         public GBRequestPayload(int confirmations,
-                                @NonNull String address,
+                                @Nullable String address,
+                                @Nullable Set<String> addresses,
                                 @Nullable Set<String> filterCurrencyKeys) {
             assert confirmations >= 0 : confirmations;
-            assert address != null && EthUtils.Addresses.isValidLowercasedAddress(address) : address;
+            // One, and only one, of `address`/`addresses` must be non-null
+            assert (address == null) != (addresses == null) : String.format("%s/%s", address, addresses);
+            assert address == null || EthUtils.Addresses.isValidLowercasedAddress(address) : address;
+            assert addresses == null ||
+                    addresses
+                            .stream()
+                            .allMatch(addr -> (addr != null) && EthUtils.Addresses.isValidLowercasedAddress(addr))
+                    :
+                    addresses;
             // If filterCurrencyKeys is present, it is either a `null`;
             // or, if it is not `null` - it is a set that doesn't contain nulls; and each item of the set
             // is either an empty string (for ETH) or valid lowercased address.
@@ -63,14 +86,24 @@ public class GetBalances {
 
             this.confirmations = confirmations;
             this.address = address;
+            this.addresses = addresses;
             this.filterCurrencyKeys = filterCurrencyKeys;
         }
 
+        /**
+         * Constructor for the request of the balances for a single address.
+         */
+        public GBRequestPayload(int confirmations,
+                                @NonNull String address,
+                                @Nullable Set<String> filterCurrencyKeys) {
+            this(confirmations, address, null, filterCurrencyKeys);
+        }
+
         @Override
         public final String toString() {
-            return String.format("%s(%s, %s, %s)",
+            return String.format("%s(%s, %s, %s, %s)",
                     getClass().getSimpleName(),
-                    confirmations, address, filterCurrencyKeys);
+                    confirmations, address, addresses, filterCurrencyKeys);
         }
     }
 
@@ -137,27 +170,55 @@ public class GetBalances {
         @NonNull
         public final SystemStatus systemStatus;
 
+        /**
+         * The balances of the requested <code>address</code>;
+         * empty if the balances for multiple <code>addresses</code> have been requested.
+         */
         @NonNull
         public final List<CurrencyBalanceFact> balances;
 
+        /**
+         * The balances of each of the requested <code>addresses</code>
+         * (every requested address is present, maybe with the empty list);
+         * <code>null</code> if the balances for a single <code>address</code> have been requested.
+         */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        @Nullable
+        public final Map<String, List<CurrencyBalanceFact>> balancesByAddress;
+
         /**
          * Constructor.
          */
         @JsonCreator
         public BalanceRequestResultPayload(@NonNull SystemStatus systemStatus,
-                                           @NonNull List<CurrencyBalanceFact> balances) {
+                                           @NonNull List<CurrencyBalanceFact> balances,
+                                           @Nullable Map<String, List<CurrencyBalanceFact>> balancesByAddress) {
             assert systemStatus != null;
             assert balances != null;
 
             this.systemStatus = systemStatus;
             this.balances = Collections.unmodifiableList(balances);
+            this.balancesByAddress = (balancesByAddress == null) ?
+                    null :
+                    Collections.unmodifiableMap(balancesByAddress.entrySet().stream().collect(Collectors.toMap(
+                            Map.Entry::getKey,
+                            e -> Collections.unmodifiableList(e.getValue())
+                    )));
+        }
+
+        /**
+         * Constructor for the balances of a single address.
+         */
+        public BalanceRequestResultPayload(@NonNull SystemStatus systemStatus,
+                                           @NonNull List<CurrencyBalanceFact> balances) {
+            this(systemStatus, balances, null);
         }
 
         @Override
         public final String toString() {
-            return String.format("%s(%s, %s)",
+            return String.format("%s(%s, %s, %s)",
                     getClass().getSimpleName(),
-                    systemStatus, balances);
+                    systemStatus, balances, balancesByAddress);
         }
     }
 
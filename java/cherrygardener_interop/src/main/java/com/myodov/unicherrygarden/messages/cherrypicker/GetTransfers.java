@@ -4,6 +4,7 @@ import akka.actor.typed.ActorRef;
 import akka.actor.typed.receptionist.ServiceKey;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.myodov.unicherrygarden.api.types.MinedTransfer;
 import com.myodov.unicherrygarden.api.types.SystemStatus;
 import com.myodov.unicherrygarden.api.types.responseresult.FailurePayload.CommonFailurePayload;
@@ -31,6 +32,87 @@ public class GetTransfers {
     }
 
 
+    /**
+     * The position in the (ordered) list of transfers, after which the next page of transfers starts.
+     * <p>
+     * The transfers are ordered by block number, then by transaction index in the block,
+     * then by log index (the ETH transfer of the transaction goes before any its ERC20 transfers);
+     * this key is unique for every transfer, so the pages never overlap or miss anything.
+     * <p>
+     * The cursor also fixes the end block of the first page, so all the pages are consistent
+     * even if more blocks are synced while the pages are being requested.
+     */
+    public static final class TransfersCursor {
+        public final int blockNumber;
+
+        public final int transactionIndex;
+
+        /**
+         * <code>null</code> if the cursor points to the ETH transfer (i.e. the transaction itself).
+         */
+        @Nullable
+        public final Integer logIndex;
+
+        public final int endBlock;
+
+        @JsonCreator
+        public TransfersCursor(int blockNumber,
+                               int transactionIndex,
+                               @Nullable Integer logIndex,
+                               int endBlock) {
+            assert blockNumber >= 0 : blockNumber;
+            assert transactionIndex >= 0 : transactionIndex;
+            assert logIndex == null || logIndex >= 0 : logIndex;
+            assert blockNumber <= endBlock : String.format("%s/%s", blockNumber, endBlock);
+
+            this.blockNumber = blockNumber;
+            this.transactionIndex = transactionIndex;
+            this.logIndex = logIndex;
+            this.endBlock = endBlock;
+        }
+
+        /**
+         * The cursor pointing right after the <code>transfer</code>.
+         */
+        @NonNull
+        public static TransfersCursor after(@NonNull MinedTransfer transfer, int endBlock) {
+            assert transfer != null : transfer;
+            return new TransfersCursor(
+                    transfer.tx.block.blockNumber,
+                    transfer.tx.transactionIndex,
+                    transfer.logIndex,
+                    endBlock);
+        }
+
+        @Override
+        public final String toString() {
+            return String.format("%s(%s, %s, %s, %s)",
+                    getClass().getSimpleName(),
+                    blockNumber, transactionIndex, logIndex, endBlock);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            } else if (o == null || getClass() != o.getClass()) {
+                return false;
+            } else {
+                final TransfersCursor other = (TransfersCursor) o;
+                return this.blockNumber == other.blockNumber &&
+                        this.transactionIndex == other.transactionIndex &&
+                        Objects.equals(this.logIndex, other.logIndex) &&
+                        this.endBlock == other.endBlock;
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(blockNumber, transactionIndex, logIndex, endBlock);
+        }
+    }
+
+
     public static final class GTRequestPayload
             implements RequestPayload {
         public final int confirmations;
@@ -52,6 +134,19 @@ public class GetTransfers {
 
         public final boolean includeBalances;
 
+        /**
+         * If not <code>null</code>, only the transfers after this cursor are returned
+         * (i.e. this is the request for the next page).
+         */
+        @Nullable
+        public final TransfersCursor cursor;
+
+        /**
+         * If not <code>null</code>, at most this number of transfers is returned (i.e. the page size).
+         */
+        @Nullable
+        public final Integer limit;
+
         @JsonCreator
         public GTRequestPayload(int confirmations,
                                 @Nullable String sender,
@@ -59,7 +154,9 @@ public class GetTransfers {
                                 @Nullable Integer startBlock,
                                 @Nullable Integer endBlock,
                                 @Nullable Set<String> filterCurrencyKeys,
-                                boolean includeBalances) {
+                                boolean includeBalances,
+                                @Nullable TransfersCursor cursor,
+                                @Nullable Integer limit) {
             assert confirmations >= 0 : confirmations;
             assert sender == null || EthUtils.Addresses.isValidLowercasedAddress(sender) : sender;
             assert receiver == null || EthUtils.Addresses.isValidLowercasedAddress(receiver) : receiver;
@@ -75,14 +172,32 @@ public class GetTransfers {
             this.startBlock = startBlock;
             this.endBlock = endBlock;
             this.filterCurrencyKeys = filterCurrencyKeys;
+            assert limit == null || limit >= 1 : limit;
+
             this.includeBalances = includeBalances;
+            this.cursor = cursor;
+            this.limit = limit;
+        }
+
+        /**
+         * Constructor for the request of all the transfers at once (without pagination).
+         */
+        public GTRequestPayload(int confirmations,
+                                @Nullable String sender,
+                                @Nullable String receiver,
+                                @Nullable Integer startBlock,
+                                @Nullable Integer endBlock,
+                                @Nullable Set<String> filterCurrencyKeys,
+                                boolean includeBalances) {
+            this(confirmations, sender, receiver, startBlock, endBlock, filterCurrencyKeys, includeBalances, null, null);
         }
 
         @Override
         public final String toString() {
-            return String.format("%s(%s, %s, %s, %s, %s, %s, %s)",
+            return String.format("%s(%s, %s, %s, %s, %s, %s, %s, %s, %s)",
                     getClass().getSimpleName(),
-                    confirmations, sender, receiver, startBlock, endBlock, filterCurrencyKeys, includeBalances);
+                    confirmations, sender, receiver, startBlock, endBlock, filterCurrencyKeys, includeBalances,
+                    cursor, limit);
         }
     }
 
@@ -118,6 +233,14 @@ public class GetTransfers {
          */
         public final Map<String, List<GetBalances.BalanceRequestResultPayload.CurrencyBalanceFact>> balances;
 
+        /**
+         * If the request was limited and more transfers are available, the cursor to request the next page with;
+         * <code>null</code> if this is the last page.
+         */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        @Nullable
+        public final TransfersCursor nextCursor;
+
 
         /**
          * Constructor.
@@ -125,12 +248,14 @@ public class GetTransfers {
         @JsonCreator
         public TransfersRequestResultPayload(@NonNull SystemStatus systemStatus,
                                              @NonNull List<MinedTransfer> transfers,
-                                             @NonNull Map<String, List<GetBalances.BalanceRequestResultPayload.CurrencyBalanceFact>> balances) {
+                                             @NonNull Map<String, List<GetBalances.BalanceRequestResultPayload.CurrencyBalanceFact>> balances,
+                                             @Nullable TransfersCursor nextCursor) {
             assert systemStatus != null;
             assert transfers != null;
             assert balances != null;
 
             this.systemStatus = systemStatus;
+            this.nextCursor = nextCursor;
             this.transfers = Collections.unmodifiableList(transfers);
 
             final Map<String, List<GetBalances.BalanceRequestResultPayload.CurrencyBalanceFact>> tempModifiableMap =
@@ -178,11 +303,20 @@ public class GetTransfers {
             }
         }
 
+        /**
+         * Constructor for the complete (not paginated) result.
+         */
+        public TransfersRequestResultPayload(@NonNull SystemStatus systemStatus,
+                                             @NonNull List<MinedTransfer> transfers,
+                                             @NonNull Map<String, List<GetBalances.BalanceRequestResultPayload.CurrencyBalanceFact>> balances) {
+            this(systemStatus, transfers, balances, null);
+        }
+
         @Override
         public final String toString() {
-            return String.format("%s(%s, %s, %s)",
+            return String.format("%s(%s, %s, %s, %s)",
                     getClass().getSimpleName(),
-                    systemStatus, transfers, balances);
+                    systemStatus, transfers, balances, nextCursor);
         }
 
         /**
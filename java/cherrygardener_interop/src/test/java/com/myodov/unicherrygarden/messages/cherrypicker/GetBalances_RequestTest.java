@@ -0,0 +1,66 @@
+package com.myodov.unicherrygarden.messages.cherrypicker;
+
+import com.myodov.unicherrygarden.AbstractJacksonSerializationTest;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class GetBalances_RequestTest extends AbstractJacksonSerializationTest {
+    @Test
+    public void testJacksonSerialization() throws IOException {
+        assertEquals(
+                "{\"confirmations\":6," +
+                        "\"address\":\"0xd701edf8f9c5d834bcb9add73ddeff2d6b9c3d24\"," +
+                        "\"addresses\":null," +
+                        "\"filterCurrencyKeys\":[\"\"]}",
+                makeJson(new GetBalances.GBRequestPayload(
+                        6,
+                        "0xd701edf8f9c5d834bcb9add73ddeff2d6b9c3d24",
+                        Collections.singleton("")))
+        );
+
+        assertEquals(
+                "{\"confirmations\":0," +
+                        "\"address\":null," +
+                        "\"addresses\":[\"0x74644fd700c11dcc262eed1c59715ee874f65251\",\"0xd701edf8f9c5d834bcb9add73ddeff2d6b9c3d24\"]," +
+                        "\"filterCurrencyKeys\":null}",
+                makeJson(new GetBalances.GBRequestPayload(
+                        0,
+                        null,
+                        new TreeSet<String>() {{
+                            add("0xd701edf8f9c5d834bcb9add73ddeff2d6b9c3d24");
+                            add("0x74644fd700c11dcc262eed1c59715ee874f65251");
+                        }},
+                        null))
+        );
+    }
+
+    @Test
+    public void testAddressesExclusivity() {
+        assertThrows("Either address or addresses must be present",
+                AssertionError.class,
+                () -> new GetBalances.GBRequestPayload(0, null, null, null)
+        );
+        assertThrows("Address and addresses cannot be present both",
+                AssertionError.class,
+                () -> new GetBalances.GBRequestPayload(
+                        0,
+                        "0xd701edf8f9c5d834bcb9add73ddeff2d6b9c3d24",
+                        Collections.singleton("0x74644fd700c11dcc262eed1c59715ee874f65251"),
+                        null)
+        );
+        assertThrows("Every address must be valid",
+                AssertionError.class,
+                () -> new GetBalances.GBRequestPayload(
+                        0,
+                        null,
+                        Collections.singleton("0xd701eDF8f9C5d834Bcb9Add73ddefF2D6B9C3D24"),
+                        null)
+        );
+    }
+}
@@ -11,6 +11,9 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
 
 import static org.junit.Assert.assertEquals;
 
@@ -33,6 +36,7 @@ public class GetBalances_ResponseTest extends AbstractJacksonSerializationTest {
             add(utnp);
         }};
 
+        // Single address: `balancesByAddress` is omitted
         assertEquals(
                 "{\"payload\":{" +
                         "\"@class\":\"com.myodov.unicherrygarden.messages.cherrypicker.GetBalances$BalanceRequestResultPayload\"," +
@@ -69,6 +73,48 @@ public class GetBalances_ResponseTest extends AbstractJacksonSerializationTest {
                 ))
         );
 
+        // Multiple addresses: `balancesByAddress` is present, with every requested address
+        assertEquals(
+                "{\"payload\":{" +
+                        "\"@class\":\"com.myodov.unicherrygarden.messages.cherrypicker.GetBalances$BalanceRequestResultPayload\"," +
+                        "\"systemStatus\":{\"actualAt\":{\"epochSecond\":1644850591,\"nano\":0}," +
+                        "\"blockchain\":{\"syncingData\":{\"currentBlock\":14205560,\"highestBlock\":14205570},\"latestBlock\":{\"number\":14205550,\"gasLimit\":30135653,\"gasUsed\":16327740,\"baseFeePerGas\":\"71470304869\",\"nextBaseFeePerGas\":\"71470304870\",\"timestamp\":{\"epochSecond\":1644858896,\"nano\":0}},\"maxPriorityFeePerGas\":\"1000000000\"}," +
+                        "\"cherryPicker\":{\"latestKnownBlock\":17,\"latestPartiallySyncedBlock\":13,\"latestFullySyncedBlock\":11}" +
+                        "}," +
+                        "\"balances\":[]," +
+                        "\"balancesByAddress\":{" +
+                        "\"0x74644fd700c11dcc262eed1c59715ee874f65251\":[]," +
+                        "\"0xd701edf8f9c5d834bcb9add73ddeff2d6b9c3d24\":[" +
+                        "{\"currency\":{\"name\":\"Ether\",\"symbol\":\"ETH\",\"comment\":null,\"verified\":true,\"decimals\":null,\"transferGasLimit\":\"21000\",\"type\":\"ETH\",\"dAppAddress\":null},\"amount\":\"123.45\",\"blockNumber\":7328}" +
+                        "]}}}",
+                makeJson(new GetBalances.Response(
+                        new GetBalances.BalanceRequestResultPayload(
+                                new SystemStatus(
+                                        Instant.ofEpochSecond(1644850591L),
+                                        SystemStatus.Blockchain.create(
+                                                SystemStatus.Blockchain.SyncingData.create(14205560, 14205570),
+                                                SystemStatus.Blockchain.LatestBlock.create(
+                                                        14205550,
+                                                        30135653L,
+                                                        16327740L,
+                                                        BigInteger.valueOf(0x10a3f64e65L),
+                                                        BigInteger.valueOf(0x10a3f64e66L),
+                                                        Instant.ofEpochSecond(0x620a8e10L)
+                                                ),
+                                                BigInteger.valueOf(0x3b9aca00L)
+                                        ),
+                                        SystemStatus.CherryPicker.create(17, 13, 11)
+                                ),
+                                Collections.emptyList(),
+                                new TreeMap<String, List<GetBalances.BalanceRequestResultPayload.CurrencyBalanceFact>>() {{
+                                    put("0xd701edf8f9c5d834bcb9add73ddeff2d6b9c3d24", new ArrayList<GetBalances.BalanceRequestResultPayload.CurrencyBalanceFact>() {{
+                                        add(new GetBalances.BalanceRequestResultPayload.CurrencyBalanceFact(eth, new BigDecimal("123.45"), 7328));
+                                    }});
+                                    put("0x74644fd700c11dcc262eed1c59715ee874f65251", Collections.emptyList());
+                                }})
+                ))
+        );
+
         assertEquals(
                 "{\"payload\":{\"@class\":\"com.myodov.unicherrygarden.api.types.responseresult.FailurePayload$CancellationCompletionFailure\"}}",
                 makeJson(GetBalances.Response.fromCommonFailure(FailurePayload.CommonFailurePayload.CANCELLATION_COMPLETION_FAILURE))
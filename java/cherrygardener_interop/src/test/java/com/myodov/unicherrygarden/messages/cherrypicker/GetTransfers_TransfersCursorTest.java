@@ -0,0 +1,69 @@
+package com.myodov.unicherrygarden.messages.cherrypicker;
+
+import com.myodov.unicherrygarden.AbstractJacksonSerializationTest;
+import com.myodov.unicherrygarden.api.types.MinedTransfer;
+import com.myodov.unicherrygarden.api.types.dlt.Block;
+import com.myodov.unicherrygarden.api.types.dlt.MinedTx;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.Assert.assertEquals;
+
+public class GetTransfers_TransfersCursorTest extends AbstractJacksonSerializationTest {
+    @Test
+    public void testJacksonSerialization() throws IOException {
+        assertEquals(
+                "{\"blockNumber\":13550555,\"transactionIndex\":220,\"logIndex\":258,\"endBlock\":13550616}",
+                makeJson(new GetTransfers.TransfersCursor(13550555, 220, 258, 13550616))
+        );
+        assertEquals(
+                "{\"blockNumber\":13550555,\"transactionIndex\":220,\"logIndex\":null,\"endBlock\":13550616}",
+                makeJson(new GetTransfers.TransfersCursor(13550555, 220, null, 13550616))
+        );
+    }
+
+    @Test
+    public void testAfter() {
+        final MinedTx tx = new MinedTx(
+                "0xb0b3d18c67857c30829e348987899026ee08232c989d60e47ccd78dca375d79a",
+                "0xd701edf8f9c5d834bcb9add73ddeff2d6b9c3d24",
+                "0x9e3319636e2126e3c0bc9e3134aec5e1508a46c7",
+                new Block(
+                        13550555,
+                        "0x4246574f55f6bb00326e17fa5ed6724df0b821babd3bf456cee2fd6a7b4dd25a",
+                        Instant.ofEpochSecond(1636033366L)),
+                220,
+                new BigDecimal("0.00455845")
+        );
+
+        // ERC20 transfer
+        assertEquals(
+                new GetTransfers.TransfersCursor(13550555, 220, 258, 13550616),
+                GetTransfers.TransfersCursor.after(
+                        new MinedTransfer(
+                                "0xd701edf8f9c5d834bcb9add73ddeff2d6b9c3d24",
+                                "0xaa9f5344e0a207b4d5d59cb00ea939a97e81c688",
+                                "0x9e3319636e2126e3c0bc9e3134aec5e1508a46c7",
+                                new BigDecimal("200000"),
+                                tx,
+                                258),
+                        13550616)
+        );
+        // ETH transfer
+        assertEquals(
+                new GetTransfers.TransfersCursor(13550555, 220, null, 13550616),
+                GetTransfers.TransfersCursor.after(
+                        new MinedTransfer(
+                                "0xd701edf8f9c5d834bcb9add73ddeff2d6b9c3d24",
+                                "0x9e3319636e2126e3c0bc9e3134aec5e1508a46c7",
+                                "",
+                                new BigDecimal("0"),
+                                tx,
+                                null),
+                        13550616)
+        );
+    }
+}
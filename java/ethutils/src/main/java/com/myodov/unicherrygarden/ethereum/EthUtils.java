@@ -1,6 +1,7 @@
 package com.myodov.unicherrygarden.ethereum;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.web3j.crypto.Hash;
 import org.web3j.crypto.Keys;
 import org.web3j.utils.Numeric;
 
@@ -11,6 +12,7 @@ public class EthUtils {
     static final int BLOCK_HASH_LENGTH = 66;
     static final int TRANSACTION_HASH_LENGTH = 66;
     static final int ADDRESS_HASH_LENGTH = 42;
+    static final int LOGS_BLOOM_LENGTH = 514;
 
     public static int BYZANTIUM_FIRST_BLOCK = 4_370_000;
 
@@ -25,7 +27,17 @@ public class EthUtils {
         if (str == null) {
             throw new IllegalArgumentException("str is null!");
         }
-        return str.startsWith("0x") && str.matches("^0x[0-9a-f]+$");
+        // Checked manually rather than by a regex, as it is called for every address/hash of every block being read
+        if (str.length() <= 2 || !str.startsWith("0x")) {
+            return false;
+        }
+        for (int i = 2; i < str.length(); i++) {
+            final char c = str.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -99,6 +111,81 @@ public class EthUtils {
         }
     }
 
+    /**
+     * Helpers to deal with Ethereum-style `logsBloom` values (present in every block header and transaction receipt):
+     * 2048-bit bloom filters containing the addresses and the topics of all the logs.
+     */
+    public static final class LogsBloom {
+        /**
+         * How many bloom bits are set for each value.
+         */
+        private static final int BITS_PER_VALUE = 3;
+
+        /**
+         * Whether the argument is a valid `logsBloom` hex string.
+         */
+        public static boolean isValidLogsBloom(@NonNull String logsBloom) {
+            return isValidHexString(logsBloom, LOGS_BLOOM_LENGTH);
+        }
+
+        /**
+         * Get the positions of the bits which are set in a bloom filter when it contains the `value`.
+         * Calculating them is relatively costly (Keccak-256 hash), so it is worth doing it once per value,
+         * if the same value is checked against many bloom filters.
+         *
+         * @param value Hex string of the log address or log topic,
+         *              e.g. "0xd701edf8f9c5d834bcb9add73ddeff2d6b9c3d24"
+         *              or "0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef".
+         *              Must be lowercased.
+         */
+        @NonNull
+        public static int[] getBitPositions(@NonNull String value) {
+            if (!isValidHexString(value)) {
+                throw new IllegalArgumentException(String.format("%s is not a valid hex string!", value));
+            }
+            final byte[] hash = Hash.sha3(Numeric.hexStringToByteArray(value));
+            final int[] positions = new int[BITS_PER_VALUE];
+            for (int i = 0; i < BITS_PER_VALUE; i++) {
+                // Each bit position is defined by the lower 11 bits of the next pair of hash bytes
+                positions[i] = (((hash[2 * i] & 0xFF) << 8) | (hash[2 * i + 1] & 0xFF)) & 0x7FF;
+            }
+            return positions;
+        }
+
+        /**
+         * Whether the bloom filter has all the bits (as returned by {@link #getBitPositions(String)}) set;
+         * i.e. whether it may contain the value.
+         *
+         * @param logsBloom    the bloom filter bytes (256 bytes, decoded from the `logsBloom` hex string).
+         * @param bitPositions the bit positions for the value.
+         */
+        public static boolean hasBits(@NonNull byte[] logsBloom, @NonNull int[] bitPositions) {
+            for (final int position : bitPositions) {
+                // Bit 0 is the lowest bit of the last byte
+                if ((logsBloom[logsBloom.length - 1 - position / 8] & (1 << (position % 8))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Whether the bloom filter may contain the `value` (a log address or a log topic).
+         * <p>
+         * `false` means the value is definitely absent in the logs;
+         * `true` means it is probably present (as bloom filters may produce false positives).
+         *
+         * @param logsBloom The `logsBloom` hex string. Must be lowercased.
+         * @param value     Hex string of the log address or log topic. Must be lowercased.
+         */
+        public static boolean mayContain(@NonNull String logsBloom, @NonNull String value) {
+            if (!isValidLogsBloom(logsBloom)) {
+                throw new IllegalArgumentException(String.format("%s is not a valid logsBloom!", logsBloom));
+            }
+            return hasBits(Numeric.hexStringToByteArray(logsBloom), getBitPositions(value));
+        }
+    }
+
     /**
      * Helpers to deal with Ethereum-style `Uint256` data, when it is written as a text string
      * (e.g. in Ethereum node RPC responses).
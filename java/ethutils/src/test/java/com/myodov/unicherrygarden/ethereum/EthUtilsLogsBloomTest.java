@@ -0,0 +1,59 @@
+package com.myodov.unicherrygarden.ethereum;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EthUtilsLogsBloomTest {
+    /**
+     * `logsBloom` of the receipt of transaction 0x636675b92b823b4317a5391cc2897386592cd017363cd51b2c66ec5c7e8152d5
+     * (block 11906373), containing a USDC Transfer event.
+     */
+    private static final String RECEIPT_LOGS_BLOOM =
+            "0x00000000000000000000000000000000000004002010000000000000000000800000000000000000000000000000000000000000" +
+                    "000000000000000000000000000000800000000008000008000000000000000800000000000002000000000000000000000000" +
+                    "000000001000000000000000000000000000000010000000000000000000000000000000000000000000000000010000000000" +
+                    "000000000000000000000000200020000000000000000000000000000000000000000000000000000002000000000000000000" +
+                    "000000000000000000400000001000000000000000000000000000800000000000000000000000000000000000000000000000";
+
+    @Test
+    public void testIsValidLogsBloom() {
+        assertTrue(EthUtils.LogsBloom.isValidLogsBloom(RECEIPT_LOGS_BLOOM));
+        assertFalse(
+                "Shorter than needed",
+                EthUtils.LogsBloom.isValidLogsBloom(RECEIPT_LOGS_BLOOM.substring(0, RECEIPT_LOGS_BLOOM.length() - 2))
+        );
+    }
+
+    @Test
+    public void testMayContain() {
+        assertTrue(
+                "Log address (USDC contract)",
+                EthUtils.LogsBloom.mayContain(RECEIPT_LOGS_BLOOM, "0xa0b86991c6218b36c1d19d4a2e9eb0ce3606eb48")
+        );
+        assertTrue(
+                "Transfer event topic",
+                EthUtils.LogsBloom.mayContain(RECEIPT_LOGS_BLOOM, Ethereum.ERC20.TRANSFER_EVENT_SIGNATURE)
+        );
+        assertTrue(
+                "Transfer sender topic",
+                EthUtils.LogsBloom.mayContain(RECEIPT_LOGS_BLOOM,
+                        EthUtils.Uint256Str.fromAddress("0xa08240ffeb57ea1cddf9b02a8ba835c8690f08d6"))
+        );
+        assertTrue(
+                "Transfer receiver topic",
+                EthUtils.LogsBloom.mayContain(RECEIPT_LOGS_BLOOM,
+                        EthUtils.Uint256Str.fromAddress("0x1522900b6dafac587d499a862861c0869be6e428"))
+        );
+        assertFalse(
+                "Unrelated address topic",
+                EthUtils.LogsBloom.mayContain(RECEIPT_LOGS_BLOOM,
+                        EthUtils.Uint256Str.fromAddress("0xd701edf8f9c5d834bcb9add73ddeff2d6b9c3d24"))
+        );
+        assertThrows(
+                "Should fail if the value is not lowercased",
+                IllegalArgumentException.class,
+                () -> EthUtils.LogsBloom.mayContain(RECEIPT_LOGS_BLOOM, "0xA0b86991c6218b36c1d19d4a2e9eb0ce3606eb48")
+        );
+    }
+}
@@ -4,9 +4,8 @@ import com.myodov.unicherrygarden.AbstractEthereumNodeConnector.SingleBlockData
 import com.myodov.unicherrygarden.Tools.{reduceOptionSeq, seqIsIncrementing}
 import com.myodov.unicherrygarden.Web3ReadOperations.validateBlockHashes
 import com.myodov.unicherrygarden.api.dlt
-import com.myodov.unicherrygarden.api.dlt.EthereumBlock
+import com.myodov.unicherrygarden.api.dlt.{AddressSet, EthereumBlock}
 import com.myodov.unicherrygarden.api.types.SystemStatus
-import com.myodov.unicherrygarden.ethereum.EthUtils
 import com.typesafe.scalalogging.LazyLogging
 
 import scala.annotation.switch
@@ -56,7 +55,7 @@ trait Web3ReadOperations extends LazyLogging {
 
     // None to None, Some[seq] to Some[seq] - this is map!
     readBlock(blockNumber)
-      .map(filterSingleBlock(_, addressesOfInterest))
+      .map(filterSingleBlock(_, AddressSet.from(addressesOfInterest)))
   }
 
   /** Read the blocks from Ethereum node (in a range defined by the start and end block numbers).
@@ -98,6 +97,7 @@ trait Web3ReadOperations extends LazyLogging {
    *       Engine/connector-specific optimizations may be needed.
    * @param range               the range of block numbers to read.
    * @param addressesOfInterest list of address hashes (all lowercased); only these addresses are returned.
+   *                            Better be an [[AddressSet]] already, not to convert it on every call.
    * @return an [[Option]] containing the sequence of pairs defining a block and its transactions;
    *         the Option is `None` if any network problem occured during returning this sequence;
    *         otherwise it contains the sequence with exactly the requested blocks (and the transactions in these blocks),
@@ -106,12 +106,13 @@ trait Web3ReadOperations extends LazyLogging {
   def readBlocks(range: EthereumBlock.BlockNumberRange,
                  addressesOfInterest: Set[String]): Option[Seq[SingleBlockData]] = {
     val optionOfSecs: Option[Seq[SingleBlockData]] = readBlocks(range)
+    val addressSet = AddressSet.from(addressesOfInterest)
 
     // None to None, Some to Some - this is map!
     optionOfSecs map { seq =>
       // If this option isn’t empty and contains a seq,
       // let’s map `filterSingleBlock` to each element
-      seq.map(filterSingleBlock(_, addressesOfInterest))
+      seq.map(filterSingleBlock(_, addressSet))
     }
   }
 
@@ -136,7 +137,7 @@ trait Web3ReadOperations extends LazyLogging {
       // If this option isn’t empty and contains a seq,
       // let’s map `filterSingleBlock` to each element
       seq
-        .map { case (bl, tr) => bl.number -> bl.hash }
+        .map { case (bl, tr) => bl.number -> bl.hash.toHexString }
         .to(SortedMap)
     }
     validateBlockHashes(range, result)
@@ -168,23 +169,24 @@ object AbstractEthereumNodeConnector extends LazyLogging {
 }
 
 private object Web3ReadOperations extends LazyLogging {
-  /** The default implementation of filtering uses manual filtering of the input data. */
+  /** The default implementation of filtering uses manual filtering of the input data.
+   *
+   * @param addressesOfInterest the addresses (all lowercased, as guaranteed by [[AddressSet]]);
+   *                            each transaction sender/receiver and tx log topic is looked up in it directly,
+   *                            in binary form.
+   */
   def filterSingleBlock(blockData: SingleBlockData,
-                        addressesOfInterest: Set[String]): SingleBlockData = {
-    assert(addressesOfInterest.forall(EthUtils.Addresses.isValidLowercasedAddress), addressesOfInterest)
-
+                        addressesOfInterest: AddressSet): SingleBlockData = {
     val (block, transactionsUnfiltered) = blockData
-    // Convert the addresses (which should be used to filter) to their Uint256 representations
-    val addressesOfInterestUint256: Set[String] = addressesOfInterest.map(EthUtils.Uint256Str.fromAddress)
 
     val transactionsFiltered =
       for (tr: dlt.EthereumMinedTransaction <- transactionsUnfiltered
            // We take a transaction if it is sent from any address of interest...
-           if addressesOfInterest.contains(tr.from) ||
+           if addressesOfInterest.containsAddress(tr.from) ||
              // ... or sent to any address of interest...
-             (tr.to.nonEmpty && addressesOfInterest.contains(tr.to.get)) ||
+             (tr.to.nonEmpty && addressesOfInterest.containsAddress(tr.to.get)) ||
              // ... or any of addresses-of-interest matches any txlog topic.
-             addressesOfInterestUint256.exists(tr.anyTxLogContainsTopic)
+             addressesOfInterest.anyMentionedInTxLogs(tr)
            )
         yield tr
 
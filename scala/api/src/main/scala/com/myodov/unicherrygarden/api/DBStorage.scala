@@ -23,7 +23,8 @@ object DBStorage {
      * @param currencies                  : progress of syncing as per `ucg_currency` table.
      * @param blocks                      : progress of syncing as per `ucg_block` table.
      * @param trackedAddresses            : progress of syncing as per `ucg_tracked_address` table.
-     * @param perCurrencyTrackedAddresses : progress of syncing as per `ucg_currency_tracked_address_progress` table.
+     * @param perCurrencyTrackedAddresses : progress of syncing of each currency/tracked-address pair
+     *                                    (as per `ucg_progress_bucket` table).
      */
     sealed case class ProgressData(overall: OverallSyncConfiguration,
                                    currencies: CurrenciesSyncStatus,
@@ -93,7 +94,7 @@ object DBStorage {
      */
     sealed case class TrackedAddressesSyncStatus(minFrom: Option[Int], maxFrom: Option[Int])
 
-    /** Sync status of `ucg_currency_tracked_address_progress` table.
+    /** Sync status of all currency/tracked-address pairs (as per `ucg_progress_bucket` table).
      *
      * @param minFrom    : minimum `synced_from_block_number` value among all currency/tracked-address pairs
      *                   (may be missing on very beginning of the sync).
@@ -1,5 +1,6 @@
 package com.myodov.unicherrygarden.api
 
+import com.myodov.unicherrygarden.AbstractEthereumNodeConnector.SingleBlockData
 import com.myodov.unicherrygarden.api.DBStorage.Currencies.DBCurrency
 import com.myodov.unicherrygarden.api.DBStorage.Progress.ProgressData
 import com.myodov.unicherrygarden.api.DBStorage.TrackedAddresses.TrackedAddress
@@ -7,6 +8,7 @@ import com.myodov.unicherrygarden.api.types.MinedTransfer
 import com.myodov.unicherrygarden.api.types.planted.transactions.SignedOutgoingTransfer
 import com.myodov.unicherrygarden.messages.cherrypicker.AddTrackedAddresses.StartTrackingAddressMode
 import com.myodov.unicherrygarden.messages.cherrypicker.GetBalances.BalanceRequestResultPayload.CurrencyBalanceFact
+import com.myodov.unicherrygarden.messages.cherrypicker.GetTransfers.TransfersCursor
 import scalikejdbc.{AutoSession, DBSession, ReadOnlyAutoSession}
 
 import scala.collection.immutable.SortedMap
@@ -51,6 +53,33 @@ object DBStorageAPI {
     /** Get the overall syncing progress. */
     def getProgress(implicit session: DBSession = ReadOnlyAutoSession): Option[ProgressData]
 
+    /** Get the overall syncing progress, as of the latest snapshot published by [[refreshCachedProgress]]
+     * (lock-free, without querying the DB).
+     * Only if no snapshot has been published yet (e.g. on cold start), it is read from the DB.
+     *
+     * Suitable for the read-only request handlers; the syncers must use the actual [[getProgress]]
+     * inside their transactions.
+     */
+    def getCachedProgress(implicit session: DBSession = ReadOnlyAutoSession): Option[ProgressData]
+
+    /** Re-read the overall syncing progress from the DB and publish it as the snapshot
+     * for [[getCachedProgress]].
+     * Should be called after committing any transaction that changes the progress, outside of it.
+     *
+     * @return the freshly read progress.
+     */
+    def refreshCachedProgress(implicit session: DBSession = ReadOnlyAutoSession): Option[ProgressData]
+
+    /** Recalculate the precalculated aggregates of the overall syncing progress
+     * (which [[getProgress]] is based upon), after the blocks or the syncing progress have been changed.
+     *
+     * Locks the single summary row till the end of transaction; so it must be called just once,
+     * as the last DB operation of the syncer transaction (in particular, after the balance checkpoints
+     * have been updated, so all the syncers take these locks in the same order).
+     * The same goes for the transaction adding the tracked addresses.
+     */
+    def refreshProgressSummary()(implicit session: DBSession): Unit
+
     /** If we have any Currency Tracked Addresses (CT Addresses) which have never been started to sync,
      * find a (earliest possible) block to sync any of them.
      *
@@ -77,6 +106,13 @@ object DBStorageAPI {
                          syncedBlockNumber: Long,
                          trackedAddresses: Set[String]
                        )(implicit session: DBSession): Unit
+
+    /** Same as [[advanceProgress]], but for the whole contiguous range of synced blocks at once. */
+    def advanceProgressRange(
+                              fromBlockNumber: Int,
+                              toBlockNumber: Int,
+                              trackedAddresses: Set[String]
+                            )(implicit session: DBSession): Unit
   }
 
   trait Currencies {
@@ -117,7 +153,11 @@ object DBStorageAPI {
 
     /** Add a new address to be tracked.
      *
-     * @return whether the adding happened successfully.
+     * Requires an explicit session bound to a connection (e.g. from `localTx`).
+     *
+     * @return whether the adding happened successfully;
+     *         `false` if the address is tracked already, or could not be added due to a DB error
+     *         (the transaction is aborted then).
      */
     def addTrackedAddress(
                            address: String,
@@ -125,27 +165,83 @@ object DBStorageAPI {
                            mode: StartTrackingAddressMode,
                            fromBlock: Option[Int]
                          )(implicit
-                           session: DBSession = AutoSession
+                           session: DBSession
                          ): Boolean
+
+    /** Add multiple new addresses to be tracked (all in the same `mode`), in bulk.
+     *
+     * Equivalent to calling [[addTrackedAddress]] for each address; but all the addresses are inserted
+     * by a single statement, and the first block to track them from is resolved just once.
+     *
+     * The overall progress summary is not updated; call [[Progress.refreshProgressSummary]]
+     * in the end of the same transaction.
+     * Unlike [[addTrackedAddress]], a DB error is not reported as the result, but thrown:
+     * the caller must handle it (the transaction is aborted then).
+     * Requires an explicit session bound to a connection (e.g. from `localTx`).
+     *
+     * @param addresses the addresses to add, each one with its (optional) comment.
+     * @return the addresses which have been actually added (skipping the ones which are tracked already).
+     * @throws java.sql.SQLException if the addresses could not be added.
+     */
+    def addTrackedAddresses(
+                             addresses: Seq[(String, Option[String])],
+                             mode: StartTrackingAddressMode,
+                             fromBlock: Option[Int]
+                           )(implicit
+                             session: DBSession
+                           ): Set[String]
   }
 
   trait Blocks {
 
+    /** Make sure the DB has the storage (partitions) for the transactions and logs of all the blocks
+     * from `fromBlock` to `toBlock` (inclusive); they are never created implicitly when the blocks are stored.
+     *
+     * Creating the storage locks the whole tables of transactions and logs; so it must be called
+     * in a separate short transaction (e.g. using the default `AutoSession`),
+     * never inside the long syncing transactions.
+     */
+    def ensureBlockPartitions(fromBlock: Int,
+                              toBlock: Int
+                             )(implicit
+                               session: DBSession = AutoSession
+                             ): Unit
+
     /** Add a new block record to the DB. */
     def addBlock(block: dlt.EthereumBlock
                 )(implicit
                   session: DBSession = AutoSession
                 ): Unit
 
+    /** Add multiple blocks to the DB, together with all their transactions and transaction logs, in bulk.
+     *
+     * Equivalent to calling [[addBlock]] for each block (unless it is present in the DB already),
+     * then [[Transactions.addTransaction]] and [[TxLogs.addTxLogs]] for each its transaction;
+     * but performs just a few DB round trips for the whole sequence.
+     * The blocks should be already validated to be stored (e.g. their parent hashes matching);
+     * the storage for them must be already created by [[ensureBlockPartitions]].
+     *
+     * Requires an explicit session bound to a connection (e.g. from `localTx`), as the data is loaded via COPY.
+     */
+    def addBlocksWithData(blocksData: Seq[SingleBlockData]
+                         )(implicit
+                           session: DBSession
+                         ): Unit
+
     def getBlockByNumber(blockNumber: Int
                         )(implicit session: DBSession = ReadOnlyAutoSession): Option[dlt.EthereumBlock]
 
+    /** Get all the blocks (present in the DB) with the numbers between `fromBlock` and `toBlock` (inclusive). */
+    def getBlocksByNumberRange(fromBlock: Int,
+                               toBlock: Int
+                              )(implicit session: DBSession = ReadOnlyAutoSession): SortedMap[Int, dlt.EthereumBlock]
+
     /** Get a mapping from block number to block hash, for (up to, inclusive) `howMany` latest blocks. */
     def getLatestHashes(
                          howMany: Int
                        )(implicit session: DBSession = ReadOnlyAutoSession): SortedMap[Int, String]
 
-    /** Perform a “rewind” of all blocks, starting from `startBlockNumber`. */
+    /** Perform a “rewind” of all blocks (and the balance checkpoints), starting from `startBlockNumber`. */
     def rewind(
                 startBlockNumber: Int
               )(implicit session: DBSession = ReadOnlyAutoSession): Boolean
@@ -184,18 +280,51 @@ object DBStorageAPI {
                      maxBlock: Int,
                      currencyKeys: Option[Set[String]]
                    )(implicit session: DBSession = ReadOnlyAutoSession): List[CurrencyBalanceFact]
+
+    /** Get information about ETH/ERC20 balances at each of the `addresses`, all at the same block `maxBlock`,
+     * optionally filtered by currency keys `currencyKeys`; in a single query.
+     *
+     * @return the balances for every address from `addresses` (empty, if the address has no balances).
+     */
+    def getBalancesForAddresses(
+                                 addresses: Set[String],
+                                 maxBlock: Int,
+                                 currencyKeys: Option[Set[String]]
+                               )(implicit session: DBSession = ReadOnlyAutoSession): Map[String, List[CurrencyBalanceFact]]
+
+    /** Update the balance checkpoints after the blocks from `fromBlock` to `toBlock` (inclusive) have been stored
+     * (with their transfers), so that [[getBalances]] doesn’t need to go through the whole history of transfers.
+     *
+     * Must be called in the same DB transaction as the blocks have been stored, and as late before the commit
+     * as possible: the concurrent updates of the checkpoints wait for this transaction to complete.
+     */
+    def updateBalanceCheckpoints(
+                                  fromBlock: Int,
+                                  toBlock: Int
+                                )(implicit session: DBSession): Unit
   }
 
   trait Transfers {
-    /** Get information about ETH/ERC20 balances at some address `address` and no newer than at some block `maxBlock`,
+    /** Get ETH/ERC20 transfers from `sender` and/or to `receiver`, in the block range up to `endBlock`,
      * optionally filtered by currency keys `currencyKeys`.
+     *
+     * If the transfers are requested page by page (`after` or `limit` is present), they are ordered
+     * by block number, transaction index and log index (the ETH transfer goes first),
+     * which is the order of [[com.myodov.unicherrygarden.messages.cherrypicker.GetTransfers.TransfersCursor]].
+     * Otherwise, they are ordered by block number, currency, then transaction index (for ETH transfers)
+     * or log index (for ERC20 transfers), as before the pagination was supported.
+     *
+     * @param after if present, only the transfers after this cursor are returned.
+     * @param limit if present, at most this number of transfers is returned.
      */
     def getTransfers(
                       sender: Option[String],
                       receiver: Option[String],
                       optStartBlock: Option[Int],
                       endBlock: Int,
-                      currencyKeys: Option[Set[String]]
+                      currencyKeys: Option[Set[String]],
+                      after: Option[TransfersCursor] = None,
+                      limit: Option[Int] = None
                     )(implicit session: DBSession = ReadOnlyAutoSession): List[MinedTransfer]
   }
 
@@ -0,0 +1,122 @@
+package com.myodov.unicherrygarden.api.dlt
+
+/** Ethereum address (20 bytes), like the sender/receiver of a transaction, or the address emitting a tx log.
+ *
+ * Stored compactly, as two `Long` and one `Int` words (big-endian), rather than a hex string;
+ * so it is cheap to keep, compare and hash. Converted to the hex string or the byte array only when needed
+ * (e.g. when stored in the DB).
+ */
+final class Address private(private val w0: Long,
+                            private val w1: Long,
+                            private val w2: Int) {
+
+  import Address._
+
+  /** Get the byte at position `i` (0 to 19). */
+  def apply(i: Int): Byte = {
+    require(i >= 0 && i < LENGTH, i)
+    if (i < 8) (w0 >>> ((7 - i) * 8)).toByte
+    else if (i < 16) (w1 >>> ((15 - i) * 8)).toByte
+    else (w2 >>> ((19 - i) * 8)).toByte
+  }
+
+  /** Copy all the bytes into `dest` array, starting from `destOffset`. */
+  def copyToArray(dest: Array[Byte], destOffset: Int = 0): Unit = {
+    require(destOffset >= 0 && destOffset + LENGTH <= dest.length, (destOffset, dest.length))
+    for (i <- 0 until LENGTH) dest(destOffset + i) = apply(i)
+  }
+
+  /** The contents as a (newly allocated) byte array. */
+  def toArray: Array[Byte] = {
+    val result = new Array[Byte](LENGTH)
+    copyToArray(result)
+    result
+  }
+
+  /** The contents as the lowercased hex string (like, `0x9e3319636e2126e3c0bc9e3134aec5e1508a46c7`). */
+  def toHexString: String = {
+    val chars = new Array[Char](2 + LENGTH * 2)
+    chars(0) = '0'
+    chars(1) = 'x'
+    for (i <- 0 until LENGTH) {
+      val b = apply(i)
+      chars(2 + i * 2) = HEX_DIGITS((b >> 4) & 0x0F)
+      chars(3 + i * 2) = HEX_DIGITS(b & 0x0F)
+    }
+    new String(chars)
+  }
+
+  override def equals(other: Any): Boolean = other match {
+    case that: Address => w0 == that.w0 && w1 == that.w1 && w2 == that.w2
+    case _ => false
+  }
+
+  /** The hash mixes the bytes from both ends, as the vanity addresses
+   * may have lots of the same bytes in the beginning.
+   */
+  override def hashCode(): Int = {
+    var h = java.lang.Long.hashCode(w0) * 31 + java.lang.Long.hashCode(w1)
+    h = h * 31 + w2
+    // Murmur3 finalizer
+    h ^= h >>> 16
+    h *= 0x85ebca6b
+    h ^= h >>> 13
+    h *= 0xc2b2ae35
+    h ^= h >>> 16
+    h
+  }
+
+  override def toString: String = toHexString
+}
+
+object Address {
+  private[dlt] final val LENGTH = 20
+  private final val HEX_DIGITS: Array[Char] = "0123456789abcdef".toCharArray
+
+  @inline private def longAt(bytes: Int => Byte, offset: Int): Long = {
+    var result = 0L
+    for (i <- offset until offset + 8) result = (result << 8) | (bytes(i) & 0xFFL)
+    result
+  }
+
+  @inline private def intAt(bytes: Int => Byte, offset: Int): Int = {
+    var result = 0
+    for (i <- offset until offset + 4) result = (result << 8) | (bytes(i) & 0xFF)
+    result
+  }
+
+  private[dlt] def fromByteAccessor(bytes: Int => Byte): Address =
+    new Address(longAt(bytes, 0), longAt(bytes, 8), intAt(bytes, 16))
+
+  /** Construct from the 20 bytes of `bytes` array, starting from `offset`. */
+  def fromArray(bytes: Array[Byte], offset: Int = 0): Address = {
+    require(offset >= 0 && offset + LENGTH <= bytes.length, (offset, bytes.length))
+    fromByteAccessor(i => bytes(offset + i))
+  }
+
+  /** Construct from the sequence of exactly 20 bytes. */
+  def fromBytes(bytes: Seq[Byte]): Address = {
+    require(bytes.size == LENGTH, (bytes.size, bytes))
+    bytes match {
+      case indexed: IndexedSeq[Byte] => fromByteAccessor(indexed(_))
+      case _ => fromArray(bytes.toArray)
+    }
+  }
+
+  /** Construct from the 42-symbol hex string (like, `0x9e3319636e2126e3c0bc9e3134aec5e1508a46c7`).
+   *
+   * The hex digits may be in any case (e.g. an EIP-55 checksummed address); the checksum is not verified,
+   * and [[Address#toHexString]] always returns the address lowercased.
+   *
+   * @throws IllegalArgumentException if the string is not a valid 20-byte hex string.
+   */
+  def fromHex(hex: String): Address = {
+    require(hex != null && hex.length == 2 + LENGTH * 2 && hex.startsWith("0x"), hex)
+    fromByteAccessor { i =>
+      val hi = Bytes32.hexDigit(hex.charAt(2 + i * 2))
+      val lo = Bytes32.hexDigit(hex.charAt(3 + i * 2))
+      require(hi >= 0 && lo >= 0, hex)
+      ((hi << 4) | lo).toByte
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package com.myodov.unicherrygarden.api.dlt
+
+import com.myodov.unicherrygarden.ethereum.EthUtils
+
+import scala.collection.immutable.AbstractSet
+
+/** Immutable set of Ethereum addresses (lowercased, like `0x9e3319636e2126e3c0bc9e3134aec5e1508a46c7`),
+ * optimized for the lookups when filtering the blocks for the addresses of interest.
+ *
+ * The addresses are stored as [[Address]] keys, in a single open-addressing (linear probing) hash table;
+ * so the lookup by the binary data (like, the sender of a transaction,
+ * or the Uint256-padded address in some tx log topic) doesn’t need to convert anything into the strings.
+ * It is still a regular `Set[String]`, so may be passed everywhere the set of addresses is expected.
+ */
+final class AddressSet private(
+                                /** All the keys; `null` if the slot is empty. */
+                                private[this] val keys: Array[Address],
+                                override val size: Int
+                              ) extends AbstractSet[String] {
+
+  import AddressSet.parseAddress
+
+  private[this] val mask: Int = keys.length - 1
+
+  /** Whether the set contains the `address`. */
+  def containsAddress(address: Address): Boolean = size > 0 && {
+    var slot = address.hashCode & mask
+    while (keys(slot) != null && keys(slot) != address) {
+      slot = (slot + 1) & mask
+    }
+    keys(slot) != null
+  }
+
+  /** Whether the set contains the address stored as 20 bytes, starting from `offset` in `bytes`. */
+  def containsBytes(bytes: Array[Byte], offset: Int = 0): Boolean =
+    containsAddress(Address.fromArray(bytes, offset))
+
+  /** Whether the set contains the address Uint256-padded in the `topic` (like the `from` or `to`
+   * of the ERC20 Transfer event are).
+   *
+   * @param topic the topic from some transaction log.
+   */
+  def containsTopic(topic: Bytes32): Boolean =
+    size > 0 && topic.isPaddedAddress && containsAddress(topic.paddedAddress)
+
+  /** Whether any of the tx logs of the transaction contains any address of this set in any of the topics. */
+  def anyMentionedInTxLogs(tr: EthereumMinedTransaction): Boolean =
+    size > 0 && tr.txLogs.exists(_.topics.exists(containsTopic))
+
+  override def contains(elem: String): Boolean =
+    size > 0 && (parseAddress(elem) match {
+      case null => false
+      case address => containsAddress(address)
+    })
+
+  override def iterator: Iterator[String] = keys.iterator.filter(_ != null).map(_.toHexString)
+
+  override def incl(elem: String): AddressSet =
+    if (contains(elem)) this
+    else AddressSet(this.iterator ++ Iterator.single(elem))
+
+  override def excl(elem: String): AddressSet =
+    if (!contains(elem)) this
+    else AddressSet(this.iterator.filter(_ != elem))
+
+  /** Add multiple addresses at once (rebuilding the table only once). */
+  def inclAll(elems: IterableOnce[String]): AddressSet = {
+    val added = elems.iterator.filterNot(contains).toSet
+    if (added.isEmpty) this
+    else AddressSet(this.iterator ++ added.iterator)
+  }
+}
+
+object AddressSet {
+  private final val MIN_CAPACITY = 8
+
+  val empty: AddressSet = new AddressSet(new Array[Address](MIN_CAPACITY), 0)
+
+  /** Build the set from the addresses; each of them must be a valid lowercased Ethereum address. */
+  def apply(addresses: IterableOnce[String]): AddressSet = {
+    val unique: Set[String] = addresses.iterator.toSet
+    if (unique.isEmpty) {
+      empty
+    } else {
+      // The table is never filled more than by half, to keep the linear probing chains short
+      var capacity = MIN_CAPACITY
+      while (capacity < unique.size * 2) capacity <<= 1
+
+      val keys = new Array[Address](capacity)
+      val mask = capacity - 1
+
+      for (addressStr <- unique) {
+        val address = parseAddress(addressStr)
+        require(address != null, s"$addressStr is not a valid lowercased Ethereum address!")
+        var slot = address.hashCode & mask
+        while (keys(slot) != null) slot = (slot + 1) & mask
+        keys(slot) = address
+      }
+      new AddressSet(keys, unique.size)
+    }
+  }
+
+  def apply(addresses: String*): AddressSet = apply(addresses: IterableOnce[String])
+
+  /** Get the [[AddressSet]] for the set of addresses, reusing it if it is the [[AddressSet]] already. */
+  def from(addresses: Set[String]): AddressSet = addresses match {
+    case addressSet: AddressSet => addressSet
+    case other => apply(other)
+  }
+
+  /** Parse the lowercased address; `null` if this is not a valid lowercased address. */
+  private def parseAddress(address: String): Address =
+    if (address == null || !EthUtils.Addresses.isValidLowercasedAddress(address)) null
+    else Address.fromHex(address)
+}
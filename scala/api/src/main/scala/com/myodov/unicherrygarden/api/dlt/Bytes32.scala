@@ -0,0 +1,147 @@
+package com.myodov.unicherrygarden.api.dlt
+
+import scala.annotation.switch
+
+/** Any 32-byte value from Ethereum blockchain (like, a tx log topic).
+ *
+ * Stored compactly, as four `Long` words (big-endian), rather than a hex string or a sequence of (boxed) bytes;
+ * so it is cheap to keep, compare and hash. Converted to the hex string or the byte array only when needed
+ * (e.g. when stored in the DB).
+ */
+final class Bytes32 private(private val w0: Long,
+                            private val w1: Long,
+                            private val w2: Long,
+                            private val w3: Long) {
+
+  import Bytes32._
+
+  /** Get the byte at position `i` (0 to 31). */
+  def apply(i: Int): Byte = {
+    require(i >= 0 && i < LENGTH, i)
+    val word = (i >>> 3: @switch) match {
+      case 0 => w0
+      case 1 => w1
+      case 2 => w2
+      case 3 => w3
+    }
+    (word >>> ((7 - (i & 7)) * 8)).toByte
+  }
+
+  /** Copy the bytes from position `from` (till the end) into `dest` array, starting from `destOffset`. */
+  def copyToArray(dest: Array[Byte], destOffset: Int = 0, from: Int = 0): Unit = {
+    require(from >= 0 && from <= LENGTH, from)
+    require(destOffset >= 0 && destOffset + LENGTH - from <= dest.length, (destOffset, dest.length))
+    for (i <- from until LENGTH) dest(destOffset + i - from) = apply(i)
+  }
+
+  /** The contents as a (newly allocated) byte array. */
+  def toArray: Array[Byte] = {
+    val result = new Array[Byte](LENGTH)
+    copyToArray(result)
+    result
+  }
+
+  /** The contents as the lowercased hex string (like, `0x000000000000000000000000d701edf8f9c5d834bcb9add73ddeff2d6b9c3d24`). */
+  def toHexString: String = hexString(from = 0)
+
+  /** Whether the value contains an address, Uint256-padded
+   * (the first 12 bytes are zero; e.g. like the `from` and `to` topics of ERC20 Transfer event).
+   */
+  def isPaddedAddress: Boolean = w0 == 0 && (w1 >>> 32) == 0
+
+  /** Get the address Uint256-padded in this value (see [[isPaddedAddress]]), as a lowercased hex string.
+   *
+   * @throws IllegalArgumentException if the value does not contain a padded address.
+   */
+  def toPaddedAddress: String = {
+    require(isPaddedAddress, s"$this is not a valid address")
+    hexString(from = LENGTH - ADDRESS_LENGTH)
+  }
+
+  /** Get the address Uint256-padded in this value (see [[isPaddedAddress]]).
+   *
+   * @throws IllegalArgumentException if the value does not contain a padded address.
+   */
+  def paddedAddress: Address = {
+    require(isPaddedAddress, s"$this is not a valid address")
+    Address.fromByteAccessor(i => apply(LENGTH - ADDRESS_LENGTH + i))
+  }
+
+  private[this] def hexString(from: Int): String = {
+    val chars = new Array[Char](2 + (LENGTH - from) * 2)
+    chars(0) = '0'
+    chars(1) = 'x'
+    for (i <- from until LENGTH) {
+      val b = apply(i)
+      chars(2 + (i - from) * 2) = HEX_DIGITS((b >> 4) & 0x0F)
+      chars(3 + (i - from) * 2) = HEX_DIGITS(b & 0x0F)
+    }
+    new String(chars)
+  }
+
+  override def equals(other: Any): Boolean = other match {
+    case that: Bytes32 => w0 == that.w0 && w1 == that.w1 && w2 == that.w2 && w3 == that.w3
+    case _ => false
+  }
+
+  override def hashCode(): Int =
+    java.lang.Long.hashCode(w0) ^ java.lang.Long.hashCode(w1) * 31 ^
+      java.lang.Long.hashCode(w2) * 961 ^ java.lang.Long.hashCode(w3) * 29791
+
+  override def toString: String = toHexString
+}
+
+object Bytes32 {
+  private final val LENGTH = 32
+  private final val ADDRESS_LENGTH = 20
+  private final val HEX_DIGITS: Array[Char] = "0123456789abcdef".toCharArray
+
+  @inline private def longAt(bytes: Int => Byte, offset: Int): Long = {
+    var result = 0L
+    for (i <- offset until offset + 8) result = (result << 8) | (bytes(i) & 0xFFL)
+    result
+  }
+
+  private def fromByteAccessor(bytes: Int => Byte): Bytes32 =
+    new Bytes32(longAt(bytes, 0), longAt(bytes, 8), longAt(bytes, 16), longAt(bytes, 24))
+
+  /** Construct from the array of exactly 32 bytes. */
+  def fromArray(bytes: Array[Byte]): Bytes32 = {
+    require(bytes.length == LENGTH, (bytes.length, bytes))
+    fromByteAccessor(bytes(_))
+  }
+
+  /** Construct from the sequence of exactly 32 bytes. */
+  def fromBytes(bytes: Seq[Byte]): Bytes32 = {
+    require(bytes.size == LENGTH, (bytes.size, bytes))
+    bytes match {
+      case indexed: IndexedSeq[Byte] => fromByteAccessor(indexed(_))
+      case _ => fromArray(bytes.toArray)
+    }
+  }
+
+  /** The value of an ASCII hex digit (`0-9`, `a-f`, `A-F`); `-1` for any other character. */
+  @inline private[dlt] def hexDigit(c: Char): Int =
+    if (c >= '0' && c <= '9') c - '0'
+    else if (c >= 'a' && c <= 'f') c - 'a' + 10
+    else if (c >= 'A' && c <= 'F') c - 'A' + 10
+    else -1
+
+  /** Construct from the 66-symbol hex string
+   * (like, `0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef`).
+   *
+   * The hex digits may be in any case (some nodes and clients send the mixed-case values);
+   * the value is stored in binary form, so [[Bytes32#toHexString]] always returns it lowercased.
+   *
+   * @throws IllegalArgumentException if the string is not a valid 32-byte hex string.
+   */
+  def fromHex(hex: String): Bytes32 = {
+    require(hex != null && hex.length == 2 + LENGTH * 2 && hex.startsWith("0x"), hex)
+    fromByteAccessor { i =>
+      val hi = hexDigit(hex.charAt(2 + i * 2))
+      val lo = hexDigit(hex.charAt(3 + i * 2))
+      require(hi >= 0 && lo >= 0, hex)
+      ((hi << 4) | lo).toByte
+    }
+  }
+}
@@ -2,31 +2,29 @@ package com.myodov.unicherrygarden.api.dlt
 
 import java.time.Instant
 
-import com.myodov.unicherrygarden.ethereum.EthUtils
-
 /** This is a single (mined) block in blockchain, containing one or more transactions.
  * In the DB, stored in `ucg_block` table.
  *
  * @param number     the block number, typically sequentially increasing;
  *                   [[Integer]] type instead of [[BigInt]] saves space but must be fixed in 1657 years.
- * @param hash       block hash.
+ * @param hash       block hash (stored compactly, as [[Bytes32]]).
  * @param parentHash parent block hash. Note: we may don't know or don't have it.
  * @param timestamp  timestamp of the block.
  */
 class EthereumBlock(val number: Int,
-                    val hash: String,
-                    val parentHash: Option[String],
+                    val hash: Bytes32,
+                    val parentHash: Option[Bytes32],
                     val timestamp: Instant
                    ) {
   require(number >= 0, number)
-  require(hash != null && EthUtils.Hashes.isValidBlockHash(hash), hash)
-  require(parentHash.isEmpty || (parentHash.get != null && EthUtils.Hashes.isValidBlockHash(parentHash.get)), parentHash)
+  require(hash != null, hash)
+  require(parentHash != null && (parentHash.isEmpty || parentHash.get != null), parentHash)
   require(timestamp != null, timestamp)
 
   /** Return a copy of this Ethereum block, but having [[EthereumBlock#parentHash]] disabled
    * (e.g. to store it as a first block in the DB).
    */
-  def withoutParentHash = EthereumBlock(number, hash, None, timestamp)
+  def withoutParentHash = new EthereumBlock(number, hash, None, timestamp)
 
   def canEqual(a: Any) = a.isInstanceOf[EthereumBlock]
 
@@ -54,7 +52,7 @@ object EthereumBlock {
                     timestamp: Instant
                    ): EthereumBlock = {
     require(hash != null, hash)
-    require(parentHash != null, parentHash)
-    new EthereumBlock(number, hash, parentHash, timestamp)
+    require(parentHash != null && (parentHash.isEmpty || parentHash.get != null), parentHash)
+    new EthereumBlock(number, Bytes32.fromHex(hash), parentHash.map(Bytes32.fromHex), timestamp)
   }
 }
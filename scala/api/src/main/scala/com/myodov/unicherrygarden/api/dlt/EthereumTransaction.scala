@@ -9,7 +9,7 @@ import com.myodov.unicherrygarden.ethereum.EthUtils
  * It may or may not have been mined; so it typically contains the data available
  * from `eth.getTransaction()` call.
  *
- * @param txhash   Transaction hash.
+ * @param txhash   Transaction hash (stored compactly, as [[Bytes32]]).
  * @param from     Sender of the transaction (address).
  * @param to       Receiver of the transaction (address).
  *                 May be absent (if this is a transaction creating the smart contract).
@@ -22,17 +22,17 @@ import com.myodov.unicherrygarden.ethereum.EthUtils
  * @param value    Transaction value (in wei).
  */
 class EthereumTransaction(
-                           val txhash: String,
-                           val from: String,
-                           val to: Option[String],
+                           val txhash: Bytes32,
+                           val from: Address,
+                           val to: Option[Address],
                            val gas: BigInt,
                            val gasPrice: BigInt,
                            val nonce: Int, // account nonce max value 2^64 - 2: TODO: https://github.com/ethereum/go-ethereum/pull/23853
                            val value: BigInt
                          ) {
-  require(txhash != null && EthUtils.Hashes.isValidTransactionHash(txhash), txhash)
-  require(from != null && EthUtils.Addresses.isValidLowercasedAddress(from), from)
-  require(to.isEmpty || EthUtils.Addresses.isValidLowercasedAddress(to.get), to)
+  require(txhash != null, txhash)
+  require(from != null, from)
+  require(to != null && (to.isEmpty || to.get != null), to)
   require(gas != null && gas >= 0, gas)
   require(gasPrice != null && gasPrice >= 0, gasPrice)
   require(nonce >= 0, nonce)
@@ -93,9 +93,9 @@ class EthereumTransaction(
  *                          From `eth.getTransactionReceipt()`.
  */
 class EthereumMinedTransaction( // Transaction-specific
-                                override val txhash: String,
-                                override val from: String,
-                                override val to: Option[String],
+                                override val txhash: Bytes32,
+                                override val from: Address,
+                                override val to: Option[Address],
                                 override val gas: BigInt,
                                 override val gasPrice: BigInt,
                                 override val nonce: Int,
@@ -161,7 +161,8 @@ class EthereumMinedTransaction( // Transaction-specific
    */
   def anyTxLogContainsTopic(needle: String): Boolean = {
     require(EthUtils.isValidHexString(needle, 66), needle)
-    txLogs.exists(_.topicsContain(needle))
+    val needleBytes = Bytes32.fromHex(needle)
+    txLogs.exists(_.topicsContain(needleBytes))
   }
 }
 
@@ -188,9 +189,9 @@ object EthereumMinedTransaction {
     require(to.getOrElse("") != null, to)
 
     new EthereumMinedTransaction(
-      txhash,
-      from,
-      to,
+      Bytes32.fromHex(txhash),
+      Address.fromHex(from),
+      to.map(Address.fromHex),
       gas,
       gasPrice,
       nonce,
@@ -5,22 +5,26 @@ import java.util.Objects
 import com.myodov.unicherrygarden.api.dlt.events.Erc20TransferEvent
 import com.myodov.unicherrygarden.ethereum.{EthUtils, Ethereum}
 import com.typesafe.scalalogging.LazyLogging
-import org.web3j.utils.Numeric.{hexStringToByteArray, toHexString}
+import org.web3j.utils.Numeric.hexStringToByteArray
+
+import scala.collection.immutable.ArraySeq
 
 /** Information for any transaction log (in a transaction) in Ethereum blockchain.
  * In the DB, stored in `ucg_tx_log` table.
  *
  * Each single log contains an information about a single event emitted.
+ *
+ * @param address the address emitting the log, stored compactly as [[Address]].
+ * @param topics  the topics, each one stored compactly as [[Bytes32]] (there may be lots of them in every block).
  */
 class EthereumTxLog(val logIndex: Int,
-                    val address: String,
-                    val topics: Seq[Seq[Byte]],
+                    val address: Address,
+                    val topics: Seq[Bytes32],
                     val data: Seq[Byte]
                    ) extends LazyLogging {
   require(logIndex >= 0, logIndex)
-  //  require(topics != null && topics.forall(EthUtils.isValidHexString(_, 66)), topics)
-  require(address != null && EthUtils.Addresses.isValidLowercasedAddress(address), address)
-  require(topics != null && topics.forall(_.size == 32), (topics, topics.map(_.size)))
+  require(address != null, address)
+  require(topics != null && !topics.contains(null), topics)
   //  require(data != null && (data.equals("") || data.equals("0x") || EthUtils.isValidHexString(data)), data)
   require(data != null, topics)
 
@@ -46,10 +50,13 @@ class EthereumTxLog(val logIndex: Int,
    *
    * @param needle some topic data to find.
    */
-  @inline final def topicsContain(needle: Seq[Byte]): Boolean = {
-    require(needle.size == 32, needle)
-    topics.contains(needle)
-  }
+  @inline final def topicsContain(needle: Bytes32): Boolean = topics.contains(needle)
+
+  /** Whether any of the topics is equal to the `needle` (as in, “needle in haystack”), some data to be searched.
+   *
+   * @param needle some topic data to find.
+   */
+  @inline final def topicsContain(needle: Seq[Byte]): Boolean = topicsContain(Bytes32.fromBytes(needle))
 
   /** Whether any of the topics is equal to the `needle` (as in, “needle in haystack”), some data to be searched.
    *
@@ -57,23 +64,22 @@ class EthereumTxLog(val logIndex: Int,
    */
   @inline final def topicsContain(needle: String): Boolean = {
     require(EthUtils.isValidHexString(needle, 66), needle)
-    topicsContain(hexStringToByteArray(needle).toSeq)
+    topicsContain(Bytes32.fromHex(needle))
   }
 
   /** Checks if the log is for ERC20 Transfer event; returns the parsed details if yes. */
   lazy val isErc20Transfer: Option[Erc20TransferEvent] = {
-    val erc20TransferSig: Seq[Byte] = hexStringToByteArray(Ethereum.ERC20.TRANSFER_EVENT_SIGNATURE).toSeq
+    import EthereumTxLog.ERC20_TRANSFER_SIGNATURE
 
     topics match {
-      case Seq(`erc20TransferSig`, fromBytes, toBytes) =>
+      case Seq(ERC20_TRANSFER_SIGNATURE, fromTopic, toTopic) =>
         // This is real ERC20 Transfer signature
-        require(fromBytes != null, fromBytes)
-        require(toBytes != null, toBytes)
+        require(data.size == 32, s"$data is not a valid uint256 value!")
 
         Some(Erc20TransferEvent(
-          EthUtils.Uint256Str.toAddress(toHexString(fromBytes.toArray[Byte])),
-          EthUtils.Uint256Str.toAddress(toHexString(toBytes.toArray[Byte])),
-          EthUtils.Uint256Str.toBigInteger(toHexString(data.toArray[Byte]))
+          fromTopic.toPaddedAddress,
+          toTopic.toPaddedAddress,
+          BigInt(1, data.toArray)
         ))
       case _ => None
     }
@@ -81,14 +87,16 @@ class EthereumTxLog(val logIndex: Int,
 }
 
 object EthereumTxLog {
+  private val ERC20_TRANSFER_SIGNATURE: Bytes32 = Bytes32.fromHex(Ethereum.ERC20.TRANSFER_EVENT_SIGNATURE)
+
   @inline def apply(logIndex: Int,
                     address: String,
                     topics: Seq[Seq[Byte]],
                     data: Seq[Byte]): EthereumTxLog =
     new EthereumTxLog(
       logIndex,
-      address,
-      topics,
+      Address.fromHex(address),
+      topics.map(Bytes32.fromBytes),
       data)
 
   @inline def apply(logIndex: Int,
@@ -97,7 +105,7 @@ object EthereumTxLog {
                     data: String): EthereumTxLog =
     new EthereumTxLog(
       logIndex,
-      address,
-      topics.map(hexStringToByteArray(_).toSeq),
-      hexStringToByteArray(data).toSeq)
+      Address.fromHex(address),
+      topics.map(Bytes32.fromHex),
+      ArraySeq.unsafeWrapArray(hexStringToByteArray(data)))
 }
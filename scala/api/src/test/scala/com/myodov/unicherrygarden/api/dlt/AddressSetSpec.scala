@@ -0,0 +1,59 @@
+package com.myodov.unicherrygarden.api.dlt
+
+import org.scalatest.flatspec.AnyFlatSpec
+
+class AddressSetSpec extends AnyFlatSpec {
+  private val addr1 = "0x9e3319636e2126e3c0bc9e3134aec5e1508a46c7"
+  private val addr2 = "0xd701edf8f9c5d834bcb9add73ddeff2d6b9c3d24"
+  private val addr3 = "0xaa9f5344e0a207b4d5d59cb00ea939a97e81c688"
+
+  "AddressSet" should "behave like a regular set of addresses" in {
+    val set = AddressSet(addr1, addr2)
+    assert(set.size == 2)
+    assert(set.contains(addr1))
+    assert(set.contains(addr2))
+    assert(!set.contains(addr3))
+    assert(!set.contains("0x9E3319636E2126E3C0BC9E3134AEC5E1508A46C7"), "Only lowercased addresses are matched")
+    assert(!set.contains("whatever"))
+    assert(set == Set(addr1, addr2))
+    assert(set.incl(addr3) == Set(addr1, addr2, addr3))
+    assert(set.excl(addr1) == Set(addr2))
+    assert(set.inclAll(Set(addr2, addr3)) == Set(addr1, addr2, addr3))
+    assert(AddressSet.empty.isEmpty)
+    assert(!AddressSet.empty.contains(addr1))
+  }
+
+  it should "hold many addresses" in {
+    val addresses = (1 to 1000).map(i => f"0x$i%040x").toSet
+    val set = AddressSet(addresses)
+    assert(set.size == 1000)
+    assert(set == addresses)
+    assert(addresses.forall(set.contains))
+    assert(!set.contains(f"0x${1001}%040x"))
+  }
+
+  it should "fail on invalid addresses" in {
+    assertThrows[IllegalArgumentException](AddressSet("0x9E3319636E2126E3C0BC9E3134AEC5E1508A46C7"))
+    assertThrows[IllegalArgumentException](AddressSet("whatever"))
+  }
+
+  it should "find the addresses in binary form" in {
+    val set = AddressSet(addr1, addr2)
+    assert(set.containsAddress(Address.fromHex(addr1)))
+    assert(set.containsAddress(Address.fromHex("0x9E3319636E2126E3C0BC9E3134AEC5E1508A46C7")))
+    assert(!set.containsAddress(Address.fromHex(addr3)))
+    assert(set.containsBytes(Address.fromHex(addr2).toArray))
+    assert(!AddressSet.empty.containsAddress(Address.fromHex(addr1)))
+  }
+
+  it should "find the addresses in the tx log topics" in {
+    val set = AddressSet(addr1)
+    assert(set.containsTopic(
+      Bytes32.fromHex("0x0000000000000000000000009e3319636e2126e3c0bc9e3134aec5e1508a46c7")))
+    assert(!set.containsTopic(
+      Bytes32.fromHex("0x000000000000000000000000d701edf8f9c5d834bcb9add73ddeff2d6b9c3d24")))
+    assert(!set.containsTopic(
+      Bytes32.fromHex("0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef")),
+      "Not the Uint256-padded address at all")
+  }
+}
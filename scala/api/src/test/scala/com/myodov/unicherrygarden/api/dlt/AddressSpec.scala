@@ -0,0 +1,44 @@
+package com.myodov.unicherrygarden.api.dlt
+
+import org.scalatest.flatspec.AnyFlatSpec
+import org.web3j.utils.Numeric.hexStringToByteArray
+
+class AddressSpec extends AnyFlatSpec {
+  private val addr1 = "0x9e3319636e2126e3c0bc9e3134aec5e1508a46c7"
+  private val addr2 = "0xd701edf8f9c5d834bcb9add73ddeff2d6b9c3d24"
+
+  "Address" should "convert from/to hex strings and bytes" in {
+    assert(Address.fromHex(addr1).toHexString == addr1)
+    assert(Address.fromHex(addr1).toString == addr1)
+    assert(Address.fromHex(addr1).toArray sameElements hexStringToByteArray(addr1))
+    assert(Address.fromArray(hexStringToByteArray(addr1)) == Address.fromHex(addr1))
+    assert(Address.fromArray(Array[Byte](1, 2) ++ hexStringToByteArray(addr1), offset = 2) == Address.fromHex(addr1))
+    assert(Address.fromBytes(hexStringToByteArray(addr1).toSeq) == Address.fromHex(addr1))
+    assert(Address.fromBytes(hexStringToByteArray(addr1).toList) == Address.fromHex(addr1))
+    assert(Address.fromHex(addr1)(0) == 0x9e.toByte)
+    assert(Address.fromHex(addr1)(19) == 0xc7.toByte)
+  }
+
+  it should "compare by value" in {
+    assert(Address.fromHex(addr1) == Address.fromHex(addr1))
+    assert(Address.fromHex(addr1).hashCode == Address.fromHex(addr1).hashCode)
+    assert(Address.fromHex(addr1) != Address.fromHex(addr2))
+  }
+
+  it should "accept the hex digits in any case, normalizing them to lowercase" in {
+    // EIP-55 checksummed
+    val checksummed = "0x9E3319636e2126e3c0bc9E3134AEC5e1508A46c7"
+    assert(Address.fromHex(checksummed) == Address.fromHex(addr1))
+    assert(Address.fromHex(checksummed).toHexString == addr1)
+  }
+
+  it should "fail on improper data" in {
+    assertThrows[IllegalArgumentException](Address.fromHex(null))
+    assertThrows[IllegalArgumentException](Address.fromHex("0x1234"))
+    assertThrows[IllegalArgumentException](Address.fromHex(addr1.substring(2) + "00"))
+    assertThrows[IllegalArgumentException](Address.fromHex(addr1.replace('e', 'g')))
+    assertThrows[IllegalArgumentException](Address.fromHex(addr1.replace('5', '５')))
+    assertThrows[IllegalArgumentException](Address.fromArray(new Array[Byte](19)))
+    assertThrows[IllegalArgumentException](Address.fromArray(new Array[Byte](20), offset = 1))
+  }
+}
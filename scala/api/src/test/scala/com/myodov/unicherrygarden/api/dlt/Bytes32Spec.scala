@@ -0,0 +1,56 @@
+package com.myodov.unicherrygarden.api.dlt
+
+import org.scalatest.flatspec.AnyFlatSpec
+import org.web3j.utils.Numeric.hexStringToByteArray
+
+class Bytes32Spec extends AnyFlatSpec {
+  private val transferSig = "0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef"
+  private val paddedAddress = "0x000000000000000000000000d701edf8f9c5d834bcb9add73ddeff2d6b9c3d24"
+
+  "Bytes32" should "convert from/to hex strings and bytes" in {
+    assert(Bytes32.fromHex(transferSig).toHexString == transferSig)
+    assert(Bytes32.fromHex(transferSig).toArray sameElements hexStringToByteArray(transferSig))
+    assert(Bytes32.fromArray(hexStringToByteArray(transferSig)) == Bytes32.fromHex(transferSig))
+    assert(Bytes32.fromBytes(hexStringToByteArray(transferSig).toSeq) == Bytes32.fromHex(transferSig))
+    assert(Bytes32.fromBytes(hexStringToByteArray(transferSig).toList) == Bytes32.fromHex(transferSig))
+    assert(Bytes32.fromHex(transferSig)(0) == 0xdd.toByte)
+    assert(Bytes32.fromHex(transferSig)(31) == 0xef.toByte)
+  }
+
+  it should "compare by value" in {
+    assert(Bytes32.fromHex(transferSig) == Bytes32.fromHex(transferSig))
+    assert(Bytes32.fromHex(transferSig).hashCode == Bytes32.fromHex(transferSig).hashCode)
+    assert(Bytes32.fromHex(transferSig) != Bytes32.fromHex(paddedAddress))
+  }
+
+  it should "fail on improper data" in {
+    assertThrows[IllegalArgumentException](Bytes32.fromHex(null))
+    assertThrows[IllegalArgumentException](Bytes32.fromHex("0x1234"))
+    assertThrows[IllegalArgumentException](Bytes32.fromHex(transferSig.substring(2) + "00"))
+    assertThrows[IllegalArgumentException](Bytes32.fromHex(transferSig.replace('d', 'g')))
+    assertThrows[IllegalArgumentException](Bytes32.fromArray(new Array[Byte](31)))
+  }
+
+  it should "accept the hex digits in any case, normalizing them to lowercase" in {
+    val upper = transferSig.toUpperCase.replace("0X", "0x")
+    assert(Bytes32.fromHex(upper) == Bytes32.fromHex(transferSig))
+    assert(Bytes32.fromHex(upper).toHexString == transferSig)
+    assert(Bytes32.fromHex(transferSig.replace('d', 'D')).toHexString == transferSig)
+  }
+
+  it should "accept only the ASCII hex digits" in {
+    // Non-ASCII Unicode digits: Arabic-Indic, fullwidth
+    assertThrows[IllegalArgumentException](Bytes32.fromHex(transferSig.replace('2', '\u0662')))
+    assertThrows[IllegalArgumentException](Bytes32.fromHex(transferSig.replace('5', '\uff15')))
+    assertThrows[IllegalArgumentException](Bytes32.fromHex(transferSig.replace('d', '\uff24')))
+  }
+
+  it should "extract the Uint256-padded addresses" in {
+    assert(Bytes32.fromHex(paddedAddress).isPaddedAddress)
+    assert(Bytes32.fromHex(paddedAddress).toPaddedAddress == "0xd701edf8f9c5d834bcb9add73ddeff2d6b9c3d24")
+    assert(!Bytes32.fromHex(transferSig).isPaddedAddress)
+    assertThrows[IllegalArgumentException](Bytes32.fromHex(transferSig).toPaddedAddress)
+    assert(Bytes32.fromHex(paddedAddress).paddedAddress == Address.fromHex("0xd701edf8f9c5d834bcb9add73ddeff2d6b9c3d24"))
+    assertThrows[IllegalArgumentException](Bytes32.fromHex(transferSig).paddedAddress)
+  }
+}
@@ -90,7 +90,7 @@ class CherryGardener(
     DB readOnly { implicit session =>
       CherryGardenComponent.whenStateAndProgressAllow[Ping.Response](
         state.ethereumStatus,
-        dbStorage.progress.getProgress,
+        dbStorage.progress.getCachedProgress,
         "Ping",
         Ping.Response.fromCommonFailure(FailurePayload.CHERRY_GARDEN_NOT_READY)
       ) { (ethereumNodeStatus, progress) =>
@@ -116,7 +116,7 @@ class CherryGardener(
     DB readOnly { implicit session =>
       CherryGardenComponent.whenStateAndProgressAllow[GetCurrencies.Response](
         state.ethereumStatus,
-        dbStorage.progress.getProgress,
+        dbStorage.progress.getCachedProgress,
         "GetCurrencies",
         GetCurrencies.Response.fromCommonFailure(FailurePayload.CHERRY_GARDEN_NOT_READY)
       ) { (ethereumNodeStatus, progress) =>
@@ -1,5 +1,6 @@
 package com.myodov.unicherrygarden
 
+import java.sql.SQLException
 import java.util.UUID
 
 import akka.actor.typed.receptionist.Receptionist
@@ -15,13 +16,15 @@ import com.myodov.unicherrygarden.messages.CherryPickerRequest
 import com.myodov.unicherrygarden.messages.cherrypicker.AddTrackedAddresses.AddTrackedAddressesRequestResultPayload
 import com.myodov.unicherrygarden.messages.cherrypicker.GetBalances.BalanceRequestResultPayload
 import com.myodov.unicherrygarden.messages.cherrypicker.GetTrackedAddresses.TrackedAddressesRequestResultPayload
-import com.myodov.unicherrygarden.messages.cherrypicker.GetTransfers.TransfersRequestResultPayload
+import com.myodov.unicherrygarden.messages.cherrypicker.GetTransfers.{TransfersCursor, TransfersRequestResultPayload}
 import com.myodov.unicherrygarden.messages.cherrypicker._
 import com.typesafe.scalalogging.LazyLogging
 import scalikejdbc.DB
 
+import scala.concurrent.duration.FiniteDuration
 import scala.jdk.CollectionConverters._
 import scala.language.postfixOps
+import scala.util.control.NonFatal
 
 /** The main actor “cherry-picking” the data from the Ethereum blockchain into the DB.
  *
@@ -29,7 +32,12 @@ import scala.language.postfixOps
  * which both work independently but assume the other counterpart does its job too.
  *
  * @note For more details please read [[/docs/unicherrypicker-synchronization.md]] document.
- * @param maxReorg maximum lenmaxReorggth of reorganization in Ethereum blockchain that we support and allow.
+ * @param maxReorg            maximum lenmaxReorggth of reorganization in Ethereum blockchain that we support and allow.
+ * @param pipelineChunkSize   the syncers read and store the blocks in the chunks of this size.
+ * @param pipelineMaxInFlight how many chunks of blocks the syncers may read in advance, while storing the previous one.
+ * @param minBatchSize        the syncers never adapt their batch sizes below this.
+ * @param maxBatchSize        the syncers never adapt their batch sizes above this.
+ * @param targetBatchDuration the syncers adapt their batch sizes so that each batch is synced in about this time.
  */
 private class CherryPicker(
                             // CherryGardenComponent-specific
@@ -39,18 +47,32 @@ private class CherryPicker(
                             protected[this] val ethereumConnector: AbstractEthereumNodeConnector with Web3ReadOperations,
                             protected[this] val state: CherryPicker.State = CherryPicker.State(),
                             maxReorg: Int,
+                            pipelineChunkSize: Int,
+                            pipelineMaxInFlight: Int,
+                            minBatchSize: Int,
+                            maxBatchSize: Int,
+                            targetBatchDuration: FiniteDuration,
                             headSyncerBatchSize: Int,
                             tailSyncerBatchSize: Int,
+                            tailSyncerWorkers: Int,
                             catchUpBrakeMaxLeadSetting: Int
                           ) extends CherryGardenComponent(realm, dbStorage) with LazyLogging {
   assert(maxReorg >= 1, maxReorg)
+  assert(pipelineChunkSize >= 1, pipelineChunkSize)
+  assert(pipelineMaxInFlight >= 1, pipelineMaxInFlight)
+  assert(minBatchSize >= 1 && minBatchSize <= maxBatchSize, (minBatchSize, maxBatchSize))
   assert(headSyncerBatchSize >= 1, headSyncerBatchSize)
   assert(tailSyncerBatchSize >= 1, tailSyncerBatchSize)
-  assert(catchUpBrakeMaxLeadSetting >= 1 && catchUpBrakeMaxLeadSetting >= Math.max(headSyncerBatchSize, tailSyncerBatchSize),
-    (catchUpBrakeMaxLeadSetting, headSyncerBatchSize, tailSyncerBatchSize))
+  assert(tailSyncerWorkers >= 1, tailSyncerWorkers)
+  assert(catchUpBrakeMaxLeadSetting >= 1 &&
+    catchUpBrakeMaxLeadSetting >= Math.max(maxBatchSize, Math.max(headSyncerBatchSize, tailSyncerBatchSize)),
+    (catchUpBrakeMaxLeadSetting, maxBatchSize, headSyncerBatchSize, tailSyncerBatchSize))
 
   import CherryPicker._
 
+  /** The tracked addresses, shared with the syncers; updated whenever the addresses are added. */
+  private[this] val trackedAddressIndex = new cherrypicker.TrackedAddressIndex(dbStorage)
+
   /** First state: when just launching the CherryPicker after shutdown/restart. */
   private def launch(): Behavior[CherryPickerRequest] = {
     Behaviors.setup { context =>
@@ -58,11 +80,11 @@ private class CherryPicker(
 
       logger.debug("CherryPicker: Launching HeadSyncer...")
       val headSyncer: ActorRef[GardenMessages.HeadSyncerMessage] = context.spawn(
-        HeadSyncer(dbStorage, ethereumConnector, maxReorg)(headSyncerBatchSize, catchUpBrakeMaxLeadSetting),
+        HeadSyncer(dbStorage, ethereumConnector, trackedAddressIndex, maxReorg, pipelineChunkSize, pipelineMaxInFlight, minBatchSize, maxBatchSize, targetBatchDuration)(headSyncerBatchSize, catchUpBrakeMaxLeadSetting),
         "HeadSyncer")
       logger.debug("CherryPicker: Launching TailSyncer...")
       val tailSyncer: ActorRef[GardenMessages.TailSyncerMessage] = context.spawn(
-        TailSyncer(dbStorage, ethereumConnector, maxReorg)(tailSyncerBatchSize, headSyncer),
+        TailSyncer(dbStorage, ethereumConnector, trackedAddressIndex, maxReorg, pipelineChunkSize, pipelineMaxInFlight, minBatchSize, maxBatchSize, targetBatchDuration)(tailSyncerBatchSize, tailSyncerWorkers, headSyncer),
         "TailSyncer")
       logger.debug("CherryPicker: launched sub-syncers!")
 
@@ -175,34 +197,28 @@ private class CherryPicker(
       )
     }
 
-  private[this] def handleAddTrackedAddresses(payload: AddTrackedAddresses.ATARequestPayload): AddTrackedAddresses.Response =
-  // Construct all the response DB in a single atomic read-write DB transaction.
-    DB localTx { implicit session =>
-      // Here goes the list of all added addresses
-      // (as Options; with `None` instead of any address that failed to add)
+  private[this] def handleAddTrackedAddresses(payload: AddTrackedAddresses.ATARequestPayload): AddTrackedAddresses.Response = {
+    // Construct all the response DB in a single atomic read-write DB transaction.
+    // If adding fails, the exception rolls back the whole transaction, and the request fails.
+    val (response, addressesActuallyAdded) = try DB localTx { implicit session =>
       val toAdd = payload.addressesToTrack.asScala.toList
 
-      val addressesMaybeAdded: List[Option[String]] = (
-        for (addr: AddTrackedAddresses.AddressDataToTrack <- toAdd)
-          yield {
-            if (dbStorage.trackedAddresses.addTrackedAddress(
-              addr.address,
-              Option(addr.comment), // nullable
-              payload.trackingMode,
-              // The next line needs cunning processing of java.lang.Integer using .map(_.toInt),
-              // as otherwise Option(null:Integer): Option[Int]
-              // will be evaluated as Some(0)
-              Option(payload.fromBlock).map(_.toInt) // nullable
-            )) {
-              Some(addr.address)
-            } else {
-              None
-            }
-          }
-        )
+      // All the addresses are added in bulk; here goes the set of the actually added ones
+      // (without any address that has been tracked already).
+      val addressesActuallyAdded: Set[String] = dbStorage.trackedAddresses.addTrackedAddresses(
+        toAdd.map(addr => addr.address -> Option(addr.comment)), // comment is nullable
+        payload.trackingMode,
+        // The next line needs cunning processing of java.lang.Integer using .map(_.toInt),
+        // as otherwise Option(null:Integer): Option[Int]
+        // will be evaluated as Some(0)
+        Option(payload.fromBlock).map(_.toInt) // nullable
+      )
 
-      // Flatten it to just the added elements
-      val addressesActuallyAdded: Set[String] = addressesMaybeAdded.flatten.toSet
+      // The new tracked addresses change the overall progress; recalculate it as the last DB operation
+      // of the transaction, just like the syncers do.
+      if (addressesActuallyAdded.nonEmpty) {
+        dbStorage.progress.refreshProgressSummary()
+      }
 
       val addressesToAdd = toAdd.map(_.address).toSet
       val addressesAlreadyPresent = addressesToAdd diff addressesActuallyAdded
@@ -210,13 +226,35 @@ private class CherryPicker(
       logger.debug(s"Actually added the following addresses to watch: $addressesActuallyAdded; " +
         s"present already were $addressesAlreadyPresent")
 
-      new AddTrackedAddresses.Response(
+      val response = new AddTrackedAddresses.Response(
         new AddTrackedAddressesRequestResultPayload(
           addressesActuallyAdded.asJava,
           addressesAlreadyPresent.asJava
         )
       )
+      (response, addressesActuallyAdded)
+    } catch {
+      case e: SQLException =>
+        logger.error(s"Could not add the tracked addresses: ${payload.addressesToTrack}", e)
+        (
+          AddTrackedAddresses.Response.fromCommonFailure(
+            new FailurePayload.UnspecifiedFailure(s"Could not add the tracked addresses: ${e.getMessage}")),
+          Set.empty[String]
+        )
+    }
+    // After the transaction is committed, let the syncers know about the new addresses...
+    trackedAddressIndex.add(addressesActuallyAdded)
+    // ... and publish the overall progress, as the new tracked addresses change it.
+    // The addresses are added already; so a failure here must not fail the request,
+    // the progress is published by the syncers on their next iteration anyway.
+    try {
+      dbStorage.progress.refreshCachedProgress
+    } catch {
+      case NonFatal(e) =>
+        logger.error("Could not publish the overall progress", e)
     }
+    response
+  }
 
   private[this] def handleGetAddressDetails(payload: GetAddressDetails.GADRequestPayload): GetAddressDetails.Response =
   // Construct all the response DB in a single atomic read-write DB transaction.
@@ -251,7 +289,7 @@ private class CherryPicker(
     DB readOnly { implicit session =>
       CherryGardenComponent.whenStateAndProgressAllow[GetBalances.Response](
         state.ethereumStatus,
-        dbStorage.progress.getProgress,
+        dbStorage.progress.getCachedProgress,
         "GetBalances",
         GetBalances.Response.fromCommonFailure(FailurePayload.CHERRY_GARDEN_NOT_READY)
       ) { (ethereumNodeStatus, progress) =>
@@ -260,17 +298,37 @@ private class CherryPicker(
         val maxBlock = blocksTo - payload.confirmations
         logger.debug(s"Get balances for $payload at $maxBlock")
 
-        val results = dbStorage.balances.getBalances(
-          payload.address,
-          maxBlock,
-          Option(payload.filterCurrencyKeys).map(_.asScala.toSet)
-        )
-        new GetBalances.Response(
-          new BalanceRequestResultPayload(
-            CherryGardenComponent.buildSystemSyncStatus(ethereumNodeStatus, progress),
-            results.asJava
-          )
-        )
+        val optCurrencyKeys = Option(payload.filterCurrencyKeys).map(_.asScala.toSet)
+        val systemStatus = CherryGardenComponent.buildSystemSyncStatus(ethereumNodeStatus, progress)
+
+        Option(payload.addresses) match {
+          case None =>
+            val results = dbStorage.balances.getBalances(
+              payload.address,
+              maxBlock,
+              optCurrencyKeys
+            )
+            new GetBalances.Response(
+              new BalanceRequestResultPayload(
+                systemStatus,
+                results.asJava
+              )
+            )
+          case Some(addresses) =>
+            // All the addresses in a single query, at the same block
+            val results = dbStorage.balances.getBalancesForAddresses(
+              addresses.asScala.toSet,
+              maxBlock,
+              optCurrencyKeys
+            )
+            new GetBalances.Response(
+              new BalanceRequestResultPayload(
+                systemStatus,
+                List.empty[BalanceRequestResultPayload.CurrencyBalanceFact].asJava,
+                results.map { case (k, v) => k -> v.asJava }.asJava
+              )
+            )
+        }
       }
     }
 
@@ -279,7 +337,7 @@ private class CherryPicker(
     DB readOnly { implicit session =>
       CherryGardenComponent.whenStateAndProgressAllow[GetTransfers.Response](
         state.ethereumStatus,
-        dbStorage.progress.getProgress,
+        dbStorage.progress.getCachedProgress,
         "GetTransfers",
         GetTransfers.Response.fromCommonFailure(FailurePayload.CHERRY_GARDEN_NOT_READY)
       ) { (ethereumNodeStatus, progress) =>
@@ -289,11 +347,14 @@ private class CherryPicker(
 
         val optEndBlock = Option(payload.endBlock).map(_.toInt) // of nullable; safe conversion to Option[Int]
 
-        val endBlock = optEndBlock match {
+        val optCursor = Option(payload.cursor) // of nullable
+        // The next pages use the same end block as the first one
+        val endBlock = (optCursor.map(_.endBlock) orElse optEndBlock) match {
           case None => maxBlock
           case Some(endBlockCandidate) =>
             Math.min(endBlockCandidate, maxBlock)
         }
+        val optLimit = Option(payload.limit).map(_.toInt) // of nullable; safe conversion to Option[Int]
 
         logger.debug(s"Get transfers for $payload at $maxBlock ($endBlock)")
 
@@ -302,13 +363,23 @@ private class CherryPicker(
         val optStartBlock = Option(payload.startBlock).map(_.toInt) // of nullable; safe conversion to Option[Int]
         val optCurrencyKeys = Option(payload.filterCurrencyKeys).map(_.asScala.toSet)
 
-        val transfers = dbStorage.transfers.getTransfers(
+        // Request a single extra transfer, to know whether there is a next page at all
+        val transfersWithExtra = dbStorage.transfers.getTransfers(
           optSender,
           optReceiver,
           optStartBlock,
           endBlock,
-          optCurrencyKeys
+          optCurrencyKeys,
+          optCursor,
+          optLimit.map(_ + 1)
         )
+        val (transfers, nextCursor) = optLimit match {
+          case Some(limit) if transfersWithExtra.size > limit =>
+            val page = transfersWithExtra.take(limit)
+            (page, Some(TransfersCursor.after(page.last, endBlock)))
+          case _ =>
+            (transfersWithExtra, None)
+        }
         // We already have the transfers. But the query payload contained optional filters for sender and receiver;
         // so let's try to get balances for both.
 
@@ -316,7 +387,7 @@ private class CherryPicker(
         val balanceKeys: Seq[String] = Seq(Option(payload.sender), Option(payload.receiver)).flatten
         val balances: Map[String, List[BalanceRequestResultPayload.CurrencyBalanceFact]] =
           if (payload.includeBalances)
-            balanceKeys.map(addr => addr -> dbStorage.balances.getBalances(addr, endBlock, optCurrencyKeys)).toMap
+            dbStorage.balances.getBalancesForAddresses(balanceKeys.toSet, endBlock, optCurrencyKeys)
           else
             Map.empty
 
@@ -324,7 +395,8 @@ private class CherryPicker(
           new TransfersRequestResultPayload(
             CherryGardenComponent.buildSystemSyncStatus(ethereumNodeStatus, progress),
             transfers.asJava,
-            balances.map { case (k, v) => k -> v.asJava }.asJava
+            balances.map { case (k, v) => k -> v.asJava }.asJava,
+            nextCursor.orNull
           )
         )
       }
@@ -345,8 +417,14 @@ object CherryPicker extends LazyLogging {
                           dbStorage: DBStorageAPI,
                           ethereumConnector: AbstractEthereumNodeConnector with Web3ReadOperations,
                           maxReorg: Int,
+                          pipelineChunkSize: Int,
+                          pipelineMaxInFlight: Int,
+                          minBatchSize: Int,
+                          maxBatchSize: Int,
+                          targetBatchDuration: FiniteDuration,
                           headSyncerBatchSize: Int,
                           tailSyncerBatchSize: Int,
+                          tailSyncerWorkers: Int,
                           catchUpBrakeMaxLeadSetting: Int
                          ): Behavior[CherryPickerRequest] =
     new CherryPicker(
@@ -355,8 +433,14 @@ object CherryPicker extends LazyLogging {
       ethereumConnector,
       state = CherryPicker.State(),
       maxReorg,
+      pipelineChunkSize,
+      pipelineMaxInFlight,
+      minBatchSize,
+      maxBatchSize,
+      targetBatchDuration,
       headSyncerBatchSize,
       tailSyncerBatchSize,
+      tailSyncerWorkers,
       catchUpBrakeMaxLeadSetting
     ).launch()
 }
@@ -0,0 +1,95 @@
+package com.myodov.unicherrygarden.cherrypicker
+
+import java.util.concurrent.atomic.AtomicReference
+
+import com.myodov.unicherrygarden.api.DBStorageAPI
+import com.myodov.unicherrygarden.api.dlt.AddressSet
+import com.typesafe.scalalogging.LazyLogging
+import scalikejdbc.{DBSession, ReadOnlyAutoSession}
+
+import scala.concurrent.duration._
+import scala.language.postfixOps
+
+/** The in-memory index of all the tracked addresses, shared by CherryPicker and its syncers.
+ *
+ * The syncers need the whole set of tracked addresses on every iteration (to filter the blocks read
+ * from Ethereum node), while it changes rarely – only when some addresses are added to be tracked.
+ * So it is kept in memory, as the immutable [[TrackedAddressIndex.Snapshot]]: the syncers just take
+ * the reference to the latest snapshot, and CherryPicker updates it incrementally whenever it adds
+ * the tracked addresses. The snapshot version is increased on every change of the addresses,
+ * so any user of the index may notice the change by comparing the versions.
+ *
+ * The addresses may be also added to the DB bypassing the CherryPicker (e.g. manually);
+ * to notice them too, the snapshot is reloaded from the DB at least once per `reloadPeriod`.
+ */
+class TrackedAddressIndex(dbStorage: DBStorageAPI,
+                          reloadPeriod: FiniteDuration = TrackedAddressIndex.DEFAULT_RELOAD_PERIOD)
+  extends LazyLogging {
+
+  import TrackedAddressIndex._
+
+  /** The latest snapshot; `null` until it is loaded from the DB for the first time. */
+  private[this] val current = new AtomicReference[Snapshot](null)
+
+  /** Get the latest snapshot of the tracked addresses (loading it from the DB, if it is missing or too old). */
+  def snapshot(implicit session: DBSession = ReadOnlyAutoSession): Snapshot = current.get match {
+    case fresh: Snapshot if System.nanoTime - fresh.loadedAtNanotime < reloadPeriod.toNanos => fresh
+    case _ => reload
+  }
+
+  /** Reread all the tracked addresses from the DB. */
+  def reload(implicit session: DBSession = ReadOnlyAutoSession): Snapshot = {
+    val before = current.get
+    val loaded = AddressSet(dbStorage.trackedAddresses.getJustAddresses)
+    val loadedAtNanotime = System.nanoTime
+
+    val result = current.updateAndGet { prev =>
+      // If some addresses were added while we’ve been reading the DB, they may be missing in `loaded`
+      val addresses = if (prev eq before) loaded else loaded.inclAll(prev.addresses)
+      if (prev == null) {
+        Snapshot(1, addresses, loadedAtNanotime)
+      } else if (prev.addresses == addresses) {
+        prev.copy(loadedAtNanotime = loadedAtNanotime)
+      } else {
+        Snapshot(prev.version + 1, addresses, loadedAtNanotime)
+      }
+    }
+    if (before == null || result.version != before.version) {
+      logger.debug(s"Loaded ${result.addresses.size} tracked addresses (version ${result.version})")
+    }
+    result
+  }
+
+  /** Add the new tracked addresses to the index (without rereading the DB).
+   * Must be called after the transaction adding them to the DB is committed.
+   */
+  def add(addresses: Set[String])(implicit session: DBSession = ReadOnlyAutoSession): Snapshot =
+    if (current.get == null) {
+      // Never loaded yet; the DB contains the new addresses already
+      reload
+    } else {
+      val result = current.updateAndGet { prev =>
+        val updated = prev.addresses.inclAll(addresses)
+        if (updated eq prev.addresses) prev
+        else prev.copy(version = prev.version + 1, addresses = updated)
+      }
+      logger.debug(s"Added tracked addresses $addresses; " +
+        s"now ${result.addresses.size} tracked addresses (version ${result.version})")
+      result
+    }
+}
+
+object TrackedAddressIndex {
+  /** Even if no addresses are added via CherryPicker, reread them from the DB that often. */
+  val DEFAULT_RELOAD_PERIOD: FiniteDuration = 1 minute
+
+  /** The immutable snapshot of all the tracked addresses.
+   *
+   * @param version          increased every time the set of tracked addresses is changed.
+   * @param loadedAtNanotime when the snapshot has been last reconciled with the DB (in `System.nanoTime` terms).
+   */
+  final case class Snapshot(version: Long,
+                            addresses: AddressSet,
+                            loadedAtNanotime: Long)
+
+}
@@ -1,16 +1,24 @@
 package com.myodov.unicherrygarden.cherrypicker.syncers
 
+import java.util.concurrent.{Executors, TimeUnit}
+import java.util.concurrent.atomic.{AtomicBoolean, AtomicLong}
+
 import akka.actor.typed.Behavior
 import akka.actor.typed.scaladsl.Behaviors
 import com.myodov.unicherrygarden.AbstractEthereumNodeConnector.SingleBlockData
 import com.myodov.unicherrygarden.api.DBStorage.Progress
 import com.myodov.unicherrygarden.api.GardenMessages.{HeadSyncerMessage, TailSyncerMessage}
 import com.myodov.unicherrygarden.api.types.SystemStatus
+import com.myodov.unicherrygarden.api.dlt.AddressSet
 import com.myodov.unicherrygarden.api.{DBStorage, DBStorageAPI, GardenMessages, dlt}
+import com.myodov.unicherrygarden.cherrypicker.TrackedAddressIndex
 import com.myodov.unicherrygarden.{AbstractEthereumNodeConnector, CherryGardenComponent, Web3ReadOperations}
 import com.typesafe.scalalogging.LazyLogging
 import scalikejdbc.DBSession
 
+import scala.collection.mutable
+import scala.concurrent.duration.FiniteDuration
+import scala.concurrent.{Await, ExecutionContext, ExecutionContextExecutorService, Future}
 import scala.language.postfixOps
 import scala.util.control.NonFatal
 
@@ -29,6 +37,15 @@ import scala.util.control.NonFatal
  * syncing process; or, for HeadSyncer, the message from TailSyncer), we need to alter the state immediately.
  * But the FSM may be in a 10-second delay after the latest block being processed, and after it a message
  * with the previous state will be posted by the timer. So alas, `state` has to be variable.
+ *
+ * @param trackedAddressIndex the in-memory index of the tracked addresses (shared with CherryPicker),
+ *                            which the blocks are filtered for.
+ * @param pipelineChunkSize   the blocks of a single batch are read from Ethereum node and stored into the DB
+ *                            in chunks of this size (at most).
+ * @param pipelineMaxInFlight how many chunks may be read from Ethereum node in advance, while the previous chunk
+ *                            is being stored into the DB.
+ * @param batchSizeController chooses the size of each next batch of blocks to sync,
+ *                            and is notified about the speed of syncing of every batch.
  */
 abstract private class AbstractSyncer[
   M <: GardenMessages.SyncerMessage,
@@ -37,12 +54,83 @@ abstract private class AbstractSyncer[
 ]
 (protected[this] val dbStorage: DBStorageAPI,
  protected[this] val ethereumConnector: AbstractEthereumNodeConnector with Web3ReadOperations,
- protected[this] val state: S)
+ protected[this] val state: S,
+ trackedAddressIndex: TrackedAddressIndex,
+ pipelineChunkSize: Int,
+ pipelineMaxInFlight: Int,
+ protected[this] val batchSizeController: BatchSizeController)
   extends LazyLogging {
+  assert(pipelineChunkSize >= 1, pipelineChunkSize)
+  assert(pipelineMaxInFlight >= 1, pipelineMaxInFlight)
+
+  /** How many blocks chunks may be read from Ethereum node simultaneously, overall for the syncer. */
+  protected[this] def fetchParallelism: Int = pipelineMaxInFlight
+
+  /** The threads reading the blocks from Ethereum node, in parallel with the syncer storing them to the DB.
+   * Reading is blocking network I/O, so it shouldn’t occupy the Akka dispatcher threads.
+   */
+  private[this] lazy val fetchExecutionContext: ExecutionContextExecutorService =
+    AbstractSyncer.newDaemonExecutionContext(fetchParallelism, s"${this.getClass.getSimpleName}-fetch")
+
+  /** Release the resources of the syncer, when its actor is stopped.
+   * The subclasses having their own resources must extend it.
+   */
+  protected[this] def onStop(): Unit = {
+    logger.debug(s"Stopping ${this.getClass.getSimpleName}")
+    fetchExecutionContext.shutdown()
+  }
+
+  /** The block till which the DB partitions are known to exist already. */
+  @volatile private[this] var blockPartitionsEnsuredTo: Int = -1
+
+  /** Make sure the DB partitions exist for all the blocks which Ethereum node may provide us now.
+   * Must be called before the iteration transaction (not inside it): creating a partition locks
+   * the whole partitioned table, so it is done in a separate short transaction.
+   */
+  protected[this] def ensureBlockPartitions(): Unit =
+    for (nodeStatus <- state.ethereumNodeStatus) {
+      val currentBlock = nodeStatus.syncingData.currentBlock
+      if (currentBlock > blockPartitionsEnsuredTo) {
+        try {
+          dbStorage.blocks.ensureBlockPartitions(0, currentBlock)
+          blockPartitionsEnsuredTo = currentBlock
+        } catch {
+          case NonFatal(e) =>
+            logger.error(s"Could not create the DB partitions for the blocks till $currentBlock", e)
+        }
+      }
+    }
+
+  /** The version of the tracked addresses snapshot used by the previous iteration. */
+  @volatile private[this] var lastTrackedAddressesVersion: Long = 0
 
   /** Most important method doing some next iteration of a syncer; must be implemented. */
   def iterate(): Behavior[M]
 
+  /** Publish the overall progress snapshot for the request handlers (see [[DBStorageAPI.Progress.getCachedProgress]]).
+   * Must be called after the iteration transaction is committed (not inside it);
+   * a failure here doesn’t break the syncing, the snapshot is just updated on the next iteration.
+   */
+  protected[this] def publishProgress(): Unit =
+    try {
+      dbStorage.progress.refreshCachedProgress
+    } catch {
+      case NonFatal(e) =>
+        logger.error("Could not publish the overall progress", e)
+    }
+
+  /** Refresh the overall progress summary (see [[DBStorageAPI.Progress.refreshProgressSummary]]);
+   * must be called as the last DB operation of the iteration transaction (inside it).
+   * If the transaction has failed already, there is nothing to refresh, so the failure is just logged.
+   */
+  protected[this] def refreshProgressSummary()(implicit session: DBSession): Unit =
+    try {
+      dbStorage.progress.refreshProgressSummary()
+    } catch {
+      case NonFatal(e) =>
+        logger.error("Could not refresh the progress summary", e)
+    }
+
   /** Construct the specific implementation of `S` generic instance; must be implemented. */
   val iterateMessage: IS
 
@@ -130,94 +218,265 @@ abstract private class AbstractSyncer[
   /** The pause-then-reiterate method that must be implemented in each syncer specifically. */
   def pauseThenReiterateOnError(): Behavior[M]
 
-  /** Perform the regular iteration for a specific block number:
-   * read the block from the Ethereum connector, store it into the DB.
+  /** Get the latest snapshot of the tracked addresses (to sync the blocks for);
+   * noticing if it has been changed since the previous call.
+   */
+  protected[this] def getTrackedAddresses(): AddressSet = {
+    val snapshot = trackedAddressIndex.snapshot
+    if (snapshot.version != lastTrackedAddressesVersion) {
+      logger.info(s"Tracked addresses changed (version $lastTrackedAddressesVersion to ${snapshot.version}); " +
+        s"now syncing for ${snapshot.addresses.size} addresses")
+      lastTrackedAddressesVersion = snapshot.version
+    }
+    snapshot.addresses
+  }
+
+  /** Perform the regular iteration for a specific block range:
+   * read the blocks from the Ethereum connector, store them into the DB.
+   *
+   * The range is split into the chunks of `pipelineChunkSize` blocks; while some chunk is being stored into the DB,
+   * up to `pipelineMaxInFlight` next chunks are being read from Ethereum node (and filtered) in background.
+   * Storing is always performed sequentially, in the order of blocks, and in the caller thread
+   * (so the DB session is never shared between threads).
+   * Each chunk is waited for at most [[AbstractSyncer.CHUNK_READ_TIMEOUT]].
+   * If any chunk fails to be read or stored, the remaining chunks are abandoned
+   * (the ones not being read yet are never read).
+   *
+   * If syncing fails, the blocks stored before the failure (together with their progress
+   * and the balance checkpoints) are kept in the transaction, and may be committed by the caller;
+   * just like when each block was stored separately.
    *
    * @return whether syncing of the blocks succeeded.
    */
   protected[this] def syncBlocks(
                                   blocksToSync: dlt.EthereumBlock.BlockNumberRange
+                                )(implicit session: DBSession): Boolean =
+    syncBlocks(blocksToSync, getTrackedAddresses(), advanceProgress = true)
+
+  /** Perform the regular iteration for a specific block range, like the simpler `syncBlocks` does;
+   * but for the predefined set of tracked addresses.
+   *
+   * @param advanceProgress whether the syncing progress of the tracked addresses should be advanced
+   *                        after storing the blocks; if `false`, this is the caller responsibility.
+   */
+  protected[this] def syncBlocks(
+                                  blocksToSync: dlt.EthereumBlock.BlockNumberRange,
+                                  trackedAddresses: AddressSet,
+                                  advanceProgress: Boolean
                                 )(implicit session: DBSession): Boolean = {
-    val trackedAddresses: Set[String] = dbStorage.trackedAddresses.getJustAddresses
+    logger.debug(s"FSM: syncBlocks - blocks $blocksToSync with ${trackedAddresses.size} tracked addresses")
 
-    logger.debug(s"FSM: syncBlocks - blocks $blocksToSync with tracked addresses $trackedAddresses")
+    val syncStartNanotime = System.nanoTime
+    // Measured in the fetching threads, so must be thread-safe
+    val readNanos = new AtomicLong()
+    var storeNanos = 0L
+    var transactionsCount = 0
 
-    // Were all of the blocks read and stored well?
-    val successes: Seq[Boolean] = ethereumConnector.readBlocks(blocksToSync, trackedAddresses) match {
-      case None =>
-        logger.error(s"Cannot read blocks $blocksToSync")
-        Seq(false)
-      case Some(blocks: Seq[SingleBlockData]) => blocks.map { case (block, transactions) =>
-        try {
-          logger.debug(s"Reading block $block: txes $transactions")
-
-          val thisBlockInDbOpt = dbStorage.blocks.getBlockByNumber(block.number)
-          val prevBlockInDbOpt = dbStorage.blocks.getBlockByNumber(block.number - 1)
-
-          logger.debug(s"Storing block: $block; " +
-            s"block may be present as $thisBlockInDbOpt, " +
-            s"parent may be present as $prevBlockInDbOpt")
-
-          val addingBlockSuccess: Boolean = (thisBlockInDbOpt, prevBlockInDbOpt) match {
-            case (None, None) =>
-              // This is the simplest case: this is probably the very first block in the DB
-              logger.debug(s"Adding first block ${block.number}: " +
-                s"neither it nor previous block exist in the DB")
-              dbStorage.blocks.addBlock(block.withoutParentHash)
-              true
-            case (None, Some(prevBlockInDb)) if prevBlockInDb.hash == block.parentHash.get =>
-              // Another simplest case: second and further blocks in the DB.
-              // Very new block, and its parent matches the existing one
-              logger.debug(s"Adding new block ${block.number}; parent block ${block.number - 1} " +
-                s"exists already with proper hash")
-              dbStorage.blocks.addBlock(block)
-              true
-            case (Some(thisBlockInDb), _) if thisBlockInDb.hash == block.hash =>
-              logger.debug(s"Block ${block.number} exists already in the DB " +
-                s"with the same hash ${block.hash}; " +
-                "no need to readd the block itself")
-              true
-            case (Some(thisBlockInDb), _) if thisBlockInDb.hash != block.hash =>
-              logger.debug(s"Block ${block.number} exists already in the DB " +
-                s"but with ${thisBlockInDb.hash} rather than ${block.hash}; " +
-                "need to wipe some blocks maybe!")
-              false
-            case (None, Some(prevBlockInDb)) if prevBlockInDb.hash != block.parentHash.get =>
-              logger.debug(s"Adding new block ${block.number}: " +
-                s"expecting parent block to be ${prevBlockInDb.hash} but it is ${block.parentHash.get}; " +
-                "need to wipe some blocks maybe!")
-              false
-            case other =>
-              logger.debug(s"No idea what's up with $thisBlockInDbOpt and $prevBlockInDbOpt")
-              false
-          } // addingBlockSuccess
-
-          if (!addingBlockSuccess) {
-            // Bail out early
-            false
-          } else {
-            logger.debug(s"Now trying to store the transactions: $transactions")
-            for (tx <- transactions) {
-              dbStorage.transactions.addTransaction(tx, block.hash)
-              dbStorage.txLogs.addTxLogs(block.number, tx.txhash, tx.txLogs)
-            }
-            dbStorage.state.advanceProgress(block.number, trackedAddresses)
-            true
+    val chunks: Iterator[dlt.EthereumBlock.BlockNumberRange] =
+      if (blocksToSync.isEmpty) Iterator.empty
+      else (blocksToSync.start to blocksToSync.last by pipelineChunkSize)
+        .iterator
+        .map(chunkStart => chunkStart to Math.min(chunkStart + pipelineChunkSize - 1, blocksToSync.last))
+
+    // The chunks being read from Ethereum node now; never more than `pipelineMaxInFlight` of them.
+    val inFlight = mutable.Queue.empty[(dlt.EthereumBlock.BlockNumberRange, Future[Option[Seq[SingleBlockData]]])]
+    // Set on failure; the chunks still waiting for a fetching thread are not read then.
+    val abandoned = new AtomicBoolean(false)
+
+    def fetchNextChunk(): Unit = if (chunks.hasNext) {
+      val chunk = chunks.next()
+      inFlight.enqueue(chunk -> Future {
+        if (abandoned.get) {
+          None
+        } else {
+          val readStartNanotime = System.nanoTime
+          val result = ethereumConnector.readBlocks(chunk, trackedAddresses)
+          readNanos.addAndGet(System.nanoTime - readStartNanotime)
+          result
+        }
+      }(fetchExecutionContext))
+    }
+
+    for (_ <- 1 to pipelineMaxInFlight) fetchNextChunk()
+
+    var success = true
+    // The last block stored in the DB so far (all the blocks before it are stored too)
+    var lastStoredBlock: Option[Int] = None
+    while (success && inFlight.nonEmpty) {
+      val (chunk, chunkFuture) = inFlight.dequeue()
+      val chunkReadResult: Option[Seq[SingleBlockData]] = try {
+        Await.result(chunkFuture, AbstractSyncer.CHUNK_READ_TIMEOUT)
+      } catch {
+        case NonFatal(e) =>
+          logger.error(s"Unexpected error reading blocks $chunk", e)
+          None
+      }
+
+      success = chunkReadResult match {
+        case None =>
+          logger.error(s"Cannot read blocks $chunk")
+          false
+        case Some(blocks) =>
+          // Keep the node busy with the next chunk while we are storing this one
+          fetchNextChunk()
+
+          val storeStartNanotime = System.nanoTime
+          val storedCount = storeBlocks(blocks, trackedAddresses, advanceProgress)
+          storeNanos += System.nanoTime - storeStartNanotime
+          transactionsCount += blocks.map { case (_, transactions) => transactions.size }.sum
+          // If the chunk is not stored fully, the loop stops here;
+          // and the balance checkpoints are updated only till the last stored block.
+          if (storedCount > 0) {
+            lastStoredBlock = Some(blocks(storedCount - 1)._1.number)
           }
-        } catch {
-          case NonFatal(e) =>
-            logger.error(s"Unexpected error", e)
-            false
+          storedCount == blocks.size
+      }
+    }
+
+    if (!success && inFlight.nonEmpty) {
+      // Don’t let the abandoned chunks keep loading the node and the fetching threads
+      abandoned.set(true)
+      logger.debug(s"Abandoning the chunks ${inFlight.map(_._1).mkString(", ")}")
+      inFlight.clear()
+    }
+
+    // Updating the balance checkpoints makes the other syncers wait for our DB transaction to complete;
+    // so this is done only once, after all the blocks are stored.
+    for (lastBlock <- lastStoredBlock) {
+      val storeStartNanotime = System.nanoTime
+      try {
+        dbStorage.balances.updateBalanceCheckpoints(blocksToSync.head, lastBlock)
+      } catch {
+        case NonFatal(e) =>
+          logger.error(s"Cannot update balance checkpoints for ${blocksToSync.head} to $lastBlock", e)
+          success = false
+      }
+      storeNanos += System.nanoTime - storeStartNanotime
+    }
+
+    if (success) {
+      val overallNanos = System.nanoTime - syncStartNanotime
+      // The phases are measured just to see what dominates; the batch size is adapted to the overall duration
+      logger.debug(s"Synced ${blocksToSync.size} blocks with $transactionsCount transactions in " +
+        s"${TimeUnit.NANOSECONDS.toMillis(overallNanos)} ms " +
+        s"(reading ${TimeUnit.NANOSECONDS.toMillis(readNanos.get)} ms, " +
+        s"storing ${TimeUnit.NANOSECONDS.toMillis(storeNanos)} ms, " +
+        s"${if (storeNanos >= readNanos.get) "storing" else "reading"} dominates)")
+      batchSizeController.record(blocks = blocksToSync.size, overallNanos = overallNanos)
+    }
+
+    success
+  }
+
+  /** Store the blocks (already read from the Ethereum connector) into the DB, with their transactions.
+   *
+   * Each block is validated against the blocks present in the DB (or the previous blocks being stored);
+   * all the blocks till the first invalid one are then stored in bulk.
+   *
+   * @param advanceProgress whether the syncing progress should be advanced for the stored blocks.
+   * @return how many first blocks have been stored (all of them if storing succeeded);
+   *         0 if storing failed unexpectedly (as nothing can be relied upon then).
+   */
+  private[this] def storeBlocks(
+                                 blocks: Seq[SingleBlockData],
+                                 trackedAddresses: AddressSet,
+                                 advanceProgress: Boolean
+                               )(implicit session: DBSession): Int =
+    if (blocks.isEmpty) {
+      0
+    } else try {
+      val knownBlocks: mutable.Map[Int, dlt.EthereumBlock] = mutable.Map.empty ++
+        dbStorage.blocks.getBlocksByNumberRange(blocks.head._1.number - 1, blocks.last._1.number)
+
+      val validBlocks = mutable.ArrayBuffer.empty[SingleBlockData]
+      blocks.iterator
+        .map { case (block, transactions) =>
+          validateBlock(block, knownBlocks.get(block.number), knownBlocks.get(block.number - 1))
+            .map { blockToStore =>
+              knownBlocks(blockToStore.number) = blockToStore
+              (blockToStore, transactions)
+            }
         }
+        .takeWhile(_.isDefined) // Bail out early
+        .foreach(validBlocks ++= _)
+
+      logger.debug(s"Now trying to store ${validBlocks.size} blocks of ${blocks.size}, with their transactions")
+      dbStorage.blocks.addBlocksWithData(validBlocks.toSeq)
+      if (advanceProgress && validBlocks.nonEmpty) {
+        dbStorage.state.advanceProgressRange(validBlocks.head._1.number, validBlocks.last._1.number, trackedAddresses)
       }
-    } // successes
+      validBlocks.size
+    } catch {
+      case NonFatal(e) =>
+        logger.error(s"Unexpected error", e)
+        0
+    }
+
+  /** Check whether the block (read from the Ethereum connector) may be stored into the DB.
+   *
+   * @param thisBlockInDbOpt the block with the same number, if it is present in the DB already.
+   * @param prevBlockInDbOpt the parent block, if it is present in the DB already.
+   * @return the block to store (maybe, altered for storage), or `None` if the block cannot be stored.
+   */
+  private[this] def validateBlock(
+                                   block: dlt.EthereumBlock,
+                                   thisBlockInDbOpt: Option[dlt.EthereumBlock],
+                                   prevBlockInDbOpt: Option[dlt.EthereumBlock]
+                                 ): Option[dlt.EthereumBlock] = {
+    logger.debug(s"Storing block: $block; " +
+      s"block may be present as $thisBlockInDbOpt, " +
+      s"parent may be present as $prevBlockInDbOpt")
 
-    successes.forall(identity)
+    (thisBlockInDbOpt, prevBlockInDbOpt) match {
+      case (None, None) =>
+        // This is the simplest case: this is probably the very first block in the DB
+        logger.debug(s"Adding first block ${block.number}: " +
+          s"neither it nor previous block exist in the DB")
+        Some(block.withoutParentHash)
+      case (None, Some(prevBlockInDb)) if prevBlockInDb.hash == block.parentHash.get =>
+        // Another simplest case: second and further blocks in the DB.
+        // Very new block, and its parent matches the existing one
+        logger.debug(s"Adding new block ${block.number}; parent block ${block.number - 1} " +
+          s"exists already with proper hash")
+        Some(block)
+      case (Some(thisBlockInDb), _) if thisBlockInDb.hash == block.hash =>
+        logger.debug(s"Block ${block.number} exists already in the DB " +
+          s"with the same hash ${block.hash}; " +
+          "no need to readd the block itself")
+        Some(thisBlockInDb)
+      case (Some(thisBlockInDb), _) if thisBlockInDb.hash != block.hash =>
+        logger.debug(s"Block ${block.number} exists already in the DB " +
+          s"but with ${thisBlockInDb.hash} rather than ${block.hash}; " +
+          "need to wipe some blocks maybe!")
+        None
+      case (None, Some(prevBlockInDb)) if prevBlockInDb.hash != block.parentHash.get =>
+        logger.debug(s"Adding new block ${block.number}: " +
+          s"expecting parent block to be ${prevBlockInDb.hash} but it is ${block.parentHash.get}; " +
+          "need to wipe some blocks maybe!")
+        None
+      case other =>
+        logger.debug(s"No idea what's up with $thisBlockInDbOpt and $prevBlockInDbOpt")
+        None
+    }
   }
 }
 
 object AbstractSyncer {
 
+  /** How long a single chunk of blocks may be read from Ethereum node (including waiting for a fetching thread).
+   * Reading a chunk takes a few node requests (e.g. the block headers, then the transfer logs),
+   * each one bounded by [[AbstractEthereumNodeConnector.NETWORK_TIMEOUT]].
+   */
+  val CHUNK_READ_TIMEOUT: FiniteDuration = AbstractEthereumNodeConnector.NETWORK_TIMEOUT * 4
+
+  /** Create a fixed-size thread pool for the blocking operations, with daemon threads named after `name`. */
+  def newDaemonExecutionContext(threads: Int, name: String): ExecutionContextExecutorService =
+    ExecutionContext.fromExecutorService(Executors.newFixedThreadPool(threads, { (r: Runnable) =>
+      val thread = new Thread(r, name)
+      thread.setDaemon(true)
+      thread
+    }))
+
   trait SyncerState {
     @volatile var ethereumNodeStatus: Option[SystemStatus.Blockchain]
   }
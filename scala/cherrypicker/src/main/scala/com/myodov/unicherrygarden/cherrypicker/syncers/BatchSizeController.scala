@@ -0,0 +1,65 @@
+package com.myodov.unicherrygarden.cherrypicker.syncers
+
+import java.util.concurrent.TimeUnit
+
+import com.typesafe.scalalogging.LazyLogging
+
+import scala.concurrent.duration.{Duration, FiniteDuration}
+
+/** Chooses the size of the next batch of blocks to sync, adapting it to the measured syncing speed.
+ *
+ * The early Ethereum Mainnet blocks are nearly empty and are synced very fast, while the modern blocks are huge;
+ * so no single fixed batch size is good for both. After each batch synced in full, the batch size is changed
+ * so that the next batch is synced in about `targetBatchDuration` (at the same speed);
+ * but it is never changed more than twice at once, and always stays between `minBatchSize` and `maxBatchSize`.
+ *
+ * May be used from multiple threads simultaneously.
+ *
+ * @param initialBatchSize    the batch size to start with.
+ * @param minBatchSize        the batch size never goes below this.
+ * @param maxBatchSize        the batch size never goes above this.
+ * @param targetBatchDuration how long syncing of a single batch should ideally take.
+ */
+private class BatchSizeController(initialBatchSize: Int,
+                                  minBatchSize: Int,
+                                  maxBatchSize: Int,
+                                  targetBatchDuration: FiniteDuration)
+  extends LazyLogging {
+  require(minBatchSize >= 1 && minBatchSize <= maxBatchSize, (minBatchSize, maxBatchSize))
+  require(targetBatchDuration > Duration.Zero, targetBatchDuration)
+
+  @volatile private[this] var batchSize: Int = clamp(initialBatchSize)
+
+  @inline private[this] def clamp(candidate: Int): Int = Math.max(minBatchSize, Math.min(maxBatchSize, candidate))
+
+  /** The size of the next batch to sync. */
+  def current: Int = batchSize
+
+  /** Take into account how the latest batch has been synced.
+   *
+   * Only the overall duration is used for adapting: the target is the wall-clock time of the batch,
+   * and reading and storing overlap, so no combination of their durations predicts it better.
+   *
+   * @param blocks       how many blocks have been synced.
+   * @param overallNanos how long the whole batch has been synced, in nanoseconds.
+   */
+  def record(blocks: Int,
+             overallNanos: Long): Unit = synchronized {
+    val prevBatchSize = batchSize
+
+    if (blocks < prevBatchSize || overallNanos <= 0) {
+      // The batch was shortened (e.g. reached the latest block); its speed is not representative.
+      logger.debug(s"Synced $blocks blocks (of batch size $prevBatchSize), not adapting the batch size")
+    } else {
+      val nanosPerBlock = overallNanos.toDouble / blocks
+      val idealBatchSize = (targetBatchDuration.toNanos / nanosPerBlock).toInt
+      val nextBatchSize = clamp(Math.max(prevBatchSize / 2, Math.min(prevBatchSize * 2, idealBatchSize)))
+      batchSize = nextBatchSize
+
+      logger.debug(s"Synced $blocks blocks in ${Duration(overallNanos, TimeUnit.NANOSECONDS).toMillis} ms; " +
+        s"batch size $prevBatchSize -> $nextBatchSize")
+    }
+  }
+
+  override def toString: String = s"BatchSizeController($batchSize in $minBatchSize..$maxBatchSize)"
+}
@@ -3,34 +3,48 @@ package com.myodov.unicherrygarden.cherrypicker.syncers
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicBoolean
 
-import akka.actor.typed.Behavior
+import akka.actor.typed.{Behavior, PostStop}
 import akka.actor.typed.scaladsl.Behaviors
 import com.myodov.unicherrygarden.api.DBStorage.Progress
 import com.myodov.unicherrygarden.api.GardenMessages.{HeadSyncerMessage, IterateHeadSyncer}
 import com.myodov.unicherrygarden.api.dlt.EthereumBlock
 import com.myodov.unicherrygarden.api.types.SystemStatus
 import com.myodov.unicherrygarden.api.{DBStorage, DBStorageAPI, GardenMessages, dlt}
+import com.myodov.unicherrygarden.cherrypicker.TrackedAddressIndex
 import com.myodov.unicherrygarden.{AbstractEthereumNodeConnector, Web3ReadOperations}
 import scalikejdbc.{DB, DBSession}
 
 import scala.collection.immutable.SortedMap
-import scala.concurrent.duration.Duration
+import scala.concurrent.duration.{Duration, FiniteDuration}
 import scala.language.postfixOps
 
 /** Performs the “Head sync” – syncing the newest blocks, which haven’t been synced yet.
  *
- * @param maxReorg maximum length of reorganization in Ethereum blockchain that we support and allow.
+ * @param trackedAddressIndex the in-memory index of the tracked addresses, shared with CherryPicker.
+ * @param maxReorg  maximum length of reorganization in Ethereum blockchain that we support and allow.
+ * @param batchSize the initial size of the batch of blocks to sync (then adapted between `minBatchSize`
+ *                  and `maxBatchSize` according to the syncing speed).
  * @note For more details please read [[/docs/unicherrypicker-synchronization.md]] document.
  */
 private class HeadSyncer(dbStorage: DBStorageAPI,
                          ethereumConnector: AbstractEthereumNodeConnector with Web3ReadOperations,
-                         maxReorg: Int)
+                         trackedAddressIndex: TrackedAddressIndex,
+                         maxReorg: Int,
+                         pipelineChunkSize: Int,
+                         pipelineMaxInFlight: Int,
+                         minBatchSize: Int,
+                         maxBatchSize: Int,
+                         targetBatchDuration: FiniteDuration)
                         (batchSize: Int,
                          catchUpBrakeMaxLead: Int)
   extends AbstractSyncer[HeadSyncerMessage, HeadSyncer.State, IterateHeadSyncer](
     dbStorage,
     ethereumConnector,
-    state = HeadSyncer.State()
+    state = HeadSyncer.State(),
+    trackedAddressIndex,
+    pipelineChunkSize,
+    pipelineMaxInFlight,
+    new BatchSizeController(batchSize, minBatchSize, maxBatchSize, targetBatchDuration)
   ) {
 
   import com.myodov.unicherrygarden.api.GardenMessages._
@@ -54,6 +68,10 @@ private class HeadSyncer(dbStorage: DBStorageAPI,
           logger.debug(s"TailSyncer notified us it is going to sync $optRange")
           state.tailSyncStatus = optRange
           Behaviors.same
+      }.receiveSignal {
+        case (_, PostStop) =>
+          onStop()
+          Behaviors.same
       }
     }
   }
@@ -86,16 +104,22 @@ private class HeadSyncer(dbStorage: DBStorageAPI,
   override final def iterate(): Behavior[HeadSyncerMessage] = {
     logger.debug(s"FSM: iterate - running an iteration with $state")
 
+    ensureBlockPartitions()
+
     // Since this moment, we may want to use DB in a single atomic DB transaction;
     // even though this will involve querying the Ethereum node, maybe even multiple times.
-    DB localTx { implicit session =>
+    val behavior = DB localTx { implicit session =>
       // For more details on reorg handling phases, read the [[/docs/unicherrypicker-synchronization.md]] document.
 
       val iterationStartTime = System.nanoTime
 
+      val iterationProgress = dbStorage.progress.getProgress
+      // Whether the progress has been changed by the rewind (so `iterationProgress` is not actual anymore)
+      var rewound = false
+
       // Do the reorg-rewind phase; see if it already finalizes the behavior to return
       val reorgRewindProvidedBehaviorOpt = withValidatedProgressAndSyncingState[Option[Behavior[HeadSyncerMessage]]](
-        dbStorage.progress.getProgress,
+        iterationProgress,
         state.ethereumNodeStatus,
         onError = () => Some(pauseThenReiterateOnError())
       ) { (overallProgress, nodeSyncingStatus) =>
@@ -126,6 +150,7 @@ private class HeadSyncer(dbStorage: DBStorageAPI,
               logger.debug(s"Need reorg rewind for $invalidRange")
               // Reorg/rewind, phase 4/4: “rewind”
               if (reorgRewind(invalidRange)) {
+                rewound = true
                 logger.debug(s"We've successfully rewound $invalidRange; let’s go sync")
                 // We’ve just completed rewind of some blocks, maybe like 100.
                 // It seems obvious to go to `pauseThenReiterateOnError()` phase,..
@@ -148,25 +173,29 @@ private class HeadSyncer(dbStorage: DBStorageAPI,
 
       // Inside `reorgRewindProvidedBehaviorOpt`, we already have a suggested behavior to return... maybe.
       // If we don’t have it, we just go on with the regular `headSync`.
-      // Note that at this point `dbStorage.progress.getProgress` can be inactual (if rewind happened),
+      // Note that at this point `iterationProgress` can be inactual (if rewind happened),
       // we cannot trust it and may need to re-read it.
-      reorgRewindProvidedBehaviorOpt match {
+      val iterationBehavior = reorgRewindProvidedBehaviorOpt match {
         case Some(rrwBehavior) =>
           rrwBehavior
         case None =>
           // Reorg/rewind thinks it is okay for us to move on with actual head-syncing;
           // so let’s head-sync what we can.
-          // But we should do it after rereading `dbStorage.progress.getProgress`
+          // But if the rewind happened, we should do it after rereading `dbStorage.progress.getProgress`
           // (and `state.ethereumNodeStatus`, just to be sure)!
           withValidatedProgressAndSyncingState[Behavior[HeadSyncerMessage]](
-            dbStorage.progress.getProgress,
+            if (rewound) dbStorage.progress.getProgress else iterationProgress,
             state.ethereumNodeStatus,
             onError = pauseThenReiterateOnError
           ) { (overallProgress, nodeSyncingStatus) =>
             headSync(overallProgress, nodeSyncingStatus, iterationStartTime)
           }
       }
+      refreshProgressSummary()
+      iterationBehavior
     }
+    publishProgress()
+    behavior
   }
 
   /** Check if we even need to check the blockchain for reorganization. */
@@ -274,6 +303,7 @@ private class HeadSyncer(dbStorage: DBStorageAPI,
     // headSync is called from within `withValidatedProgressAndSyncingState`, so we can rely upon
     // overall.from being non-empty (and thus `headSyncerStartBlock` too)
     val syncStartBlock = progress.headSyncerStartBlock.get
+    val batchSize = batchSizeController.current
     val syncEndBlock = Math.min(syncStartBlock + batchSize - 1, nodeSyncingStatus.syncingData.currentBlock)
     val headSyncingRange: EthereumBlock.BlockNumberRange = syncStartBlock to syncEndBlock
     val tailSyncStatus: Option[dlt.EthereumBlock.BlockNumberRange] = state.tailSyncStatus
@@ -348,8 +378,14 @@ object HeadSyncer {
   /** Main constructor. */
   @inline def apply(dbStorage: DBStorageAPI,
                     ethereumConnector: AbstractEthereumNodeConnector with Web3ReadOperations,
-                    maxReorg: Int)
+                    trackedAddressIndex: TrackedAddressIndex,
+                    maxReorg: Int,
+                    pipelineChunkSize: Int,
+                    pipelineMaxInFlight: Int,
+                    minBatchSize: Int,
+                    maxBatchSize: Int,
+                    targetBatchDuration: FiniteDuration)
                    (batchSize: Int,
                     catchUpBrakeMaxLead: Int): Behavior[GardenMessages.HeadSyncerMessage] =
-    new HeadSyncer(dbStorage, ethereumConnector, maxReorg)(batchSize, catchUpBrakeMaxLead).launch()
+    new HeadSyncer(dbStorage, ethereumConnector, trackedAddressIndex, maxReorg, pipelineChunkSize, pipelineMaxInFlight, minBatchSize, maxBatchSize, targetBatchDuration)(batchSize, catchUpBrakeMaxLead).launch()
 }
@@ -3,38 +3,73 @@ package com.myodov.unicherrygarden.cherrypicker.syncers
 import java.util.concurrent.TimeUnit
 
 import akka.actor.typed.scaladsl.Behaviors
-import akka.actor.typed.{ActorRef, Behavior}
+import akka.actor.typed.{ActorRef, Behavior, PostStop}
 import com.myodov.unicherrygarden.api.DBStorage.Progress
 import com.myodov.unicherrygarden.api.DBStorageAPI
 import com.myodov.unicherrygarden.api.GardenMessages.{IterateTailSyncer, TailSyncerMessage, TailSyncing}
-import com.myodov.unicherrygarden.api.dlt.EthereumBlock
+import com.myodov.unicherrygarden.api.dlt.{AddressSet, EthereumBlock}
 import com.myodov.unicherrygarden.api.types.SystemStatus
+import com.myodov.unicherrygarden.cherrypicker.TrackedAddressIndex
 import com.myodov.unicherrygarden.{AbstractEthereumNodeConnector, Web3ReadOperations}
 import scalikejdbc.{DB, DBSession}
 
-import scala.concurrent.duration.Duration
+import scala.concurrent.duration.{Duration, FiniteDuration}
+import scala.concurrent.{Await, ExecutionContextExecutorService, Future}
 import scala.language.postfixOps
+import scala.util.control.NonFatal
 
 /** Performs the “Tail sync” – (re)syncing the older blocks, which have to be resynced
  * due to some currencies or tokens added.
  *
  * @note For more details please read [[/docs/unicherrypicker-synchronization.md]] document.
+ * @param trackedAddressIndex the in-memory index of the tracked addresses, shared with CherryPicker.
  * @param maxReorg   maximum length of reorganization in Ethereum blockchain that we support and allow.
+ * @param batchSize  the initial size of the batch of blocks to sync (then adapted between `minBatchSize`
+ *                   and `maxBatchSize` according to the syncing speed).
+ * @param workers    how many workers may sync the blocks in parallel (each one syncing its own `batchSize` range).
+ *                   Used only for the blocks which are all stored in the DB already (e.g. when some tracked address
+ *                   is added, which has to be synced since some old block);
+ *                   otherwise (or if `1`), the blocks are synced sequentially.
  * @param headSyncer the actor of HeadSyncer, to which this TailSyncer will report about its syncing plans.
  */
 private class TailSyncer(dbStorage: DBStorageAPI,
                          ethereumConnector: AbstractEthereumNodeConnector with Web3ReadOperations,
-                         maxReorg: Int)
+                         trackedAddressIndex: TrackedAddressIndex,
+                         maxReorg: Int,
+                         pipelineChunkSize: Int,
+                         pipelineMaxInFlight: Int,
+                         minBatchSize: Int,
+                         maxBatchSize: Int,
+                         targetBatchDuration: FiniteDuration)
                         (batchSize: Int,
+                         workers: Int,
                          headSyncer: ActorRef[TailSyncing])
   extends AbstractSyncer[TailSyncerMessage, TailSyncer.State, IterateTailSyncer](
     dbStorage,
     ethereumConnector,
-    state = TailSyncer.State()
+    state = TailSyncer.State(),
+    trackedAddressIndex,
+    pipelineChunkSize,
+    pipelineMaxInFlight,
+    new BatchSizeController(batchSize, minBatchSize, maxBatchSize, targetBatchDuration)
   ) {
 
+  assert(workers >= 1, workers)
+
   import com.myodov.unicherrygarden.api.GardenMessages._
 
+  /** Each worker needs its own chunks to be read in advance. */
+  override protected[this] def fetchParallelism: Int = super.fetchParallelism * workers
+
+  /** The threads of the workers, each storing its blocks in its own DB transaction. */
+  private[this] lazy val workersExecutionContext: ExecutionContextExecutorService =
+    AbstractSyncer.newDaemonExecutionContext(workers, s"${this.getClass.getSimpleName}-worker")
+
+  override protected[this] def onStop(): Unit = {
+    super.onStop()
+    workersExecutionContext.shutdown()
+  }
+
   final def launch(): Behavior[TailSyncerMessage] = {
     logger.debug(s"FSM: launch - ${this.getClass.getSimpleName}")
 
@@ -51,6 +86,10 @@ private class TailSyncer(dbStorage: DBStorageAPI,
           logger.debug(s"TailSyncer received Ethereum node syncing status: $message")
           state.ethereumNodeStatus = Some(status)
           Behaviors.same
+      }.receiveSignal {
+        case (_, PostStop) =>
+          onStop()
+          Behaviors.same
       }
     }
   }
@@ -63,12 +102,14 @@ private class TailSyncer(dbStorage: DBStorageAPI,
   override final def iterate(): Behavior[TailSyncerMessage] = {
     logger.debug(s"FSM: iterate - running an iteration with $state")
 
+    ensureBlockPartitions()
+
     // Since this moment, we may want to use DB in a single atomic DB transaction;
     // even though this will involve querying the Ethereum node, maybe even multiple times.
-    DB localTx { implicit session =>
+    val behavior = DB localTx { implicit session =>
       val iterationStartTime = System.nanoTime
 
-      withValidatedProgressAndSyncingState[Behavior[TailSyncerMessage]](
+      val iterationBehavior = withValidatedProgressAndSyncingState[Behavior[TailSyncerMessage]](
         dbStorage.progress.getProgress,
         state.ethereumNodeStatus,
         onError = pauseThenReiterateOnError
@@ -77,7 +118,11 @@ private class TailSyncer(dbStorage: DBStorageAPI,
         logger.debug(s"Ethereum node is reachable: $overallProgress, $nodeSyncingStatus")
         tailSync(overallProgress, nodeSyncingStatus, iterationStartTime)
       }
+      refreshProgressSummary()
+      iterationBehavior
     }
+    publishProgress()
+    behavior
   }
 
   /** Do the actual  tail sync syncing phase.
@@ -98,12 +143,12 @@ private class TailSyncer(dbStorage: DBStorageAPI,
     // There may be multiple options of blocks to choose:
     // 1. Just the next block to read.
     val firstUnreadBlock: Option[Int] = progress.blocks.to.map(_ + 1)
-    // 2. We never started some (currency, tracked address) pair?
-    // (there is not even a record in ucg_currency_tracked_address_progress):
+    // 2. We never started some tracked address?
+    // (it is not synced in any currency, i.e. not in any ucg_progress_bucket):
     // Use the smallest from_block (from either currency or tracked address).
     val firstNeverCTAStartedBlock: Option[Int] = dbStorage.progress.getFirstBlockResolvingSomeNeverStartedCTAddress
     // 3. We never completed some (currency, tracked address) pair?
-    // (a record in ucg_currency_tracked_address_progress is present but with `synced_to_block_number IS NULL`):
+    // (the ucg_progress_bucket of the address has no `synced_to_block_number` for the currency):
     // Use the least from_block (from either currency or tracked address).
     val firstNeverCTASyncedBlock: Option[Int] = dbStorage.progress.getFirstBlockResolvingSomeNeverSyncedCTAddress
     // 4. Some of CTA (currency_tracked_address) to-blocks is smaller than others?
@@ -134,7 +179,18 @@ private class TailSyncer(dbStorage: DBStorageAPI,
     logger.debug(s"Progress is $progress: choosing between $blocksToCompare; headsyncer will start from ${progress.headSyncerStartBlock}")
 
     val syncStartBlock = blocksToCompare.flatten.minOption.getOrElse(overallFrom)
-    val syncEndBlock = Math.min(syncStartBlock + batchSize - 1, nodeSyncingStatus.syncingData.currentBlock)
+    val batchSize = batchSizeController.current
+    // If all the blocks are present in the DB already, multiple workers may sync them in parallel,
+    // each one with its own batch.
+    val canSyncInParallel = workers > 1 && progress.blocks.from.exists(_ <= syncStartBlock)
+    val syncEndBlock = if (canSyncInParallel) {
+      Math.min(
+        Math.min(syncStartBlock + batchSize * workers - 1, nodeSyncingStatus.syncingData.currentBlock),
+        progress.blocks.to.get // `blocks.from` is defined, so `blocks.to` is defined too
+      )
+    } else {
+      Math.min(syncStartBlock + batchSize - 1, nodeSyncingStatus.syncingData.currentBlock)
+    }
 
     (syncStartBlock, syncEndBlock) match {
       case (start, endSmallerThanStart) if endSmallerThanStart < start =>
@@ -156,7 +212,13 @@ private class TailSyncer(dbStorage: DBStorageAPI,
 
         // Do the actual syncing
 
-        if (syncBlocks(tailSyncingRange)) {
+        val syncSuccess = if (canSyncInParallel && tailSyncingRange.size > batchSize) {
+          syncBlocksInParallel(tailSyncingRange, batchSize)
+        } else {
+          syncBlocks(tailSyncingRange)
+        }
+
+        if (syncSuccess) {
           // TailSync completed successfully. Should we pause, or instantly go to the next round?
           dbStorage.state.setLastHeartbeatAt
 
@@ -178,6 +240,56 @@ private class TailSyncer(dbStorage: DBStorageAPI,
         }
     }
   }
+
+  /** Sync the blocks (all of which must be present in the DB already) by multiple workers in parallel:
+   * the range is split into the `batchSize` sub-ranges, each one stored by some worker in its own DB transaction.
+   * The syncing progress is advanced only by the coordinator (in the `session`), and only for the
+   * contiguous prefix of the sub-ranges that have been synced successfully.
+   *
+   * @return whether syncing of all the blocks succeeded.
+   */
+  private[this] final def syncBlocksInParallel(
+                                                blocksToSync: EthereumBlock.BlockNumberRange,
+                                                batchSize: Int
+                                              )(implicit session: DBSession): Boolean = {
+    val trackedAddresses: AddressSet = getTrackedAddresses()
+
+    val subRanges: Seq[EthereumBlock.BlockNumberRange] =
+      (blocksToSync.start to blocksToSync.last by batchSize)
+        .map(subStart => subStart to Math.min(subStart + batchSize - 1, blocksToSync.last))
+
+    logger.debug(s"Syncing $blocksToSync in parallel: $subRanges")
+
+    // The workers never change the overall progress summary (all the blocks are in the DB already,
+    // and the progress is advanced by the coordinator); so they never wait for each other on it.
+    val subRangeFutures: Seq[(EthereumBlock.BlockNumberRange, Future[Boolean])] = subRanges.map { subRange =>
+      subRange -> Future {
+        DB localTx { implicit workerSession =>
+          syncBlocks(subRange, trackedAddresses, advanceProgress = false)
+        }
+      }(workersExecutionContext)
+    }
+
+    val subRangeResults: Seq[(EthereumBlock.BlockNumberRange, Boolean)] = subRangeFutures.map {
+      case (subRange, subRangeFuture) =>
+        subRange -> (try {
+          Await.result(subRangeFuture, Duration.Inf)
+        } catch {
+          case NonFatal(e) =>
+            logger.error(s"Unexpected error syncing $subRange", e)
+            false
+        })
+    }
+
+    val syncedPrefix = subRangeResults.takeWhile { case (_, success) => success }.map { case (subRange, _) => subRange }
+    if (syncedPrefix.nonEmpty) {
+      dbStorage.state.advanceProgressRange(syncedPrefix.head.start, syncedPrefix.last.last, trackedAddresses)
+    }
+    if (syncedPrefix.size < subRanges.size) {
+      logger.error(s"Parallel TailSyncing failure: synced only $syncedPrefix of $subRangeResults")
+    }
+    syncedPrefix.size == subRanges.size
+  }
 }
 
 /** TailSyncer companion object. */
@@ -188,12 +300,20 @@ object TailSyncer {
 
   /** Main constructor.
    *
+   * @param workers    how many workers may sync the blocks in parallel.
    * @param headSyncer the actor of HeadSyncer, to which this TailSyncer will report about its syncing plans.
    */
   @inline def apply(dbStorage: DBStorageAPI,
                     ethereumConnector: AbstractEthereumNodeConnector with Web3ReadOperations,
-                    maxReorg: Int)
+                    trackedAddressIndex: TrackedAddressIndex,
+                    maxReorg: Int,
+                    pipelineChunkSize: Int,
+                    pipelineMaxInFlight: Int,
+                    minBatchSize: Int,
+                    maxBatchSize: Int,
+                    targetBatchDuration: FiniteDuration)
                    (batchSize: Int,
+                    workers: Int,
                     headSyncer: ActorRef[TailSyncing]): Behavior[TailSyncerMessage] =
-    new TailSyncer(dbStorage, ethereumConnector, maxReorg)(batchSize, headSyncer).launch()
+    new TailSyncer(dbStorage, ethereumConnector, trackedAddressIndex, maxReorg, pipelineChunkSize, pipelineMaxInFlight, minBatchSize, maxBatchSize, targetBatchDuration)(batchSize, workers, headSyncer).launch()
 }
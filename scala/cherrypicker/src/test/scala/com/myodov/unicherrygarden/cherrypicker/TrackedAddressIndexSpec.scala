@@ -0,0 +1,128 @@
+package com.myodov.unicherrygarden.cherrypicker
+
+import com.myodov.unicherrygarden.api.DBStorage.TrackedAddresses.TrackedAddress
+import com.myodov.unicherrygarden.api.DBStorageAPI
+import com.myodov.unicherrygarden.messages.cherrypicker.AddTrackedAddresses.StartTrackingAddressMode
+import org.scalatest.flatspec.AnyFlatSpec
+import scalikejdbc.DBSession
+
+import scala.concurrent.duration.Duration
+
+class TrackedAddressIndexSpec extends AnyFlatSpec {
+  private val addr1 = "0x9e3319636e2126e3c0bc9e3134aec5e1508a46c7"
+  private val addr2 = "0xd701edf8f9c5d834bcb9add73ddeff2d6b9c3d24"
+  private val addr3 = "0xaa9f5344e0a207b4d5d59cb00ea939a97e81c688"
+
+  /** The DB storage providing just the tracked addresses, and counting how many times they have been read. */
+  private class TrackedAddressesStorage(@volatile var addresses: Set[String]) extends DBStorageAPI {
+    @volatile var reads: Int = 0
+
+    /** Called whenever the addresses are read, after the `addresses` value has been taken. */
+    @volatile var onRead: () => Unit = () => ()
+
+    override val trackedAddresses: DBStorageAPI.TrackedAddresses = new DBStorageAPI.TrackedAddresses {
+      override def getJustAddresses(implicit session: DBSession): Set[String] = {
+        reads += 1
+        val result = addresses
+        onRead()
+        result
+      }
+
+      override def getTrackedAddresses(filterAddresses: Option[Set[String]],
+                                       includeComment: Boolean,
+                                       includeSyncedFrom: Boolean
+                                      )(implicit session: DBSession): List[TrackedAddress] = ???
+
+      override def getTrackedAddress(address: String)(implicit session: DBSession): Option[TrackedAddress] = ???
+
+      override def addTrackedAddress(address: String,
+                                     comment: Option[String],
+                                     mode: StartTrackingAddressMode,
+                                     fromBlock: Option[Int]
+                                    )(implicit session: DBSession): Boolean = ???
+
+      override def addTrackedAddresses(addresses: Seq[(String, Option[String])],
+                                       mode: StartTrackingAddressMode,
+                                       fromBlock: Option[Int]
+                                      )(implicit session: DBSession): Set[String] = ???
+    }
+
+    override val progress: DBStorageAPI.Progress = null
+    override val state: DBStorageAPI.State = null
+    override val currencies: DBStorageAPI.Currencies = null
+    override val blocks: DBStorageAPI.Blocks = null
+    override val transactions: DBStorageAPI.Transactions = null
+    override val txLogs: DBStorageAPI.TxLogs = null
+    override val balances: DBStorageAPI.Balances = null
+    override val transfers: DBStorageAPI.Transfers = null
+    override val plants: DBStorageAPI.Plants = null
+  }
+
+  "TrackedAddressIndex" should "load the addresses from the DB on the first use only" in {
+    val storage = new TrackedAddressesStorage(Set(addr1, addr2))
+    val index = new TrackedAddressIndex(storage)
+
+    val first = index.snapshot
+    assert(first.version == 1)
+    assert(first.addresses == Set(addr1, addr2))
+    assert(storage.reads == 1)
+
+    assert(index.snapshot eq first, "Reused until the reload period passes")
+    assert(storage.reads == 1)
+  }
+
+  it should "add the addresses without rereading the DB" in {
+    val storage = new TrackedAddressesStorage(Set(addr1))
+    val index = new TrackedAddressIndex(storage)
+    index.snapshot
+
+    val added = index.add(Set(addr2, addr3))
+    assert(added.version == 2)
+    assert(added.addresses == Set(addr1, addr2, addr3))
+    assert(index.snapshot eq added)
+    assert(storage.reads == 1)
+
+    assert(index.add(Set(addr2)).version == 2, "Adding the known addresses doesn't change the version")
+  }
+
+  it should "load the addresses from the DB if they are added before the first use" in {
+    // The DB contains the added addresses already
+    val storage = new TrackedAddressesStorage(Set(addr1, addr2))
+    val index = new TrackedAddressIndex(storage)
+
+    val added = index.add(Set(addr2))
+    assert(added.version == 1)
+    assert(added.addresses == Set(addr1, addr2))
+    assert(storage.reads == 1)
+  }
+
+  it should "reload the addresses periodically, noticing the ones added bypassing it" in {
+    val storage = new TrackedAddressesStorage(Set(addr1))
+    val index = new TrackedAddressIndex(storage, reloadPeriod = Duration.Zero)
+
+    assert(index.snapshot.version == 1)
+    assert(index.snapshot.version == 1, "Nothing changed in the DB")
+    assert(storage.reads == 2)
+
+    storage.addresses = Set(addr1, addr2)
+    val reloaded = index.snapshot
+    assert(reloaded.version == 2)
+    assert(reloaded.addresses == Set(addr1, addr2))
+  }
+
+  it should "keep the addresses added while the DB is being reread" in {
+    val storage = new TrackedAddressesStorage(Set(addr1))
+    val index = new TrackedAddressIndex(storage)
+    index.snapshot
+
+    // While rereading, some other address is added (and committed into the DB after we’ve read it)
+    storage.onRead = { () =>
+      storage.onRead = () => ()
+      storage.addresses = Set(addr1, addr2)
+      index.add(Set(addr2))
+    }
+    val reloaded = index.reload
+    assert(reloaded.addresses == Set(addr1, addr2))
+    assert(reloaded.version == 2)
+  }
+}
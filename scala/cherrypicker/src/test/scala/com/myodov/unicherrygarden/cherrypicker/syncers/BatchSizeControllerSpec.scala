@@ -0,0 +1,50 @@
+package com.myodov.unicherrygarden.cherrypicker.syncers
+
+import org.scalatest.flatspec.AnyFlatSpec
+
+import scala.concurrent.duration._
+import scala.language.postfixOps
+
+class BatchSizeControllerSpec extends AnyFlatSpec {
+  /** Record the batch of `blocks` blocks synced in `duration`. */
+  private def record(controller: BatchSizeController, blocks: Int, duration: FiniteDuration): Unit =
+    controller.record(blocks = blocks, overallNanos = duration.toNanos)
+
+  "BatchSizeController" should "keep the initial batch size within the limits" in {
+    assert(new BatchSizeController(100, 10, 1000, 10 seconds).current == 100)
+    assert(new BatchSizeController(5, 10, 1000, 10 seconds).current == 10)
+    assert(new BatchSizeController(5000, 10, 1000, 10 seconds).current == 1000)
+  }
+
+  it should "adapt the batch size to the target duration" in {
+    val controller = new BatchSizeController(100, 10, 1000, 10 seconds)
+    record(controller, 100, 8 seconds)
+    assert(controller.current == 125, "Grow")
+    record(controller, 125, 20 seconds)
+    assert(controller.current == 62, "Shrink")
+  }
+
+  it should "change the batch size no more than twice at once" in {
+    val controller = new BatchSizeController(100, 10, 1000, 10 seconds)
+    record(controller, 100, 1 second)
+    assert(controller.current == 200, "Grow at most twice")
+    record(controller, 200, 200 seconds)
+    assert(controller.current == 100, "Shrink at most twice")
+  }
+
+  it should "keep the batch size within the limits" in {
+    val controller = new BatchSizeController(100, 80, 150, 10 seconds)
+    record(controller, 100, 1 second)
+    assert(controller.current == 150, "Not above the maximum")
+    record(controller, 150, 100 seconds)
+    assert(controller.current == 80, "Not below the minimum")
+  }
+
+  it should "ignore the shortened batches" in {
+    val controller = new BatchSizeController(100, 10, 1000, 10 seconds)
+    record(controller, 50, 100 seconds)
+    assert(controller.current == 100, "The batch was shorter than planned")
+    record(controller, 100, Duration.Zero)
+    assert(controller.current == 100, "The duration was not measured")
+  }
+}
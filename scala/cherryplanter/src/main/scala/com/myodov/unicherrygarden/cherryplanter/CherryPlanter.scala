@@ -69,7 +69,7 @@ class CherryPlanter(
     DB readOnly { implicit session =>
       CherryGardenComponent.whenStateAndProgressAllow[PlantTransaction.Response](
         state.ethereumStatus,
-        dbStorage.progress.getProgress,
+        dbStorage.progress.getCachedProgress,
         "PlantTransaction",
         PlantTransaction.Response.fromCommonFailure(FailurePayload.CHERRY_GARDEN_NOT_READY)
       ) { (ethereumNodeStatus, progress) =>
@@ -0,0 +1,372 @@
+package com.myodov.unicherrygarden.connectors
+
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.{Executors, ScheduledExecutorService, ThreadFactory, TimeUnit}
+
+import com.myodov.unicherrygarden.AbstractEthereumNodeConnector.SingleBlockData
+import com.myodov.unicherrygarden.api.dlt
+import com.myodov.unicherrygarden.api.types.SystemStatus
+import com.myodov.unicherrygarden.{AbstractEthereumNodeConnector, Web3ReadOperations, Web3WriteOperations}
+import com.typesafe.scalalogging.LazyLogging
+
+import scala.collection.immutable.SortedMap
+import scala.concurrent.duration._
+import scala.concurrent.{Await, ExecutionContext, ExecutionContextExecutorService, Future, Promise}
+import scala.util.control.NonFatal
+
+/** Connector that communicates with multiple Ethereum nodes (each one via its own single-node connector),
+ * spreading the load between them, and failing over if some node is unavailable or lagging behind.
+ *
+ * - `readBlocks` splits the block range between the available nodes, proportionally to their measured speed,
+ *   and reads the parts in parallel.
+ * - If a node fails a read request, the request is retried on another node.
+ * - If a node doesn’t answer a read request in time (twice as long as expected from its measured speed,
+ *   but not earlier than `minHedgeDelay`), the request is hedged: sent to another node too,
+ *   and the first successful answer is used.
+ * - A node which `ethBlockchainStatus` lags behind the most advanced node for more than `maxLag` blocks
+ *   (or is not available at all) is not used, unless there are no other nodes.
+ *
+ * @param nodes            the connectors to every single node.
+ * @param maxLag           how many blocks a node may lag behind the most advanced node and still be used.
+ * @param minHedgeDelay    the read request is never hedged earlier than after this delay.
+ * @param maxParallelReads how many read requests (like `readBlocks`) are expected to be made simultaneously.
+ *                         Each one is split into up to a part per node, so the requests to the nodes are run
+ *                         in a pool of `nodes.size * maxParallelReads` threads; any extra ones wait in the queue.
+ */
+class EthereumMultiNodeConnector(nodes: Seq[EthereumMultiNodeConnector.NodeConnector],
+                                 maxLag: Int,
+                                 minHedgeDelay: FiniteDuration,
+                                 maxParallelReads: Int)
+  extends AbstractEthereumNodeConnector(nodes.mkString(", "))
+    with Web3ReadOperations
+    with Web3WriteOperations
+    with LazyLogging {
+  require(nodes.nonEmpty, nodes)
+  require(maxLag >= 0, maxLag)
+  require(minHedgeDelay > Duration.Zero, minHedgeDelay)
+  require(maxParallelReads >= 1, maxParallelReads)
+
+  import EthereumMultiNodeConnector._
+
+  override def toString: String = s"EthereumMultiNodeConnector(${nodes.mkString(", ")})"
+
+  private[this] val nodeStates: Vector[NodeState] = nodes.map(new NodeState(_)).toVector
+
+  /** Execution context to run the requests to the nodes (which are blocking).
+   * Bounded, so a burst of (hedged) requests cannot spawn the threads without limit;
+   * the tasks running in it never wait for each other, so the extra ones just wait in the queue.
+   */
+  private[this] implicit val executionContext: ExecutionContextExecutorService =
+    ExecutionContext.fromExecutorService(
+      Executors.newFixedThreadPool(nodes.size * maxParallelReads, daemonThreadFactory("request")))
+
+  /** Scheduler for the hedged requests. */
+  private[this] val hedgeScheduler: ScheduledExecutorService =
+    Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("hedge"))
+
+  /** The nodes that may be used for a request, the best ones first.
+   *
+   * @param upToBlock if defined, the request needs the node to have this block already.
+   */
+  private[this] def candidates(upToBlock: Option[Int]): Seq[NodeState] = {
+    val healthy = nodeStates.filter { node =>
+      !node.lagging && upToBlock.forall(block => node.currentBlock.forall(_ >= block))
+    }
+    val defaultNanosPerBlock = {
+      val measured = nodeStates.flatMap(_.nanosPerBlock)
+      if (measured.isEmpty) 1.0 else measured.sum / measured.size
+    }
+    (if (healthy.nonEmpty) healthy else nodeStates).sortBy(_.score(defaultNanosPerBlock))
+  }
+
+  /** Run `op` on the first of `candidates`; if it fails, on the next one;
+   * if it doesn’t complete in time (see [[NodeState.hedgeDelay]]), on the next one in parallel.
+   *
+   * @param blocks how many blocks the request reads (used to measure the node speed); may be 0.
+   * @return the future of the first successful result; or of `None` if `op` failed on every candidate.
+   */
+  private[this] def hedged[T](candidates: Seq[NodeState],
+                              blocks: Int,
+                              argHint: String)
+                             (op: NodeConnector => Option[T]): Future[Option[T]] = {
+    val promise = Promise[Option[T]]()
+    val nextCandidate = new AtomicInteger(0)
+    val failures = new AtomicInteger(0)
+
+    def launchNext(): Unit = {
+      val index = nextCandidate.getAndIncrement()
+      if (index < candidates.size) {
+        val node = candidates(index)
+        val hedge = hedgeScheduler.schedule(
+          (() => if (!promise.isCompleted) {
+            logger.debug(s"$argHint on ${node.connector} is too slow, hedging")
+            launchNext()
+          }): Runnable,
+          node.hedgeDelay(blocks, minHedgeDelay).toNanos,
+          TimeUnit.NANOSECONDS
+        )
+
+        Future {
+          val startTime = System.nanoTime
+          val result = try {
+            op(node.connector)
+          } catch {
+            case NonFatal(e) =>
+              logger.error(s"Error on $argHint on ${node.connector}", e)
+              None
+          }
+          result match {
+            case Some(_) =>
+              node.recordSuccess(blocks, System.nanoTime - startTime)
+              hedge.cancel(false)
+              promise.trySuccess(result)
+            case None =>
+              logger.warn(s"$argHint failed on ${node.connector}")
+              node.recordFailure()
+              hedge.cancel(false)
+              // Fail over to the next node (if it is not launched by hedging already)
+              launchNext()
+              if (failures.incrementAndGet() == candidates.size) {
+                promise.trySuccess(None)
+              }
+          }
+        }
+      }
+    }
+
+    if (candidates.isEmpty) {
+      promise.trySuccess(None)
+    } else {
+      launchNext()
+    }
+    promise.future
+  }
+
+  @inline private[this] def hedgedSync[T](candidates: Seq[NodeState],
+                                          blocks: Int,
+                                          argHint: String)
+                                         (op: NodeConnector => Option[T]): Option[T] =
+    Await.result(hedged(candidates, blocks, argHint)(op), Duration.Inf)
+
+  /** Get the status from every node; mark the nodes lagging behind the most advanced one;
+   * and return the status of the most advanced node.
+   */
+  override def ethBlockchainStatus: Option[SystemStatus.Blockchain] = {
+    val statusFutures: Seq[Future[Option[SystemStatus.Blockchain]]] = nodeStates.map { node =>
+      Future {
+        try {
+          node.connector.ethBlockchainStatus
+        } catch {
+          case NonFatal(e) =>
+            logger.error(s"Cannot get ethBlockchainStatus from ${node.connector}", e)
+            None
+        }
+      }
+    }
+    val statuses: Seq[Option[SystemStatus.Blockchain]] = statusFutures.map(Await.result(_, Duration.Inf))
+
+    for ((node, status) <- nodeStates.zip(statuses)) {
+      node.currentBlock = status.map(_.syncingData.currentBlock)
+    }
+
+    val best: Option[(NodeState, SystemStatus.Blockchain)] =
+      nodeStates.zip(statuses)
+        .collect { case (node, Some(status)) => (node, status) }
+        .maxByOption { case (_, status) => status.syncingData.currentBlock }
+
+    val bestBlock: Option[Int] = best.map(_._2.syncingData.currentBlock)
+    for (node <- nodeStates) {
+      val lagging = (node.currentBlock, bestBlock) match {
+        case (Some(nodeBlock), Some(bestBlockNumber)) => nodeBlock < bestBlockNumber - maxLag
+        case _ => true // not available at all
+      }
+      if (lagging != node.lagging) {
+        if (lagging) {
+          logger.warn(s"${node.connector} is lagging (at ${node.currentBlock} while the best node is at $bestBlock); " +
+            "not using it")
+        } else {
+          logger.info(s"${node.connector} is not lagging anymore (at ${node.currentBlock}); using it")
+        }
+      }
+      node.lagging = lagging
+    }
+
+    best.map(_._2)
+  }
+
+  override def readBlock(blockNumber: BigInt): Option[SingleBlockData] = {
+    require(blockNumber >= 0, blockNumber)
+    hedgedSync(candidates(Some(blockNumber.intValue)), 1, s"readBlock($blockNumber)")(_.readBlock(blockNumber))
+  }
+
+  override def readBlocks(range: dlt.EthereumBlock.BlockNumberRange): Option[Seq[SingleBlockData]] =
+    readBlocksSpread(range, argHint = "readBlocks")(_.readBlocks(_))
+
+  override def readBlocks(range: dlt.EthereumBlock.BlockNumberRange,
+                          addressesOfInterest: Set[String]): Option[Seq[SingleBlockData]] =
+    readBlocksSpread(range, argHint = "readBlocks")(_.readBlocks(_, addressesOfInterest))
+
+  /** Read the blocks, splitting the `range` between the nodes (see [[splitRange]]) and reading the parts in parallel.
+   *
+   * @return `None` if reading any of the parts failed (on all the nodes);
+   *         if some part is read only partially, the result is truncated after it.
+   */
+  private[this] def readBlocksSpread(range: dlt.EthereumBlock.BlockNumberRange,
+                                     argHint: String)
+                                    (read: (NodeConnector, dlt.EthereumBlock.BlockNumberRange) => Option[Seq[SingleBlockData]]
+                                    ): Option[Seq[SingleBlockData]] =
+    if (range.isEmpty) {
+      Some(Seq.empty)
+    } else {
+      val nodesToUse = candidates(Some(range.last))
+      val parts = splitRange(range, nodesToUse)
+      logger.debug(s"$argHint($range) is split to " +
+        parts.map { case (part, node) => s"$part on ${node.connector}" }.mkString(", "))
+
+      val partFutures: Seq[Future[Option[Seq[SingleBlockData]]]] = parts.map { case (part, preferredNode) =>
+        hedged(preferredNode +: nodesToUse.filterNot(_ eq preferredNode), part.size, s"$argHint($part)") {
+          read(_, part)
+        }
+      }
+      val partResults: Seq[Option[Seq[SingleBlockData]]] = partFutures.map(Await.result(_, Duration.Inf))
+
+      if (partResults.exists(_.isEmpty)) {
+        None
+      } else {
+        // All the parts are read; but if some part is read incompletely, the next parts cannot be used
+        val (complete, incomplete) = parts.zip(partResults.flatten).span { case ((part, node), blocks) =>
+          blocks.size == part.size
+        }
+        Some(complete.flatMap(_._2) ++ incomplete.headOption.map(_._2).getOrElse(Seq.empty))
+      }
+    }
+
+  /** Split the `range` between the `nodes` (the best ones first),
+   * proportionally to the node speed (the faster the node, the more blocks it reads).
+   */
+  private[this] def splitRange(range: dlt.EthereumBlock.BlockNumberRange,
+                               nodes: Seq[NodeState]): Seq[(dlt.EthereumBlock.BlockNumberRange, NodeState)] = {
+    val partsCount = Math.max(1, Math.min(nodes.size, range.size / MIN_BLOCKS_PER_PART))
+    val partNodes = nodes.take(partsCount)
+
+    val defaultNanosPerBlock = {
+      val measured = partNodes.flatMap(_.nanosPerBlock)
+      if (measured.isEmpty) 1.0 else measured.sum / measured.size
+    }
+    val weights: Seq[Double] = partNodes.map(1.0 / _.score(defaultNanosPerBlock))
+    val totalWeight = weights.sum
+
+    val ends: Seq[Int] = weights
+      .scanLeft(0.0)(_ + _)
+      .tail
+      .map(cumulativeWeight => Math.round(range.size * cumulativeWeight / totalWeight).toInt)
+      .updated(partsCount - 1, range.size) // against any rounding errors
+    val starts: Seq[Int] = 0 +: ends.init
+
+    partNodes.indices.collect {
+      case i if ends(i) > starts(i) => (range.slice(starts(i), ends(i)), partNodes(i))
+    }
+  }
+
+  override def readBlockHashes(range: dlt.EthereumBlock.BlockNumberRange): Option[SortedMap[Int, String]] =
+    if (range.isEmpty) {
+      Some(SortedMap.empty)
+    } else {
+      hedgedSync(candidates(Some(range.last)), 0, s"readBlockHashes($range)")(_.readBlockHashes(range))
+    }
+
+  override def getAddressNonces(address: String): Option[(Int, Option[Int])] =
+    hedgedSync(candidates(None), 0, s"getAddressNonces($address)")(_.getAddressNonces(address))
+
+  /** Send the transaction to the best node; if it fails, to the next nodes, one by one.
+   *
+   * @return the first successful result, or the error from the first node.
+   */
+  override def ethSendRawTransaction(bytes: Array[Byte]): Either[String, String] = {
+    val results = candidates(None).iterator.map { node =>
+      try {
+        node.connector.ethSendRawTransaction(bytes)
+      } catch {
+        case NonFatal(e) =>
+          logger.error(s"Cannot send transaction via ${node.connector}", e)
+          Left(e.getMessage)
+      }
+    }
+    // The iterator is lazy, so the nodes after the first successful one are not tried
+    var firstError: Option[Either[String, String]] = None
+    results.find {
+      case Right(_) => true
+      case left =>
+        if (firstError.isEmpty) {
+          firstError = Some(left)
+        }
+        false
+    }.orElse(firstError).getOrElse(Left("No Ethereum nodes"))
+  }
+}
+
+object EthereumMultiNodeConnector extends LazyLogging {
+  /** Any connector to a single node. */
+  type NodeConnector = AbstractEthereumNodeConnector with Web3ReadOperations with Web3WriteOperations
+
+  /** `readBlocks` range is not split into the parts smaller than this. */
+  val MIN_BLOCKS_PER_PART = 5
+
+  /** Smoothing factor for the exponentially weighted moving average of the node speed. */
+  private val SPEED_EWMA_ALPHA = 0.2
+
+  @inline def apply(nodes: Seq[NodeConnector],
+                    maxLag: Int,
+                    minHedgeDelay: FiniteDuration,
+                    maxParallelReads: Int): EthereumMultiNodeConnector =
+    new EthereumMultiNodeConnector(nodes, maxLag, minHedgeDelay, maxParallelReads)
+
+  /** What is known about a single node. */
+  private class NodeState(val connector: NodeConnector) {
+    /** The latest block known to the node (according to `ethBlockchainStatus`), if known. */
+    @volatile var currentBlock: Option[Int] = None
+    /** Whether the node lags behind the other nodes (or is not available) and should not be used. */
+    @volatile var lagging: Boolean = false
+    /** Moving average of the time to read a single block, in nanoseconds; if measured already. */
+    @volatile var nanosPerBlock: Option[Double] = None
+    /** How many requests to the node failed in a row. */
+    @volatile var consecutiveFailures: Int = 0
+
+    def recordSuccess(blocks: Int, nanos: Long): Unit = synchronized {
+      consecutiveFailures = 0
+      if (blocks > 0) {
+        val sample = nanos.toDouble / blocks
+        nanosPerBlock = Some(nanosPerBlock.fold(sample)(prev => prev + SPEED_EWMA_ALPHA * (sample - prev)))
+      }
+    }
+
+    def recordFailure(): Unit = synchronized {
+      consecutiveFailures += 1
+    }
+
+    /** The lower, the better; each failure in a row makes the node twice as bad.
+     *
+     * @param defaultNanosPerBlock the speed to assume if it was not measured for the node yet.
+     */
+    def score(defaultNanosPerBlock: Double): Double =
+      nanosPerBlock.getOrElse(defaultNanosPerBlock) * Math.pow(2, Math.min(consecutiveFailures, 10))
+
+    /** How long to wait for a request to this node (reading `blocks` blocks) before hedging it. */
+    def hedgeDelay(blocks: Int, minHedgeDelay: FiniteDuration): FiniteDuration =
+      nanosPerBlock match {
+        case Some(nanos) if blocks > 0 =>
+          (2 * nanos * blocks).toLong.nanos.max(minHedgeDelay)
+        case _ =>
+          minHedgeDelay
+      }
+  }
+
+  private def daemonThreadFactory(name: String): ThreadFactory = {
+    val counter = new AtomicInteger(0)
+    (runnable: Runnable) => {
+      val thread = new Thread(runnable, s"EthereumMultiNodeConnector-$name-${counter.incrementAndGet()}")
+      thread.setDaemon(true)
+      thread
+    }
+  }
+}
@@ -1,25 +1,30 @@
 package com.myodov.unicherrygarden.connectors.graphql
 
+import java.io.InputStream
 import java.time.Instant
 import java.util.concurrent.TimeUnit
 
 import akka.actor.typed.{ActorSystem => TypedActorSystem}
 import akka.actor.{ActorSystem => ClassicActorSystem}
 import caliban.client.Operations.{RootMutation, RootQuery}
+import akka.stream.Materializer
+import akka.stream.scaladsl.StreamConverters
 import caliban.client.{CalibanClientError, SelectionBuilder}
 import com.myodov.unicherrygarden.AbstractEthereumNodeConnector.SingleBlockData
 import com.myodov.unicherrygarden.api.dlt
 import com.myodov.unicherrygarden.api.types.SystemStatus
 import com.myodov.unicherrygarden.connectors.graphql.types._
 import com.myodov.unicherrygarden.ethereum.EthUtils
+import com.myodov.unicherrygarden.ethereum.Ethereum.ERC20.TRANSFER_EVENT_SIGNATURE
 import com.myodov.unicherrygarden.{AbstractEthereumNodeConnector, Web3ReadOperations, Web3WriteOperations}
 import com.typesafe.scalalogging.LazyLogging
 import org.bouncycastle.util.encoders.Hex
+import org.web3j.utils.Numeric
 import sttp.capabilities
 import sttp.capabilities.akka.AkkaStreams
 import sttp.client3.akkahttp.AkkaHttpBackend
-import sttp.client3.{Request, SttpBackend, UriContext}
-import sttp.model.Uri
+import sttp.client3.{Request, SttpBackend, UriContext, asStreamUnsafe, basicRequest}
+import sttp.model.{MediaType, Uri}
 
 import scala.annotation.switch
 import scala.collection.immutable.SortedMap
@@ -27,23 +32,43 @@ import scala.concurrent.duration.Duration
 import scala.concurrent.{Await, Future}
 import scala.util.control.NonFatal
 
-/** Connector that communicates with a single Ethereum node using GraphQL (via Caliban library). */
+/** Connector that communicates with a single Ethereum node using GraphQL (via Caliban library).
+ *
+ * If `preferredActorSystem` is not provided, the connector creates its own actor system;
+ * then it must be [[close]]d after use.
+ */
 class EthereumSingleNodeGraphQLConnector(nodeUrl: String,
                                          preferredActorSystem: Option[ClassicActorSystem])
   extends AbstractEthereumNodeConnector(nodeUrl)
     with Web3ReadOperations
     with Web3WriteOperations
+    with AutoCloseable
     with LazyLogging {
 
   override def toString: String = s"EthereumSingleNodeGraphQLConnector($nodeUrl)"
 
   protected val graphQLUri: Uri = uri"$nodeUrl/graphql"
 
+  /** Actor system used for sending out queries and reading the responses. */
+  private[this] val actorSystem: ClassicActorSystem =
+    (preferredActorSystem: @switch) match {
+      case None => ClassicActorSystem("EthereumSingleNodeGraphQLConnector")
+      case Some(actorSystem: ClassicActorSystem) => actorSystem
+    }
+
+  /** Whether the [[actorSystem]] has been created by the connector itself (and should be terminated by it). */
+  private[this] val ownsActorSystem: Boolean = preferredActorSystem.isEmpty
+
+  private[this] val materializer: Materializer = Materializer(actorSystem)
+
   /** Backend used for sending out queries. */
   protected val sttpBackend: SttpBackend[Future, AkkaStreams with capabilities.WebSockets] =
-    (preferredActorSystem: @switch) match {
-      case None => AkkaHttpBackend()
-      case Some(actorSystem: ClassicActorSystem) => AkkaHttpBackend.usingActorSystem(actorSystem)
+    AkkaHttpBackend.usingActorSystem(actorSystem)
+
+  /** Release the resources of the connector; the actor system is terminated only if it is owned by the connector. */
+  override def close(): Unit =
+    if (ownsActorSystem) {
+      actorSystem.terminate()
     }
 
   /** Execute a GraphQL mutation, with the GraphQL error handling passed to the user
@@ -117,6 +142,70 @@ class EthereumSingleNodeGraphQLConnector(nodeUrl: String,
     }
   }
 
+  /** Execute a GraphQL query, reading the response incrementally (as a stream) rather than all at once;
+   * good for the queries with huge responses.
+   *
+   * If some low-level error happened, returns `None` (and the error is logged).
+   * Otherwise returns whatever `readResponse` returns from the response JSON stream.
+   */
+  private[this] def sendGraphQLQueryStreaming[QV, R](query: SelectionBuilder[RootQuery, QV],
+                                                     argHint: String)
+                                                    (readResponse: InputStream => Option[R]): Option[R] = {
+    val rq = basicRequest
+      .post(graphQLUri)
+      .contentType(MediaType.ApplicationJson)
+      .body(StreamingResponseReader.requestBody(query.toGraphQL().query))
+      .response(asStreamUnsafe(AkkaStreams))
+    try {
+      val response = Await.result(rq.send(sttpBackend), AbstractEthereumNodeConnector.NETWORK_TIMEOUT)
+
+      response.body match {
+        case Left(err) =>
+          logger.error(s"GraphQL querying $argHint failed with ${response.code}: $err")
+          None
+        case Right(source) =>
+          val input: InputStream =
+            source.runWith(StreamConverters.asInputStream(AbstractEthereumNodeConnector.NETWORK_TIMEOUT))(materializer)
+          try {
+            readResponse(input)
+          } finally {
+            input.close()
+          }
+      }
+    } catch {
+      case NonFatal(e) =>
+        logger.error(s"Some nonfatal error happened during GraphQL querying $argHint", e)
+        None
+    }
+  }
+
+  /** Execute a GraphQL query having a single top-level list field (like `blocks`), reading the response
+   * incrementally (see [[StreamingResponseReader.readListField]]); so the raw response is never kept
+   * in memory as a whole, only the decoded items.
+   *
+   * If some error happened, returns `None` (and the error is logged).
+   *
+   * @param fieldName the name of the top-level list field.
+   * @param itemView  Caliban selection used to decode each item of the list.
+   */
+  private[this] def sendGraphQLListQueryStreaming[A](query: SelectionBuilder[RootQuery, List[A]],
+                                                     fieldName: String,
+                                                     itemView: SelectionBuilder[_, A],
+                                                     argHint: String): Option[List[A]] =
+    sendGraphQLQueryStreaming(query, argHint) { input =>
+      val items = List.newBuilder[A]
+      StreamingResponseReader.readListField(input, fieldName, itemView) { item =>
+        items += item
+        true
+      } match {
+        case Left(error) =>
+          logger.error(s"Error for GraphQL querying $argHint: $error")
+          None
+        case Right(_) =>
+          Some(items.result())
+      }
+    }
+
   /** Execute a GraphQL query with all the necessary error handling being automatic.
    *
    * `QV` - either `(Option[SyncState.SyncStateView], Option[BlockMinimalView])` or `List[BlockBasicView]`,
@@ -197,7 +286,189 @@ class EthereumSingleNodeGraphQLConnector(nodeUrl: String,
     }
   }
 
-  override def readBlocks(range: dlt.EthereumBlock.BlockNumberRange): Option[Seq[SingleBlockData]] = {
+  override def readBlocks(range: dlt.EthereumBlock.BlockNumberRange): Option[Seq[SingleBlockData]] =
+    streamBlocks(range, argHint = s"readBlocks($range)")
+
+  /** Read the blocks, getting from the Ethereum node only the transactions of interest
+   * rather than all the transactions with all their logs.
+   *
+   * The following is requested:
+   * 1. the block headers (including `logsBloom`), with just the senders/receivers of all the transactions;
+   * 2. the ERC20 `Transfer` logs from/to any of `addressesOfInterest` (filtered by the node, using `logs(filter:)`),
+   *    with the full data of their transactions – but only for the blocks which `logsBloom` may contain
+   *    such a log at all (usually very few, if any); the addresses are split between multiple queries,
+   *    not to exceed the node limits on the filter size;
+   * 3. the full data of the transactions sent from/to any of `addressesOfInterest` (if not received on step 2).
+   *
+   * The (potentially large) responses for the steps 1 and 2 are read incrementally.
+   *
+   * @note unlike the default implementation (based on [[Web3ReadOperations.filterSingleBlock]]),
+   *       the transaction is not considered of interest if any of `addressesOfInterest` is mentioned
+   *       only in some non-`Transfer` log topics.
+   */
+  override def readBlocks(range: dlt.EthereumBlock.BlockNumberRange,
+                          addressesOfInterest: Set[String]): Option[Seq[SingleBlockData]] = {
+    require(range.head <= range.last, range)
+    assert(addressesOfInterest.forall(EthUtils.Addresses.isValidLowercasedAddress), addressesOfInterest)
+
+    import caliban.Geth._
+
+    val argHint = s"readBlocks($range, ${addressesOfInterest.size} addresses)"
+    val queryStartTime = System.nanoTime
+
+    val headersQuery =
+      Query.blocks(from = Some(range.head), to = Some(range.last)) {
+        BlockHeader.view
+      }
+
+    // Addresses are mentioned in the log topics as Uint256
+    val addressesOfInterestUint256: List[Bytes32] = addressesOfInterest.toList.map(EthUtils.Uint256Str.fromAddress)
+    val addressesOfInterestBloomBits: List[Array[Int]] = addressesOfInterestUint256.map(EthUtils.LogsBloom.getBitPositions)
+
+    val transferLogView: SelectionBuilder[Log, TransactionFullView] =
+      Log.transaction {
+        TransactionFull.view
+      }
+
+    def transferLogsQuery(fromBlock: Long, toBlock: Long, topics: List[List[Bytes32]]) =
+      Query.logs(filter = FilterCriteria(
+        fromBlock = Some(fromBlock),
+        toBlock = Some(toBlock),
+        topics = Some(topics)
+      )) {
+        transferLogView
+      }
+
+    val result: Option[Seq[SingleBlockData]] = for {
+      headers <- sendGraphQLListQueryStreaming(headersQuery, "blocks", BlockHeader.view, argHint)
+      // Only the blocks that may contain the transfers of interest, according to their `logsBloom`
+      transferCandidates = headers.filter(mayContainTransfers(_, addressesOfInterestBloomBits))
+      transferTransactions <-
+        if (transferCandidates.isEmpty) {
+          Some(Nil)
+        } else {
+          val (fromBlock, toBlock) = (transferCandidates.head.number, transferCandidates.last.number)
+          EthereumSingleNodeGraphQLConnector.transferLogsTopicsFilters(addressesOfInterestUint256)
+            .foldLeft(Some(Nil): Option[List[TransactionFullView]]) { (readSoFar, topics) =>
+              readSoFar.flatMap { readSoFarList =>
+                sendGraphQLListQueryStreaming(transferLogsQuery(fromBlock, toBlock, topics), "logs", transferLogView, argHint)
+                  .map(readSoFarList ++ _)
+              }
+            }
+        }
+      transferTransactionHashes = transferTransactions.map(_.hash).toSet
+      etherTransactionHashes = headers
+        .flatMap(_.transactions.getOrElse(Nil))
+        .filter { tr =>
+          !transferTransactionHashes.contains(tr.hash) &&
+            (addressesOfInterest.contains(tr.from.address) || tr.to.exists(to => addressesOfInterest.contains(to.address)))
+        }
+        .map(_.hash)
+      etherTransactions <- readTransactions(etherTransactionHashes, argHint)
+      blocks <- assembleBlocks(headers, (transferTransactions ++ etherTransactions).distinctBy(_.hash), argHint)
+    } yield blocks.map(blockDataFromView)
+
+    val queryDuration = Duration(System.nanoTime - queryStartTime, TimeUnit.NANOSECONDS)
+    logger.debug(s"Querying for blocks $range (${range.size} blocks) " +
+      s"for ${addressesOfInterest.size} addresses took ${queryDuration.toMillis} ms")
+
+    result match {
+      case Some(emptyResult@Seq()) =>
+        logger.debug(s"Querying for blocks $range (${range.size} blocks) " +
+          "returned empty result")
+        None
+      case other =>
+        other
+    }
+  }
+
+  /** Check the block `logsBloom`, whether the block may contain any ERC20 `Transfer` logs
+   * mentioning any of the addresses in its topics.
+   *
+   * @param addressesBloomBits for each address (as Uint256), its `logsBloom` bits
+   *                           (as returned by [[EthUtils.LogsBloom.getBitPositions]]).
+   * @note `false` means the block definitely doesn’t contain such logs.
+   */
+  private[this] def mayContainTransfers(header: BlockHeaderView,
+                                        addressesBloomBits: List[Array[Int]]): Boolean =
+    addressesBloomBits.nonEmpty && {
+      val bloom: Array[Byte] = Numeric.hexStringToByteArray(header.logsBloom)
+      EthUtils.LogsBloom.hasBits(bloom, EthereumSingleNodeGraphQLConnector.TRANSFER_EVENT_BLOOM_BITS) &&
+        addressesBloomBits.exists(EthUtils.LogsBloom.hasBits(bloom, _))
+    }
+
+  /** Read the full data of the transactions (by their hashes), in as few GraphQL queries as possible.
+   *
+   * @return [[None]] if reading failed, or if any of the transactions is not found.
+   */
+  private[this] def readTransactions(hashes: Seq[String],
+                                     argHint: String): Option[List[TransactionFullView]] = {
+    import caliban.Geth._
+
+    hashes
+      .grouped(EthereumSingleNodeGraphQLConnector.MAX_TRANSACTIONS_PER_QUERY)
+      .foldLeft(Some(Nil): Option[List[TransactionFullView]]) { (readSoFar, hashesInQuery) =>
+        readSoFar.flatMap { readSoFarList =>
+          val querySelections = hashesInQuery.toList.map { hash =>
+            Query.transaction(hash = hash) {
+              TransactionFull.view
+            }
+          }
+          val query = SelectionBuilder.combineAll(querySelections.head, querySelections.tail: _*)
+
+          sendGraphQLQueryHandleErrors(query, argHint).flatMap {
+            case found if found.forall(_.nonEmpty) =>
+              Some(readSoFarList ++ found.flatten)
+            case notFound =>
+              logger.error(s"For $argHint, some transactions of interest are not found: $hashesInQuery")
+              None
+          }
+        }
+      }
+  }
+
+  /** Combine the block headers with the (separately read) transactions of interest in these blocks,
+   * and validate the result.
+   *
+   * @return [[None]] if the transactions don’t match the blocks (e.g. due to some reorganization happened
+   *         between the queries) or the blocks are inconsistent.
+   */
+  private[this] def assembleBlocks(headers: List[BlockHeaderView],
+                                   transactions: List[TransactionFullView],
+                                   argHint: String): Option[List[BlockBasicView]] = {
+    val headerBlocks: Set[BlockMinimalView] = headers.map(_.asMinimalBlock).toSet
+    val lastHeaderNumber: Long = headers.lastOption.map(_.number).getOrElse(-1L)
+
+    // Transactions in the blocks after the last header are fine (the node could have a new block since);
+    // but any other transaction must refer to some of the headers.
+    transactions.find(_.block.forall(bl => !headerBlocks.contains(bl) && bl.number <= lastHeaderNumber)) match {
+      case Some(inconsistentTransaction) =>
+        logger.error(s"For $argHint, transaction $inconsistentTransaction " +
+          "doesn't refer to any of the blocks read")
+        None
+      case None =>
+        val transactionsByBlock: Map[Option[BlockMinimalView], List[TransactionFullView]] =
+          transactions.groupBy(_.block)
+        val blocks = headers.map { header =>
+          header.withTransactions(
+            transactionsByBlock.getOrElse(Some(header.asMinimalBlock), Nil).sortBy(_.index)
+          )
+        }
+        if (BlockBasic.validateBlocks(blocks)) {
+          Some(blocks)
+        } else {
+          logger.error(s"Queried $argHint returned invalid result")
+          None
+        }
+    }
+  }
+
+  /** Read the blocks, parsing the GraphQL response incrementally: each block is validated and converted
+   * as soon as it is parsed, before the next block is parsed. So the peak memory usage
+   * doesn’t depend on the size of the raw GraphQL response, but only on the resulting block data.
+   */
+  private[this] def streamBlocks(range: dlt.EthereumBlock.BlockNumberRange,
+                                 argHint: String): Option[Seq[SingleBlockData]] = {
     require(range.head <= range.last, range)
 
     import caliban.Geth._
@@ -209,76 +480,90 @@ class EthereumSingleNodeGraphQLConnector(nodeUrl: String,
 
     val queryStartTime = System.nanoTime
 
-    // This is a legit response; but it may have no contents.
-    // For None, return None; for Some return a result,... hey it’s a map!
-    sendGraphQLQueryHandleErrors(query, argHint = s"readBlocks($range)").flatMap { blocks =>
+    sendGraphQLQueryStreaming(query, argHint) { input =>
+      val results = Vector.newBuilder[SingleBlockData]
+      var prevBlock: Option[BlockMinimalView] = None
+
+      val readResult = StreamingResponseReader.readListField(input, "blocks", BlockBasic.view) { blockBasic =>
+        if (!BlockBasic.validateBlock(blockBasic) ||
+          !prevBlock.forall(BlockBasic.validateSubsequentBlocks(_, blockBasic))) {
+          false // validation failed, let’s consider reading failed too
+        } else {
+          prevBlock = Some(blockBasic.asMinimalBlock)
+          results += blockDataFromView(blockBasic)
+          true
+        }
+      }
+
       val queryDuration = Duration(System.nanoTime - queryStartTime, TimeUnit.NANOSECONDS)
       logger.debug(s"Querying for blocks $range (${range.size} blocks) " +
         s"took ${queryDuration.toMillis} ms")
 
-      blocks match {
-        case invalidResult if !BlockBasic.validateBlocks(invalidResult) =>
+      (readResult, results.result()) match {
+        case (Left(error), _) =>
           logger.error(s"Queried $range (${range.size} blocks) " +
-            "returned invalid result")
-          None // validation failed, let’s consider reading failed too
-        case emptyResult@Seq() =>
+            s"returned invalid result: $error")
+          None
+        case (Right(_), emptyResult@Seq()) =>
           logger.debug(s"Querying for blocks $range (${range.size} blocks) " +
             "returned empty result")
           None
-        case nonEmptyResults =>
-          val resultSeq = blocks.map { blockBasic =>
-            val blockNumber = Math.toIntExact(blockBasic.number)
-
-            val block = dlt.EthereumBlock(
-              number = blockNumber,
-              hash = blockBasic.hash,
-              parentHash = blockBasic.parent match {
-                // We need some custom handling of empty parent
-                // to make it compatible with RPC/block explorers
-                case None => Some("0x0000000000000000000000000000000000000000000000000000000000000000")
-                case Some(parent) => Some(parent.hash)
-              },
-              timestamp = Instant.ofEpochSecond(blockBasic.timestamp)
-            )
-            val transactions = blockBasic.transactions match {
-              case None => Seq()
-              case Some(transactions) => transactions.map { (tr: TransactionFullView) =>
-                dlt.EthereumMinedTransaction(
-                  // *** Before-mined transaction ***
-                  txhash = tr.hash,
-                  from = tr.from.address,
-                  to = tr.to.map(_.address), // Option(nullable)
-                  gas = tr.gas,
-                  gasPrice = tr.gasPrice,
-                  nonce = Math.toIntExact(tr.nonce),
-                  value = tr.value,
-                  // *** Mined transaction ***
-                  // "status" – EIP 658, since Byzantium fork
-                  status = tr.status.map(Math.toIntExact), // Option[Long] to Option[Int]
-                  blockNumber = tr.block.get.number, // block must exist!
-                  transactionIndex = tr.index.get, // transaction must exist!
-                  gasUsed = tr.gasUsed.get, // presumed non-null if mined
-                  effectiveGasPrice = tr.effectiveGasPrice.get, // presumed non-null if mined
-                  cumulativeGasUsed = tr.cumulativeGasUsed.get, // presumed non-null if mined
-                  txLogs = tr.logs match {
-                    case None => Seq.empty
-                    case Some(logs) => logs.map { log =>
-                      dlt.EthereumTxLog(
-                        logIndex = log.index,
-                        address = log.account.address,
-                        topics = log.topics,
-                        data = log.data
-                      )
-                    }
-                  }
-                )
-              }
+        case (Right(_), nonEmptyResults) =>
+          Some(nonEmptyResults)
+      }
+    }
+  }
+
+  /** Convert a single block (as returned by GraphQL) to the [[SingleBlockData]]. */
+  private[this] def blockDataFromView(blockBasic: BlockBasicView): SingleBlockData = {
+    val blockNumber = Math.toIntExact(blockBasic.number)
+
+    val block = dlt.EthereumBlock(
+      number = blockNumber,
+      hash = blockBasic.hash,
+      parentHash = blockBasic.parent match {
+        // We need some custom handling of empty parent
+        // to make it compatible with RPC/block explorers
+        case None => Some("0x0000000000000000000000000000000000000000000000000000000000000000")
+        case Some(parent) => Some(parent.hash)
+      },
+      timestamp = Instant.ofEpochSecond(blockBasic.timestamp)
+    )
+    val transactions = blockBasic.transactions match {
+      case None => Seq()
+      case Some(transactions) => transactions.map { (tr: TransactionFullView) =>
+        dlt.EthereumMinedTransaction(
+          // *** Before-mined transaction ***
+          txhash = tr.hash,
+          from = tr.from.address,
+          to = tr.to.map(_.address), // Option(nullable)
+          gas = tr.gas,
+          gasPrice = tr.gasPrice,
+          nonce = Math.toIntExact(tr.nonce),
+          value = tr.value,
+          // *** Mined transaction ***
+          // "status" – EIP 658, since Byzantium fork
+          status = tr.status.map(Math.toIntExact), // Option[Long] to Option[Int]
+          blockNumber = tr.block.get.number, // block must exist!
+          transactionIndex = tr.index.get, // transaction must exist!
+          gasUsed = tr.gasUsed.get, // presumed non-null if mined
+          effectiveGasPrice = tr.effectiveGasPrice.get, // presumed non-null if mined
+          cumulativeGasUsed = tr.cumulativeGasUsed.get, // presumed non-null if mined
+          txLogs = tr.logs match {
+            case None => Seq.empty
+            case Some(logs) => logs.map { log =>
+              dlt.EthereumTxLog(
+                logIndex = log.index,
+                address = log.account.address,
+                topics = log.topics,
+                data = log.data
+              )
             }
-            (block, transactions)
           }
-          Some(resultSeq)
+        )
       }
     }
+    (block, transactions)
   }
 
   override def readBlockHashes(range: dlt.EthereumBlock.BlockNumberRange): Option[SortedMap[Int, String]] = {
@@ -354,6 +639,36 @@ class EthereumSingleNodeGraphQLConnector(nodeUrl: String,
 
 /** Connector that handles a connection to single Ethereum node via RPC, and communicates with it. */
 object EthereumSingleNodeGraphQLConnector {
+  /** How many transactions may be requested (by their hashes) in a single GraphQL query. */
+  val MAX_TRANSACTIONS_PER_QUERY = 100
+
+  /** How many values may be listed in a single topic position of the `logs(filter:)` query.
+   *
+   * The nodes limit the size of the filter; e.g. Geth rejects the filters with more than 1000 sub-topics
+   * in a position.
+   */
+  val MAX_TOPICS_PER_FILTER_POSITION = 1000
+
+  /** The `topics` of the `logs(filter:)` queries to find all the ERC20 `Transfer` logs from/to
+   * any of `addressesUint256` (the addresses in Uint256 form, as they are mentioned in the log topics).
+   *
+   * For `Transfer(from, to, value)`, `from` is in topic 1, `to` is in topic 2; so there are two filters
+   * for every chunk of at most [[MAX_TOPICS_PER_FILTER_POSITION]] addresses.
+   */
+  private[graphql] def transferLogsTopicsFilters(addressesUint256: List[String]): List[List[List[String]]] =
+    addressesUint256
+      .grouped(MAX_TOPICS_PER_FILTER_POSITION)
+      .toList
+      .flatMap { addressesChunk =>
+        List(
+          List(List(TRANSFER_EVENT_SIGNATURE), addressesChunk),
+          List(List(TRANSFER_EVENT_SIGNATURE), Nil, addressesChunk)
+        )
+      }
+
+  /** The `logsBloom` bits set by the ERC20 `Transfer` event topic. */
+  private val TRANSFER_EVENT_BLOOM_BITS: Array[Int] = EthUtils.LogsBloom.getBitPositions(TRANSFER_EVENT_SIGNATURE)
+
   @inline def apply(nodeUrl: String): EthereumSingleNodeGraphQLConnector =
     new EthereumSingleNodeGraphQLConnector(nodeUrl, None)
 
@@ -0,0 +1,160 @@
+package com.myodov.unicherrygarden.connectors.graphql
+
+import java.io.{IOException, InputStream, StringWriter}
+
+import caliban.client.__Value._
+import caliban.client.{SelectionBuilder, __Value}
+import com.fasterxml.jackson.core.{JsonFactory, JsonParser, JsonToken}
+
+/** Incremental (streaming) reader of the GraphQL responses.
+ *
+ * Caliban parses the whole GraphQL response into memory before decoding it; for a query like
+ * `blocks(from, to)` with all the transactions and logs, this may mean hundreds of MB of transient objects.
+ * Instead, this reader goes through the response JSON token by token, and decodes the items
+ * of the top-level list field one by one, so that only a single item is kept in memory at any time.
+ */
+private object StreamingResponseReader {
+  private[this] val jsonFactory = new JsonFactory()
+
+  /** Build the JSON body of the HTTP request for the GraphQL `query`. */
+  def requestBody(query: String): String = {
+    val writer = new StringWriter
+    val generator = jsonFactory.createGenerator(writer)
+    try {
+      generator.writeStartObject()
+      generator.writeStringField("query", query)
+      generator.writeEndObject()
+    } finally {
+      generator.close()
+    }
+    writer.toString
+  }
+
+  /** Read the GraphQL response with a top-level list field (like `{"data": {"blocks": [...]}}`) incrementally.
+   *
+   * @param input     the stream with the GraphQL response JSON.
+   * @param fieldName the name of the top-level list field (like `blocks`).
+   * @param view      Caliban selection used to decode each item of the list.
+   * @param onItem    called for every decoded item, in order; returns `false` if reading should be stopped.
+   * @return `Right` if the whole response has been read (and every item accepted by `onItem`);
+   *         `Left` with the error message otherwise.
+   */
+  def readListField[A](input: InputStream,
+                       fieldName: String,
+                       view: SelectionBuilder[_, A]
+                      )(onItem: A => Boolean): Either[String, Unit] = {
+    val parser = jsonFactory.createParser(input)
+    try {
+      expect(parser, JsonToken.START_OBJECT)
+
+      var result: Either[String, Unit] = Right(())
+      while (nextToken(parser) != JsonToken.END_OBJECT && result.isRight) {
+        parser.getCurrentName match {
+          case "data" =>
+            nextToken(parser)
+            result = readData(parser, fieldName, view, onItem)
+          case "errors" =>
+            nextToken(parser)
+            result = Left(s"GraphQL errors: ${readValue(parser)}")
+          case _ =>
+            nextToken(parser)
+            parser.skipChildren()
+        }
+      }
+      result
+    } finally {
+      parser.close()
+    }
+  }
+
+  /** Read the contents of `data` field; the parser is positioned at its value. */
+  private[this] def readData[A](parser: JsonParser,
+                                fieldName: String,
+                                view: SelectionBuilder[_, A],
+                                onItem: A => Boolean): Either[String, Unit] =
+    parser.currentToken match {
+      case JsonToken.VALUE_NULL =>
+        Left("GraphQL response has no data")
+      case JsonToken.START_OBJECT =>
+        var result: Either[String, Unit] = Right(())
+        while (nextToken(parser) != JsonToken.END_OBJECT && result.isRight) {
+          val name = parser.getCurrentName
+          nextToken(parser)
+          if (name == fieldName) {
+            result = readList(parser, view, onItem)
+          } else {
+            parser.skipChildren()
+          }
+        }
+        result
+      case other =>
+        throw new IOException(s"Unexpected token $other in GraphQL data")
+    }
+
+  /** Read the list of items, decoding and passing them to `onItem` one by one;
+   * the parser is positioned at the list start.
+   */
+  private[this] def readList[A](parser: JsonParser,
+                                view: SelectionBuilder[_, A],
+                                onItem: A => Boolean): Either[String, Unit] =
+    parser.currentToken match {
+      case JsonToken.VALUE_NULL =>
+        Right(())
+      case JsonToken.START_ARRAY =>
+        var result: Either[String, Unit] = Right(())
+        while (result.isRight && nextToken(parser) != JsonToken.END_ARRAY) {
+          result = view.fromGraphQL(readValue(parser)) match {
+            case Left(error) => Left(s"Cannot decode GraphQL item: ${error.getMessage}")
+            case Right(item) => if (onItem(item)) Right(()) else Left("Item rejected")
+          }
+        }
+        result
+      case other =>
+        throw new IOException(s"Unexpected token $other instead of GraphQL list")
+    }
+
+  /** Read a single (maybe complex) JSON value; the parser is positioned at the start of it. */
+  private[this] def readValue(parser: JsonParser): __Value =
+    parser.currentToken match {
+      case JsonToken.START_OBJECT =>
+        val fields = List.newBuilder[(String, __Value)]
+        while (nextToken(parser) != JsonToken.END_OBJECT) {
+          val name = parser.getCurrentName
+          nextToken(parser)
+          fields += name -> readValue(parser)
+        }
+        __ObjectValue(fields.result())
+      case JsonToken.START_ARRAY =>
+        val items = List.newBuilder[__Value]
+        while (nextToken(parser) != JsonToken.END_ARRAY) {
+          items += readValue(parser)
+        }
+        __ListValue(items.result())
+      case JsonToken.VALUE_STRING =>
+        __StringValue(parser.getText)
+      case JsonToken.VALUE_NUMBER_INT | JsonToken.VALUE_NUMBER_FLOAT =>
+        __NumberValue(BigDecimal(parser.getDecimalValue))
+      case JsonToken.VALUE_TRUE =>
+        __BooleanValue(true)
+      case JsonToken.VALUE_FALSE =>
+        __BooleanValue(false)
+      case JsonToken.VALUE_NULL =>
+        __NullValue
+      case other =>
+        throw new IOException(s"Unexpected token $other in GraphQL response")
+    }
+
+  /** Move to the next token, failing if the input ends unexpectedly. */
+  @inline private[this] def nextToken(parser: JsonParser): JsonToken =
+    parser.nextToken match {
+      case null => throw new IOException("Unexpected end of GraphQL response")
+      case token => token
+    }
+
+  @inline private[this] def expect(parser: JsonParser, expected: JsonToken): Unit = {
+    val token = nextToken(parser)
+    if (token != expected) {
+      throw new IOException(s"Unexpected token $token instead of $expected in GraphQL response")
+    }
+  }
+}
@@ -56,6 +56,40 @@ object BlockLatest {
 }
 
 
+/** For a Block, select its header data, and just the senders/receivers of its transactions. */
+final case class BlockHeaderView(number: Long,
+                                 hash: String,
+                                 parent: Option[BlockMinimalView],
+                                 timestamp: Long,
+                                 logsBloom: String,
+                                 transactions: Option[List[TransactionParticipantsView]]
+                                ) {
+  lazy val asMinimalBlock: BlockMinimalView = BlockMinimalView(number, hash)
+
+  /** Convert to the [[BlockBasicView]], with the given `transactions` (supposedly, some of the transactions
+   * of this block, read separately).
+   */
+  def withTransactions(transactions: List[TransactionFullView]): BlockBasicView =
+    BlockBasicView(number, hash, parent, timestamp, Some(transactions))
+}
+
+object BlockHeader {
+  /** A shorthand method to select the block header data. */
+  lazy val view: SelectionBuilder[Block, BlockHeaderView] = {
+    Block.number ~
+      Block.hash ~
+      Block.parent {
+        BlockMinimal.view
+      } ~
+      Block.timestamp ~
+      Block.logsBloom ~
+      Block.transactions {
+        TransactionParticipants.view
+      }
+  }.mapN(BlockHeaderView)
+}
+
+
 /** For a Block, select most of the information needed for our processing. */
 final case class BlockBasicView(number: Long,
                                 hash: String,
@@ -108,29 +142,31 @@ object BlockBasic extends LazyLogging {
     }
   }
 
+  /** Check if a block `next` may directly follow the block `prev` in a sequence of blocks. */
+  def validateSubsequentBlocks(prev: BlockMinimalView, next: BlockBasicView): Boolean =
+    next.parent match {
+      case None =>
+        logger.error(s"In block sequence, block parent is missing: $next")
+        false
+      case Some(nextParent) =>
+        if (next.number != prev.number + 1) {
+          logger.error(s"In block sequence, these two blocks are not subsequent: $prev and $next")
+          false
+        } else if (nextParent.number != prev.number || nextParent.hash != prev.hash) {
+          logger.error(s"In block sequence, " +
+            s"the parent reference of second block is not the the first block: $prev and $next")
+          false
+        } else {
+          // Everything seems fine
+          true
+        }
+    }
+
   /** Check if a sequence of blocks is well-formed. */
   def validateBlocks(blocks: Seq[BlockBasicView]): Boolean = {
     val eachSingleBlockValid: Boolean = blocks.forall(validateBlock)
     val blocksInTotalValid: Boolean = blocks.forAllPairs { (bl1, bl2) =>
-      bl2.parent match {
-        case None =>
-          logger.error(s"In block sequence of ${blocks.size} blocks, " +
-            s"block parent is missing: $bl2")
-          false
-        case Some(bl2Parent) =>
-          if (bl2.number != bl1.number + 1) {
-            logger.error(s"In block sequence of ${blocks.size} blocks, " +
-              s"these two blocks are not subsequent: $bl1 and $bl2")
-            false
-          } else if (bl2Parent.number != bl1.number || bl2Parent.hash != bl1.hash) {
-            logger.error(s"In block sequence of ${blocks.size} blocks, " +
-              s"the parent reference of second block is not the the first block: $bl1 and $bl2")
-            false
-          } else {
-            // Everything seems fine
-            true
-          }
-      }
+      validateSubsequentBlocks(bl1.asMinimalBlock, bl2)
     }
 
     if (!eachSingleBlockValid) {
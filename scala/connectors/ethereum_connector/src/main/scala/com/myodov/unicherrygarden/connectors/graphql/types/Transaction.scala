@@ -13,6 +13,26 @@ object TransactionMinimal {
   }.map(TransactionMinimalView)
 }
 
+/** For a Transaction, get just its hash and its sender/receiver
+ * (enough to find out whether the transaction may be of interest).
+ */
+final case class TransactionParticipantsView(hash: Bytes32,
+                                             from: AccountMinimalView,
+                                             to: Option[AccountMinimalView])
+
+object TransactionParticipants {
+  /** A shorthand method to select the transaction sender/receiver data to query. */
+  lazy val view: SelectionBuilder[Transaction, TransactionParticipantsView] = {
+    Transaction.hash ~
+      Transaction.from() {
+        AccountMinimal.view
+      } ~
+      Transaction.to() {
+        AccountMinimal.view
+      }
+  }.mapN(TransactionParticipantsView)
+}
+
 /** For a Transaction, get most of its data. */
 final case class TransactionFullView(
                                       // *** Before-mined transaction ***
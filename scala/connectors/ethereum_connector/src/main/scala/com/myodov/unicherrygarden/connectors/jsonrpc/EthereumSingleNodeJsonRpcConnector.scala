@@ -1,47 +1,59 @@
 package com.myodov.unicherrygarden.connectors.jsonrpc
 
+import java.io.IOException
 import java.math.BigInteger
 import java.time.Instant
 import java.util.concurrent.TimeUnit
 
 import com.myodov.unicherrygarden.AbstractEthereumNodeConnector.SingleBlockData
+import com.myodov.unicherrygarden.Tools.reduceOptionSeq
 import com.myodov.unicherrygarden.api.dlt
 import com.myodov.unicherrygarden.api.types.SystemStatus
 import com.myodov.unicherrygarden.ethereum.EthUtils
 import com.myodov.unicherrygarden.{AbstractEthereumNodeConnector, Web3ReadOperations}
 import com.typesafe.scalalogging.LazyLogging
-import org.web3j.protocol.Web3j
+import org.web3j.protocol.{Web3j, Web3jService}
 import org.web3j.protocol.core.methods.response.EthBlock.TransactionObject
 import org.web3j.protocol.core.methods.response._
-import org.web3j.protocol.core.{DefaultBlockParameterName, DefaultBlockParameterNumber}
+import org.web3j.protocol.core.{DefaultBlockParameterName, DefaultBlockParameterNumber, Request, Response}
 import org.web3j.protocol.http.HttpService
-import org.web3j.utils.Numeric.decodeQuantity
+import org.web3j.utils.Numeric.{decodeQuantity, encodeQuantity}
 
-import scala.concurrent.ExecutionContext.Implicits._
 import scala.concurrent.duration._
-import scala.concurrent.{Await, Future}
 import scala.jdk.CollectionConverters._
-import scala.jdk.FutureConverters._
 import scala.jdk.OptionConverters._
 import scala.util.control.NonFatal
 
-/** Connector that communicates with a single Ethereum node using JSON-RPC (via Web3J library). */
-class EthereumSingleNodeJsonRpcConnector(nodeUrl: String)
+/** Connector that communicates with a single Ethereum node using JSON-RPC (via Web3J library).
+ *
+ * @param createWeb3jService creates the service that actually sends the JSON-RPC requests
+ *                           (on every (re)connection).
+ */
+class EthereumSingleNodeJsonRpcConnector private[jsonrpc](nodeUrl: String,
+                                                          createWeb3jService: () => Web3jService)
   extends AbstractEthereumNodeConnector(nodeUrl)
     with Web3ReadOperations
     with LazyLogging {
 
+  def this(nodeUrl: String) = this(nodeUrl, () => new HttpService(nodeUrl))
+
   override def toString: String = s"EthereumSingleNodeJsonRpcConnector($nodeUrl)"
 
-  private[this] var web3j: Web3j = rebuildWeb3j()
+  private[this] var web3jService: Web3jService = _
+  private[this] var web3j: Web3j = _
+  rebuildWeb3j()
+
+  /** Whether the node has been found not supporting `eth_getBlockReceipts` JSON-RPC method. */
+  @volatile private[this] var blockReceiptsUnsupported: Boolean = false
 
   private[this] def reconnect(): Unit = {
     web3j.shutdown()
-    web3j = rebuildWeb3j()
+    rebuildWeb3j()
   }
 
-  private[this] def rebuildWeb3j(): Web3j = {
-    Web3j.build(new HttpService(nodeUrl))
+  private[this] def rebuildWeb3j(): Unit = {
+    web3jService = createWeb3jService()
+    web3j = Web3j.build(web3jService)
   }
 
   override def ethBlockchainStatus: Option[SystemStatus.Blockchain] = {
@@ -121,154 +133,295 @@ class EthereumSingleNodeJsonRpcConnector(nodeUrl: String)
   protected[this] def readBlockWeb3j(blockNumber: BigInt): Option[(EthBlock.Block, Seq[Transaction], Map[String, TransactionReceipt])] = {
     require(blockNumber >= 0, blockNumber)
 
+    val blockNumberInt = blockNumber.bigInteger.intValueExact
+    readBlocksWeb3j(blockNumberInt to blockNumberInt).map(_.head)
+  }
+
+  /** Get the Ethereum data for a range of blocks; the data is returned in Web3j-style classes.
+   *
+   * Uses JSON-RPC 2.0 batch requests, so the whole range is read in just a few HTTP round trips:
+   * first, all the blocks are requested (with full transaction objects);
+   * then, all the transaction receipts are requested, using `eth_getBlockReceipts` (one call per block)
+   * if the node supports it, or `eth_getTransactionReceipt` (one call per transaction) otherwise.
+   *
+   * @return an [[Option]] (empty if reading any of the blocks failed somehow), containing the sequence
+   *         (with exactly the blocks from the `range`, in the same order) of the same tuples
+   *         as [[readBlockWeb3j]] returns.
+   */
+  protected[this] def readBlocksWeb3j(range: dlt.EthereumBlock.BlockNumberRange
+                                     ): Option[Seq[(EthBlock.Block, Seq[Transaction], Map[String, TransactionReceipt])]] = {
+    require(range.isEmpty || range.head >= 0, range)
+
     try {
       val startTime = System.nanoTime
 
-      val block: EthBlock.Block = web3j.ethGetBlockByNumber(new DefaultBlockParameterNumber(blockNumber.bigInteger), true).send.getBlock
+      val blocks: Seq[EthBlock.Block] = checkErrors(
+        "eth_getBlockByNumber",
+        sendBatch(range.map(blockNumber =>
+          web3j.ethGetBlockByNumber(new DefaultBlockParameterNumber(BigInteger.valueOf(blockNumber)), true)
+        ))
+      ).map(_.getBlock)
 
       // Very basic validation
-      if (block.getNumber != blockNumber.bigInteger) {
+      val badBlock: Option[(Int, EthBlock.Block)] = range.zip(blocks).find { case (blockNumber, block) =>
+        block == null || block.getNumber != BigInteger.valueOf(blockNumber)
+      }
+
+      if (badBlock.nonEmpty) {
         // Very basic validation failed
-        logger.error(s"We've requested block $blockNumber but received block ${block.getNumber} (${block.getHash})")
+        val (blockNumber, block) = badBlock.get
+        logger.error(s"We've requested block $blockNumber but received block " +
+          s"${Option(block).map(bl => s"${bl.getNumber} (${bl.getHash})").getOrElse("null")}")
         None
       } else {
         // Very basic validation succeeded!
 
         // Get the web3j-style transactions
-        val transactions: Seq[Transaction] = block.getTransactions.asScala.to(List).map(_.asInstanceOf[TransactionObject].get)
-
-        // Get all the receipts, as fast as we can, in a parallel way
-        val validReceipts: List[TransactionReceipt] = {
-          // There is a complex asynchronous launch, do it inside
-          val receiptFutures: LazyList[Future[EthGetTransactionReceipt]] =
-            transactions.to(LazyList).map(
-              tr => web3j.ethGetTransactionReceipt(tr.getHash).sendAsync.asScala
-            )
-
-          val batchSize = 64
-          val receiptFuturesBatched: LazyList[LazyList[Future[EthGetTransactionReceipt]]] = receiptFutures.sliding(batchSize, batchSize).to(LazyList)
-
-          val totalReceipts: Seq[Option[TransactionReceipt]] = receiptFuturesBatched.map(lazyBatchOfFutures => {
-            val batchOfFutures: Seq[Future[EthGetTransactionReceipt]] = lazyBatchOfFutures.toList
-            val futureOfBatch: Future[Seq[EthGetTransactionReceipt]] = Future.sequence(batchOfFutures)
-            val batchResult: Seq[EthGetTransactionReceipt] = Await.result(futureOfBatch, Duration.Inf)
-
-            batchResult.map(trr => trr.getTransactionReceipt.toScala)
-          }).flatten.toList
-
-          logger.debug(s"Total receipts: ${totalReceipts.length}")
-          totalReceipts.flatten.to(List)
+        val blocksWithTransactions: Seq[(EthBlock.Block, Seq[Transaction])] = blocks.map { block =>
+          block -> block.getTransactions.asScala.to(List).map(_.asInstanceOf[TransactionObject].get)
         }
-        logger.debug(s"Valid receipts: ${validReceipts.length}")
 
-        // Map from transaction hash to transaction receipt
-        val receiptsByTrHash: Map[String, TransactionReceipt] =
-          validReceipts.iterator.map(v => v.getTransactionHash -> v).toMap
-        require(receiptsByTrHash.size == validReceipts.size, (receiptsByTrHash.size, validReceipts.size))
+        // Map from block hash to the transaction receipts in it
+        val receiptsByBlockHash: Map[String, Seq[TransactionReceipt]] = readReceiptsWeb3j(blocksWithTransactions)
 
-        //        logger.debug("Transactions:")
-        //        for (tr <- transactions) {
-        //          val value = EthUtils.Wei.valueFromWeis(tr.getValue)
-        //          logger.debug(s"Transaction: Hash ${tr.getHash}: value $value, gas ${tr.getGas}, gas price ${tr.getGasPrice}")
-        //        }
-
-        //        logger.debug(s"Transaction receipts (very detailed): $receiptsByTrHash")
-        //        for ((key, trRec) <- receiptsByTrHash) {
-        //          logger.debug(s"TR receipt ($key): $trRec")
-        //        }
+        val result = for ((block, transactions) <- blocksWithTransactions) yield {
+          val validReceipts = receiptsByBlockHash.getOrElse(block.getHash, Seq.empty)
+          // Map from transaction hash to transaction receipt
+          val receiptsByTrHash: Map[String, TransactionReceipt] =
+            validReceipts.iterator.map(v => v.getTransactionHash -> v).toMap
+          (block, transactions, receiptsByTrHash)
+        }
 
         val duration = Duration(System.nanoTime - startTime, TimeUnit.NANOSECONDS)
-        logger.debug(s"Duration ${duration.toMillis} ms")
+        logger.debug(s"Read ${range.length} blocks with ${result.map(_._2.size).sum} transactions " +
+          s"in ${duration.toMillis} ms")
 
-        Some((block, transactions, receiptsByTrHash))
+        // These may easily fail if the node is not fully synced
+        result.find { case (block, transactions, receiptsByTrHash) => transactions.size != receiptsByTrHash.size } match {
+          case Some((block, transactions, receiptsByTrHash)) =>
+            logger.error(s"Block ${block.getNumber} (${block.getHash}) has ${transactions.size} transactions " +
+              s"but ${receiptsByTrHash.size} valid receipts; is the node fully synced?")
+            None
+          case None =>
+            Some(result)
+        }
       }
     } catch {
       case NonFatal(e) =>
-        logger.error("On iteration, got a error", e)
+        logger.error(s"On reading blocks $range, got a error", e)
         None
     }
   }
 
+  /** Get the receipts for all the transactions in the blocks, using JSON-RPC 2.0 batch requests.
+   *
+   * @param blocksWithTransactions the blocks, each with its transactions.
+   * @return mapping from the block hash to the receipts of the transactions in this block.
+   * @throws IOException if any network problem occurred.
+   */
+  private[this] def readReceiptsWeb3j(blocksWithTransactions: Seq[(EthBlock.Block, Seq[Transaction])]
+                                     ): Map[String, Seq[TransactionReceipt]] = {
+    // Don’t even ask for the receipts of the blocks without transactions
+    val nonEmptyBlocks = blocksWithTransactions.filter { case (block, transactions) => transactions.nonEmpty }
+
+    val receiptsByBlocks: Option[Map[String, Seq[TransactionReceipt]]] =
+      if (nonEmptyBlocks.isEmpty) {
+        Some(Map.empty)
+      } else if (blockReceiptsUnsupported) {
+        None
+      } else {
+        readReceiptsByBlocks(nonEmptyBlocks.map(_._1))
+      }
+
+    // If the node doesn’t support `eth_getBlockReceipts`, fall back to `eth_getTransactionReceipt`
+    receiptsByBlocks.getOrElse {
+      checkErrors(
+        "eth_getTransactionReceipt",
+        sendBatch(nonEmptyBlocks.flatMap(_._2).map(tr => web3j.ethGetTransactionReceipt(tr.getHash)))
+      )
+        .flatMap(_.getTransactionReceipt.toScala)
+        .groupBy(_.getBlockHash)
+    }
+  }
+
+  /** Get the receipts for all the transactions in the blocks, using `eth_getBlockReceipts` JSON-RPC method.
+   *
+   * @return mapping from the block hash to the receipts of the transactions in this block;
+   *         or [[None]] if the node doesn’t support `eth_getBlockReceipts`.
+   * @throws IOException if any network problem occurred.
+   */
+  private[this] def readReceiptsByBlocks(blocks: Seq[EthBlock.Block]): Option[Map[String, Seq[TransactionReceipt]]] = {
+    import EthereumSingleNodeJsonRpcConnector.{EthGetBlockReceipts, JSON_RPC_METHOD_NOT_FOUND}
+
+    val responses: Seq[EthGetBlockReceipts] = sendBatch(
+      blocks.map(block =>
+        new Request[String, EthGetBlockReceipts](
+          "eth_getBlockReceipts",
+          List(encodeQuantity(block.getNumber)).asJava,
+          web3jService,
+          classOf[EthGetBlockReceipts]
+        )
+      ),
+      EthereumSingleNodeJsonRpcConnector.MAX_BLOCK_RECEIPTS_PER_BATCH
+    )
+
+    responses.find(_.hasError).map(_.getError) match {
+      case Some(error) if error.getCode == JSON_RPC_METHOD_NOT_FOUND =>
+        logger.warn(s"$this doesn't support eth_getBlockReceipts (${error.getMessage}), " +
+          "using eth_getTransactionReceipt instead")
+        blockReceiptsUnsupported = true
+        None
+      case _ =>
+        Some(
+          blocks.zip(checkErrors("eth_getBlockReceipts", responses)).map { case (block, response) =>
+            block.getHash -> Option(response.getResult).map(_.asScala.toList).getOrElse(Nil)
+          }.toMap
+        )
+    }
+  }
+
+  /** Send the JSON-RPC requests as JSON-RPC 2.0 batches (each containing
+   * up to `batchSize` requests).
+   *
+   * @return the responses, in the same order as the `requests`.
+   * @throws IOException if any network problem occurred.
+   */
+  private[this] def sendBatch[T <: Response[_]](requests: Seq[Request[_, T]],
+                                                batchSize: Int = EthereumSingleNodeJsonRpcConnector.MAX_REQUESTS_PER_BATCH
+                                               ): Seq[T] =
+    requests
+      .grouped(batchSize)
+      .flatMap { requestsInBatch =>
+        val batch = requestsInBatch.foldLeft(web3j.newBatch())(_ add _)
+        // The node may return the responses in any order; match them to the requests by their ids
+        val responsesById: Map[Long, Response[_]] =
+          batch.send.getResponses.asScala.iterator.map(resp => resp.getId -> resp).toMap
+
+        requestsInBatch.map(request =>
+          responsesById.get(request.getId) match {
+            case Some(response) => response.asInstanceOf[T]
+            case None => throw new IOException(s"No response for ${request.getMethod} request ${request.getId}")
+          }
+        )
+      }
+      .toSeq
+
+  /** Make sure none of the JSON-RPC `responses` (for `method`) is an error.
+   *
+   * @return the `responses`, unchanged.
+   * @throws IOException if any of the responses is an error.
+   */
+  private[this] def checkErrors[T <: Response[_]](method: String, responses: Seq[T]): Seq[T] = {
+    responses.find(_.hasError).foreach { response =>
+      throw new IOException(s"$method failed: ${response.getError.getCode} ${response.getError.getMessage}")
+    }
+    responses
+  }
+
   override def readBlock(blockNumber: BigInt): Option[SingleBlockData] = {
     require(blockNumber >= 0, blockNumber)
 
     readBlockWeb3j(blockNumber) match {
       case None => None
-      case Some((w3jBlock, w3jTransactions, w3jReceiptsByTrHash)) => {
-        require(blockNumber.bigInteger == w3jBlock.getNumber,
-          (blockNumber, w3jBlock.getNumber))
-        // These may easily fail if the node is not fully synced
-        require(w3jBlock.getTransactions.size == w3jTransactions.size,
-          (blockNumber, w3jBlock.getTransactions.size, w3jTransactions.size))
-        require(w3jTransactions.size == w3jReceiptsByTrHash.size,
-          (blockNumber, w3jTransactions.size, w3jReceiptsByTrHash.size))
-
-        val blockHash = w3jBlock.getHash
-
-        val w3jTransactionsByHash = w3jTransactions.map(tr => tr.getHash -> tr).toMap
-
-        // Now let’s validate all of the transaction receipts.
-        // Let’s find any one bad transaction receipt, that may be:
-        // 1. a receipt where the referred block doesn’t match the block we’ve requested, or:
-        // 2. a receipt where the referred transaction doesn’t match
-        //    the transaction from this block;
-        val badReceipt: Option[TransactionReceipt] = w3jReceiptsByTrHash.values.find(trRcpt =>
-          // The transaction receipt refers to a different block hash
-          (trRcpt.getBlockHash != blockHash) ||
-            // The transaction receipt refers to a different block number
-            (trRcpt.getBlockNumber != blockNumber.bigInteger) ||
-            // The transaction receipt hash for some reason don’t present in the original list of transactions
-            !w3jTransactionsByHash.contains(trRcpt.getTransactionHash) ||
-            // Original transaction in a block has a different transaction index
-            (w3jTransactionsByHash(trRcpt.getTransactionHash).getTransactionIndex != trRcpt.getTransactionIndex)
-        )
+      case Some((w3jBlock, w3jTransactions, w3jReceiptsByTrHash)) =>
+        blockDataFromWeb3j(blockNumber, w3jBlock, w3jTransactions, w3jReceiptsByTrHash)
+    }
+  }
 
-        if (badReceipt.nonEmpty) {
-          // We have some bad receipt; treat it as error
-          logger.error(s"Receipt ${badReceipt.get} is invalid! " +
-            s"Whole block $blockNumber is considered invalid, need to reread")
-          None
-        } else {
-          // We don’t have bad receipts, so it’s actually a good set of data
-          val blockTime = Instant.ofEpochSecond(w3jBlock.getTimestamp.longValueExact)
-
-          val block = dlt.EthereumBlock(
-            blockNumber.bigInteger.intValueExact,
-            blockHash,
-            Some(w3jBlock.getParentHash),
-            blockTime
-          )
-          logger.debug(s"Read block $block")
-
-          val minedTransactions = for (w3jTr <- w3jTransactions) yield {
-            val trHash = w3jTr.getHash
-            val w3jTrReceipt = w3jReceiptsByTrHash(trHash) // it must exist
-            assert(trHash == w3jTrReceipt.getTransactionHash, (trHash, w3jTrReceipt.getTransactionHash))
-
-            dlt.EthereumMinedTransaction(
-              // *** Before-mined transaction ***
-              txhash = w3jTr.getHash,
-              from = w3jTr.getFrom,
-              to = Option(w3jTr.getTo), // Option(nullable)
-              gas = w3jTr.getGas,
-              gasPrice = w3jTr.getGasPrice,
-              nonce = w3jTr.getNonce.intValueExact,
-              value = w3jTr.getValue,
-              // *** Mined transaction ***
-              // "status" – EIP 658, since Byzantium fork
-              // using Option(nullable)
-              status = Option(w3jTrReceipt.getStatus).map(decodeQuantity(_).intValueExact),
-              blockNumber = w3jTr.getBlockNumber,
-              transactionIndex = w3jTrReceipt.getTransactionIndex.intValueExact,
-              gasUsed = w3jTrReceipt.getGasUsed,
-              effectiveGasPrice = decodeQuantity(w3jTrReceipt.getEffectiveGasPrice),
-              cumulativeGasUsed = w3jTrReceipt.getCumulativeGasUsed,
-              txLogs = EthereumSingleNodeJsonRpcConnector.getLogsFromTransactionReceipt(w3jTrReceipt)
-            )
+  /** Read the blocks using the JSON-RPC 2.0 batch requests; see [[readBlocksWeb3j]]. */
+  override def readBlocks(range: dlt.EthereumBlock.BlockNumberRange): Option[Seq[SingleBlockData]] = {
+    readBlocksWeb3j(range) match {
+      case None => None
+      case Some(blocksWeb3j) =>
+        reduceOptionSeq(
+          blocksWeb3j.map { case (w3jBlock, w3jTransactions, w3jReceiptsByTrHash) =>
+            blockDataFromWeb3j(w3jBlock.getNumber, w3jBlock, w3jTransactions, w3jReceiptsByTrHash)
           }
-          Some((block, minedTransactions))
-        }
+        )
+    }
+  }
+
+  /** Convert the block data from Web3j-style classes (as returned by [[readBlockWeb3j]])
+   * to the [[SingleBlockData]], validating it.
+   *
+   * @return [[None]] if any transaction receipt is invalid.
+   */
+  private[this] def blockDataFromWeb3j(blockNumber: BigInt,
+                                       w3jBlock: EthBlock.Block,
+                                       w3jTransactions: Seq[Transaction],
+                                       w3jReceiptsByTrHash: Map[String, TransactionReceipt]): Option[SingleBlockData] = {
+    require(blockNumber.bigInteger == w3jBlock.getNumber,
+      (blockNumber, w3jBlock.getNumber))
+    // These may easily fail if the node is not fully synced
+    require(w3jBlock.getTransactions.size == w3jTransactions.size,
+      (blockNumber, w3jBlock.getTransactions.size, w3jTransactions.size))
+    require(w3jTransactions.size == w3jReceiptsByTrHash.size,
+      (blockNumber, w3jTransactions.size, w3jReceiptsByTrHash.size))
+
+    val blockHash = w3jBlock.getHash
+
+    val w3jTransactionsByHash = w3jTransactions.map(tr => tr.getHash -> tr).toMap
+
+    // Now let’s validate all of the transaction receipts.
+    // Let’s find any one bad transaction receipt, that may be:
+    // 1. a receipt where the referred block doesn’t match the block we’ve requested, or:
+    // 2. a receipt where the referred transaction doesn’t match
+    //    the transaction from this block;
+    val badReceipt: Option[TransactionReceipt] = w3jReceiptsByTrHash.values.find(trRcpt =>
+      // The transaction receipt refers to a different block hash
+      (trRcpt.getBlockHash != blockHash) ||
+        // The transaction receipt refers to a different block number
+        (trRcpt.getBlockNumber != blockNumber.bigInteger) ||
+        // The transaction receipt hash for some reason don’t present in the original list of transactions
+        !w3jTransactionsByHash.contains(trRcpt.getTransactionHash) ||
+        // Original transaction in a block has a different transaction index
+        (w3jTransactionsByHash(trRcpt.getTransactionHash).getTransactionIndex != trRcpt.getTransactionIndex)
+    )
+
+    if (badReceipt.nonEmpty) {
+      // We have some bad receipt; treat it as error
+      logger.error(s"Receipt ${badReceipt.get} is invalid! " +
+        s"Whole block $blockNumber is considered invalid, need to reread")
+      None
+    } else {
+      // We don’t have bad receipts, so it’s actually a good set of data
+      val blockTime = Instant.ofEpochSecond(w3jBlock.getTimestamp.longValueExact)
+
+      val block = dlt.EthereumBlock(
+        blockNumber.bigInteger.intValueExact,
+        blockHash,
+        Some(w3jBlock.getParentHash),
+        blockTime
+      )
+      logger.debug(s"Read block $block")
+
+      val minedTransactions = for (w3jTr <- w3jTransactions) yield {
+        val trHash = w3jTr.getHash
+        val w3jTrReceipt = w3jReceiptsByTrHash(trHash) // it must exist
+        assert(trHash == w3jTrReceipt.getTransactionHash, (trHash, w3jTrReceipt.getTransactionHash))
+
+        dlt.EthereumMinedTransaction(
+          // *** Before-mined transaction ***
+          txhash = w3jTr.getHash,
+          from = w3jTr.getFrom,
+          to = Option(w3jTr.getTo), // Option(nullable)
+          gas = w3jTr.getGas,
+          gasPrice = w3jTr.getGasPrice,
+          nonce = w3jTr.getNonce.intValueExact,
+          value = w3jTr.getValue,
+          // *** Mined transaction ***
+          // "status" – EIP 658, since Byzantium fork
+          // using Option(nullable)
+          status = Option(w3jTrReceipt.getStatus).map(decodeQuantity(_).intValueExact),
+          blockNumber = w3jTr.getBlockNumber,
+          transactionIndex = w3jTrReceipt.getTransactionIndex.intValueExact,
+          gasUsed = w3jTrReceipt.getGasUsed,
+          effectiveGasPrice = decodeQuantity(w3jTrReceipt.getEffectiveGasPrice),
+          cumulativeGasUsed = w3jTrReceipt.getCumulativeGasUsed,
+          txLogs = EthereumSingleNodeJsonRpcConnector.getLogsFromTransactionReceipt(w3jTrReceipt)
+        )
       }
+      Some((block, minedTransactions))
     }
   }
 
@@ -434,6 +587,25 @@ object EthereumSingleNodeJsonRpcConnector {
   @inline def apply(nodeUrl: String): EthereumSingleNodeJsonRpcConnector =
     new EthereumSingleNodeJsonRpcConnector(nodeUrl)
 
+  /** How many JSON-RPC requests may be sent in a single JSON-RPC 2.0 batch.
+   *
+   * The nodes limit the batches (e.g. Geth allows up to 1000 requests and 25 MB of response in a batch).
+   */
+  val MAX_REQUESTS_PER_BATCH = 100
+
+  /** How many `eth_getBlockReceipts` requests may be sent in a single JSON-RPC 2.0 batch.
+   *
+   * The receipts of a single full Mainnet block (with all their logs) may take megabytes;
+   * so much fewer of them fit in a batch response, not to exceed the node limit on its size.
+   */
+  val MAX_BLOCK_RECEIPTS_PER_BATCH = 5
+
+  /** JSON-RPC 2.0 error code “Method not found”. */
+  private val JSON_RPC_METHOD_NOT_FOUND = -32601
+
+  /** The response to `eth_getBlockReceipts` JSON-RPC method (which is not supported by Web3j directly). */
+  class EthGetBlockReceipts extends Response[java.util.List[TransactionReceipt]]
+
   /** Convert the web3j-provided [[TransactionReceipt]] to the [[Seq]] of [[dlt.EthereumTxLog]]. */
   private def getLogsFromTransactionReceipt(trReceipt: TransactionReceipt): Seq[dlt.EthereumTxLog] = trReceipt
     .getLogs
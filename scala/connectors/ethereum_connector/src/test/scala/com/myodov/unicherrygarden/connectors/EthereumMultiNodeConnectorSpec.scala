@@ -0,0 +1,153 @@
+package com.myodov.unicherrygarden.connectors
+
+import java.time.Instant
+import java.util.concurrent.{ConcurrentLinkedQueue, CountDownLatch}
+
+import com.myodov.unicherrygarden.AbstractEthereumNodeConnector.SingleBlockData
+import com.myodov.unicherrygarden.api.dlt.EthereumBlock
+import com.myodov.unicherrygarden.api.types.SystemStatus
+import com.myodov.unicherrygarden.{AbstractEthereumNodeConnector, Web3ReadOperations, Web3WriteOperations}
+import org.scalatest.flatspec.AnyFlatSpec
+
+import scala.concurrent.duration._
+import scala.jdk.CollectionConverters._
+
+class EthereumMultiNodeConnectorSpec extends AnyFlatSpec {
+
+  /** The node connector that reads the blocks without any network, remembering which ranges were requested.
+   *
+   * @param name      the name of the node.
+   * @param lastBlock the node has the blocks only up to this one, and returns the ranges truncated after it.
+   * @param failures  how many first requests to the node fail.
+   * @param latch     if defined, every request to the node waits for it first.
+   */
+  private class StubNode(name: String,
+                         lastBlock: Int = Int.MaxValue,
+                         @volatile var failures: Int = 0,
+                         latch: Option[CountDownLatch] = None)
+    extends AbstractEthereumNodeConnector(name)
+      with Web3ReadOperations
+      with Web3WriteOperations {
+    val requests = new ConcurrentLinkedQueue[EthereumBlock.BlockNumberRange]()
+
+    def requested: List[EthereumBlock.BlockNumberRange] = requests.asScala.toList
+
+    override def toString: String = s"StubNode($name)"
+
+    override def readBlocks(range: EthereumBlock.BlockNumberRange): Option[Seq[SingleBlockData]] = {
+      requests.add(range)
+      latch.foreach(_.await())
+      val fail = synchronized {
+        if (failures > 0) {
+          failures -= 1
+          true
+        } else {
+          false
+        }
+      }
+      if (fail) None else Some(range.filter(_ <= lastBlock).map(block))
+    }
+
+    override def readBlock(blockNumber: BigInt): Option[SingleBlockData] =
+      readBlocks(blockNumber.intValue to blockNumber.intValue).flatMap(_.headOption)
+
+    override def ethBlockchainStatus: Option[SystemStatus.Blockchain] = None
+
+    override def getAddressNonces(address: String): Option[(Int, Option[Int])] = ???
+
+    override def ethSendRawTransaction(bytes: Array[Byte]): Either[String, String] = ???
+  }
+
+  private def block(number: Int): SingleBlockData =
+    (EthereumBlock(number, f"0x$number%064x", None, Instant.ofEpochSecond(1600000000L + number)), Seq.empty)
+
+  private def connector(nodes: StubNode*): EthereumMultiNodeConnector =
+    EthereumMultiNodeConnector(nodes, maxLag = 5, minHedgeDelay = 10 seconds, maxParallelReads = 2)
+
+  private def blockNumbers(result: Option[Seq[SingleBlockData]]): Option[Seq[Int]] =
+    result.map(_.map(_._1.number))
+
+  "EthereumMultiNodeConnector" should "split the blocks range between the nodes" in {
+    val (node1, node2, node3) = (new StubNode("node1"), new StubNode("node2"), new StubNode("node3"))
+    val result = connector(node1, node2, node3).readBlocks(0 until 30)
+
+    assert(blockNumbers(result) == Some(0 until 30))
+    // No speeds measured yet, so the range is split equally
+    assert(node1.requested == List(0 until 10))
+    assert(node2.requested == List(10 until 20))
+    assert(node3.requested == List(20 until 30))
+  }
+
+  it should "not split the blocks range into too small parts" in {
+    val (node1, node2) = (new StubNode("node1"), new StubNode("node2"))
+    val result = connector(node1, node2).readBlocks(0 until EthereumMultiNodeConnector.MIN_BLOCKS_PER_PART + 2)
+
+    assert(blockNumbers(result) == Some(0 until EthereumMultiNodeConnector.MIN_BLOCKS_PER_PART + 2))
+    assert(node1.requested == List(0 until EthereumMultiNodeConnector.MIN_BLOCKS_PER_PART + 2))
+    assert(node2.requested.isEmpty)
+  }
+
+  it should "read an empty range without any requests" in {
+    val node1 = new StubNode("node1")
+
+    assert(connector(node1).readBlocks(0 until 0) == Some(Seq.empty))
+    assert(node1.requested.isEmpty)
+  }
+
+  it should "fail over to another node if some node fails" in {
+    val (node1, node2) = (new StubNode("node1", failures = 1), new StubNode("node2"))
+    val result = connector(node1, node2).readBlocks(0 until 10)
+
+    assert(blockNumbers(result) == Some(0 until 10))
+    assert(node1.requested == List(0 until 5))
+    assert(node2.requested.toSet == Set(0 until 5, 5 until 10))
+  }
+
+  it should "fail if the part cannot be read from any node" in {
+    val (node1, node2) = (new StubNode("node1", failures = 10), new StubNode("node2", failures = 10))
+
+    assert(connector(node1, node2).readBlocks(0 until 10).isEmpty)
+    assert(connector(node1, node2).readBlock(3).isEmpty)
+  }
+
+  it should "give less blocks to the failing nodes" in {
+    val (node1, node2) = (new StubNode("node1", failures = 1), new StubNode("node2"))
+    val multiNode = connector(node1, node2)
+    multiNode.readBlocks(0 until 10) // node1 fails once
+    node1.requests.clear()
+    node2.requests.clear()
+
+    val result = multiNode.readBlocks(0 until 30)
+
+    assert(blockNumbers(result) == Some(0 until 30))
+    // node1 is considered twice as slow as node2 now; node2 goes first and reads twice as many blocks
+    assert(node2.requested == List(0 until 20))
+    assert(node1.requested == List(20 until 30))
+  }
+
+  it should "truncate the result after the part read incompletely" in {
+    // The first part is complete, the second one is not
+    val (node1, node2) = (new StubNode("node1"), new StubNode("node2", lastBlock = 6))
+    assert(blockNumbers(connector(node1, node2).readBlocks(0 until 10)) == Some(0 to 6))
+
+    // The first part is incomplete, so the complete second part cannot be used
+    val (node3, node4) = (new StubNode("node3", lastBlock = 2), new StubNode("node4"))
+    assert(blockNumbers(connector(node3, node4).readBlocks(0 until 10)) == Some(0 to 2))
+  }
+
+  it should "hedge the request to another node if the node is too slow" in {
+    val stuck = new CountDownLatch(1)
+    try {
+      val (node1, node2) = (new StubNode("node1", latch = Some(stuck)), new StubNode("node2"))
+      val multiNode = EthereumMultiNodeConnector(Seq(node1, node2), maxLag = 5,
+        minHedgeDelay = 100 milliseconds, maxParallelReads = 2)
+
+      // node1 never answers until released; so the answer may come from node2 only
+      assert(blockNumbers(multiNode.readBlock(3).map(Seq(_))) == Some(Seq(3)))
+      assert(node1.requested == List(3 to 3))
+      assert(node2.requested == List(3 to 3))
+    } finally {
+      stuck.countDown()
+    }
+  }
+}
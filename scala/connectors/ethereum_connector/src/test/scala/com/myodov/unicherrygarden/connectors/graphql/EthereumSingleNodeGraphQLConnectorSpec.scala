@@ -1,6 +1,7 @@
 package com.myodov.unicherrygarden.connectors.graphql
 
 import com.myodov.unicherrygarden.connectors.AbstractEthereumNodeConnectorSpec
+import com.myodov.unicherrygarden.ethereum.Ethereum.ERC20.TRANSFER_EVENT_SIGNATURE
 
 class EthereumSingleNodeGraphQLConnectorSpec extends AbstractEthereumNodeConnectorSpec {
   lazy val sharedConnector = EthereumSingleNodeGraphQLConnector(config.getStringList("unicherrygarden.ethereum.rpc_servers").get(0))
@@ -16,4 +17,40 @@ class EthereumSingleNodeGraphQLConnectorSpec extends AbstractEthereumNodeConnect
       sharedConnector.readBlocks(12_329_000 until 12_329_050).get.size == 50
     )
   }
+
+  "readBlocks(range, addressesOfInterest)" should "find the same ERC20 transfers as the generic filtering" in {
+    val addressesOfInterest = Set("0x3452519f4711703e13ea0863487eb8401bd6ae57")
+    assertResult(
+      sharedConnector.readBlock(10_381_084, addressesOfInterest).map(Seq(_))
+    )(
+      sharedConnector.readBlocks(10_381_084 to 10_381_084, addressesOfInterest)
+    )
+  }
+
+  "transferLogsTopicsFilters" should "split the addresses not to exceed the filter limits" in {
+    val addresses = (1 to 2500).map(i => f"0x$i%064x").toList
+    val filters = EthereumSingleNodeGraphQLConnector.transferLogsTopicsFilters(addresses)
+
+    // 3 chunks, each for `from` and `to`
+    assert(filters.size == 6)
+    assert(filters.forall(_.head == List(TRANSFER_EVENT_SIGNATURE)))
+    assert(filters.forall(_.forall(_.size <= EthereumSingleNodeGraphQLConnector.MAX_TOPICS_PER_FILTER_POSITION)))
+
+    val (fromFilters, toFilters) = filters.partition(_.size == 2)
+    assert(fromFilters.flatMap(_(1)) == addresses)
+    assert(toFilters.map(_(1)).forall(_.isEmpty))
+    assert(toFilters.flatMap(_(2)) == addresses)
+  }
+
+  it should "use a single chunk for a few addresses" in {
+    val addresses = List(f"0x${1}%064x", f"0x${2}%064x")
+    assertResult(
+      List(
+        List(List(TRANSFER_EVENT_SIGNATURE), addresses),
+        List(List(TRANSFER_EVENT_SIGNATURE), Nil, addresses)
+      )
+    )(
+      EthereumSingleNodeGraphQLConnector.transferLogsTopicsFilters(addresses)
+    )
+  }
 }
@@ -0,0 +1,170 @@
+package com.myodov.unicherrygarden.connectors.graphql
+
+import java.io.{ByteArrayInputStream, IOException}
+import java.nio.charset.StandardCharsets
+
+import com.myodov.unicherrygarden.connectors.graphql.types._
+import org.scalatest.flatspec.AnyFlatSpec
+
+class StreamingResponseReaderSpec extends AnyFlatSpec {
+  private val bloom = "0x" + "00" * 256
+
+  private val hash1 = "0x" + "11" * 32
+  private val hash2 = "0x" + "22" * 32
+  private val txHash = "0x" + "33" * 32
+  private val address1 = "0x" + "44" * 20
+  private val address2 = "0x" + "55" * 20
+
+  /** Read the `blocks` list from the `json` response, collecting all the accepted block headers. */
+  private def readBlocks(json: String,
+                         accept: BlockHeaderView => Boolean = _ => true
+                        ): (Either[String, Unit], List[BlockHeaderView]) = {
+    val items = List.newBuilder[BlockHeaderView]
+    val result = StreamingResponseReader.readListField(
+      new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+      "blocks",
+      BlockHeader.view
+    ) { item =>
+      items += item
+      accept(item)
+    }
+    (result, items.result())
+  }
+
+  "StreamingResponseReader.requestBody" should "escape the query" in {
+    assertResult(
+      """{"query":"{ blocks(from: 1) { hash } } \"x\""}"""
+    )(
+      StreamingResponseReader.requestBody("""{ blocks(from: 1) { hash } } "x"""")
+    )
+  }
+
+  "StreamingResponseReader.readListField" should "decode the nested objects of every item" in {
+    val json =
+      s"""{"data": {"blocks": [
+         |  {"number": 1, "hash": "$hash1", "parent": {"number": 0, "hash": "$hash2"}, "timestamp": 1600000000,
+         |   "logsBloom": "$bloom",
+         |   "transactions": [{"hash": "$txHash", "from": {"address": "$address1"}, "to": {"address": "$address2"}}]},
+         |  {"number": 2, "hash": "$hash2", "parent": {"number": 1, "hash": "$hash1"}, "timestamp": 1600000015,
+         |   "logsBloom": "$bloom", "transactions": []}
+         |]}}""".stripMargin
+
+    assertResult(
+      (
+        Right(()),
+        List(
+          BlockHeaderView(1, hash1, Some(BlockMinimalView(0, hash2)), 1600000000, bloom, Some(List(
+            TransactionParticipantsView(txHash, AccountMinimalView(address1), Some(AccountMinimalView(address2)))
+          ))),
+          BlockHeaderView(2, hash2, Some(BlockMinimalView(1, hash1)), 1600000015, bloom, Some(Nil))
+        )
+      )
+    )(
+      readBlocks(json)
+    )
+  }
+
+  it should "decode the null fields as missing" in {
+    val json =
+      s"""{"data": {"blocks": [
+         |  {"number": 0, "hash": "$hash1", "parent": null, "timestamp": 1600000000, "logsBloom": "$bloom",
+         |   "transactions": [{"hash": "$txHash", "from": {"address": "$address1"}, "to": null}]},
+         |  {"number": 1, "hash": "$hash2", "parent": {"number": 0, "hash": "$hash1"}, "timestamp": 1600000015,
+         |   "logsBloom": "$bloom", "transactions": null}
+         |]}}""".stripMargin
+
+    assertResult(
+      (
+        Right(()),
+        List(
+          BlockHeaderView(0, hash1, None, 1600000000, bloom, Some(List(
+            TransactionParticipantsView(txHash, AccountMinimalView(address1), None)
+          ))),
+          BlockHeaderView(1, hash2, Some(BlockMinimalView(0, hash1)), 1600000015, bloom, None)
+        )
+      )
+    )(
+      readBlocks(json)
+    )
+  }
+
+  it should "accept the empty or null list" in {
+    assertResult((Right(()), Nil))(readBlocks("""{"data": {"blocks": []}}"""))
+    assertResult((Right(()), Nil))(readBlocks("""{"data": {"blocks": null}}"""))
+  }
+
+  it should "skip the unrelated fields" in {
+    val json =
+      s"""{"extensions": {"cost": [1, 2, {"x": null}]},
+         | "data": {"other": [{"a": 1}], "blocks": [
+         |  {"number": 0, "hash": "$hash1", "parent": null, "timestamp": 1600000000, "logsBloom": "$bloom",
+         |   "transactions": null}
+         |], "more": "x"}}""".stripMargin
+
+    assertResult(
+      (Right(()), List(BlockHeaderView(0, hash1, None, 1600000000, bloom, None)))
+    )(
+      readBlocks(json)
+    )
+  }
+
+  it should "fail on GraphQL errors" in {
+    val (errorsBeforeData, _) =
+      readBlocks("""{"errors": [{"message": "too many blocks", "path": ["blocks"]}], "data": null}""")
+    assert(errorsBeforeData.isLeft)
+    assert(errorsBeforeData.left.exists(_.contains("too many blocks")), errorsBeforeData)
+
+    val (errorsAfterData, _) =
+      readBlocks("""{"data": {"blocks": []}, "errors": [{"message": "partial failure"}]}""")
+    assert(errorsAfterData.left.exists(_.contains("partial failure")), errorsAfterData)
+
+    val (noData, _) = readBlocks("""{"data": null}""")
+    assert(noData.isLeft)
+  }
+
+  it should "fail on the items that cannot be decoded" in {
+    val json =
+      s"""{"data": {"blocks": [
+         |  {"number": "not a number", "hash": "$hash1", "parent": null, "timestamp": 1600000000,
+         |   "logsBloom": "$bloom", "transactions": null}
+         |]}}""".stripMargin
+
+    val (result, items) = readBlocks(json)
+    assert(result.isLeft)
+    assert(items.isEmpty)
+  }
+
+  it should "stop reading as soon as the item is rejected" in {
+    val json =
+      s"""{"data": {"blocks": [
+         |  {"number": 0, "hash": "$hash1", "parent": null, "timestamp": 1600000000, "logsBloom": "$bloom",
+         |   "transactions": null},
+         |  {"number": 1, "hash": "$hash2", "parent": null, "timestamp": 1600000015, "logsBloom": "$bloom",
+         |   "transactions": null}
+         |]}}""".stripMargin
+
+    val (result, items) = readBlocks(json, accept = _ => false)
+    assert(result.isLeft)
+    assert(items.map(_.number) == List(0))
+  }
+
+  it should "fail on the truncated input" in {
+    val json =
+      s"""{"data": {"blocks": [
+         |  {"number": 0, "hash": "$hash1", "parent": null, "timestamp": 1600000000, "logsBloom": "$bloom",
+         |   "transactions": null},
+         |  {"number": 1, "hash": "$hash2", "parent": {"number": 0, "hash": "$hash1"}, "timestamp": 1600000015,
+         |   "logsBloom": "$bloom", "transactions": null}
+         |]}}""".stripMargin
+
+    // Cut at various places: inside the value, between the items, right before the end
+    for (cutAt <- Seq(json.indexOf("\"timestamp\""), json.indexOf("},\n") + 2, json.length - 1)) {
+      assertThrows[IOException] {
+        readBlocks(json.substring(0, cutAt))
+      }
+    }
+    assertThrows[IOException] {
+      readBlocks("")
+    }
+  }
+}
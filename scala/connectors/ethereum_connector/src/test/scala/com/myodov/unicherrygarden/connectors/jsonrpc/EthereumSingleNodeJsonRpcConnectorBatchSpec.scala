@@ -0,0 +1,155 @@
+package com.myodov.unicherrygarden.connectors.jsonrpc
+
+import java.io.{ByteArrayInputStream, InputStream}
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.ConcurrentLinkedQueue
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.myodov.unicherrygarden.AbstractEthereumNodeConnector.SingleBlockData
+import org.scalatest.flatspec.AnyFlatSpec
+import org.web3j.protocol.Service
+import org.web3j.utils.Numeric.decodeQuantity
+
+import scala.jdk.CollectionConverters._
+
+class EthereumSingleNodeJsonRpcConnectorBatchSpec extends AnyFlatSpec {
+
+  /** The JSON-RPC service answering the batches without any network, remembering the methods of every batch.
+   *
+   * Block `n` contains `n % 3` transactions. The responses in a batch are returned in the reverse order.
+   *
+   * @param supportsBlockReceipts whether `eth_getBlockReceipts` method is supported.
+   */
+  private class StubService(supportsBlockReceipts: Boolean) extends Service(false) {
+    private[this] val mapper = new ObjectMapper()
+
+    private[this] val batchesQueue = new ConcurrentLinkedQueue[List[String]]()
+
+    /** The methods of the requests, for every batch sent. */
+    def batches: List[List[String]] = batchesQueue.asScala.toList
+
+    override protected def performIO(payload: String): InputStream = {
+      val requests = mapper.readTree(payload).elements.asScala.toList
+      batchesQueue.add(requests.map(_.get("method").asText))
+
+      val responses = requests.reverse.map { request =>
+        val id = request.get("id").asLong
+        val param = request.get("params").get(0).asText
+        request.get("method").asText match {
+          case "eth_getBlockByNumber" =>
+            s"""{"jsonrpc": "2.0", "id": $id, "result": ${blockJson(decodeQuantity(param).intValueExact)}}"""
+          case "eth_getBlockReceipts" if supportsBlockReceipts =>
+            val blockNumber = decodeQuantity(param).intValueExact
+            val receipts = (0 until blockNumber % 3).map(receiptJson(blockNumber, _))
+            s"""{"jsonrpc": "2.0", "id": $id, "result": ${receipts.mkString("[", ",", "]")}}"""
+          case "eth_getBlockReceipts" =>
+            s"""{"jsonrpc": "2.0", "id": $id, "error": {"code": -32601, "message": "the method does not exist"}}"""
+          case "eth_getTransactionReceipt" =>
+            val (blockNumber, index) = parseTxHash(param)
+            s"""{"jsonrpc": "2.0", "id": $id, "result": ${receiptJson(blockNumber, index)}}"""
+        }
+      }
+      new ByteArrayInputStream(responses.mkString("[", ",", "]").getBytes(StandardCharsets.UTF_8))
+    }
+
+    override def close(): Unit = ()
+  }
+
+  private def blockHash(blockNumber: Int): String = f"0x$blockNumber%064x"
+
+  private def txHash(blockNumber: Int, index: Int): String = f"0x$blockNumber%032x$index%032x"
+
+  private def parseTxHash(hash: String): (Int, Int) =
+    (Integer.parseInt(hash.substring(2, 34), 16), Integer.parseInt(hash.substring(34), 16))
+
+  private def blockJson(blockNumber: Int): String = {
+    val transactions = (0 until blockNumber % 3).map { index =>
+      s"""{
+         |  "hash": "${txHash(blockNumber, index)}",
+         |  "nonce": "0x$index",
+         |  "blockHash": "${blockHash(blockNumber)}",
+         |  "blockNumber": "0x${blockNumber.toHexString}",
+         |  "transactionIndex": "0x${index.toHexString}",
+         |  "from": "0x${"11" * 20}",
+         |  "to": "0x${"22" * 20}",
+         |  "value": "0x1",
+         |  "gasPrice": "0x3b9aca00",
+         |  "gas": "0x5208",
+         |  "input": "0x"
+         |}""".stripMargin
+    }
+    s"""{
+       |  "number": "0x${blockNumber.toHexString}",
+       |  "hash": "${blockHash(blockNumber)}",
+       |  "parentHash": "${blockHash(blockNumber - 1)}",
+       |  "timestamp": "0x${(1600000000 + blockNumber).toHexString}",
+       |  "transactions": ${transactions.mkString("[", ",", "]")}
+       |}""".stripMargin
+  }
+
+  private def receiptJson(blockNumber: Int, index: Int): String =
+    s"""{
+       |  "transactionHash": "${txHash(blockNumber, index)}",
+       |  "transactionIndex": "0x${index.toHexString}",
+       |  "blockHash": "${blockHash(blockNumber)}",
+       |  "blockNumber": "0x${blockNumber.toHexString}",
+       |  "cumulativeGasUsed": "0x${(21000 * (index + 1)).toHexString}",
+       |  "gasUsed": "0x5208",
+       |  "effectiveGasPrice": "0x3b9aca00",
+       |  "status": "0x1",
+       |  "logs": []
+       |}""".stripMargin
+
+  /** For every block read, its number and the hashes of its transactions. */
+  private def blocksSummary(result: Option[Seq[SingleBlockData]]): Option[Seq[(Int, Seq[String])]] =
+    result.map(_.map { case (block, transactions) => block.number -> transactions.map(_.txhash.toHexString) })
+
+  private def expectedSummary(range: Range): Option[Seq[(Int, Seq[String])]] =
+    Some(range.map(n => n -> (0 until n % 3).map(txHash(n, _))))
+
+  "EthereumSingleNodeJsonRpcConnector" should "match the batch responses to the requests by their ids" in {
+    val service = new StubService(supportsBlockReceipts = true)
+    val connector = new EthereumSingleNodeJsonRpcConnector("stub", () => service)
+
+    assertResult(expectedSummary(100 to 102))(blocksSummary(connector.readBlocks(100 to 102)))
+    // The blocks 100 and 101 have the transactions, the block 102 doesn’t
+    assertResult(List(
+      List.fill(3)("eth_getBlockByNumber"),
+      List.fill(2)("eth_getBlockReceipts")
+    ))(service.batches)
+  }
+
+  it should "request the block receipts in smaller batches" in {
+    val service = new StubService(supportsBlockReceipts = true)
+    val connector = new EthereumSingleNodeJsonRpcConnector("stub", () => service)
+
+    val range = 1000 until 1030
+    assertResult(expectedSummary(range))(blocksSummary(connector.readBlocks(range)))
+
+    val receiptsBatches = service.batches.filter(_.contains("eth_getBlockReceipts"))
+    // 20 of 30 blocks have the transactions
+    assert(receiptsBatches.map(_.size).sum == 20)
+    assert(receiptsBatches.forall(_.size <= EthereumSingleNodeJsonRpcConnector.MAX_BLOCK_RECEIPTS_PER_BATCH))
+  }
+
+  it should "fall back to eth_getTransactionReceipt if eth_getBlockReceipts is not supported" in {
+    val service = new StubService(supportsBlockReceipts = false)
+    val connector = new EthereumSingleNodeJsonRpcConnector("stub", () => service)
+
+    assertResult(expectedSummary(100 to 102))(blocksSummary(connector.readBlocks(100 to 102)))
+    assertResult(List(
+      List.fill(3)("eth_getBlockByNumber"),
+      List.fill(2)("eth_getBlockReceipts"),
+      // Block 100 has 1 transaction, block 101 has 2 transactions
+      List.fill(3)("eth_getTransactionReceipt")
+    ))(service.batches)
+
+    // The node is remembered as not supporting eth_getBlockReceipts
+    assertResult(expectedSummary(103 to 104))(blocksSummary(connector.readBlocks(103 to 104)))
+    assertResult(List(
+      List.fill(2)("eth_getBlockByNumber"),
+      // Block 103 has 1 transaction, block 104 has 2 transactions
+      List.fill(3)("eth_getTransactionReceipt")
+    ))(service.batches.drop(3))
+  }
+}
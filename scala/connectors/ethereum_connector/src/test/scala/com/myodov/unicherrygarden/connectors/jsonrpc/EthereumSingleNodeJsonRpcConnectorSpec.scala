@@ -4,4 +4,16 @@ import com.myodov.unicherrygarden.connectors.AbstractEthereumNodeConnectorSpec
 
 class EthereumSingleNodeJsonRpcConnectorSpec extends AbstractEthereumNodeConnectorSpec {
   lazy val sharedConnector = EthereumSingleNodeJsonRpcConnector(config.getStringList("unicherrygarden.ethereum.rpc_servers").get(0))
+
+  "readBlocks(20 blocks)" should "work well" in {
+    assert(
+      sharedConnector.readBlocks(12_129_000 until 12_129_020).get.size == 20
+    )
+  }
+
+  "readBlocks(150 blocks)" should "work well, even if it needs multiple batches" in {
+    assert(
+      sharedConnector.readBlocks(12_329_000 until 12_329_150).get.size == 150
+    )
+  }
 }
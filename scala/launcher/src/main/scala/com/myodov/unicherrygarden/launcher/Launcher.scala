@@ -7,6 +7,7 @@ import akka.cluster.typed.{Cluster, Subscribe}
 import com.myodov.unicherrygarden._
 import com.myodov.unicherrygarden.api.DBStorageAPI
 import com.myodov.unicherrygarden.cherrygardener.CherryGardener
+import com.myodov.unicherrygarden.connectors.EthereumMultiNodeConnector
 import com.myodov.unicherrygarden.connectors.graphql.EthereumSingleNodeGraphQLConnector
 import com.myodov.unicherrygarden.messages.{CherryGardenerRequest, CherryPickerRequest, CherryPlanterRequest}
 import com.myodov.unicherrygarden.storages.PostgreSQLStorage
@@ -15,7 +16,9 @@ import com.typesafe.scalalogging.LazyLogging
 import org.web3j.tx.ChainIdLong
 import scopt.OParser
 
+import scala.concurrent.duration._
 import scala.jdk.CollectionConverters._
+import scala.jdk.DurationConverters._
 
 object CLIMode extends Enumeration {
   type CLIMode = Value
@@ -83,18 +86,63 @@ You can choose a different HOCON configuration file instead of the regular appli
     AbstractEthereumNodeConnector
       with Web3ReadOperations
       with Web3WriteOperations = {
-    val nodeUrls = config.getStringList("unicherrygarden.ethereum.rpc_servers")
-    if (nodeUrls.size > 1) {
-      logger.warn(s"There are ${nodeUrls.size} Ethereum node URLs listed; only 1 is supported yet")
-    } else if (nodeUrls.size == 0) {
-      logger.error("No Ethereum nodes listed! Cannot proceed")
-      throw new RuntimeException("No Ethereum nodes")
+    val nodeUrls = config.getStringList("unicherrygarden.ethereum.rpc_servers").asScala.toList
+    nodeUrls match {
+      case Nil =>
+        logger.error("No Ethereum nodes listed! Cannot proceed")
+        throw new RuntimeException("No Ethereum nodes")
+      case nodeUrl :: Nil =>
+        logger.debug(s"Using Ethereum node at $nodeUrl")
+        EthereumSingleNodeGraphQLConnector(nodeUrl, actorSystem)
+        //    EthereumSingleNodeJsonRpcConnector(nodeUrl)
+      case _ =>
+        logger.debug(s"Using ${nodeUrls.size} Ethereum nodes at ${nodeUrls.mkString(", ")}")
+        EthereumMultiNodeConnector(
+          nodeUrls.map(EthereumSingleNodeGraphQLConnector(_, actorSystem)),
+          multiNodeMaxLagSetting,
+          multiNodeHedgeDelaySetting,
+          multiNodeMaxParallelReadsSetting
+        )
+    }
+  }
+
+  /** Get how many blocks an Ethereum node may lag behind the most advanced one, and still be used. */
+  private[launcher] lazy val multiNodeMaxLagSetting: Int = {
+    val path = "unicherrygarden.ethereum.multi_node.max_lag"
+    val default = 5
+    config.getInt(path) match {
+      case tooSmall if tooSmall < 0 =>
+        logger.error(s"$path setting is $tooSmall, should be 0 or higher; using default $default")
+        default
+      case candidate =>
+        candidate
+    }
+  }
+
+  /** Get the minimum time after which a slow request to some Ethereum node is duplicated to another node. */
+  private[launcher] lazy val multiNodeHedgeDelaySetting: FiniteDuration = {
+    val path = "unicherrygarden.ethereum.multi_node.hedge_delay"
+    val default = 10.seconds
+    config.getDuration(path).toScala match {
+      case tooSmall if tooSmall <= Duration.Zero =>
+        logger.error(s"$path setting is $tooSmall, should be positive; using default $default")
+        default
+      case candidate =>
+        candidate
     }
+  }
 
-    val nodeUrl = nodeUrls.get(0)
-    logger.debug(s"Using Ethereum node at $nodeUrl")
-    EthereumSingleNodeGraphQLConnector(nodeUrl, actorSystem)
-    //    EthereumSingleNodeJsonRpcConnector(nodeUrl)
+  /** Get how many read requests to the Ethereum nodes are expected to be made simultaneously. */
+  private[launcher] lazy val multiNodeMaxParallelReadsSetting: Int = {
+    val path = "unicherrygarden.ethereum.multi_node.max_parallel_reads"
+    val default = 4
+    config.getInt(path) match {
+      case tooSmall if tooSmall < 1 =>
+        logger.error(s"$path setting is $tooSmall, should be 1 or higher; using default $default")
+        default
+      case candidate =>
+        candidate
+    }
   }
 
   private[launcher] lazy val realm: String = {
@@ -143,26 +191,80 @@ You can choose a different HOCON configuration file instead of the regular appli
   private[launcher] lazy val maxReorgSetting: Int =
     blocksNumberSetting("unicherrygarden.cherrypicker.syncers.max_reorg")
 
+  /** Any config setting containing some positive number (not related to reorg); with validations. */
+  private[this] def positiveIntSetting(path: String, default: Int): Int =
+    config.getInt(path) match {
+      case tooSmall if tooSmall < 1 =>
+        logger.error(s"$path setting is $tooSmall, " +
+          s"should be 1 or higher; using default $default")
+        default
+      case candidate =>
+        candidate
+    }
+
+  /** Get the size of the chunks, in which the syncers read and store the blocks. */
+  private[launcher] lazy val pipelineChunkSizeSetting: Int =
+    positiveIntSetting("unicherrygarden.cherrypicker.syncers.pipeline.chunk_size", 25)
+
+  /** Get the number of block chunks which the syncers may read in advance, while storing the previous chunk. */
+  private[launcher] lazy val pipelineMaxInFlightSetting: Int =
+    positiveIntSetting("unicherrygarden.cherrypicker.syncers.pipeline.max_in_flight", 2)
+
   private[this] def syncerBatchSizeSetting(configSectionName: String): Int = {
     assert(Seq("head_syncer", "tail_syncer").contains(configSectionName), configSectionName)
     blocksNumberSetting(s"unicherrygarden.cherrypicker.syncers.$configSectionName.batch_size")
   }
 
+  /** Get the minimum batch size, below which the syncers never adapt their batch sizes. */
+  private[launcher] lazy val minBatchSizeSetting: Int =
+    positiveIntSetting("unicherrygarden.cherrypicker.syncers.adaptive_batch_size.min_batch_size", 10)
+
+  /** Get the maximum batch size, above which the syncers never adapt their batch sizes. */
+  private[launcher] lazy val maxBatchSizeSetting: Int = {
+    val path = "unicherrygarden.cherrypicker.syncers.adaptive_batch_size.max_batch_size"
+    positiveIntSetting(path, 1000) match {
+      case tooSmall if tooSmall < minBatchSizeSetting =>
+        logger.error(s"$path setting is $tooSmall, " +
+          s"should be not lower than min_batch_size ($minBatchSizeSetting); using $minBatchSizeSetting")
+        minBatchSizeSetting
+      case candidate =>
+        candidate
+    }
+  }
+
+  /** Get the time in which the syncers try to sync each single batch, adapting their batch sizes. */
+  private[launcher] lazy val targetBatchDurationSetting: FiniteDuration = {
+    val path = "unicherrygarden.cherrypicker.syncers.adaptive_batch_size.target_batch_duration"
+    val default = 10.seconds
+    config.getDuration(path).toScala match {
+      case tooSmall if tooSmall <= Duration.Zero =>
+        logger.error(s"$path setting is $tooSmall, should be positive; using default $default")
+        default
+      case candidate =>
+        candidate
+    }
+  }
+
   private[launcher] lazy val headSyncerBatchSizeSetting: Int =
     syncerBatchSizeSetting("head_syncer")
   private[launcher] lazy val tailSyncerBatchSizeSetting: Int =
     syncerBatchSizeSetting("tail_syncer")
 
+  /** Get the number of TailSyncer workers which may sync the blocks in parallel. */
+  private[launcher] lazy val tailSyncerWorkersSetting: Int =
+    positiveIntSetting("unicherrygarden.cherrypicker.syncers.tail_syncer.workers", 1)
+
   private[launcher] lazy val catchUpBrakeMaxLeadSetting: Int = {
     val path = "unicherrygarden.cherrypicker.syncers.head_syncer.catch_up_brake_max_lead"
-    val minSafeValue = Math.max(headSyncerBatchSizeSetting, tailSyncerBatchSizeSetting)
+    val minSafeValue = Math.max(maxBatchSizeSetting, Math.max(headSyncerBatchSizeSetting, tailSyncerBatchSizeSetting))
     val default = 10_000
 
     blocksNumberSetting(path) match {
       case tooSmall if tooSmall < minSafeValue =>
         logger.error(s"$path setting is $tooSmall, " +
-          s"should be higher than both head_syncer.batch_size ($headSyncerBatchSizeSetting) " +
-          s"and tail_syncer.batch_size ($tailSyncerBatchSizeSetting); using $minSafeValue")
+          s"should be higher than head_syncer.batch_size ($headSyncerBatchSizeSetting), " +
+          s"tail_syncer.batch_size ($tailSyncerBatchSizeSetting) " +
+          s"and adaptive_batch_size.max_batch_size ($maxBatchSizeSetting); using $minSafeValue")
         minSafeValue
       case smallButOkCandidate if smallButOkCandidate < default =>
         logger.info(s"$path setting is $smallButOkCandidate, " +
@@ -254,8 +356,14 @@ object LauncherActor extends LazyLogging {
                 dbStorage,
                 ethereumConnector,
                 maxReorgSetting,
+                pipelineChunkSizeSetting,
+                pipelineMaxInFlightSetting,
+                minBatchSizeSetting,
+                maxBatchSizeSetting,
+                targetBatchDurationSetting,
                 headSyncerBatchSizeSetting,
                 tailSyncerBatchSizeSetting,
+                tailSyncerWorkersSetting,
                 catchUpBrakeMaxLeadSetting),
               "CherryPicker")
 
@@ -0,0 +1,19 @@
+COMMENT ON TABLE ucg_balance_checkpoint IS
+    'Precalculated balance of a tracked address in some (verified) currency, at some block; '
+        'so that the balance at any block can be calculated from the latest checkpoint before it, '
+        'adding just the few balance changes since the checkpoint. '
+        'Maintained by the syncers in the same DB transactions as the transfers are stored; '
+        'if the transfers, the tracked addresses or the currencies are altered manually, '
+        'the affected checkpoints must be deleted (they are never required to exist).';
+
+COMMENT ON COLUMN ucg_balance_checkpoint.address IS
+    'The tracked address.';
+COMMENT ON COLUMN ucg_balance_checkpoint.currency_id IS
+    'The currency (ETH or some verified ERC20 token).';
+COMMENT ON COLUMN ucg_balance_checkpoint.block_number IS
+    'The block containing some transfer of the currency for the address; '
+        'the balance is calculated as of the end of this block.';
+COMMENT ON COLUMN ucg_balance_checkpoint.balance IS
+    'The balance of the address in the currency (with proper decimals), as of the end of `block_number` block; '
+        'same as `balance` in ucg_eth_transfer_tr_addr_w_balance or '
+        'ucg_erc20_transfer_for_verified_currency_tr_addr_w_balance views for the latest transfer in this block.';
@@ -1,7 +1,4 @@
-COMMENT ON TABLE ucg_currency_tracked_address_progress IS
-    'The progress of syncing a particular tracked address against a particular currency.';
-
-COMMENT ON COLUMN ucg_currency_tracked_address_progress.synced_from_block_number IS
-    'First block number since which the UniCherrypicker has synced this tracked address for this currency.';
-COMMENT ON COLUMN ucg_currency_tracked_address_progress.synced_to_block_number IS
-    'Last block number till which the UniCherrypicker has synced this tracked address for this currency. NULL if syncing hasn''t started yet.';
+-- ucg_currency_tracked_address_progress has been replaced by ucg_progress_bucket
+-- (see R__comment_table_ucg_progress_bucket.sql), and dropped by the versioned migration.
+-- This migration is kept only as it is applied in the existing databases already; it is a no-op.
+DROP TABLE IF EXISTS ucg_currency_tracked_address_progress;
@@ -0,0 +1,25 @@
+COMMENT ON TABLE ucg_erc20_transfer_event IS
+    'ERC20 Transfer event, decoded from some Ethereum transaction log (in `ucg_tx_log`) when it is stored.';
+
+COMMENT ON COLUMN ucg_erc20_transfer_event.tx_log_id IS
+    'Foreign key to the transaction log containing this event.';
+COMMENT ON COLUMN ucg_erc20_transfer_event.transaction_id IS
+    'Foreign key to the transaction that generated this event.';
+COMMENT ON COLUMN ucg_erc20_transfer_event.block_number IS
+    'The block in which the event has been generated. Unique together with `log_index`, same as in `ucg_tx_log`.';
+COMMENT ON COLUMN ucg_erc20_transfer_event.log_index IS
+    'Unique together with `block_number`, same as in `ucg_tx_log`.';
+COMMENT ON COLUMN ucg_erc20_transfer_event.contract IS
+    'The address of the ERC20 token contract (i.e. the asset being transferred).';
+COMMENT ON COLUMN ucg_erc20_transfer_event.from IS
+    '`from` field of ERC20 Transfer event – the Ethereum address of the transfer sender.';
+COMMENT ON COLUMN ucg_erc20_transfer_event.to IS
+    '`to` field of ERC20 Transfer event – the Ethereum address of the transfer receiver.';
+COMMENT ON COLUMN ucg_erc20_transfer_event.value IS
+    'The value being transferred; raw data as stored in the ERC20 Transfer event in UINT256 '
+        '(i.e. without knowing the place of the decimal point).';
+
+COMMENT ON INDEX ucg_erc20_transfer_event_from_contract_block_number IS
+    'Speed up queries on (from, contract, block_number), (from, contract), (from).';
+COMMENT ON INDEX ucg_erc20_transfer_event_to_contract_block_number IS
+    'Speed up queries on (to, contract, block_number), (to, contract), (to).';
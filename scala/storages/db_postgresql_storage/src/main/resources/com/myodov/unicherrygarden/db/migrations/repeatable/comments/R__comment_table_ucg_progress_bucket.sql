@@ -0,0 +1,15 @@
+COMMENT ON TABLE ucg_progress_bucket IS
+    'The syncing progress shared by a group (“bucket”) of tracked addresses, '
+        'which have been synced till the same blocks in every currency; '
+        'so advancing the progress of all these addresses updates a single row. '
+        'The tracked addresses not synced in any currency yet are not in any bucket. '
+        'The first synced block of each (currency, tracked address) pair is not stored: '
+        'it is the greater of ucg_currency.sync_from_block_number and ucg_tracked_address.synced_from_block_number.';
+
+COMMENT ON COLUMN ucg_progress_bucket.id IS
+    'Primary key.';
+COMMENT ON COLUMN ucg_progress_bucket.synced_to_block_numbers IS
+    'Last block number till which the tracked addresses of the bucket have been synced, for each currency; '
+        'JSON object with ucg_currency.id as the key. '
+        'If there is no key for some currency, the addresses have not been synced in it yet. '
+        'Unique, so the addresses having the same progress are always in the same bucket.';
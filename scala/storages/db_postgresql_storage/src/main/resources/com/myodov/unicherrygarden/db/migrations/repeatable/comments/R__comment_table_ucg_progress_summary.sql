@@ -0,0 +1,27 @@
+COMMENT ON TABLE ucg_progress_summary IS
+    'The precalculated aggregates of the overall syncing progress (used by ucg_progress view), '
+        'so that reading the progress costs the same regardless of the number of blocks and tracked addresses. '
+        'Refreshed by the syncers in the end of the same DB transactions as the data is changed; '
+        'if the data is altered manually, call ucg_refresh_progress_summary() to recalculate it.';
+
+COMMENT ON COLUMN ucg_progress_summary.block_from IS
+    'MIN(number) over ucg_block.';
+COMMENT ON COLUMN ucg_progress_summary.block_to IS
+    'MAX(number) over ucg_block.';
+COMMENT ON COLUMN ucg_progress_summary.address_from_min IS
+    'MIN(synced_from_block_number) over ucg_tracked_address.';
+COMMENT ON COLUMN ucg_progress_summary.address_from_max IS
+    'MAX(synced_from_block_number) over ucg_tracked_address.';
+COMMENT ON COLUMN ucg_progress_summary.currency_address_from_min IS
+    'MIN(synced_from_block_number) over all (currency, tracked address) pairs.';
+COMMENT ON COLUMN ucg_progress_summary.currency_address_from_max IS
+    'MAX(synced_from_block_number) over all (currency, tracked address) pairs.';
+COMMENT ON COLUMN ucg_progress_summary.currency_address_to_min IS
+    'MIN(synced_to_block_number) over all (currency, tracked address) pairs (see ucg_progress_bucket).';
+COMMENT ON COLUMN ucg_progress_summary.currency_address_to_max IS
+    'MAX(synced_to_block_number) over all (currency, tracked address) pairs (see ucg_progress_bucket).';
+COMMENT ON COLUMN ucg_progress_summary.currency_address_to_has_nulls IS
+    'Whether any (currency, tracked address) pair has not been synced yet.';
+
+COMMENT ON INDEX ucg_progress_summary_one_row IS
+    'Ensures that the ucg_progress_summary table can have only one row.';
@@ -9,3 +9,5 @@ COMMENT ON COLUMN ucg_tracked_address.ucg_comment IS
     'Comment on tracked address, manually entered by UniCherryGarden admins.';
 COMMENT ON COLUMN ucg_tracked_address.synced_from_block_number IS
     'First block number since which the tracked address is being synced.';
+COMMENT ON COLUMN ucg_tracked_address.progress_bucket_id IS
+    'The bucket with the syncing progress of this address in every currency; NULL if not synced in any currency yet.';
@@ -1,9 +1,10 @@
 COMMENT ON TABLE ucg_transaction IS
-    'The Ethereum transaction. Contains the data from both eth.getTransaction() and eth.getTransactionReceipt().';
+    'The Ethereum transaction. Contains the data from both eth.getTransaction() and eth.getTransactionReceipt(). '
+        'Partitioned by `block_number`, 1,000,000 blocks per partition (see `ucg_ensure_block_partitions()`).';
 
 COMMENT ON COLUMN ucg_transaction.block_number IS
-    'In what transaction the block has been mined; '
-        'from eth.getTransaction(), though will be non-null only if the transaction is mined already.';
+    'In what transaction the block has been mined; from eth.getTransaction(). '
+        'The partitioning key; `txhash` is unique together with it.';
 
 COMMENT ON COLUMN ucg_transaction.from IS
     'The address of the sender of the transaction.';
@@ -36,5 +37,4 @@ COMMENT ON COLUMN ucg_transaction.nonce IS
     'Value of nonce; from eth.getTransaction().';
 
 COMMENT ON COLUMN ucg_transaction.transaction_index IS
-    'Index of the transaction in the block; '
-        'from eth.getTransaction(), though will be non-null only if the transaction is mined already.';
+    'Index of the transaction in the block; from eth.getTransaction().';
@@ -0,0 +1,150 @@
+CREATE OR REPLACE FUNCTION ucg_advance_progress_range(_from_block_number INTEGER,
+                                                      _to_block_number INTEGER,
+                                                      _addresses TEXT[])
+    RETURNS VOID
+    LANGUAGE plpgsql
+AS
+$$
+DECLARE
+    _bucket          RECORD;
+    _mover_count     INTEGER;
+    _moved_count     INTEGER;
+    _split_bucket_id BIGINT;
+BEGIN
+    -- 1. The addresses that start being synced in some currency (i.e. the synced range contains
+    --    their first block to sync) get the progress of their own; move them to the matching buckets.
+    --    Only the addresses not synced yet in some currency may be such; normally, there are just a few.
+    WITH
+        currency_count AS (
+            SELECT count(*) AS currency_count
+            FROM ucg_currency
+        ),
+        incomplete_bucket AS (
+            SELECT bucket.id, bucket.synced_to_block_numbers
+            FROM ucg_progress_bucket AS bucket, currency_count
+            WHERE (SELECT count(*) FROM jsonb_object_keys(bucket.synced_to_block_numbers)) <
+                  currency_count.currency_count
+        ),
+        candidate AS (
+            SELECT
+                tracked.id,
+                tracked.synced_from_block_number,
+                COALESCE(incomplete_bucket.synced_to_block_numbers, '{}'::JSONB) AS synced_to_block_numbers
+            FROM
+                unnest(_addresses) AS arg(address)
+                INNER JOIN ucg_tracked_address AS tracked USING (address)
+                LEFT JOIN incomplete_bucket
+                          ON incomplete_bucket.id = tracked.progress_bucket_id
+            WHERE tracked.progress_bucket_id IS NULL OR incomplete_bucket.id IS NOT NULL
+        ),
+        mover AS (
+            SELECT
+                candidate.id,
+                ucg_advanced_progress(candidate.synced_to_block_numbers, candidate.synced_from_block_number,
+                                      _from_block_number, _to_block_number) AS synced_to_block_numbers
+            FROM candidate
+            WHERE EXISTS(
+                          SELECT
+                          FROM ucg_currency AS currency
+                          WHERE
+                              NOT candidate.synced_to_block_numbers ? currency.id::TEXT AND
+                              GREATEST(currency.sync_from_block_number, candidate.synced_from_block_number)
+                                  BETWEEN _from_block_number AND _to_block_number
+                      )
+        ),
+        -- Not “DO NOTHING”: the bucket with the same progress may be committed by a concurrent transaction
+        -- after the snapshot of this statement, so it would be neither returned nor visible to the statement.
+        -- “DO UPDATE” waits for such a bucket and always returns its id.
+        inserted AS (
+            INSERT INTO ucg_progress_bucket(synced_to_block_numbers)
+                SELECT DISTINCT synced_to_block_numbers
+                FROM mover
+            ON CONFLICT (synced_to_block_numbers) DO UPDATE
+                SET synced_to_block_numbers = excluded.synced_to_block_numbers
+            RETURNING id, synced_to_block_numbers
+        ),
+        moved AS (
+            UPDATE ucg_tracked_address
+            SET progress_bucket_id = inserted.id
+            FROM
+                mover
+                INNER JOIN inserted USING (synced_to_block_numbers)
+            WHERE ucg_tracked_address.id = mover.id
+            RETURNING ucg_tracked_address.id
+        )
+    SELECT (SELECT count(*) FROM mover), (SELECT count(*) FROM moved)
+    INTO _mover_count, _moved_count;
+
+    -- Never let an address lose its progress silently
+    IF _moved_count != _mover_count THEN
+        RAISE EXCEPTION 'Only % of % tracked addresses have been moved to their progress buckets',
+            _moved_count, _mover_count;
+    END IF;
+
+    -- 2. For all other addresses, the progress is advanced for the whole bucket at once
+    --    (normally, a single row per call).
+    FOR _bucket IN
+        SELECT
+            bucket.id,
+            ucg_advanced_progress(bucket.synced_to_block_numbers, NULL,
+                                  _from_block_number, _to_block_number) AS synced_to_block_numbers,
+            arg_bucket.arg_count,
+            (SELECT count(*) FROM ucg_tracked_address WHERE progress_bucket_id = bucket.id) AS address_count
+        FROM
+            (
+                SELECT tracked.progress_bucket_id, count(*) AS arg_count
+                FROM
+                    unnest(_addresses) AS arg(address)
+                    INNER JOIN ucg_tracked_address AS tracked USING (address)
+                WHERE tracked.progress_bucket_id IS NOT NULL
+                GROUP BY tracked.progress_bucket_id
+            ) AS arg_bucket
+            INNER JOIN ucg_progress_bucket AS bucket
+                       ON bucket.id = arg_bucket.progress_bucket_id
+        ORDER BY bucket.id
+        LOOP
+            -- Skip the buckets which don't change (or have been merged into another one already)
+            CONTINUE WHEN NOT EXISTS(
+                    SELECT
+                    FROM ucg_progress_bucket
+                    WHERE
+                        id = _bucket.id AND
+                        synced_to_block_numbers != _bucket.synced_to_block_numbers
+                );
+
+            IF _bucket.arg_count = _bucket.address_count THEN
+                PERFORM ucg_set_progress_bucket(_bucket.id, _bucket.synced_to_block_numbers);
+            ELSE
+                -- Some addresses of the bucket were not synced (not known to the syncer yet),
+                -- so the synced ones are split away to a different bucket.
+                -- Same lock as in ucg_set_progress_bucket, so that the bucket is not merged away concurrently.
+                PERFORM pg_advisory_xact_lock(hashtext('ucg_set_progress_bucket'),
+                                              hashtext(_bucket.synced_to_block_numbers::TEXT));
+
+                INSERT INTO ucg_progress_bucket(synced_to_block_numbers)
+                VALUES (_bucket.synced_to_block_numbers)
+                ON CONFLICT (synced_to_block_numbers) DO UPDATE
+                    SET synced_to_block_numbers = excluded.synced_to_block_numbers
+                RETURNING id INTO STRICT _split_bucket_id;
+
+                UPDATE ucg_tracked_address
+                SET progress_bucket_id = _split_bucket_id
+                WHERE
+                    progress_bucket_id = _bucket.id AND
+                    address = ANY (_addresses);
+            END IF;
+        END LOOP;
+
+    -- 3. Some buckets may become empty after the moves
+    DELETE
+    FROM ucg_progress_bucket AS bucket
+    WHERE NOT EXISTS(SELECT FROM ucg_tracked_address WHERE progress_bucket_id = bucket.id);
+END;
+$$;
+
+COMMENT ON FUNCTION ucg_advance_progress_range(
+    _from_block_number INTEGER, _to_block_number INTEGER, _addresses TEXT[]) IS
+    'Advances the syncing progress of the tracked `_addresses` (in every currency) after the blocks '
+        'from `_from_block_number` to `_to_block_number` (inclusive) have been synced; '
+        'the tracked addresses not in `_addresses` are not affected. '
+        'Normally updates just a single row of ucg_progress_bucket, regardless of the number of the addresses.';
@@ -0,0 +1,44 @@
+CREATE OR REPLACE FUNCTION ucg_advanced_progress(_synced_to_block_numbers JSONB,
+                                                 _address_synced_from_block_number INTEGER,
+                                                 _from_block_number INTEGER,
+                                                 _to_block_number INTEGER)
+    RETURNS JSONB
+    LANGUAGE SQL
+    STABLE
+AS
+$$
+SELECT COALESCE(jsonb_object_agg(currency.id::TEXT, synced_to.block_number), '{}'::JSONB)
+FROM
+    ucg_currency AS currency,
+    LATERAL (
+        SELECT (_synced_to_block_numbers ->> currency.id::TEXT)::INTEGER AS block_number
+    ) AS old_synced_to,
+    LATERAL (
+        SELECT
+            CASE
+                -- Non-NULL synced_to can only be continued by the synced range.
+                WHEN old_synced_to.block_number IS NOT NULL
+                    THEN CASE
+                             WHEN old_synced_to.block_number + 1 BETWEEN _from_block_number AND _to_block_number
+                                 THEN _to_block_number
+                             ELSE old_synced_to.block_number
+                         END
+                -- NULL synced_to becomes non-NULL only if the synced range contains the first block to sync
+                -- (the greater of the currency and the tracked address first blocks).
+                WHEN _address_synced_from_block_number IS NOT NULL AND
+                     GREATEST(currency.sync_from_block_number, _address_synced_from_block_number)
+                         BETWEEN _from_block_number AND _to_block_number
+                    THEN _to_block_number
+                ELSE NULL
+            END AS block_number
+    ) AS synced_to
+WHERE synced_to.block_number IS NOT NULL;
+$$;
+
+COMMENT ON FUNCTION ucg_advanced_progress(
+    _synced_to_block_numbers JSONB, _address_synced_from_block_number INTEGER,
+    _from_block_number INTEGER, _to_block_number INTEGER) IS
+    'The progress of a tracked address (as `ucg_progress_bucket.synced_to_block_numbers`) '
+        'after the blocks from `_from_block_number` to `_to_block_number` (inclusive) have been synced. '
+        'If `_address_synced_from_block_number` is NULL, the currencies not synced yet are not started; '
+        'so the result is the same for every address having this progress.';
@@ -0,0 +1,37 @@
+CREATE OR REPLACE FUNCTION ucg_ensure_block_partitions(_from_block INTEGER, _to_block INTEGER)
+    RETURNS VOID
+    LANGUAGE plpgsql
+AS
+$$
+DECLARE
+    _partition_size CONSTANT INTEGER := 1000000;
+    _table                   TEXT;
+    _partition               INTEGER;
+    _partition_name          TEXT;
+BEGIN
+    -- The partition after the last one is created in advance,
+    -- so that the HeadSyncer rarely needs to create the partitions at all.
+    FOR _partition IN (_from_block / _partition_size) .. (_to_block / _partition_size + 1)
+        LOOP
+            FOREACH _table IN ARRAY ARRAY ['ucg_transaction', 'ucg_tx_log']
+                LOOP
+                    _partition_name := format('%s_p%s', _table, lpad(_partition::TEXT, 4, '0'));
+                    IF to_regclass(_partition_name) IS NULL THEN
+                        -- Creating a partition locks the whole partitioned table;
+                        -- serialize the concurrent syncers, and recheck under the lock.
+                        PERFORM pg_advisory_xact_lock(hashtext('ucg_ensure_block_partitions'));
+                        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%s) TO (%s)',
+                                       _partition_name, _table,
+                                       _partition * _partition_size, (_partition + 1) * _partition_size);
+                    END IF;
+                END LOOP;
+        END LOOP;
+END;
+$$;
+
+COMMENT ON FUNCTION ucg_ensure_block_partitions(_from_block INTEGER, _to_block INTEGER) IS
+    'Creates (if missing) the partitions of `ucg_transaction` and `ucg_tx_log` for all the blocks '
+        'from `_from_block` to `_to_block` (inclusive), and for the next 1,000,000 blocks after them. '
+        'Each partition (like `ucg_transaction_p0014`) contains 1,000,000 blocks. '
+        'Creating a partition locks the whole partitioned table, so call it in a separate short transaction, '
+        'before storing the blocks (rather than in the same transaction).';
@@ -0,0 +1,67 @@
+CREATE OR REPLACE FUNCTION ucg_refresh_progress_summary()
+    RETURNS VOID
+    LANGUAGE plpgsql
+AS
+$$
+BEGIN
+    -- The concurrent refreshes (e.g. by the head and the tail syncers) must not commit out of order,
+    -- leaving the summary calculated from an older snapshot. So the summary row is locked first,
+    -- till the end of the transaction; and only then the summary is calculated,
+    -- from a fresh snapshot containing the data of every transaction refreshed before.
+    PERFORM FROM ucg_progress_summary FOR UPDATE;
+
+    UPDATE ucg_progress_summary
+    SET
+        block_from = block.min_number,
+        block_to = block.max_number,
+        address_from_min = address.min_from,
+        address_from_max = address.max_from,
+        -- synced_from_block_number of each (currency, tracked address) pair
+        -- is the greater of the currency and the tracked address first blocks
+        currency_address_from_min = CASE
+                                        WHEN currency.min_from IS NOT NULL AND address.min_from IS NOT NULL
+                                            THEN GREATEST(currency.min_from, address.min_from)
+                                    END,
+        currency_address_from_max = CASE
+                                        WHEN currency.max_from IS NOT NULL AND address.max_from IS NOT NULL
+                                            THEN GREATEST(currency.max_from, address.max_from)
+                                    END,
+        currency_address_to_min = bucket.min_to,
+        currency_address_to_max = bucket.max_to,
+        currency_address_to_has_nulls = currency.currency_count > 0 AND (
+                EXISTS(SELECT FROM ucg_tracked_address WHERE progress_bucket_id IS NULL) OR
+                EXISTS(SELECT
+                       FROM ucg_progress_bucket
+                       WHERE (SELECT count(*) FROM jsonb_object_keys(synced_to_block_numbers)) <
+                             currency.currency_count)
+            )
+    FROM
+        (
+            SELECT min(number) AS min_number, max(number) AS max_number
+            FROM ucg_block
+        ) AS block,
+        (
+            SELECT min(synced_from_block_number) AS min_from, max(synced_from_block_number) AS max_from
+            FROM ucg_tracked_address
+        ) AS address,
+        (
+            SELECT
+                min(sync_from_block_number) AS min_from,
+                max(sync_from_block_number) AS max_from,
+                count(*) AS currency_count
+            FROM ucg_currency
+        ) AS currency,
+        (
+            SELECT min(synced_to.block_number::INTEGER) AS min_to, max(synced_to.block_number::INTEGER) AS max_to
+            FROM
+                ucg_progress_bucket,
+                jsonb_each_text(synced_to_block_numbers) AS synced_to(currency_id, block_number)
+        ) AS bucket;
+END;
+$$;
+
+COMMENT ON FUNCTION ucg_refresh_progress_summary() IS
+    'Recalculates all the values in ucg_progress_summary from scratch '
+        '(every value is taken with a single index lookup, or from the few ucg_progress_bucket rows). '
+        'Must be called if ucg_block, ucg_tracked_address or ucg_progress_bucket are altered manually. '
+        'Concurrent calls are serialized till the end of the transactions, so it should be called in the end.';
@@ -0,0 +1,33 @@
+CREATE OR REPLACE FUNCTION ucg_rewind_progress(_start_block_number INTEGER)
+    RETURNS VOID
+    LANGUAGE plpgsql
+AS
+$$
+DECLARE
+    _bucket RECORD;
+BEGIN
+    FOR _bucket IN
+        SELECT
+            bucket.id,
+            (
+                SELECT jsonb_object_agg(synced_to.currency_id,
+                                        LEAST(synced_to.block_number::INTEGER, _start_block_number - 1))
+                FROM jsonb_each_text(bucket.synced_to_block_numbers) AS synced_to(currency_id, block_number)
+            ) AS synced_to_block_numbers
+        FROM ucg_progress_bucket AS bucket
+        WHERE EXISTS(
+                      SELECT
+                      FROM jsonb_each_text(bucket.synced_to_block_numbers) AS synced_to(currency_id, block_number)
+                      WHERE synced_to.block_number::INTEGER >= _start_block_number
+                  )
+        ORDER BY bucket.id
+        LOOP
+            CONTINUE WHEN NOT EXISTS(SELECT FROM ucg_progress_bucket WHERE id = _bucket.id);
+            PERFORM ucg_set_progress_bucket(_bucket.id, _bucket.synced_to_block_numbers);
+        END LOOP;
+END;
+$$;
+
+COMMENT ON FUNCTION ucg_rewind_progress(_start_block_number INTEGER) IS
+    'Rewinds the syncing progress of all the tracked addresses (in every currency), '
+        'so that none of them is synced past `_start_block_number - 1`.';
@@ -0,0 +1,60 @@
+CREATE OR REPLACE FUNCTION ucg_set_progress_bucket(_bucket_id BIGINT,
+                                                   _synced_to_block_numbers JSONB)
+    RETURNS VOID
+    LANGUAGE plpgsql
+AS
+$$
+DECLARE
+    _same_bucket_id BIGINT;
+BEGIN
+    -- The concurrent transactions may set the same progress to different buckets;
+    -- serialize them, so that the latter one sees the bucket of the former one, and merges with it.
+    PERFORM pg_advisory_xact_lock(hashtext('ucg_set_progress_bucket'), hashtext(_synced_to_block_numbers::TEXT));
+
+    LOOP
+        SELECT id
+        INTO _same_bucket_id
+        FROM ucg_progress_bucket
+        WHERE
+            synced_to_block_numbers = _synced_to_block_numbers AND
+            id != _bucket_id;
+
+        IF _same_bucket_id IS NULL THEN
+            BEGIN
+                UPDATE ucg_progress_bucket
+                SET synced_to_block_numbers = _synced_to_block_numbers
+                WHERE id = _bucket_id;
+                RETURN;
+            EXCEPTION
+                WHEN unique_violation THEN
+                    -- The bucket with the same progress has been just added by some other transaction
+                    -- (not through this function); look for it again, and merge with it.
+                    CONTINUE;
+            END;
+        ELSIF (SELECT count(*) FROM ucg_tracked_address WHERE progress_bucket_id = _bucket_id) <=
+              (SELECT count(*) FROM ucg_tracked_address WHERE progress_bucket_id = _same_bucket_id) THEN
+            -- Some other addresses have the same progress already: merge the buckets,
+            -- moving the addresses of the smaller one.
+            UPDATE ucg_tracked_address
+            SET progress_bucket_id = _same_bucket_id
+            WHERE progress_bucket_id = _bucket_id;
+            DELETE FROM ucg_progress_bucket WHERE id = _bucket_id;
+            RETURN;
+        ELSE
+            UPDATE ucg_tracked_address
+            SET progress_bucket_id = _bucket_id
+            WHERE progress_bucket_id = _same_bucket_id;
+            DELETE FROM ucg_progress_bucket WHERE id = _same_bucket_id;
+            UPDATE ucg_progress_bucket
+            SET synced_to_block_numbers = _synced_to_block_numbers
+            WHERE id = _bucket_id;
+            RETURN;
+        END IF;
+    END LOOP;
+END;
+$$;
+
+COMMENT ON FUNCTION ucg_set_progress_bucket(_bucket_id BIGINT, _synced_to_block_numbers JSONB) IS
+    'Sets the progress of all the tracked addresses in the bucket; '
+        'if some other bucket has the same progress already, the buckets are merged. '
+        'Safe to be called concurrently for the same progress.';
@@ -7,31 +7,31 @@ CREATE OR REPLACE VIEW ucg_erc20_transfer
              value)
 AS
     SELECT
-        ucg_tx_log.id AS tx_log_id,
-        ucg_tx_log.transaction_id,
+        transfer_event.tx_log_id,
+        transfer_event.transaction_id,
         ucg_transaction.txhash AS transaction_hash,
-        ucg_tx_log.block_number,
+        transfer_event.block_number,
         ucg_block.hash AS block_hash,
         ucg_block.timestamp AS timestamp,
-        ucg_tx_log.log_index,
-        ucg_erc20_transfer_event_get_from(ucg_tx_log.topics) AS "from",
-        ucg_erc20_transfer_event_get_to(ucg_tx_log.topics) AS "to",
-        ucg_tx_log.address AS contract,
-        ucg_erc20_transfer_event_get_value(ucg_tx_log.data) AS value
+        transfer_event.log_index,
+        -- The casts keep the column types of the view (when they were decoded by the PL/pgSQL functions)
+        transfer_event."from"::BPCHAR AS "from",
+        transfer_event."to"::BPCHAR AS "to",
+        transfer_event.contract,
+        transfer_event.value::NUMERIC AS value
     FROM
-        ucg_tx_log
+        ucg_erc20_transfer_event AS transfer_event
         INNER JOIN ucg_transaction
-                   ON ucg_tx_log.transaction_id = ucg_transaction.id
+                   ON transfer_event.transaction_id = ucg_transaction.id AND
+                      transfer_event.block_number = ucg_transaction.block_number
         INNER JOIN ucg_block
                    ON ucg_transaction.block_number = ucg_block.number
     WHERE
-        (ucg_transaction.status IS NULL OR ucg_transaction.status = 1) AND
-        ucg_is_erc20_transfer_event(ucg_tx_log.topics) AND
-        ucg_tx_log.block_number = ucg_transaction.block_number;
-
+        (ucg_transaction.status IS NULL OR ucg_transaction.status = 1);
 
 COMMENT ON VIEW ucg_erc20_transfer IS
-    'ERC20 Transfer event parsed data. Only the transaction that succeeded are included.';
+    'ERC20 Transfer event parsed data (decoded on storing, in `ucg_erc20_transfer_event`). '
+        'Only the transaction that succeeded are included.';
 
 COMMENT ON COLUMN ucg_erc20_transfer.from IS
     '`from` field of ERC20 Transfer event – the Ethereum address of the transfer sender.';
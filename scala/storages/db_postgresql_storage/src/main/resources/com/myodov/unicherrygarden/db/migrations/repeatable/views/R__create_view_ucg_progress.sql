@@ -11,41 +11,22 @@ CREATE OR REPLACE VIEW ucg_progress AS
                 MAX(sync_from_block_number) AS currency_sync_from_max  -- NOT NULL
             FROM ucg_currency
         ),
-        block_state AS (
+        -- All the other aggregates are maintained incrementally in ucg_progress_summary
+        summary_state AS (
             SELECT
-                MIN(number) AS block_from, -- NULL
-                MAX(number) AS block_to    -- NULL
-            FROM ucg_block
-        ),
-        tracked_address_state AS (
-            SELECT
-                MIN(synced_from_block_number) AS address_from_min, -- NOT NULL
-                MAX(synced_from_block_number) AS address_from_max  -- NOT NULL
-            FROM ucg_tracked_address
-        ),
-        currency_tracked_address_state AS (
-            SELECT
-                MIN(synced_from_block_number) AS currency_address_from_min,
-                MAX(synced_from_block_number) AS currency_address_from_max,
-                MIN(synced_to_block_number) AS currency_address_to_min,
-                MAX(synced_to_block_number) AS currency_address_to_max
-            FROM ucg_currency_tracked_address_progress
-        ),
-        currency_tracked_address_synced_to_is_null_first AS (
-            SELECT *
-            FROM ucg_currency_tracked_address_progress
-            WHERE synced_to_block_number IS NULL
-            LIMIT 1
-        ),
-        currency_tracked_address_has_nulls AS (
-            SELECT count(*) > 0 AS currency_address_to_has_nulls
-            FROM currency_tracked_address_synced_to_is_null_first
+                block_from,                   -- NULL
+                block_to,                     -- NULL
+                address_from_min,             -- NULL
+                address_from_max,             -- NULL
+                currency_address_from_min,
+                currency_address_from_max,
+                currency_address_to_min,
+                currency_address_to_max,
+                currency_address_to_has_nulls -- NOT NULL
+            FROM ucg_progress_summary
         )
     SELECT *
     FROM
         overall_state,
         currency_state,
-        block_state,
-        tracked_address_state,
-        currency_tracked_address_state,
-        currency_tracked_address_has_nulls;
+        summary_state;
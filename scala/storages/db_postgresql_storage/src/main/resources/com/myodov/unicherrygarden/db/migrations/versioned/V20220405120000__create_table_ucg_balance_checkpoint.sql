@@ -0,0 +1,34 @@
+CREATE TABLE ucg_balance_checkpoint
+(
+    address      CHAR(42) NOT NULL
+        CHECK (ucg_is_valid_hex_hash(address, 42)),
+    currency_id  INTEGER  NOT NULL
+        REFERENCES ucg_currency (id)
+            ON DELETE CASCADE,
+    block_number INTEGER  NOT NULL REFERENCES ucg_block,
+    balance      NUMERIC  NOT NULL,
+    PRIMARY KEY (address, currency_id, block_number)
+);
+
+-- For the rewinds
+CREATE INDEX IF NOT EXISTS ucg_balance_checkpoint_block_number
+    ON ucg_balance_checkpoint (block_number);
+
+-- Initial checkpoints: the balances at the latest known transfer of each tracked address, in each currency
+INSERT INTO ucg_balance_checkpoint(address, currency_id, block_number, balance)
+SELECT DISTINCT ON (address, currency_id)
+    address,
+    currency_id,
+    block_number,
+    balance
+FROM ucg_eth_transfer_tr_addr_w_balance
+ORDER BY address, currency_id, block_number DESC, transaction_index DESC;
+
+INSERT INTO ucg_balance_checkpoint(address, currency_id, block_number, balance)
+SELECT DISTINCT ON (address, currency_id)
+    address,
+    currency_id,
+    block_number,
+    balance
+FROM ucg_erc20_transfer_for_verified_currency_tr_addr_w_balance
+ORDER BY address, currency_id, block_number DESC, log_index DESC;
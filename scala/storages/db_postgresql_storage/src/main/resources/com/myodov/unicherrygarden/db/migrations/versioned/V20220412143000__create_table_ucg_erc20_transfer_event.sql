@@ -0,0 +1,53 @@
+CREATE TABLE ucg_erc20_transfer_event
+(
+    tx_log_id      BIGINT         NOT NULL REFERENCES ucg_tx_log,
+    transaction_id BIGINT         NOT NULL REFERENCES ucg_transaction,
+    block_number   INTEGER        NOT NULL REFERENCES ucg_block,
+    log_index      SMALLINT       NOT NULL
+        CHECK (log_index >= 0),
+    contract       CHAR(42)       NOT NULL
+        CHECK (ucg_is_valid_hex_hash(contract, 42)),
+    "from"         CHAR(42)       NOT NULL
+        CHECK (ucg_is_valid_hex_hash("from", 42)),
+    "to"           CHAR(42)       NOT NULL
+        CHECK (ucg_is_valid_hex_hash("to", 42)),
+    value          NUMERIC(78, 0) NOT NULL
+        CHECK (value >= 0),
+    PRIMARY KEY (block_number, log_index),
+    CONSTRAINT "tx log unique"
+        UNIQUE (tx_log_id)
+);
+
+CREATE INDEX IF NOT EXISTS ucg_erc20_transfer_event_from_contract_block_number
+    ON ucg_erc20_transfer_event ("from", contract, block_number);
+
+CREATE INDEX IF NOT EXISTS ucg_erc20_transfer_event_to_contract_block_number
+    ON ucg_erc20_transfer_event ("to", contract, block_number);
+
+CREATE INDEX IF NOT EXISTS ucg_erc20_transfer_event_transaction_id
+    ON ucg_erc20_transfer_event (transaction_id);
+
+-- Decode the already stored ERC20 Transfer events, for the last time in SQL;
+-- the malformed ones (which could not be decoded anyway) are skipped.
+INSERT INTO ucg_erc20_transfer_event(tx_log_id, transaction_id, block_number, log_index,
+                                     contract, "from", "to", value)
+SELECT
+    id,
+    transaction_id,
+    block_number,
+    log_index,
+    address,
+    ucg_erc20_transfer_event_get_from(topics),
+    ucg_erc20_transfer_event_get_to(topics),
+    ucg_erc20_transfer_event_get_value(data)
+FROM ucg_tx_log
+WHERE
+    ucg_is_erc20_transfer_event(topics) AND
+    substring(topics[2] FROM 1 FOR 12) = '\x000000000000000000000000'::bytea AND
+    substring(topics[3] FROM 1 FOR 12) = '\x000000000000000000000000'::bytea AND
+    length(data) = 32;
+
+-- The events are not decoded from ucg_tx_log anymore, so these indexes only slow down the inserts
+DROP INDEX IF EXISTS ucg_tx_log_erc20_address_from_to;
+DROP INDEX IF EXISTS ucg_tx_log_erc20_from_to;
+DROP INDEX IF EXISTS ucg_tx_log_erc20_to_address;
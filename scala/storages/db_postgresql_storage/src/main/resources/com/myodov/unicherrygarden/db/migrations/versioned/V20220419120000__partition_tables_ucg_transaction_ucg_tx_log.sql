@@ -0,0 +1,230 @@
+-- Re-create ucg_transaction and ucg_tx_log as the tables partitioned by block_number
+-- (requires PostgreSQL 12+, for the foreign keys referencing the partitioned tables).
+-- A regular table cannot be converted to the partitioned one in place, so the data is copied.
+
+-- ucg_transaction.block_number used to be nullable, but it is the partition key now.
+-- Restore the missing block numbers from the logs of the transactions (which always have the block number)...
+UPDATE ucg_transaction
+SET block_number = tx_log.block_number
+FROM (
+         SELECT DISTINCT transaction_id, block_number
+         FROM ucg_tx_log
+     ) AS tx_log
+WHERE
+    ucg_transaction.block_number IS NULL AND
+    ucg_transaction.id = tx_log.transaction_id;
+
+-- ... and refuse to migrate rather than lose the transactions, if it is still unknown for any of them.
+DO
+$$
+    DECLARE
+        _unknown_block_count BIGINT;
+    BEGIN
+        SELECT count(*)
+        INTO _unknown_block_count
+        FROM ucg_transaction
+        WHERE block_number IS NULL;
+
+        IF _unknown_block_count > 0 THEN
+            RAISE EXCEPTION 'Cannot partition ucg_transaction: % transactions have no block_number', _unknown_block_count
+                USING HINT = 'Set block_number (or delete these transactions) manually, and rerun the migration';
+        END IF;
+    END;
+$$;
+
+-- The foreign keys to the old tables are re-created in the end
+ALTER TABLE ucg_erc20_transfer_event
+    DROP CONSTRAINT ucg_erc20_transfer_event_tx_log_id_fkey,
+    DROP CONSTRAINT ucg_erc20_transfer_event_transaction_id_fkey;
+
+ALTER TABLE ucg_tx_log
+    DROP CONSTRAINT ucg_tx_log_transaction_id_fkey;
+
+-- The ids are generated by the regular sequences now (identity columns cannot be used with the partitions)
+ALTER TABLE ucg_transaction
+    ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE ucg_tx_log
+    ALTER COLUMN id DROP IDENTITY;
+
+ALTER TABLE ucg_transaction
+    RENAME TO ucg_transaction_unpartitioned;
+ALTER TABLE ucg_tx_log
+    RENAME TO ucg_tx_log_unpartitioned;
+
+
+CREATE SEQUENCE ucg_transaction_id_seq AS BIGINT;
+
+CREATE TABLE ucg_transaction
+(
+    id                  BIGINT         NOT NULL DEFAULT nextval('ucg_transaction_id_seq'),
+    block_number        INTEGER        NOT NULL REFERENCES ucg_block,
+    txhash              CHAR(66)       NOT NULL
+        CHECK (ucg_is_valid_hex_hash(txhash, 66)),
+    "from"              CHAR(42)       NOT NULL
+        CHECK (ucg_is_valid_hex_hash("from", 42)),
+    "to"                CHAR(42)       NULL
+        CHECK ("to" IS NULL OR ucg_is_valid_hex_hash("to", 42)),
+    status              INT            NULL, -- only since Byzantium
+    is_status_ok        BOOLEAN        NULL, -- only since Byzantium
+    ucg_comment         TEXT           NULL,
+    gas_price           NUMERIC(78, 0) NOT NULL
+        CHECK (gas_price >= 0),
+    gas_used            BIGINT         NOT NULL
+        CHECK (gas_used >= 0),
+    nonce               INTEGER        NOT NULL
+        CHECK (nonce >= 0),
+    transaction_index   INTEGER        NOT NULL
+        CHECK (transaction_index >= 0),
+    gas                 BIGINT         NOT NULL
+        CHECK (gas >= 0),
+    value               NUMERIC(78, 0) NOT NULL
+        CHECK (value >= 0),
+    effective_gas_price NUMERIC(78, 0) NOT NULL
+        CHECK (effective_gas_price >= 0),
+    cumulative_gas_used BIGINT         NOT NULL
+        CHECK (cumulative_gas_used >= 0)
+) PARTITION BY RANGE (block_number);
+
+ALTER SEQUENCE ucg_transaction_id_seq OWNED BY ucg_transaction.id;
+
+
+CREATE SEQUENCE ucg_tx_log_id_seq AS BIGINT;
+
+CREATE TABLE ucg_tx_log
+(
+    id             BIGINT   NOT NULL DEFAULT nextval('ucg_tx_log_id_seq'),
+    transaction_id BIGINT   NOT NULL,
+    block_number   INTEGER  NOT NULL REFERENCES ucg_block,
+    log_index      SMALLINT NOT NULL
+        CHECK (log_index >= 0),
+    topics         BYTEA[]  NOT NULL
+        CONSTRAINT "all topics are valid" CHECK (ucg_are_all_topics_valid(topics)),
+    data           BYTEA    NOT NULL,
+    address        CHAR(42) NOT NULL
+        CHECK (ucg_is_valid_hex_hash(address, 42))
+) PARTITION BY RANGE (block_number);
+
+ALTER SEQUENCE ucg_tx_log_id_seq OWNED BY ucg_tx_log.id;
+
+
+-- Copy the data (keeping the ids) into the new partitions
+SELECT ucg_ensure_block_partitions(
+               0,
+               GREATEST((SELECT max(block_number) FROM ucg_transaction_unpartitioned),
+                        (SELECT max(number) FROM ucg_block),
+                        0));
+
+INSERT INTO ucg_transaction(id, block_number, txhash, "from", "to",
+                            status, is_status_ok, ucg_comment, gas_price,
+                            gas_used, nonce, transaction_index, gas,
+                            value, effective_gas_price, cumulative_gas_used)
+SELECT
+    id, block_number, txhash, "from", "to",
+    status, is_status_ok, ucg_comment, gas_price,
+    gas_used, nonce, transaction_index, gas,
+    value, effective_gas_price, cumulative_gas_used
+FROM ucg_transaction_unpartitioned;
+
+INSERT INTO ucg_tx_log(id, transaction_id, block_number, log_index, topics, data, address)
+SELECT id, transaction_id, block_number, log_index, topics, data, address
+FROM ucg_tx_log_unpartitioned;
+
+SELECT setval('ucg_transaction_id_seq', (SELECT max(id) FROM ucg_transaction_unpartitioned));
+SELECT setval('ucg_tx_log_id_seq', (SELECT max(id) FROM ucg_tx_log_unpartitioned));
+
+
+-- Re-bind the views to the new tables (with the same definitions as the repeatable migrations have);
+-- all the other views are built on top of these two.
+CREATE OR REPLACE VIEW ucg_eth_transfer
+AS
+    SELECT
+        tx.id AS transaction_id,
+        tx.nonce,
+        tx.txhash,
+        tx.block_number,
+        tx.transaction_index,
+        tx.from,
+        tx.to,
+        tx.status AS transaction_status,
+        tx.is_status_ok,
+        tx.ucg_comment AS transaction_ucg_comment,
+        tx.value,
+        (value / power(10::numeric, 18::numeric)) AS value_human,
+        (tx.gas_used * tx.effective_gas_price) AS fees_total,
+        (tx.gas_used * tx.effective_gas_price / power(10::numeric, 18::numeric)) AS fees_total_human,
+        currency.id AS currency_id,
+        currency.type AS currency_type,
+        currency.name AS currency_name,
+        currency.symbol AS currency_symbol
+    FROM
+        ucg_currency AS currency
+        CROSS JOIN ucg_transaction AS tx
+    WHERE
+        (currency.type = 'ETH') AND
+        ((tx.status IS NULL) OR (tx.status = 1));
+
+CREATE OR REPLACE VIEW ucg_erc20_transfer
+            (tx_log_id,
+             transaction_id, transaction_hash,
+             block_number, block_hash, timestamp,
+             log_index,
+             "from", "to", contract,
+             value)
+AS
+    SELECT
+        transfer_event.tx_log_id,
+        transfer_event.transaction_id,
+        ucg_transaction.txhash AS transaction_hash,
+        transfer_event.block_number,
+        ucg_block.hash AS block_hash,
+        ucg_block.timestamp AS timestamp,
+        transfer_event.log_index,
+        transfer_event."from"::BPCHAR AS "from",
+        transfer_event."to"::BPCHAR AS "to",
+        transfer_event.contract,
+        transfer_event.value::NUMERIC AS value
+    FROM
+        ucg_erc20_transfer_event AS transfer_event
+        INNER JOIN ucg_transaction
+                   ON transfer_event.transaction_id = ucg_transaction.id AND
+                      transfer_event.block_number = ucg_transaction.block_number
+        INNER JOIN ucg_block
+                   ON ucg_transaction.block_number = ucg_block.number
+    WHERE
+        (ucg_transaction.status IS NULL OR ucg_transaction.status = 1);
+
+DROP TABLE ucg_tx_log_unpartitioned;
+DROP TABLE ucg_transaction_unpartitioned;
+
+
+-- Every unique constraint on the partitioned table must contain the partition key (block_number);
+-- so the txhash is unique only within the block now. Each index is created (and maintained) per partition.
+ALTER TABLE ucg_transaction
+    ADD PRIMARY KEY (id, block_number),
+    ADD CONSTRAINT "transaction index unique in block"
+        UNIQUE (block_number, transaction_index),
+    ADD CONSTRAINT "txhash unique in block"
+        UNIQUE (txhash, block_number);
+
+CREATE INDEX IF NOT EXISTS ucg_transaction_from
+    ON ucg_transaction ("from");
+
+CREATE INDEX IF NOT EXISTS ucg_transaction_to
+    ON ucg_transaction ("to");
+
+CREATE UNIQUE INDEX IF NOT EXISTS ucg_transaction_only_valid_id
+    ON ucg_transaction (id, block_number)
+    WHERE status IS NULL OR status = 1;
+
+ALTER TABLE ucg_tx_log
+    ADD PRIMARY KEY (id, block_number),
+    ADD CONSTRAINT "log index unique in block"
+        UNIQUE (block_number, log_index),
+    ADD FOREIGN KEY (transaction_id, block_number) REFERENCES ucg_transaction (id, block_number);
+
+CREATE INDEX IF NOT EXISTS ucg_tx_log_transaction_id
+    ON ucg_tx_log (transaction_id, block_number);
+
+ALTER TABLE ucg_erc20_transfer_event
+    ADD FOREIGN KEY (tx_log_id, block_number) REFERENCES ucg_tx_log (id, block_number),
+    ADD FOREIGN KEY (transaction_id, block_number) REFERENCES ucg_transaction (id, block_number);
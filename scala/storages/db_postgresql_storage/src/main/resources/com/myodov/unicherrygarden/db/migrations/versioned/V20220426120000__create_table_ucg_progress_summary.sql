@@ -0,0 +1,30 @@
+CREATE TABLE ucg_progress_summary
+(
+    block_from                    INTEGER NULL,
+    block_to                      INTEGER NULL,
+    address_from_min              INTEGER NULL,
+    address_from_max              INTEGER NULL,
+    currency_address_from_min     INTEGER NULL,
+    currency_address_from_max     INTEGER NULL,
+    currency_address_to_min       INTEGER NULL,
+    currency_address_to_max       INTEGER NULL,
+    currency_address_to_has_nulls BOOLEAN NOT NULL DEFAULT FALSE
+);
+
+-- Ensures that the ucg_progress_summary table can have only one row.
+CREATE UNIQUE INDEX ucg_progress_summary_one_row
+    ON ucg_progress_summary ((TRUE));
+
+-- Whenever some value cannot be updated incrementally, it is recalculated with a single index lookup.
+CREATE INDEX IF NOT EXISTS ucg_tracked_address_synced_from_block_number
+    ON ucg_tracked_address (synced_from_block_number);
+
+CREATE INDEX IF NOT EXISTS ucg_currency_tracked_address_progress_synced_from_block_number
+    ON ucg_currency_tracked_address_progress (synced_from_block_number);
+
+CREATE INDEX IF NOT EXISTS ucg_currency_tracked_address_progress_synced_to_block_number
+    ON ucg_currency_tracked_address_progress (synced_to_block_number);
+
+CREATE INDEX IF NOT EXISTS ucg_currency_tracked_address_progress_synced_to_is_null
+    ON ucg_currency_tracked_address_progress (id)
+    WHERE synced_to_block_number IS NULL;
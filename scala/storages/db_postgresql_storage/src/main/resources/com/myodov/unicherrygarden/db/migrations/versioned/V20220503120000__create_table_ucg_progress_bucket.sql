@@ -0,0 +1,85 @@
+-- The progress of syncing the tracked addresses is stored not per (currency, tracked address) pair,
+-- but per “bucket” of the tracked addresses having the identical progress in every currency.
+-- `synced_from_block_number` of each pair is not stored at all: it is always the greatest of
+-- `ucg_currency.sync_from_block_number` and `ucg_tracked_address.synced_from_block_number`.
+CREATE TABLE ucg_progress_bucket
+(
+    id                      BIGINT NOT NULL GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    synced_to_block_numbers JSONB  NOT NULL
+        CHECK (jsonb_typeof(synced_to_block_numbers) = 'object')
+        UNIQUE
+);
+
+ALTER TABLE ucg_tracked_address
+    ADD COLUMN progress_bucket_id BIGINT NULL REFERENCES ucg_progress_bucket;
+
+-- For the bucket members; and for the least synced_from_block_number in each bucket
+CREATE INDEX IF NOT EXISTS ucg_tracked_address_progress_bucket_id
+    ON ucg_tracked_address (progress_bucket_id, synced_from_block_number);
+
+
+-- Move the existing progress into the buckets
+CREATE TEMPORARY TABLE ucg_address_progress
+AS
+    SELECT
+        tracked_address_id,
+        jsonb_object_agg(currency_id::TEXT, synced_to_block_number) AS synced_to_block_numbers
+    FROM ucg_currency_tracked_address_progress
+    WHERE synced_to_block_number IS NOT NULL
+    GROUP BY tracked_address_id;
+
+INSERT INTO ucg_progress_bucket(synced_to_block_numbers)
+SELECT DISTINCT synced_to_block_numbers
+FROM ucg_address_progress;
+
+UPDATE ucg_tracked_address
+SET progress_bucket_id = bucket.id
+FROM
+    ucg_address_progress
+    INNER JOIN ucg_progress_bucket AS bucket USING (synced_to_block_numbers)
+WHERE ucg_tracked_address.id = ucg_address_progress.tracked_address_id;
+
+DROP TABLE ucg_address_progress;
+
+
+DROP TRIGGER ucg_currency_insert_missing_m2m_tracked_address_rows_tr ON ucg_currency;
+DROP TRIGGER ucg_tracked_address_insert_missing_m2m_currency_rows_tr ON ucg_tracked_address;
+DROP FUNCTION ucg_insert_missing_currency_tracked_address_progress_trigger_st();
+DROP FUNCTION ucg_insert_missing_currency_tracked_address_progress_rows();
+
+-- The view must not refer to the dropped table anymore
+-- (with the same definition as the repeatable migration has).
+CREATE OR REPLACE VIEW ucg_progress AS
+    WITH
+        overall_state AS (
+            SELECT
+                synced_from_block_number AS overall_from -- nullable
+            FROM ucg_state
+        ),
+        currency_state AS (
+            SELECT
+                MIN(sync_from_block_number) AS currency_sync_from_min, -- NOT NULL
+                MAX(sync_from_block_number) AS currency_sync_from_max  -- NOT NULL
+            FROM ucg_currency
+        ),
+        -- All the other aggregates are maintained incrementally in ucg_progress_summary
+        summary_state AS (
+            SELECT
+                block_from,                   -- NULL
+                block_to,                     -- NULL
+                address_from_min,             -- NULL
+                address_from_max,             -- NULL
+                currency_address_from_min,
+                currency_address_from_max,
+                currency_address_to_min,
+                currency_address_to_max,
+                currency_address_to_has_nulls -- NOT NULL
+            FROM ucg_progress_summary
+        )
+    SELECT *
+    FROM
+        overall_state,
+        currency_state,
+        summary_state;
+
+DROP TABLE ucg_currency_tracked_address_progress;
@@ -0,0 +1,3 @@
+INSERT INTO ucg_progress_summary DEFAULT VALUES;
+
+SELECT ucg_refresh_progress_summary();
@@ -0,0 +1,44 @@
+-- Initial implementation only; for latest up-to-date implementation, see the repeatable migration
+CREATE OR REPLACE FUNCTION ucg_refresh_progress_summary()
+    RETURNS VOID
+    LANGUAGE SQL
+AS
+$$
+UPDATE ucg_progress_summary
+SET
+    block_from = (SELECT min(number) FROM ucg_block),
+    block_to = (SELECT max(number) FROM ucg_block),
+    address_from_min = (SELECT min(synced_from_block_number) FROM ucg_tracked_address),
+    address_from_max = (SELECT max(synced_from_block_number) FROM ucg_tracked_address),
+    currency_address_from_min = (SELECT min(synced_from_block_number) FROM ucg_currency_tracked_address_progress),
+    currency_address_from_max = (SELECT max(synced_from_block_number) FROM ucg_currency_tracked_address_progress),
+    currency_address_to_min = (SELECT min(synced_to_block_number) FROM ucg_currency_tracked_address_progress),
+    currency_address_to_max = (SELECT max(synced_to_block_number) FROM ucg_currency_tracked_address_progress),
+    currency_address_to_has_nulls = EXISTS(SELECT
+                                           FROM ucg_currency_tracked_address_progress
+                                           WHERE synced_to_block_number IS NULL);
+$$;
+
+
+-- Initial implementation only; for latest up-to-date implementation, see the repeatable migration
+CREATE OR REPLACE FUNCTION ucg_refresh_progress_summary_trigger_st()
+    RETURNS TRIGGER
+    LANGUAGE plpgsql
+AS
+$$
+BEGIN
+    PERFORM ucg_refresh_progress_summary();
+
+    RETURN NULL;
+END;
+$$;
+
+
+-- The currencies are changed rarely (and only manually), so just recalculate everything.
+-- Note the triggers are fired in the alphabetical order; so this one is fired
+-- after ucg_currency_insert_missing_m2m_tracked_address_rows_tr adds the progress rows.
+CREATE TRIGGER ucg_currency_refresh_progress_summary_tr
+    AFTER INSERT OR UPDATE OR DELETE
+    ON ucg_currency
+    FOR EACH STATEMENT
+EXECUTE PROCEDURE ucg_refresh_progress_summary_trigger_st();
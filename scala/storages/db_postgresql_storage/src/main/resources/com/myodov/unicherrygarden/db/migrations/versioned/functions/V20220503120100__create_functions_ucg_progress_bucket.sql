@@ -0,0 +1,298 @@
+-- Initial implementation only; for latest up-to-date implementation, see the repeatable migration
+CREATE OR REPLACE FUNCTION ucg_advanced_progress(_synced_to_block_numbers JSONB,
+                                                 _address_synced_from_block_number INTEGER,
+                                                 _from_block_number INTEGER,
+                                                 _to_block_number INTEGER)
+    RETURNS JSONB
+    LANGUAGE SQL
+    STABLE
+AS
+$$
+SELECT COALESCE(jsonb_object_agg(currency.id::TEXT, synced_to.block_number), '{}'::JSONB)
+FROM
+    ucg_currency AS currency,
+    LATERAL (
+        SELECT (_synced_to_block_numbers ->> currency.id::TEXT)::INTEGER AS block_number
+    ) AS old_synced_to,
+    LATERAL (
+        SELECT
+            CASE
+                -- Non-NULL synced_to can only be continued by the synced range.
+                WHEN old_synced_to.block_number IS NOT NULL
+                    THEN CASE
+                             WHEN old_synced_to.block_number + 1 BETWEEN _from_block_number AND _to_block_number
+                                 THEN _to_block_number
+                             ELSE old_synced_to.block_number
+                         END
+                -- NULL synced_to becomes non-NULL only if the synced range contains the first block to sync
+                -- (the greater of the currency and the tracked address first blocks).
+                WHEN _address_synced_from_block_number IS NOT NULL AND
+                     GREATEST(currency.sync_from_block_number, _address_synced_from_block_number)
+                         BETWEEN _from_block_number AND _to_block_number
+                    THEN _to_block_number
+                ELSE NULL
+            END AS block_number
+    ) AS synced_to
+WHERE synced_to.block_number IS NOT NULL;
+$$;
+
+
+-- Initial implementation only; for latest up-to-date implementation, see the repeatable migration
+CREATE OR REPLACE FUNCTION ucg_set_progress_bucket(_bucket_id BIGINT,
+                                                   _synced_to_block_numbers JSONB)
+    RETURNS VOID
+    LANGUAGE plpgsql
+AS
+$$
+DECLARE
+    _same_bucket_id BIGINT;
+BEGIN
+    SELECT id
+    INTO _same_bucket_id
+    FROM ucg_progress_bucket
+    WHERE
+        synced_to_block_numbers = _synced_to_block_numbers AND
+        id != _bucket_id;
+
+    IF _same_bucket_id IS NULL THEN
+        UPDATE ucg_progress_bucket
+        SET synced_to_block_numbers = _synced_to_block_numbers
+        WHERE id = _bucket_id;
+    ELSIF (SELECT count(*) FROM ucg_tracked_address WHERE progress_bucket_id = _bucket_id) <=
+          (SELECT count(*) FROM ucg_tracked_address WHERE progress_bucket_id = _same_bucket_id) THEN
+        -- Some other addresses have the same progress already: merge the buckets,
+        -- moving the addresses of the smaller one.
+        UPDATE ucg_tracked_address
+        SET progress_bucket_id = _same_bucket_id
+        WHERE progress_bucket_id = _bucket_id;
+        DELETE FROM ucg_progress_bucket WHERE id = _bucket_id;
+    ELSE
+        UPDATE ucg_tracked_address
+        SET progress_bucket_id = _bucket_id
+        WHERE progress_bucket_id = _same_bucket_id;
+        DELETE FROM ucg_progress_bucket WHERE id = _same_bucket_id;
+        UPDATE ucg_progress_bucket
+        SET synced_to_block_numbers = _synced_to_block_numbers
+        WHERE id = _bucket_id;
+    END IF;
+END;
+$$;
+
+
+-- Initial implementation only; for latest up-to-date implementation, see the repeatable migration
+CREATE OR REPLACE FUNCTION ucg_advance_progress_range(_from_block_number INTEGER,
+                                                      _to_block_number INTEGER,
+                                                      _addresses TEXT[])
+    RETURNS VOID
+    LANGUAGE plpgsql
+AS
+$$
+DECLARE
+    _bucket RECORD;
+BEGIN
+    -- 1. The addresses that start being synced in some currency (i.e. the synced range contains
+    --    their first block to sync) get the progress of their own; move them to the matching buckets.
+    --    Only the addresses not synced yet in some currency may be such; normally, there are just a few.
+    WITH
+        currency_count AS (
+            SELECT count(*) AS currency_count
+            FROM ucg_currency
+        ),
+        incomplete_bucket AS (
+            SELECT bucket.id, bucket.synced_to_block_numbers
+            FROM ucg_progress_bucket AS bucket, currency_count
+            WHERE (SELECT count(*) FROM jsonb_object_keys(bucket.synced_to_block_numbers)) <
+                  currency_count.currency_count
+        ),
+        candidate AS (
+            SELECT
+                tracked.id,
+                tracked.synced_from_block_number,
+                COALESCE(incomplete_bucket.synced_to_block_numbers, '{}'::JSONB) AS synced_to_block_numbers
+            FROM
+                unnest(_addresses) AS arg(address)
+                INNER JOIN ucg_tracked_address AS tracked USING (address)
+                LEFT JOIN incomplete_bucket
+                          ON incomplete_bucket.id = tracked.progress_bucket_id
+            WHERE tracked.progress_bucket_id IS NULL OR incomplete_bucket.id IS NOT NULL
+        ),
+        mover AS (
+            SELECT
+                candidate.id,
+                ucg_advanced_progress(candidate.synced_to_block_numbers, candidate.synced_from_block_number,
+                                      _from_block_number, _to_block_number) AS synced_to_block_numbers
+            FROM candidate
+            WHERE EXISTS(
+                          SELECT
+                          FROM ucg_currency AS currency
+                          WHERE
+                              NOT candidate.synced_to_block_numbers ? currency.id::TEXT AND
+                              GREATEST(currency.sync_from_block_number, candidate.synced_from_block_number)
+                                  BETWEEN _from_block_number AND _to_block_number
+                      )
+        ),
+        inserted AS (
+            INSERT INTO ucg_progress_bucket(synced_to_block_numbers)
+                SELECT DISTINCT synced_to_block_numbers
+                FROM mover
+            ON CONFLICT (synced_to_block_numbers) DO NOTHING
+            RETURNING id, synced_to_block_numbers
+        )
+    UPDATE ucg_tracked_address
+    SET progress_bucket_id = COALESCE(inserted.id, existing.id)
+    FROM
+        mover
+        LEFT JOIN inserted USING (synced_to_block_numbers)
+        LEFT JOIN ucg_progress_bucket AS existing USING (synced_to_block_numbers)
+    WHERE ucg_tracked_address.id = mover.id;
+
+    -- 2. For all other addresses, the progress is advanced for the whole bucket at once
+    --    (normally, a single row per call).
+    FOR _bucket IN
+        SELECT
+            bucket.id,
+            ucg_advanced_progress(bucket.synced_to_block_numbers, NULL,
+                                  _from_block_number, _to_block_number) AS synced_to_block_numbers,
+            arg_bucket.arg_count,
+            (SELECT count(*) FROM ucg_tracked_address WHERE progress_bucket_id = bucket.id) AS address_count
+        FROM
+            (
+                SELECT tracked.progress_bucket_id, count(*) AS arg_count
+                FROM
+                    unnest(_addresses) AS arg(address)
+                    INNER JOIN ucg_tracked_address AS tracked USING (address)
+                WHERE tracked.progress_bucket_id IS NOT NULL
+                GROUP BY tracked.progress_bucket_id
+            ) AS arg_bucket
+            INNER JOIN ucg_progress_bucket AS bucket
+                       ON bucket.id = arg_bucket.progress_bucket_id
+        ORDER BY bucket.id
+        LOOP
+            -- Skip the buckets which don't change (or have been merged into another one already)
+            CONTINUE WHEN NOT EXISTS(
+                    SELECT
+                    FROM ucg_progress_bucket
+                    WHERE
+                        id = _bucket.id AND
+                        synced_to_block_numbers != _bucket.synced_to_block_numbers
+                );
+
+            IF _bucket.arg_count = _bucket.address_count THEN
+                PERFORM ucg_set_progress_bucket(_bucket.id, _bucket.synced_to_block_numbers);
+            ELSE
+                -- Some addresses of the bucket were not synced (not known to the syncer yet),
+                -- so the synced ones are split away to a different bucket.
+                INSERT INTO ucg_progress_bucket(synced_to_block_numbers)
+                VALUES (_bucket.synced_to_block_numbers)
+                ON CONFLICT (synced_to_block_numbers) DO NOTHING;
+
+                UPDATE ucg_tracked_address
+                SET progress_bucket_id = (
+                    SELECT id
+                    FROM ucg_progress_bucket
+                    WHERE synced_to_block_numbers = _bucket.synced_to_block_numbers
+                )
+                WHERE
+                    progress_bucket_id = _bucket.id AND
+                    address = ANY (_addresses);
+            END IF;
+        END LOOP;
+
+    -- 3. Some buckets may become empty after the moves
+    DELETE
+    FROM ucg_progress_bucket AS bucket
+    WHERE NOT EXISTS(SELECT FROM ucg_tracked_address WHERE progress_bucket_id = bucket.id);
+END;
+$$;
+
+
+-- Initial implementation only; for latest up-to-date implementation, see the repeatable migration
+CREATE OR REPLACE FUNCTION ucg_rewind_progress(_start_block_number INTEGER)
+    RETURNS VOID
+    LANGUAGE plpgsql
+AS
+$$
+DECLARE
+    _bucket RECORD;
+BEGIN
+    FOR _bucket IN
+        SELECT
+            bucket.id,
+            (
+                SELECT jsonb_object_agg(synced_to.currency_id,
+                                        LEAST(synced_to.block_number::INTEGER, _start_block_number - 1))
+                FROM jsonb_each_text(bucket.synced_to_block_numbers) AS synced_to(currency_id, block_number)
+            ) AS synced_to_block_numbers
+        FROM ucg_progress_bucket AS bucket
+        WHERE EXISTS(
+                      SELECT
+                      FROM jsonb_each_text(bucket.synced_to_block_numbers) AS synced_to(currency_id, block_number)
+                      WHERE synced_to.block_number::INTEGER >= _start_block_number
+                  )
+        ORDER BY bucket.id
+        LOOP
+            CONTINUE WHEN NOT EXISTS(SELECT FROM ucg_progress_bucket WHERE id = _bucket.id);
+            PERFORM ucg_set_progress_bucket(_bucket.id, _bucket.synced_to_block_numbers);
+        END LOOP;
+END;
+$$;
+
+
+-- Initial implementation only; for latest up-to-date implementation, see the repeatable migration
+CREATE OR REPLACE FUNCTION ucg_refresh_progress_summary()
+    RETURNS VOID
+    LANGUAGE SQL
+AS
+$$
+UPDATE ucg_progress_summary
+SET
+    block_from = block.min_number,
+    block_to = block.max_number,
+    address_from_min = address.min_from,
+    address_from_max = address.max_from,
+    -- synced_from_block_number of each (currency, tracked address) pair
+    -- is the greater of the currency and the tracked address first blocks
+    currency_address_from_min = CASE
+                                    WHEN currency.min_from IS NOT NULL AND address.min_from IS NOT NULL
+                                        THEN GREATEST(currency.min_from, address.min_from)
+                                END,
+    currency_address_from_max = CASE
+                                    WHEN currency.max_from IS NOT NULL AND address.max_from IS NOT NULL
+                                        THEN GREATEST(currency.max_from, address.max_from)
+                                END,
+    currency_address_to_min = bucket.min_to,
+    currency_address_to_max = bucket.max_to,
+    currency_address_to_has_nulls = currency.currency_count > 0 AND (
+            EXISTS(SELECT FROM ucg_tracked_address WHERE progress_bucket_id IS NULL) OR
+            EXISTS(SELECT
+                   FROM ucg_progress_bucket
+                   WHERE (SELECT count(*) FROM jsonb_object_keys(synced_to_block_numbers)) <
+                         currency.currency_count)
+        )
+FROM
+    (
+        SELECT min(number) AS min_number, max(number) AS max_number
+        FROM ucg_block
+    ) AS block,
+    (
+        SELECT min(synced_from_block_number) AS min_from, max(synced_from_block_number) AS max_from
+        FROM ucg_tracked_address
+    ) AS address,
+    (
+        SELECT
+            min(sync_from_block_number) AS min_from,
+            max(sync_from_block_number) AS max_from,
+            count(*) AS currency_count
+        FROM ucg_currency
+    ) AS currency,
+    (
+        SELECT min(synced_to.block_number::INTEGER) AS min_to, max(synced_to.block_number::INTEGER) AS max_to
+        FROM
+            ucg_progress_bucket,
+            jsonb_each_text(synced_to_block_numbers) AS synced_to(currency_id, block_number)
+    ) AS bucket;
+$$;
+
+
+-- The progress summary is now calculated from the buckets
+SELECT ucg_refresh_progress_summary();
@@ -0,0 +1,5 @@
+-- The summary is refreshed by every syncer iteration anyway (the currencies are not changed by the syncers,
+-- and the currency-only values of ucg_progress are calculated by the view itself);
+-- so the trigger recalculating everything on every currency change is not needed.
+DROP TRIGGER ucg_currency_refresh_progress_summary_tr ON ucg_currency;
+DROP FUNCTION ucg_refresh_progress_summary_trigger_st();
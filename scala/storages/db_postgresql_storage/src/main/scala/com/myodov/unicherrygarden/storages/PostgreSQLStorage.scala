@@ -1,9 +1,13 @@
 package com.myodov.unicherrygarden.storages
 
+import java.io.StringReader
 import java.sql.SQLException
+import java.util.concurrent.atomic.{AtomicLong, AtomicReference}
 
+import com.myodov.unicherrygarden.AbstractEthereumNodeConnector.SingleBlockData
 import com.myodov.unicherrygarden.Tools.seqIsIncrementing
 import com.myodov.unicherrygarden.api.DBStorage.Currencies.DBCurrency
+import com.myodov.unicherrygarden.api.dlt.events.Erc20TransferEvent
 import com.myodov.unicherrygarden.api.types.MinedTransfer
 import com.myodov.unicherrygarden.api.types.dlt.{Block, MinedTx}
 import com.myodov.unicherrygarden.api.types.planted.transactions.SignedOutgoingTransfer
@@ -11,9 +15,13 @@ import com.myodov.unicherrygarden.api.{DBStorageAPI, dlt}
 import com.myodov.unicherrygarden.ethereum.EthUtils
 import com.myodov.unicherrygarden.messages.cherrypicker.AddTrackedAddresses.StartTrackingAddressMode
 import com.myodov.unicherrygarden.messages.cherrypicker.GetBalances.BalanceRequestResultPayload.CurrencyBalanceFact
+import com.myodov.unicherrygarden.messages.cherrypicker.GetTransfers.TransfersCursor
 import com.typesafe.scalalogging.LazyLogging
 import org.flywaydb.core.Flyway
 import org.flywaydb.core.api.output.{CleanResult, MigrateResult}
+import org.postgresql.copy.CopyManager
+import org.postgresql.core.BaseConnection
+import org.web3j.utils.Numeric
 import scalikejdbc._
 
 import scala.collection.compat.Factory
@@ -53,11 +61,58 @@ class PostgreSQLStorage(jdbcUrl: String,
 
   lazy val makeSession: AutoSession.type = AutoSession
 
+  /** The ERC20 Transfer event in the transaction log, if the log contains some (well-formed) one.
+   * Stored in `ucg_erc20_transfer_event` table, so that it is decoded only once.
+   */
+  private[this] def erc20TransferOf(txLog: dlt.EthereumTxLog): Option[Erc20TransferEvent] =
+    try {
+      txLog.isErc20Transfer
+    } catch {
+      case NonFatal(e) =>
+        logger.warn(s"Malformed ERC20 Transfer event in $txLog, ignoring", e)
+        None
+    }
+
 
   object progress extends DBStorageAPI.Progress {
 
     import com.myodov.unicherrygarden.api.DBStorage.Progress._
 
+    /** The published progress snapshot, with the number of the refresh which has read it. */
+    private[this] final case class CachedProgress(refreshNumber: Long, progress: ProgressData)
+
+    /** The latest published progress snapshot; `null` if nothing has been published yet. */
+    private[this] val cachedProgress: AtomicReference[CachedProgress] = new AtomicReference(null)
+
+    /** Increased on every refresh, before reading the progress from the DB. */
+    private[this] val refreshCounter: AtomicLong = new AtomicLong(0)
+
+    override final def getCachedProgress(implicit session: DBSession = ReadOnlyAutoSession): Option[ProgressData] =
+      Option(cachedProgress.get) match {
+        case Some(cached) => Some(cached.progress)
+        case None => refreshCachedProgress // cold start: nothing published yet
+      }
+
+    override final def refreshCachedProgress(implicit session: DBSession = ReadOnlyAutoSession): Option[ProgressData] = {
+      // The refreshes may run concurrently (from the syncers and the request handlers);
+      // the one started later reads the newer data, so it must never be overwritten by the earlier one.
+      val refreshNumber = refreshCounter.incrementAndGet
+      val progressOpt = getProgress
+      progressOpt.foreach { progress =>
+        cachedProgress.accumulateAndGet(
+          CachedProgress(refreshNumber, progress),
+          (prev, next) => if (prev == null || prev.refreshNumber < next.refreshNumber) next else prev)
+      }
+      progressOpt
+    }
+
+    override final def refreshProgressSummary()(implicit session: DBSession): Unit = {
+      // Every value of the summary is either a single index lookup, or taken from the few buckets.
+      sql"""
+      SELECT ucg_refresh_progress_summary()
+      """.execute.apply()
+    }
+
     override final def getProgress(implicit session: DBSession = ReadOnlyAutoSession): Option[ProgressData] = {
       sql"""
       SELECT * FROM ucg_progress;
@@ -91,19 +146,19 @@ class PostgreSQLStorage(jdbcUrl: String,
     }
 
     override final def getFirstBlockResolvingSomeNeverStartedCTAddress(implicit session: DBSession = ReadOnlyAutoSession): Option[Int] = {
+      // The tracked addresses not synced in any currency yet are not in any progress bucket
       sql"""
       SELECT
-          GREATEST(currency.sync_from_block_number, address.synced_from_block_number)
+          GREATEST(currency.sync_from_block_number, address.min_synced_from_block_number)
             AS least_sync_from_block_number
       FROM
-          ucg_currency currency
-          CROSS JOIN ucg_tracked_address address
-          LEFT JOIN ucg_currency_tracked_address_progress cta_progress
-                    ON currency.id = cta_progress.currency_id AND
-                       address.id = cta_progress.tracked_address_id
-      WHERE
-          -- If no cta_progress record at all
-          cta_progress.id IS NULL
+          ucg_currency AS currency,
+          (
+              SELECT min(synced_from_block_number) AS min_synced_from_block_number
+              FROM ucg_tracked_address
+              WHERE progress_bucket_id IS NULL
+          ) AS address
+      WHERE address.min_synced_from_block_number IS NOT NULL
       ORDER BY least_sync_from_block_number
       LIMIT 1;
       """.map(_.intOpt("least_sync_from_block_number")) // may be null if no such records
@@ -113,19 +168,38 @@ class PostgreSQLStorage(jdbcUrl: String,
     }
 
     override final def getFirstBlockResolvingSomeNeverSyncedCTAddress(implicit session: DBSession = ReadOnlyAutoSession): Option[Int] = {
+      // For each progress bucket (and for the addresses not in any bucket yet), only the least
+      // `synced_from_block_number` of its addresses matters; each one is a single index lookup.
       sql"""
+      WITH
+          bucket(synced_to_block_numbers, min_synced_from_block_number) AS (
+              SELECT
+                  '{}'::JSONB,
+                  (
+                      SELECT min(synced_from_block_number)
+                      FROM ucg_tracked_address
+                      WHERE progress_bucket_id IS NULL
+                  )
+              UNION ALL
+              SELECT
+                  ucg_progress_bucket.synced_to_block_numbers,
+                  (
+                      SELECT min(synced_from_block_number)
+                      FROM ucg_tracked_address
+                      WHERE progress_bucket_id = ucg_progress_bucket.id
+                  )
+              FROM ucg_progress_bucket
+          )
       SELECT
-          GREATEST(currency.sync_from_block_number, address.synced_from_block_number)
+          GREATEST(currency.sync_from_block_number, bucket.min_synced_from_block_number)
             AS least_sync_from_block_number
       FROM
-          ucg_currency currency
-          CROSS JOIN ucg_tracked_address address
-          LEFT JOIN ucg_currency_tracked_address_progress cta_progress
-                    ON currency.id = cta_progress.currency_id AND
-                       address.id = cta_progress.tracked_address_id
+          ucg_currency AS currency
+          CROSS JOIN bucket
       WHERE
-          -- If no cta_progress record at all; or maybe even `synced_to_block_number` IS NULL
-          cta_progress.synced_to_block_number IS NULL
+          bucket.min_synced_from_block_number IS NOT NULL AND
+          -- The currency is not synced yet for the addresses of the bucket
+          (bucket.synced_to_block_numbers -> currency.id::TEXT) IS NULL
       ORDER BY least_sync_from_block_number
       LIMIT 1;
       """.map(_.intOpt("least_sync_from_block_number")) // may be null
@@ -196,141 +270,43 @@ class PostgreSQLStorage(jdbcUrl: String,
     override final def advanceProgress(
                                         syncedBlockNumber: Long,
                                         trackedAddresses: Set[String]
-                                      )(implicit session: DBSession) = {
+                                      )(implicit session: DBSession) =
+      advanceProgressRange(syncedBlockNumber.toInt, syncedBlockNumber.toInt, trackedAddresses)
+
+    /** Move the progress through the whole range of blocks, from `fromBlockNumber` to `toBlockNumber` (inclusive);
+     * the result is the same as calling [[advanceProgress]] for each block of the range, in order.
+     *
+     * @param trackedAddresses the sequence of tracked addresses for which the blockchain progress has been read,
+     *                         parsed and stored.
+     *                         We cannot read it from the DB right now and rely upon it,
+     *                         because what if the tracked addresses have changed already since
+     *                         the reading/parsing time?
+     */
+    override final def advanceProgressRange(
+                                             fromBlockNumber: Int,
+                                             toBlockNumber: Int,
+                                             trackedAddresses: Set[String]
+                                           )(implicit session: DBSession) = {
+      require(fromBlockNumber <= toBlockNumber, (fromBlockNumber, toBlockNumber))
       assert(
         trackedAddresses.forall(EthUtils.Addresses.isValidLowercasedAddress),
         trackedAddresses)
 
-      logger.debug(s"DB advanceProgress: $syncedBlockNumber, $trackedAddresses")
+      logger.debug(s"DB advanceProgressRange: $fromBlockNumber to $toBlockNumber, $trackedAddresses")
 
-      // 1. Insert ucg_currency_tracked_address_progress records
-      //    where they didn’t exist before;
-      //    and where the syncedBlockNumber matches the start block number of either a currency or a tracked address
-      //    (whichever is higher - so we can start at later block and sync less blocks overall).
-      {
-        sql"""
-        WITH
-            -- Function argument
-            arg(block_number) AS (
-                SELECT $syncedBlockNumber
-            ),
-            -- Function argument
-            actually_tracked_address_arg(address) AS (
-                SELECT unnest(ARRAY[$trackedAddresses]::TEXT[])
-            ),
-            -- Preprocess the function argument and find the IDs of tracked addresses
-            actually_tracked_address(id, address, synced_from_block_number) AS (
-                SELECT
-                    ucg_tracked_address.id,
-                    ucg_tracked_address.address,
-                    ucg_tracked_address.synced_from_block_number
-                FROM
-                    actually_tracked_address_arg
-                    INNER JOIN ucg_tracked_address
-                               USING (address)
-            ),
-            data_to_insert(currency_id, tracked_address_id, synced_from_block_number, synced_to_block_number) AS (
-                SELECT
-                    currency.id AS currency_id,
-                    address.id AS tracked_address_id,
-                    GREATEST(currency.sync_from_block_number,
-                             address.synced_from_block_number) AS synced_from_block_number,
-                    arg.block_number AS synced_to_block_number
-                FROM
-                    arg,
-                    -- Take all currencies...
-                    ucg_currency currency
-                        -- ... and all tracked addresses...
-                    CROSS JOIN actually_tracked_address address
-                        -- cta_progress.id will be NULL if such pair of (currency_id, tracked_address_id)
-                        -- is not added yet.
-                    LEFT JOIN ucg_currency_tracked_address_progress AS cta_progress
-                              ON currency.id = cta_progress.currency_id AND
-                                 address.id = cta_progress.tracked_address_id
-                WHERE
-                    -- This pair is not added yet
-                    cta_progress.id IS NULL AND
-                    -- We add a new record ONLY if the just-synced block number is equal
-                    -- to the desired cta.synced_from
-                    -- (which is the larger of currency.from and address.from).
-                    arg.block_number = GREATEST(currency.sync_from_block_number,
-                                                address.synced_from_block_number)
-            )
-        INSERT INTO ucg_currency_tracked_address_progress(
-          currency_id,
-          tracked_address_id,
-          synced_from_block_number,
-          synced_to_block_number
-        )
-        SELECT *
-        FROM data_to_insert
-        """.execute.apply()
-      }
-
-      // 2. Update ucg_currency_tracked_address_progress records
-      //    where they existed before;
-      //    and where the syncedBlockNumber has advanced by one.
-      {
-        sql"""
-        WITH
-            arg(block_number) AS (
-                SELECT $syncedBlockNumber
-            ),
-            actually_tracked_address_arg(address) AS (
-                SELECT unnest(ARRAY[$trackedAddresses]::TEXT[])
-            ),
-            actually_tracked_address(id, address, synced_from_block_number) AS (
-                SELECT
-                    ucg_tracked_address.id,
-                    ucg_tracked_address.address,
-                    ucg_tracked_address.synced_from_block_number
-                FROM
-                    actually_tracked_address_arg
-                    INNER JOIN ucg_tracked_address
-                               USING (address)
-            ),
-            data_to_update (currency_id, tracked_address_id, synced_to_block_number) AS (
-                SELECT
-                    currency.id AS currency_id,
-                    address.id AS tracked_address_id,
-                    arg.block_number AS synced_to_block_number
-                FROM
-                    arg,
-                    -- Take all currencies...
-                    ucg_currency currency
-                        -- ... and all tracked addresses...
-                    CROSS JOIN actually_tracked_address address
-                        -- cta_progress.id will be NOT NULL if such pair of (currency_id, tracked_address_id)
-                        -- already exists
-                    LEFT JOIN ucg_currency_tracked_address_progress AS cta_progress
-                              ON currency.id = cta_progress.currency_id AND
-                                 address.id = cta_progress.tracked_address_id
-                WHERE
-                    -- This pair exists already
-                    cta_progress.id IS NOT NULL AND
-                    -- We update the record differently depending on
-                    -- whether synced_to_block_number IS NULL or not.
-                    (
-                      -- We change the NULL to_block_number to non-NULL
-                      -- only if it the current block matches the currently recorded sync_from_block_number
-                      (
-                          synced_to_block_number IS NULL AND
-                          arg.block_number = cta_progress.synced_from_block_number
-                      ) OR
-                      -- When synced_to_block_number IS NOT NULL:
-                      -- Non-NULL to_block_number can only be incremented.
-                      (arg.block_number = synced_to_block_number + 1)
-                    )
-            )
-        UPDATE ucg_currency_tracked_address_progress AS upd_cta_progress
-        SET
-            synced_to_block_number = data_to_update.synced_to_block_number
-        FROM data_to_update
-        WHERE
-            upd_cta_progress.currency_id = data_to_update.currency_id AND
-            upd_cta_progress.tracked_address_id = data_to_update.tracked_address_id;
-        """.execute.apply()
-      }
+      // The progress is stored in ucg_progress_bucket, for all the tracked addresses having the same progress
+      // at once; so normally just a single row is updated, regardless of the number of tracked addresses.
+      // The addresses are passed as a single comma-separated string (rather than a parameter per address),
+      // so that any number of addresses fits into a single query.
+      val trackedAddressesStr = trackedAddresses.mkString(",")
+      sql"""
+      SELECT ucg_advance_progress_range(
+        $fromBlockNumber,
+        $toBlockNumber,
+        string_to_array($trackedAddressesStr, ',')
+      )
+      """.execute.apply()
+      // `ucg_progress_summary` is not updated here, but by `progress.refreshProgressSummary` in the end of transaction
     }
   }
 
@@ -470,51 +446,308 @@ class PostgreSQLStorage(jdbcUrl: String,
                                           mode: StartTrackingAddressMode,
                                           fromBlock: Option[Int]
                                         )(implicit
-                                          session: DBSession = AutoSession
-                                        ): Boolean = {
-      logger.debug(s"Tracking address $address: $comment, $mode, $fromBlock")
-      require(EthUtils.Addresses.isValidLowercasedAddress(address), address)
-      require((mode == StartTrackingAddressMode.FROM_BLOCK) == fromBlock.nonEmpty, (mode, fromBlock))
-
+                                          session: DBSession
+                                        ): Boolean =
       try {
-        sql"""
-        INSERT INTO ucg_tracked_address(
-          address,
-          ucg_comment,
-          synced_from_block_number)
-        VALUES (
-          $address,
-          $comment,
-          CASE ${mode.toString}
-            WHEN 'FROM_BLOCK' THEN $fromBlock
-            WHEN 'LATEST_KNOWN_BLOCK' THEN (SELECT eth_node_highest_block FROM ucg_state)
-            WHEN 'LATEST_NODE_SYNCED_BLOCK' THEN (SELECT eth_node_current_block FROM ucg_state)
-            WHEN 'LATEST_CHERRYGARDEN_SYNCED_BLOCK' THEN (SELECT currency_address_to_max FROM ucg_progress)
-            ELSE NULL -- should fail
-          END
-        );
-        """.execute.apply()
-        true
+        addTrackedAddresses(Seq(address -> comment), mode, fromBlock).contains(address)
       } catch {
         case ex: SQLException =>
-          logger.warn(s"Reinserting prevented: $address, $comment, $mode")
-          false
-        case NonFatal(e) =>
-          logger.error(s"Unexpected error", e)
+          logger.warn(s"Cannot add tracked address: $address, $comment, $mode", ex)
           false
       }
+
+    override final def addTrackedAddresses(
+                                            addresses: Seq[(String, Option[String])],
+                                            mode: StartTrackingAddressMode,
+                                            fromBlock: Option[Int]
+                                          )(implicit
+                                            session: DBSession
+                                          ): Set[String] = {
+      logger.debug(s"Tracking ${addresses.size} addresses: $mode, $fromBlock")
+      require(addresses.forall { case (address, _) => EthUtils.Addresses.isValidLowercasedAddress(address) }, addresses)
+      require((mode == StartTrackingAddressMode.FROM_BLOCK) == fromBlock.nonEmpty, (mode, fromBlock))
+
+      // If the same address is mentioned multiple times, its first comment wins
+      val uniqueAddresses: Seq[(String, Option[String])] = addresses.distinctBy { case (address, _) => address }
+
+      if (uniqueAddresses.isEmpty) {
+        Set.empty
+      } else {
+        // Any DB failure is thrown rather than reported as “nothing added”: the caller must handle it.
+        // The addresses are passed as a single comma-separated string (like everywhere else);
+        // but the comments may contain anything, so they are passed as a real array, in the same order.
+        val addressesStr = uniqueAddresses.map { case (address, _) => address }.mkString(",")
+        val commentsArray = session.connection.createArrayOf(
+          "text",
+          uniqueAddresses.map { case (_, comment) => comment.orNull }.toArray[AnyRef])
+        val commentsParam = ParameterBinder(commentsArray, (stmt, idx) => stmt.setArray(idx, commentsArray))
+
+        // The new addresses are not synced in any currency yet (they are not in any progress bucket);
+        // `ucg_progress_summary` is not updated here, but by `progress.refreshProgressSummary` in the end of transaction.
+        sql"""
+        WITH
+          start_block AS (
+            SELECT
+              CASE ${mode.toString}
+                WHEN 'FROM_BLOCK' THEN $fromBlock
+                WHEN 'LATEST_KNOWN_BLOCK' THEN (SELECT eth_node_highest_block FROM ucg_state)
+                WHEN 'LATEST_NODE_SYNCED_BLOCK' THEN (SELECT eth_node_current_block FROM ucg_state)
+                WHEN 'LATEST_CHERRYGARDEN_SYNCED_BLOCK' THEN (SELECT currency_address_to_max FROM ucg_progress)
+                ELSE NULL -- should fail
+              END AS block_number
+          ),
+          inserted AS (
+            INSERT INTO ucg_tracked_address(
+              address,
+              ucg_comment,
+              synced_from_block_number)
+            SELECT
+              new_address.address,
+              new_address.ucg_comment,
+              start_block.block_number
+            FROM
+              unnest(string_to_array($addressesStr, ','), $commentsParam::TEXT[])
+                AS new_address(address, ucg_comment)
+              CROSS JOIN start_block
+            ON CONFLICT (address) DO NOTHING
+            RETURNING address
+          )
+        SELECT address FROM inserted
+        """.map(_.string("address")).list.apply().toSet
+      }
     }
   }
 
   object blocks extends DBStorageAPI.Blocks {
 
+    /** Make sure the partitions of `ucg_transaction` and `ucg_tx_log` exist for all the blocks in the range. */
+    override final def ensureBlockPartitions(fromBlock: Int,
+                                             toBlock: Int
+                                            )(implicit
+                                              session: DBSession = AutoSession
+                                            ): Unit = {
+      require(fromBlock <= toBlock, (fromBlock, toBlock))
+      sql"""
+      SELECT ucg_ensure_block_partitions($fromBlock, $toBlock)
+      """.execute.apply()
+    }
+
     override final def addBlock(block: dlt.EthereumBlock
                                )(implicit
                                  session: DBSession = AutoSession
                                ) = {
       sql"""
       INSERT INTO ucg_block(number, hash, parent_hash, timestamp)
-      VALUES (${block.number}, ${block.hash}, ${block.parentHash}, ${block.timestamp})
+      VALUES (${block.number}, ${block.hash.toHexString}, ${block.parentHash.map(_.toHexString)}, ${block.timestamp})
+      """.execute.apply()
+    }
+
+    override final def addBlocksWithData(blocksData: Seq[SingleBlockData]
+                                        )(implicit
+                                          session: DBSession
+                                        ): Unit = if (blocksData.nonEmpty) {
+      // Staging tables live only within the connection, and are emptied on each commit;
+      // so HeadSyncer and TailSyncer never see each other’s staged data.
+      sql"""
+      CREATE TEMPORARY TABLE IF NOT EXISTS ucg_staging_block
+      (
+          number      INTEGER                  NOT NULL,
+          hash        CHAR(66)                 NOT NULL,
+          parent_hash CHAR(66)                 NULL,
+          timestamp   TIMESTAMP WITH TIME ZONE NOT NULL
+      ) ON COMMIT DELETE ROWS
+      """.execute.apply()
+      sql"""
+      CREATE TEMPORARY TABLE IF NOT EXISTS ucg_staging_transaction
+      (
+          block_hash          CHAR(66)       NOT NULL,
+          txhash              CHAR(66)       NOT NULL,
+          "from"              CHAR(42)       NOT NULL,
+          "to"                CHAR(42)       NULL,
+          status              INT            NULL,
+          is_status_ok        BOOLEAN        NULL,
+          gas_price           NUMERIC(78, 0) NOT NULL,
+          gas_used            BIGINT         NOT NULL,
+          nonce               INTEGER        NOT NULL,
+          transaction_index   INTEGER        NOT NULL,
+          gas                 BIGINT         NOT NULL,
+          value               NUMERIC(78, 0) NOT NULL,
+          effective_gas_price NUMERIC(78, 0) NOT NULL,
+          cumulative_gas_used BIGINT         NOT NULL
+      ) ON COMMIT DELETE ROWS
+      """.execute.apply()
+      sql"""
+      CREATE TEMPORARY TABLE IF NOT EXISTS ucg_staging_tx_log
+      (
+          txhash       CHAR(66) NOT NULL,
+          block_number INTEGER  NOT NULL,
+          log_index    SMALLINT NOT NULL,
+          address      CHAR(42) NOT NULL,
+          topics       TEXT     NOT NULL, -- comma-separated hex strings, without 0x prefix
+          data         TEXT     NOT NULL, -- hex string, without 0x prefix
+          -- Decoded ERC20 Transfer event (if the log is some)
+          erc20_from   CHAR(42)       NULL,
+          erc20_to     CHAR(42)       NULL,
+          erc20_value  NUMERIC(78, 0) NULL
+      ) ON COMMIT DELETE ROWS
+      """.execute.apply()
+      // Maybe we’ve staged something already in the same DB transaction
+      sql"""
+      TRUNCATE ucg_staging_block, ucg_staging_transaction, ucg_staging_tx_log
+      """.execute.apply()
+
+      // Load everything into the staging tables (in COPY text format);
+      // the hashes and addresses are rendered by their `toString`, as the lowercased hex strings.
+      val copyManager = new CopyManager(session.connection.unwrap(classOf[BaseConnection]))
+
+      def copyIn(tableWithColumns: String, rows: Iterable[Seq[Any]]): Long =
+        copyManager.copyIn(
+          s"COPY $tableWithColumns FROM STDIN",
+          new StringReader(
+            rows.map(_.map {
+              case None | null => """\N"""
+              case Some(v) => PostgreSQLStorage.escapeCopyText(v.toString)
+              case v => PostgreSQLStorage.escapeCopyText(v.toString)
+            }.mkString("\t")).mkString("", "\n", "\n"))
+        )
+
+      val txs = blocksData.flatMap { case (block, transactions) => transactions.map(block -> _) }
+      val blocksCopied = copyIn(
+        "ucg_staging_block(number, hash, parent_hash, timestamp)",
+        blocksData.map { case (block, _) => Seq(block.number, block.hash, block.parentHash, block.timestamp) }
+      )
+      val txsCopied = copyIn(
+        """ucg_staging_transaction(
+          block_hash, txhash, "from", "to",
+          status, is_status_ok, gas_price, gas_used,
+          nonce, transaction_index, gas, value,
+          effective_gas_price, cumulative_gas_used
+        )""",
+        txs.map { case (block, tx) => Seq(
+          block.hash, tx.txhash, tx.from, tx.to,
+          tx.status, tx.isStatusOk, tx.gasPrice, tx.gasUsed,
+          tx.nonce, tx.transactionIndex, tx.gas, tx.value,
+          tx.effectiveGasPrice, tx.cumulativeGasUsed
+        )
+        }
+      )
+      val txLogsCopied = copyIn(
+        "ucg_staging_tx_log(txhash, block_number, log_index, address, topics, data, erc20_from, erc20_to, erc20_value)",
+        txs.flatMap { case (block, tx) => tx.txLogs.map { l =>
+          val transfer = erc20TransferOf(l)
+          Seq(
+            tx.txhash, block.number, l.logIndex, l.address,
+            l.topics.map(t => Numeric.toHexStringNoPrefix(t.toArray)).mkString(","),
+            Numeric.toHexStringNoPrefix(l.data.toArray),
+            transfer.map(_.from), transfer.map(_.to), transfer.map(_.value)
+          )
+        }
+        }
+      )
+      logger.debug(s"Staged $blocksCopied blocks, $txsCopied transactions, $txLogsCopied tx logs")
+
+      // Merge the staged data into the real tables, a single statement per table.
+      sql"""
+      INSERT INTO ucg_block(number, hash, parent_hash, timestamp)
+      SELECT number, hash, parent_hash, timestamp
+      FROM ucg_staging_block
+      ORDER BY number
+      ON CONFLICT (number) DO NOTHING
+      """.execute.apply()
+      sql"""
+      INSERT INTO ucg_transaction(
+        block_number,
+        txhash, "from", "to",
+        status, is_status_ok, ucg_comment, gas_price,
+        gas_used, nonce, transaction_index, gas,
+        value, effective_gas_price, cumulative_gas_used
+      )
+      SELECT
+        ucg_block.number,
+        staged.txhash, staged."from", staged."to",
+        staged.status, staged.is_status_ok, NULL, staged.gas_price,
+        staged.gas_used, staged.nonce, staged.transaction_index, staged.gas,
+        staged.value, staged.effective_gas_price, staged.cumulative_gas_used
+      FROM
+        ucg_staging_transaction AS staged
+        LEFT JOIN ucg_block ON ucg_block.hash = staged.block_hash
+      ON CONFLICT (txhash, block_number) DO UPDATE SET
+        "from" = EXCLUDED."from",
+        "to" = EXCLUDED."to",
+        status = EXCLUDED.status,
+        is_status_ok = EXCLUDED.is_status_ok,
+        ucg_comment = EXCLUDED.ucg_comment,
+        gas_price = EXCLUDED.gas_price,
+        gas_used = EXCLUDED.gas_used,
+        nonce = EXCLUDED.nonce,
+        transaction_index = EXCLUDED.transaction_index,
+        gas = EXCLUDED.gas,
+        value = EXCLUDED.value,
+        effective_gas_price = EXCLUDED.effective_gas_price,
+        cumulative_gas_used = EXCLUDED.cumulative_gas_used
+      """.execute.apply()
+      sql"""
+      INSERT INTO ucg_tx_log(
+        transaction_id,
+        block_number,
+        log_index,
+        address,
+        topics,
+        data
+      )
+      SELECT
+        ucg_transaction.id,
+        staged.block_number,
+        staged.log_index,
+        staged.address,
+        ARRAY(
+          SELECT decode(topic, 'hex')
+          FROM unnest(string_to_array(staged.topics, ',')) WITH ORDINALITY AS _topics(topic, topic_index)
+          ORDER BY topic_index
+        ),
+        decode(staged.data, 'hex')
+      FROM
+        ucg_staging_tx_log AS staged
+        LEFT JOIN ucg_transaction
+                  ON ucg_transaction.txhash = staged.txhash AND
+                     ucg_transaction.block_number = staged.block_number
+      ON CONFLICT (block_number, log_index) DO UPDATE SET
+        transaction_id = EXCLUDED.transaction_id,
+        address = EXCLUDED.address,
+        topics = EXCLUDED.topics,
+        data = EXCLUDED.data
+      """.execute.apply()
+      sql"""
+      INSERT INTO ucg_erc20_transfer_event(
+        tx_log_id,
+        transaction_id,
+        block_number,
+        log_index,
+        contract,
+        "from",
+        "to",
+        value
+      )
+      SELECT
+        ucg_tx_log.id,
+        ucg_tx_log.transaction_id,
+        staged.block_number,
+        staged.log_index,
+        staged.address,
+        staged.erc20_from,
+        staged.erc20_to,
+        staged.erc20_value
+      FROM
+        ucg_staging_tx_log AS staged
+        INNER JOIN ucg_tx_log USING (block_number, log_index)
+      WHERE staged.erc20_from IS NOT NULL
+      ON CONFLICT (block_number, log_index) DO UPDATE SET
+        tx_log_id = EXCLUDED.tx_log_id,
+        transaction_id = EXCLUDED.transaction_id,
+        contract = EXCLUDED.contract,
+        "from" = EXCLUDED."from",
+        "to" = EXCLUDED."to",
+        value = EXCLUDED.value
       """.execute.apply()
     }
 
@@ -537,6 +770,30 @@ class PostgreSQLStorage(jdbcUrl: String,
         .apply()
     }
 
+    override final def getBlocksByNumberRange(
+                                               fromBlock: Int,
+                                               toBlock: Int
+                                             )(implicit
+                                               session: DBSession = ReadOnlyAutoSession
+                                             ): SortedMap[Int, dlt.EthereumBlock] = {
+      sql"""
+      SELECT *
+      FROM ucg_block
+      WHERE number BETWEEN $fromBlock AND $toBlock
+      ORDER BY number
+      """
+        .map(
+          rs => rs.int("number") -> dlt.EthereumBlock(
+            number = rs.int("number"),
+            hash = rs.string("hash"),
+            parentHash = rs.stringOpt("parent_hash"),
+            timestamp = rs.timestamp("timestamp").toInstant
+          ))
+        .list
+        .apply()
+        .to(SortedMap)
+    }
+
     override final def getLatestHashes(
                                         howMany: Int
                                       )(implicit session: DBSession = ReadOnlyAutoSession): SortedMap[Int, String] = {
@@ -583,6 +840,19 @@ class PostgreSQLStorage(jdbcUrl: String,
       try {
         logger.debug(s"Performing rewind of blocks since $startBlockNumber")
 
+        balances.lockBalanceCheckpoints()
+        sql"""
+        DELETE FROM ucg_balance_checkpoint
+        WHERE block_number >= $startBlockNumber
+        """.execute.apply()
+        logger.debug(s"Rewound ucg_balance_checkpoint")
+
+        sql"""
+        DELETE FROM ucg_erc20_transfer_event
+        WHERE block_number >= $startBlockNumber
+        """.execute.apply()
+        logger.debug(s"Rewound ucg_erc20_transfer_event")
+
         sql"""
         DELETE FROM ucg_tx_log
         WHERE block_number >= $startBlockNumber
@@ -602,11 +872,21 @@ class PostgreSQLStorage(jdbcUrl: String,
         logger.debug(s"Rewound ucg_block")
 
         sql"""
-        UPDATE ucg_currency_tracked_address_progress
-        SET synced_to_block_number = $startBlockNumber - 1
-        WHERE synced_to_block_number >= $startBlockNumber
+        SELECT ucg_rewind_progress($startBlockNumber)
+        """.execute.apply()
+        logger.debug(s"Rewound ucg_progress_bucket") // ucg_tracked_address.synced_to_block_number is not seriously used
+
+        // All the synced_to_block_number values since the start block became `startBlockNumber - 1`,
+        // so the new ones are calculated exactly; the blocks are just looked up in the index.
+        sql"""
+        UPDATE ucg_progress_summary
+        SET
+          block_from = (SELECT min(number) FROM ucg_block),
+          block_to = (SELECT max(number) FROM ucg_block),
+          currency_address_to_min = LEAST(currency_address_to_min, $startBlockNumber - 1),
+          currency_address_to_max = LEAST(currency_address_to_max, $startBlockNumber - 1)
         """.execute.apply()
-        logger.debug(s"Rewound ucg_currency_tracked_address_progress") // ucg_tracked_address.synced_to_block_number is not seriously used
+        logger.debug(s"Rewound ucg_progress_summary")
 
         true
       } catch {
@@ -642,13 +922,12 @@ class PostgreSQLStorage(jdbcUrl: String,
       )
       VALUES (
         (SELECT number FROM ucg_block WHERE hash = $blockHash),
-        ${tx.txhash}, ${tx.from}, ${tx.to},
+        ${tx.txhash.toHexString}, ${tx.from.toHexString}, ${tx.to.map(_.toHexString)},
         ${tx.status}, ${tx.isStatusOk}, NULL, ${tx.gasPrice},
         ${tx.gasUsed}, ${tx.nonce}, ${tx.transactionIndex}, ${tx.gas},
         ${tx.value}, ${tx.effectiveGasPrice}, ${tx.cumulativeGasUsed}
       )
-      ON CONFLICT (txhash) DO UPDATE SET
-        block_number = EXCLUDED.block_number,
+      ON CONFLICT (txhash, block_number) DO UPDATE SET
         "from" = EXCLUDED."from",
         "to" = EXCLUDED."to",
         status = EXCLUDED.status,
@@ -678,8 +957,9 @@ class PostgreSQLStorage(jdbcUrl: String,
       val batchParams: Seq[Seq[Any]] = txLogs.map(t => Seq(
         transactionHash,
         blockNumber,
+        blockNumber,
         t.logIndex,
-        t.address,
+        t.address.toHexString,
         t.topics.map(_.toArray).toArray,
         t.data.toArray
       ))
@@ -693,7 +973,7 @@ class PostgreSQLStorage(jdbcUrl: String,
         data
       )
       VALUES(
-        (SELECT id FROM ucg_transaction WHERE txhash = ?),
+        (SELECT id FROM ucg_transaction WHERE txhash = ? AND block_number = ?),
         ?,
         ?,
         ?,
@@ -708,6 +988,41 @@ class PostgreSQLStorage(jdbcUrl: String,
       """
         .batch(batchParams: _*)
         .apply()(session, implicitly[Factory[Int, Seq[Int]]])
+
+      val transferBatchParams: Seq[Seq[Any]] = txLogs.flatMap(t => erc20TransferOf(t).map(transfer => Seq(
+        t.address.toHexString,
+        transfer.from,
+        transfer.to,
+        BigDecimal(transfer.value),
+        blockNumber,
+        t.logIndex
+      )))
+      if (transferBatchParams.nonEmpty) {
+        sql"""
+        INSERT INTO ucg_erc20_transfer_event(
+          tx_log_id,
+          transaction_id,
+          block_number,
+          log_index,
+          contract,
+          "from",
+          "to",
+          value
+        )
+        SELECT ucg_tx_log.id, ucg_tx_log.transaction_id, ucg_tx_log.block_number, ucg_tx_log.log_index, ?, ?, ?, ?
+        FROM ucg_tx_log
+        WHERE block_number = ? AND log_index = ?
+        ON CONFLICT (block_number, log_index) DO UPDATE SET
+          tx_log_id = EXCLUDED.tx_log_id,
+          transaction_id = EXCLUDED.transaction_id,
+          contract = EXCLUDED.contract,
+          "from" = EXCLUDED."from",
+          "to" = EXCLUDED."to",
+          value = EXCLUDED.value
+        """
+          .batch(transferBatchParams: _*)
+          .apply()(session, implicitly[Factory[Int, Seq[Int]]])
+      }
     }
   }
 
@@ -717,12 +1032,26 @@ class PostgreSQLStorage(jdbcUrl: String,
                                     maxBlock: Int,
                                     currencyKeys: Option[Set[String]]
                                   )(implicit session: DBSession = ReadOnlyAutoSession): List[CurrencyBalanceFact] =
-      sql"""
+      getBalancesForAddresses(Set(address), maxBlock, currencyKeys)(session)(address)
+
+    override final def getBalancesForAddresses(
+                                                addresses: Set[String],
+                                                maxBlock: Int,
+                                                currencyKeys: Option[Set[String]]
+                                              )(implicit
+                                                session: DBSession = ReadOnlyAutoSession
+                                              ): Map[String, List[CurrencyBalanceFact]] = {
+      require(addresses.forall(EthUtils.Addresses.isValidLowercasedAddress), addresses)
+
+      // Passed as a single comma-separated string (rather than a parameter per address),
+      // so that any number of addresses fits into a single query.
+      val addressesStr = addresses.mkString(",")
+
+      val balances = sql"""
       WITH
           _vars AS (
               SELECT
                   $maxBlock AS end_block,
-                  $address AS address,
                   ARRAY [${currencyKeys.map(_.toSeq).orNull}]::TEXT[] AS filter_currency_keys
           ),
           vars AS (
@@ -731,73 +1060,93 @@ class PostgreSQLStorage(jdbcUrl: String,
                   filter_currency_keys != ARRAY[NULL]::TEXT[] AS has_filter_currency_keys
               FROM _vars
           ),
+          addresses AS (
+              SELECT DISTINCT unnest(string_to_array($addressesStr, ','))::CHAR(42) AS address
+          ),
           currencies AS (
               SELECT currencies.*
               FROM
                   vars
                   CROSS JOIN ucg_get_currencies_for_keys_filter(has_filter_currency_keys, filter_currency_keys) AS currencies
           ),
-          -- ETH transfers for the requested address,
-          -- from the block calculated using `ucg_latest_block_with_eth_transfer_for_address`.
-          -- All ETH transfers from this block are retrieved.
-          latest_eth_transfers_ambig AS (
+          -- The latest balance checkpoint (if any) not newer than the end block,
+          -- for each requested address and currency.
+          checkpoints AS (
               SELECT
-                  eth_transfer.*,
-                  (last_value(transaction_index)
-                   OVER (PARTITION BY currency_id, address
-                       ORDER BY block_number, transaction_index
-                       ROWS BETWEEN UNBOUNDED PRECEDING AND UNBOUNDED FOLLOWING)) AS max_transaction_index_in_block
+                  addresses.address,
+                  currencies.currency_id,
+                  latest_checkpoint.block_number,
+                  latest_checkpoint.balance
               FROM
                   vars
+                  CROSS JOIN addresses
                   CROSS JOIN currencies
-                  INNER JOIN ucg_eth_transfer_tr_addr_w_balance AS eth_transfer
-                             USING (currency_id, address)
-                  INNER JOIN ucg_latest_block_with_eth_transfer_for_address(
-                          currencies.currency_id, vars.address, vars.end_block)
-                             USING(block_number)
-          ),
-          -- Only the latest ETH transfer in the block.
-          latest_eth_transfer AS (
-              SELECT *
-              FROM latest_eth_transfers_ambig
-              WHERE transaction_index = max_transaction_index_in_block
+                  LEFT JOIN LATERAL (
+                      SELECT
+                          ucg_balance_checkpoint.block_number,
+                          ucg_balance_checkpoint.balance
+                      FROM ucg_balance_checkpoint
+                      WHERE
+                          ucg_balance_checkpoint.address = addresses.address AND
+                          ucg_balance_checkpoint.currency_id = currencies.currency_id AND
+                          ucg_balance_checkpoint.block_number <= vars.end_block
+                      ORDER BY ucg_balance_checkpoint.block_number DESC
+                      LIMIT 1
+                      ) AS latest_checkpoint ON TRUE
           ),
-          -- ERC20 transfers for the requested address and all the requested currencies,
-          -- from the block calculated using `ucg_latest_block_with_verified_erc20_transfer_for_address`.
-          -- All ERC20 transfers (for these currencies) from this block are retrieved (even multiple ones).
-          latest_erc20_transfers_ambig AS (
+          -- All the balance changes after the checkpoint (or since the very beginning, if there is no checkpoint),
+          -- up to the end block.
+          tail_changes AS (
               SELECT
-                  erc20_transfer.*,
-                  (last_value(log_index)
-                   OVER (PARTITION BY currency_id, address
-                       ORDER BY block_number, log_index
-                       ROWS BETWEEN UNBOUNDED PRECEDING AND UNBOUNDED FOLLOWING)) AS max_log_index_in_block
+                  address,
+                  currency_id,
+                  eth_transfer.block_number,
+                  eth_transfer.balance_change
               FROM
                   vars
-                  CROSS JOIN currencies
-                  INNER JOIN ucg_erc20_transfer_for_verified_currency_tr_addr_w_balance AS erc20_transfer
+                  CROSS JOIN checkpoints
+                  INNER JOIN ucg_eth_transfer_tr_addr AS eth_transfer
                              USING (currency_id, address)
-                  INNER JOIN ucg_latest_block_with_verified_erc20_transfer_for_address(
-                          currencies.currency_id, vars.address, vars.end_block) USING (block_number)
-          ),
-          -- Only the latest ERC20 transfers in the block.
-          latest_erc20_transfers AS (
-              SELECT *
-              FROM latest_erc20_transfers_ambig
-              WHERE log_index = max_log_index_in_block
+              WHERE
+                  eth_transfer.block_number > COALESCE(checkpoints.block_number, -1) AND
+                  eth_transfer.block_number <= vars.end_block
+              UNION ALL
+              SELECT
+                  address,
+                  currency_id,
+                  erc20_transfer.block_number,
+                  erc20_transfer.balance_change
+              FROM
+                  vars
+                  CROSS JOIN checkpoints
+                  INNER JOIN ucg_erc20_transfer_for_verified_currency_tr_addr AS erc20_transfer
+                             USING (currency_id, address)
+              WHERE
+                  erc20_transfer.block_number > COALESCE(checkpoints.block_number, -1) AND
+                  erc20_transfer.block_number <= vars.end_block
           ),
-          latest_transfers AS (
+          tail AS (
               SELECT
+                  address,
                   currency_id,
-                  block_number,
-                  balance
-              FROM latest_eth_transfer
-              UNION
+                  max(block_number) AS block_number,
+                  sum(balance_change) AS balance_change
+              FROM tail_changes
+              GROUP BY address, currency_id
+          ),
+          latest_transfers AS (
               SELECT
+                  address,
                   currency_id,
-                  block_number,
-                  balance
-              FROM latest_erc20_transfers
+                  COALESCE(tail.block_number, checkpoints.block_number) AS block_number,
+                  COALESCE(checkpoints.balance, 0) + COALESCE(tail.balance_change, 0) AS balance
+              FROM
+                  checkpoints
+                  LEFT JOIN tail USING (address, currency_id)
+              WHERE
+                  -- Only the currencies which had any transfers at all
+                  checkpoints.block_number IS NOT NULL OR
+                  tail.block_number IS NOT NULL
           )
       SELECT
           latest_transfers.*,
@@ -812,11 +1161,125 @@ class PostgreSQLStorage(jdbcUrl: String,
           latest_transfers
           INNER JOIN ucg_currency
                      ON ucg_currency.id = latest_transfers.currency_id;
-          """.map(rs => new CurrencyBalanceFact(
+          """.map(rs => rs.string("address") -> new CurrencyBalanceFact(
         DBCurrency.fromUcgCurrency(rs, "currency_").asCurrency,
         rs.bigDecimal("balance"),
         rs.int("block_number")
       )).list.apply()
+
+      val balancesByAddress = balances.groupMap(_._1)(_._2)
+      addresses.map(address => address -> balancesByAddress.getOrElse(address, Nil)).toMap
+    }
+
+    override final def updateBalanceCheckpoints(
+                                                 fromBlock: Int,
+                                                 toBlock: Int
+                                               )(implicit session: DBSession): Unit = {
+      require(fromBlock <= toBlock, (fromBlock, toBlock))
+      logger.debug(s"DB updateBalanceCheckpoints: $fromBlock to $toBlock")
+
+      lockBalanceCheckpoints()
+
+      // 1. Any checkpoint since `fromBlock` (for any address and currency that got some transfers in the range)
+      //    may miss the just stored transfers; delete them.
+      // 2. Add the checkpoints at the latest transfer in the range (for every such address and currency),
+      //    continuing the latest remaining checkpoint.
+      sql"""
+      WITH
+          changed AS (
+              SELECT DISTINCT address, currency_id
+              FROM ucg_eth_transfer_tr_addr
+              WHERE block_number BETWEEN $fromBlock AND $toBlock
+              UNION
+              SELECT DISTINCT address, currency_id
+              FROM ucg_erc20_transfer_for_verified_currency_tr_addr
+              WHERE block_number BETWEEN $fromBlock AND $toBlock
+          )
+      DELETE FROM ucg_balance_checkpoint
+      USING changed
+      WHERE
+          ucg_balance_checkpoint.address = changed.address AND
+          ucg_balance_checkpoint.currency_id = changed.currency_id AND
+          ucg_balance_checkpoint.block_number >= $fromBlock
+      """.execute.apply()
+      sql"""
+      WITH
+          changes AS (
+              SELECT address, currency_id, block_number
+              FROM ucg_eth_transfer_tr_addr
+              WHERE block_number BETWEEN $fromBlock AND $toBlock
+              UNION ALL
+              SELECT address, currency_id, block_number
+              FROM ucg_erc20_transfer_for_verified_currency_tr_addr
+              WHERE block_number BETWEEN $fromBlock AND $toBlock
+          ),
+          changed AS (
+              SELECT
+                  address,
+                  currency_id,
+                  max(block_number) AS block_number
+              FROM changes
+              GROUP BY address, currency_id
+          ),
+          changed_w_prev AS (
+              SELECT
+                  changed.*,
+                  COALESCE(prev_checkpoint.block_number, -1) AS prev_block_number,
+                  COALESCE(prev_checkpoint.balance, 0) AS prev_balance
+              FROM
+                  changed
+                  LEFT JOIN LATERAL (
+                      SELECT
+                          ucg_balance_checkpoint.block_number,
+                          ucg_balance_checkpoint.balance
+                      FROM ucg_balance_checkpoint
+                      WHERE
+                          ucg_balance_checkpoint.address = changed.address AND
+                          ucg_balance_checkpoint.currency_id = changed.currency_id
+                      ORDER BY ucg_balance_checkpoint.block_number DESC
+                      LIMIT 1
+                      ) AS prev_checkpoint ON TRUE
+          )
+      INSERT INTO ucg_balance_checkpoint(address, currency_id, block_number, balance)
+      SELECT
+          changed_w_prev.address,
+          changed_w_prev.currency_id,
+          changed_w_prev.block_number,
+          changed_w_prev.prev_balance +
+          COALESCE((
+                       SELECT sum(eth_transfer.balance_change)
+                       FROM ucg_eth_transfer_tr_addr AS eth_transfer
+                       WHERE
+                           eth_transfer.address = changed_w_prev.address AND
+                           eth_transfer.currency_id = changed_w_prev.currency_id AND
+                           eth_transfer.block_number > changed_w_prev.prev_block_number AND
+                           eth_transfer.block_number <= changed_w_prev.block_number
+                   ), 0) +
+          COALESCE((
+                       SELECT sum(erc20_transfer.balance_change)
+                       FROM ucg_erc20_transfer_for_verified_currency_tr_addr AS erc20_transfer
+                       WHERE
+                           erc20_transfer.address = changed_w_prev.address AND
+                           erc20_transfer.currency_id = changed_w_prev.currency_id AND
+                           erc20_transfer.block_number > changed_w_prev.prev_block_number AND
+                           erc20_transfer.block_number <= changed_w_prev.block_number
+                   ), 0)
+      FROM changed_w_prev
+      """.execute.apply()
+    }
+
+    /** Make the concurrent updates of the balance checkpoints (from the other DB transactions)
+     * wait until the current DB transaction completes.
+     *
+     * Otherwise, a checkpoint calculated by some transaction might miss the transfers stored
+     * by another transaction, not committed yet.
+     * Reading the checkpoints is not blocked.
+     */
+    private[storages] def lockBalanceCheckpoints()(implicit session: DBSession): Unit = {
+      sql"""
+      LOCK TABLE ucg_balance_checkpoint IN SHARE ROW EXCLUSIVE MODE
+      """.execute.apply()
+    }
   }
 
   object transfers extends DBStorageAPI.Transfers {
@@ -825,16 +1288,27 @@ class PostgreSQLStorage(jdbcUrl: String,
                                      receiver: Option[String],
                                      optStartBlock: Option[Int],
                                      endBlock: Int,
-                                     currencyKeys: Option[Set[String]]
-                                   )(implicit session: DBSession = ReadOnlyAutoSession): List[MinedTransfer] =
+                                     currencyKeys: Option[Set[String]],
+                                     after: Option[TransfersCursor],
+                                     limit: Option[Int]
+                                   )(implicit session: DBSession = ReadOnlyAutoSession): List[MinedTransfer] = {
+      // The cursor block is the lower bound as well, to let the partitions be pruned
+      val startBlock = (optStartBlock.toList ++ after.map(_.blockNumber)).maxOption.getOrElse(0)
+      val afterBlock = after.map(_.blockNumber)
+      val afterTransactionIndex = after.map(_.transactionIndex)
+      val afterLogIndex = after.flatMap(c => Option(c.logIndex).map(_.toInt))
+      // The pages must follow the (strictly total) order of TransfersCursor;
+      // the non-paged requests keep the original order.
+      val orderBy =
+        if (after.isEmpty && limit.isEmpty) sqls"block_number, currency_id, second_order_key_in_block"
+        else sqls"block_number, transaction_index, log_index NULLS FIRST"
+
       sql"""
       WITH
           _vars AS (
               SELECT
                   $sender::TEXT AS "from",            -- NULL, but not together with receiver
                   $receiver::TEXT AS "to",            -- NULL, but not together with sender
-                  $optStartBlock::INT AS start_block, -- NULL
-                  $endBlock AS end_block,             -- NON NULL
                   ARRAY [${currencyKeys.map(_.toSeq).orNull}] AS filter_currency_keys
           ),
           vars AS (
@@ -867,13 +1341,9 @@ class PostgreSQLStorage(jdbcUrl: String,
                       WHEN TRUE THEN TRUE -- no condition
                       ELSE eth_transfer."to" = vars."to" -- "to" condition
                   END AND
-                  -- Extra condition for start block
-                  CASE start_block IS NULL
-                      WHEN TRUE THEN TRUE -- no condition
-                      ELSE eth_transfer.block_number >= start_block -- start_block condition
-                  END AND
-                  -- Extra condition for end block
-                  eth_transfer.block_number <= end_block
+                  -- Block range conditions; compared to the parameters directly, for the partition pruning
+                  eth_transfer.block_number >= $startBlock AND
+                  eth_transfer.block_number <= $endBlock
           ),
           erc20_transfers AS (
               SELECT erc20_transfer.*
@@ -893,13 +1363,9 @@ class PostgreSQLStorage(jdbcUrl: String,
                       WHEN TRUE THEN TRUE -- no condition
                       ELSE erc20_transfer."to" = vars."to" -- "to" condition
                   END AND
-                  -- Extra condition for start block
-                  CASE start_block IS NULL
-                      WHEN TRUE THEN TRUE -- no condition
-                      ELSE erc20_transfer.block_number >= start_block -- start_block condition
-                  END AND
-                  -- Extra condition for end block
-                  erc20_transfer.block_number <= end_block
+                  -- Block range conditions; compared to the parameters directly, for the partition pruning
+                  erc20_transfer.block_number >= $startBlock AND
+                  erc20_transfer.block_number <= $endBlock
           )
       SELECT
           transfers.*,
@@ -942,11 +1408,15 @@ class PostgreSQLStorage(jdbcUrl: String,
           INNER JOIN ucg_block
               ON ucg_block.number = transfers.block_number
           INNER JOIN ucg_transaction
-              ON ucg_transaction.id = transfers.transaction_id
-      ORDER BY
-          block_number,
-          currency_id,
-          second_order_key_in_block;
+              ON ucg_transaction.id = transfers.transaction_id AND
+                 ucg_transaction.block_number = transfers.block_number
+      WHERE
+          -- Keyset pagination: only the transfers after the cursor (ETH transfer goes before the logs of its transaction)
+          $afterBlock::INT IS NULL OR
+          (transfers.block_number, ucg_transaction.transaction_index, COALESCE(transfers.log_index, -1)) >
+          ($afterBlock::INT, $afterTransactionIndex::INT, COALESCE($afterLogIndex::INT, -1))
+      ORDER BY $orderBy
+      LIMIT $limit::INT; -- NULL means no limit
       """.map(rs => new MinedTransfer(
         rs.string("from"),
         rs.string("to"),
@@ -966,6 +1436,7 @@ class PostgreSQLStorage(jdbcUrl: String,
         ),
         rs.intOpt("log_index").map(Integer.valueOf).orNull
       )).list.apply()
+    }
   }
 
   object plants extends DBStorageAPI.Plants {
@@ -1049,4 +1520,22 @@ object PostgreSQLStorage {
     ConnectionPool.singleton(jdbcUrl, dbUser, dbPassword, poolSettings)
     new PostgreSQLStorage(jdbcUrl, dbUser, dbPassword, wipeOnStart, migrationPaths)
   }
+
+  /** Escape a single (non-NULL) value for the COPY text format:
+   * backslash, and the characters that would be taken as the column/row delimiters.
+   */
+  private[storages] def escapeCopyText(value: String): String =
+    if (value.forall(c => c != '\\' && c != '\t' && c != '\n' && c != '\r')) {
+      value // The usual case: hex strings, numbers and timestamps
+    } else {
+      val sb = new StringBuilder(value.length + 8)
+      value.foreach {
+        case '\\' => sb ++= """\\"""
+        case '\t' => sb ++= """\t"""
+        case '\n' => sb ++= """\n"""
+        case '\r' => sb ++= """\r"""
+        case c => sb += c
+      }
+      sb.result()
+    }
 }